@@ -24,11 +24,17 @@ import com.bumptech.glide.gifdecoder.GifDecoder;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.data.ByteChain;
 import com.bumptech.glide.load.data.InputStreamRewinder;
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.SourceFetchCoordinator;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController;
+import com.bumptech.glide.load.engine.cache.EncodedResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.load.engine.prefill.BitmapPreFiller;
 import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.load.model.AssetUriLoader;
@@ -57,6 +63,8 @@ import com.bumptech.glide.load.resource.bitmap.ByteBufferBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
 import com.bumptech.glide.load.resource.bitmap.ExifInterfaceImageHeaderParser;
+import com.bumptech.glide.load.resource.bitmap.RawBitmapDecoder;
+import com.bumptech.glide.load.resource.bitmap.RawBitmapEncoder;
 import com.bumptech.glide.load.resource.bitmap.ResourceBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.StreamBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.UnitBitmapDecoder;
@@ -76,13 +84,22 @@ import com.bumptech.glide.load.resource.transcode.DrawableBytesTranscoder;
 import com.bumptech.glide.load.resource.transcode.GifDrawableBytesTranscoder;
 import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.RequestManagerRetriever;
+import com.bumptech.glide.module.AppGlideModule;
 import com.bumptech.glide.module.ManifestParser;
+import com.bumptech.glide.request.PauseMode;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.SizeBuckets;
 import com.bumptech.glide.request.target.ImageViewTargetFactory;
 import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.Executors;
+import com.bumptech.glide.util.FrameBudgetedExecutor;
+import com.bumptech.glide.util.GlideSuppliers;
+import com.bumptech.glide.util.GlideSuppliers.GlideSupplier;
 import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
+import com.bumptech.glide.util.pool.GlideTrace;
 import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
@@ -103,6 +120,7 @@ import java.util.Set;
 public class Glide implements ComponentCallbacks2 {
   private static final String DEFAULT_DISK_CACHE_DIR = "image_manager_disk_cache";
   private static final String TAG = "Glide";
+  private static final String INITIALIZE_IN_BACKGROUND_EXECUTOR_NAME = "init";
   private static volatile Glide glide;
   private static volatile boolean isInitializing;
 
@@ -111,10 +129,16 @@ public class Glide implements ComponentCallbacks2 {
   private final MemoryCache memoryCache;
   private final BitmapPreFiller bitmapPreFiller;
   private final GlideContext glideContext;
-  private final Registry registry;
+  private final GlideSupplier<Registry> registry;
   private final ArrayPool arrayPool;
+  private final GlideExecutor resampleExecutor;
+  @Nullable
+  private final EncodedResourceCache encodedResourceCache;
+  @Nullable
+  private final AdaptiveMemorySizeController memorySizeController;
   private final RequestManagerRetriever requestManagerRetriever;
   private final ConnectivityMonitorFactory connectivityMonitorFactory;
+  private final boolean isBitmapTransformationFusionEnabled;
   private final List<RequestManager> managers = new ArrayList<>();
   private MemoryCategory memoryCategory = MemoryCategory.NORMAL;
 
@@ -173,6 +197,43 @@ public class Glide implements ComponentCallbacks2 {
     return glide;
   }
 
+  /**
+   * Starts initializing the singleton on a new background thread, typically called from
+   * {@link android.app.Application#onCreate()} so that Glide is ready or nearly ready by the time
+   * the first image is loaded.
+   *
+   * <p>Calls to {@link #get(Context)}, including those made by {@link #with(Context)}, while
+   * initialization is running block until it finishes. After Glide is initialized, the background
+   * thread also creates the {@link Registry} if
+   * {@link GlideBuilder#setRegistryInitializedLazily(boolean)} is enabled, so that the first load
+   * doesn't have to, and precomputes the {@link Registry}'s
+   * {@link com.bumptech.glide.load.engine.LoadPath}s, see {@link Registry#precomputeLoadPaths()}.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  public static void initializeInBackground(@NonNull Context context) {
+    final Context applicationContext = context.getApplicationContext();
+    final GlideExecutor executor =
+        GlideExecutor.newSourceExecutor(
+            /*threadCount=*/ 1, INITIALIZE_IN_BACKGROUND_EXECUTOR_NAME,
+            GlideExecutor.UncaughtThrowableStrategy.DEFAULT);
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            GlideTrace.beginSection("Glide.initializeInBackground");
+            try {
+              // Precomputing every LoadPath costs several times more than the handful of lookups
+              // a typical first screen makes, so it's only worth doing off of the main thread.
+              get(applicationContext).getRegistry().precomputeLoadPaths();
+            } finally {
+              GlideTrace.endSection();
+              executor.shutdown();
+            }
+          }
+        });
+  }
+
   private static void checkAndInitializeGlide(@NonNull Context context) {
     // In the thread running initGlide(), one or more classes may call Glide.get(context).
     // Without this check, those calls could trigger infinite recursion.
@@ -181,7 +242,9 @@ public class Glide implements ComponentCallbacks2 {
           + " use the provided Glide instance instead");
     }
     isInitializing = true;
+    GlideTrace.beginSection("Glide.initializeGlide");
     initializeGlide(context);
+    GlideTrace.endSection();
     isInitializing = false;
   }
 
@@ -215,6 +278,10 @@ public class Glide implements ComponentCallbacks2 {
           .getApplicationContext()
           .unregisterComponentCallbacks(glide);
       glide.engine.shutdown();
+      Executors.shutdownAndAwaitTermination(glide.resampleExecutor);
+      if (glide.memorySizeController != null) {
+        glide.memorySizeController.stop();
+      }
     }
     glide = null;
   }
@@ -265,12 +332,9 @@ public class Glide implements ComponentCallbacks2 {
     if (annotationGeneratedModule != null) {
       annotationGeneratedModule.applyOptions(applicationContext, builder);
     }
-    Glide glide = builder.build(applicationContext);
-    for (com.bumptech.glide.module.GlideModule module : manifestModules) {
-      module.registerComponents(applicationContext, glide, glide.registry);
-    }
-    if (annotationGeneratedModule != null) {
-      annotationGeneratedModule.registerComponents(applicationContext, glide, glide.registry);
+    Glide glide = builder.build(applicationContext, manifestModules, annotationGeneratedModule);
+    if (!builder.isRegistryInitializedLazily()) {
+      glide.getRegistry();
     }
     applicationContext.registerComponentCallbacks(glide);
     Glide.glide = glide;
@@ -311,22 +375,37 @@ public class Glide implements ComponentCallbacks2 {
         + " processor will generate a correct implementation.", e);
   }
 
+  @SuppressWarnings("deprecation")
   Glide(
       @NonNull Context context,
       @NonNull Engine engine,
       @NonNull MemoryCache memoryCache,
       @NonNull BitmapPool bitmapPool,
       @NonNull ArrayPool arrayPool,
+      @NonNull GlideExecutor resampleExecutor,
+      @Nullable EncodedResourceCache encodedResourceCache,
+      @Nullable AdaptiveMemorySizeController memorySizeController,
       @NonNull RequestManagerRetriever requestManagerRetriever,
       @NonNull ConnectivityMonitorFactory connectivityMonitorFactory,
       int logLevel,
       @NonNull RequestOptions defaultRequestOptions,
       @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions,
       @NonNull List<RequestListener<Object>> defaultRequestListeners,
-      boolean isLoggingRequestOriginsEnabled) {
+      boolean isLoggingRequestOriginsEnabled,
+      boolean isBitmapTransformationFusionEnabled,
+      @NonNull SizeBuckets sizeBuckets,
+      @Nullable FrameBudgetedExecutor frameBudgetedExecutor,
+      @NonNull PauseMode pauseMode,
+      final boolean isRawBitmapCacheEnabled,
+      @NonNull final List<com.bumptech.glide.module.GlideModule> manifestModules,
+      @Nullable final AppGlideModule annotationGeneratedModule) {
     this.engine = engine;
     this.bitmapPool = bitmapPool;
     this.arrayPool = arrayPool;
+    this.resampleExecutor = resampleExecutor;
+    this.encodedResourceCache = encodedResourceCache;
+    this.memorySizeController = memorySizeController;
+    this.isBitmapTransformationFusionEnabled = isBitmapTransformationFusionEnabled;
     this.memoryCache = memoryCache;
     this.requestManagerRetriever = requestManagerRetriever;
     this.connectivityMonitorFactory = connectivityMonitorFactory;
@@ -334,9 +413,54 @@ public class Glide implements ComponentCallbacks2 {
     DecodeFormat decodeFormat = defaultRequestOptions.getOptions().get(Downsampler.DECODE_FORMAT);
     bitmapPreFiller = new BitmapPreFiller(memoryCache, bitmapPool, decodeFormat);
 
+    final Context applicationContext = context.getApplicationContext();
+    registry =
+        GlideSuppliers.memoize(
+            new GlideSupplier<Registry>() {
+              @NonNull
+              @Override
+              public Registry get() {
+                GlideTrace.beginSection("Glide.createAndInitializeRegistry");
+                try {
+                  return createAndInitializeRegistry(
+                      applicationContext,
+                      isRawBitmapCacheEnabled,
+                      manifestModules,
+                      annotationGeneratedModule);
+                } finally {
+                  GlideTrace.endSection();
+                }
+              }
+            });
+
+    ImageViewTargetFactory imageViewTargetFactory = new ImageViewTargetFactory();
+    glideContext =
+        new GlideContext(
+            context,
+            arrayPool,
+            registry,
+            imageViewTargetFactory,
+            defaultRequestOptions,
+            defaultTransitionOptions,
+            defaultRequestListeners,
+            engine,
+            isLoggingRequestOriginsEnabled,
+            logLevel,
+            sizeBuckets,
+            frameBudgetedExecutor,
+            pauseMode);
+  }
+
+  @Synthetic
+  @SuppressWarnings("deprecation")
+  Registry createAndInitializeRegistry(
+      Context context,
+      boolean isRawBitmapCacheEnabled,
+      List<com.bumptech.glide.module.GlideModule> manifestModules,
+      @Nullable AppGlideModule annotationGeneratedModule) {
     final Resources resources = context.getResources();
 
-    registry = new Registry();
+    Registry registry = new Registry();
     registry.register(new DefaultImageHeaderParser());
     // Right now we're only using this parser for HEIF images, which are only supported on OMR1+.
     // If we need this for other file types, we should consider removing this restriction.
@@ -350,13 +474,15 @@ public class Glide implements ComponentCallbacks2 {
             imageHeaderParsers,
             resources.getDisplayMetrics(),
             bitmapPool,
-            arrayPool);
+            arrayPool,
+            resampleExecutor);
     ByteBufferGifDecoder byteBufferGifDecoder =
         new ByteBufferGifDecoder(context, imageHeaderParsers, bitmapPool, arrayPool);
     ResourceDecoder<ParcelFileDescriptor, Bitmap> parcelFileDescriptorVideoDecoder =
         VideoDecoder.parcel(bitmapPool);
     ByteBufferBitmapDecoder byteBufferBitmapDecoder = new ByteBufferBitmapDecoder(downsampler);
-    StreamBitmapDecoder streamBitmapDecoder = new StreamBitmapDecoder(downsampler, arrayPool);
+    StreamBitmapDecoder streamBitmapDecoder =
+        new StreamBitmapDecoder(downsampler, arrayPool, context.getCacheDir());
     ResourceDrawableDecoder resourceDrawableDecoder =
         new ResourceDrawableDecoder(context);
     ResourceLoader.StreamFactory resourceLoaderStreamFactory =
@@ -367,9 +493,12 @@ public class Glide implements ComponentCallbacks2 {
         new ResourceLoader.FileDescriptorFactory(resources);
     ResourceLoader.AssetFileDescriptorFactory resourceLoaderAssetFileDescriptorFactory =
         new ResourceLoader.AssetFileDescriptorFactory(resources);
-    BitmapEncoder bitmapEncoder = new BitmapEncoder(arrayPool);
+    ResourceEncoder<Bitmap> bitmapEncoder = new BitmapEncoder(arrayPool);
+    if (isRawBitmapCacheEnabled) {
+      bitmapEncoder = new RawBitmapEncoder(arrayPool, bitmapEncoder);
+    }
 
-    BitmapBytesTranscoder bitmapBytesTranscoder = new BitmapBytesTranscoder();
+    BitmapBytesTranscoder bitmapBytesTranscoder = new BitmapBytesTranscoder(arrayPool);
     GifDrawableBytesTranscoder gifDrawableBytesTranscoder = new GifDrawableBytesTranscoder();
 
     ContentResolver contentResolver = context.getContentResolver();
@@ -442,6 +571,7 @@ public class Glide implements ComponentCallbacks2 {
         .append(File.class, File.class, UnitModelLoader.Factory.<File>getInstance())
         /* Models */
         .register(new InputStreamRewinder.Factory(arrayPool))
+        .register(new ByteChain.Rewinder.Factory())
         .append(int.class, InputStream.class, resourceLoaderStreamFactory)
         .append(
             int.class,
@@ -462,8 +592,8 @@ public class Glide implements ComponentCallbacks2 {
             AssetFileDescriptor.class,
             resourceLoaderAssetFileDescriptorFactory)
         .append(int.class, Uri.class, resourceLoaderUriFactory)
-        .append(String.class, InputStream.class, new DataUrlLoader.StreamFactory<String>())
-        .append(Uri.class, InputStream.class, new DataUrlLoader.StreamFactory<Uri>())
+        .append(String.class, InputStream.class, new DataUrlLoader.StreamFactory<String>(arrayPool))
+        .append(Uri.class, InputStream.class, new DataUrlLoader.StreamFactory<Uri>(arrayPool))
         .append(String.class, InputStream.class, new StringLoader.StreamFactory())
         .append(String.class, ParcelFileDescriptor.class, new StringLoader.FileDescriptorFactory())
         .append(
@@ -510,19 +640,24 @@ public class Glide implements ComponentCallbacks2 {
                 bitmapPool, bitmapBytesTranscoder, gifDrawableBytesTranscoder))
         .register(GifDrawable.class, byte[].class, gifDrawableBytesTranscoder);
 
-    ImageViewTargetFactory imageViewTargetFactory = new ImageViewTargetFactory();
-    glideContext =
-        new GlideContext(
-            context,
-            arrayPool,
-            registry,
-            imageViewTargetFactory,
-            defaultRequestOptions,
-            defaultTransitionOptions,
-            defaultRequestListeners,
-            engine,
-            isLoggingRequestOriginsEnabled,
-            logLevel);
+    if (isRawBitmapCacheEnabled) {
+      RawBitmapDecoder rawBitmapDecoder = new RawBitmapDecoder(bitmapPool, arrayPool);
+      registry
+          .prepend(Registry.BUCKET_BITMAP, ByteBuffer.class, Bitmap.class, rawBitmapDecoder)
+          .prepend(
+              Registry.BUCKET_BITMAP_DRAWABLE,
+              ByteBuffer.class,
+              BitmapDrawable.class,
+              new BitmapDrawableDecoder<>(resources, rawBitmapDecoder));
+    }
+
+    for (com.bumptech.glide.module.GlideModule module : manifestModules) {
+      module.registerComponents(context, this, registry);
+    }
+    if (annotationGeneratedModule != null) {
+      annotationGeneratedModule.registerComponents(context, this, registry);
+    }
+    return registry;
   }
 
   /**
@@ -554,6 +689,43 @@ public class Glide implements ComponentCallbacks2 {
     return arrayPool;
   }
 
+  /**
+   * Returns the {@link AdaptiveMemorySizeController} retuning the sizes of the
+   * {@link MemoryCache} and {@link BitmapPool}, or {@code null} if adaptive sizing isn't enabled.
+   *
+   * @see GlideBuilder#setAdaptiveMemorySizePolicy(AdaptiveMemorySizeController.Policy)
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @Nullable
+  public AdaptiveMemorySizeController getMemorySizeController() {
+    return memorySizeController;
+  }
+
+  /**
+   * Returns the {@link SourceFetchCoordinator} that lets concurrent loads of the same source data
+   * with different sizes, transformations or options share a single fetch, along with counts of
+   * how often they've done so, or {@code null} if sharing fetches isn't enabled.
+   *
+   * @see GlideBuilder#setShareSourceFetches(boolean)
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @Nullable
+  public SourceFetchCoordinator getSourceFetchCoordinator() {
+    return engine.getSourceFetchCoordinator();
+  }
+
+  /**
+   * Returns {@code true} if {@link com.bumptech.glide.load.MultiTransformation}s should fuse
+   * consecutive geometric transformations into a single pass.
+   *
+   * @see GlideBuilder#setFuseBitmapTransformations(boolean)
+   */
+  public boolean isBitmapTransformationFusionEnabled() {
+    return isBitmapTransformationFusionEnabled;
+  }
+
   /**
    * @return The context associated with this instance.
    */
@@ -614,6 +786,10 @@ public class Glide implements ComponentCallbacks2 {
     memoryCache.clearMemory();
     bitmapPool.clearMemory();
     arrayPool.clearMemory();
+    if (encodedResourceCache != null) {
+      encodedResourceCache.clearMemory();
+    }
+    engine.trimMemory(TRIM_MEMORY_COMPLETE);
   }
 
   /**
@@ -628,6 +804,10 @@ public class Glide implements ComponentCallbacks2 {
     memoryCache.trimMemory(level);
     bitmapPool.trimMemory(level);
     arrayPool.trimMemory(level);
+    if (encodedResourceCache != null) {
+      encodedResourceCache.trimMemory(level);
+    }
+    engine.trimMemory(level);
   }
 
   /**
@@ -670,8 +850,15 @@ public class Glide implements ComponentCallbacks2 {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
     // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
-    memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
-    bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    if (memorySizeController != null) {
+      memorySizeController.setCategoryMultiplier(memoryCategory.getMultiplier());
+    } else {
+      memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
+      bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    }
+    if (encodedResourceCache != null) {
+      encodedResourceCache.setSizeMultiplier(memoryCategory.getMultiplier());
+    }
     MemoryCategory oldCategory = this.memoryCategory;
     this.memoryCategory = memoryCategory;
     return oldCategory;
@@ -801,9 +988,15 @@ public class Glide implements ComponentCallbacks2 {
     return getRetriever(view.getContext()).get(view);
   }
 
+  /**
+   * Returns the {@link Registry} containing Glide's default components and the components
+   * registered by {@link com.bumptech.glide.module.LibraryGlideModule}s and
+   * {@link AppGlideModule}s, creating it first if it was created lazily, see
+   * {@link GlideBuilder#setRegistryInitializedLazily(boolean)}.
+   */
   @NonNull
   public Registry getRegistry() {
-    return registry;
+    return registry.get();
   }
 
   boolean removeFromManagers(@NonNull Target<?> target) {
@@ -14,20 +14,29 @@ import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.EncodedResourceCache;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.engine.cache.NegativeResultCache;
+import com.bumptech.glide.load.engine.cache.TinyLfuResourceCache;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.resource.bitmap.RawBitmapDiskCache;
 import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.DefaultConnectivityMonitorFactory;
 import com.bumptech.glide.manager.RequestManagerRetriever;
 import com.bumptech.glide.manager.RequestManagerRetriever.RequestManagerFactory;
+import com.bumptech.glide.module.AppGlideModule;
 import com.bumptech.glide.request.BaseRequestOptions;
+import com.bumptech.glide.request.PauseMode;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.SizeBuckets;
 import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.FrameBudgetedExecutor;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -52,10 +61,28 @@ public final class GlideBuilder {
   @Nullable
   private RequestManagerFactory requestManagerFactory;
   private GlideExecutor animationExecutor;
+  private GlideExecutor resampleExecutor;
   private boolean isActiveResourceRetentionAllowed;
   @Nullable
   private List<RequestListener<Object>> defaultRequestListeners;
   private boolean isLoggingRequestOriginsEnabled;
+  @Nullable
+  private NegativeResultCache negativeResultCache;
+  @Nullable
+  private EncodedResourceCache encodedResourceCache;
+  @Nullable
+  private GlideExecutor resourceEncodeExecutor;
+  @Nullable
+  private AdaptiveMemorySizeController.Policy memorySizePolicy;
+  private boolean isBitmapTransformationFusionEnabled;
+  private SizeBuckets sizeBuckets = SizeBuckets.NONE;
+  @Nullable
+  private FrameBudgetedExecutor frameBudgetedExecutor;
+  private PauseMode pauseMode = PauseMode.CANCEL;
+  @Nullable
+  private DiskCache.Factory rawBitmapDiskCacheFactory;
+  private boolean isRegistryInitializedLazily;
+  private boolean isSourceFetchSharingEnabled;
 
   /**
    * Sets the {@link BitmapPool} implementation to use
@@ -87,6 +114,10 @@ public final class GlideBuilder {
    * Sets the {@link MemoryCache} implementation to store
    * {@link com.bumptech.glide.load.engine.Resource}s that are not currently in use.
    *
+   * <p>Defaults to an {@link LruResourceCache}. Apps that scroll through long lists of images that
+   * are rarely viewed twice may prefer a {@link TinyLfuResourceCache}, which avoids evicting
+   * frequently used resources to make room for resources that are only used once.
+   *
    * @param memoryCache The cache to use.
    * @return This builder.
    */
@@ -202,6 +233,25 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets the {@link GlideExecutor} whose idle threads help decode threads resample large
+   * {@link android.graphics.Bitmap}s with a
+   * {@link com.bumptech.glide.load.resource.bitmap.ResampleKernel}.
+   *
+   * <p>Defaults to {@link GlideExecutor#newResampleExecutor()}. Executors that queue work rather
+   * than rejecting it when every thread is busy will make decodes wait on each other.
+   *
+   * @param service The {@link GlideExecutor} to use.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setResampleExecutor(@Nullable GlideExecutor service) {
+    this.resampleExecutor = service;
+    return this;
+  }
+
   /**
    * Sets the default {@link RequestOptions} to use for all loads across the app.
    *
@@ -423,6 +473,257 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets a {@link NegativeResultCache} that will be used to remember loads that recently failed
+   * so that they fail immediately rather than being retried until the failure expires.
+   *
+   * <p>Remembered failures to fetch data are forgotten whenever connectivity is restored.
+   *
+   * <p>Defaults to {@code null}, which means failed loads are always retried.
+   *
+   * @param negativeResultCache The cache to use, or {@code null} to disable.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setNegativeResultCache(@Nullable NegativeResultCache negativeResultCache) {
+    this.negativeResultCache = negativeResultCache;
+    return this;
+  }
+
+  /**
+   * Sets an {@link EncodedResourceCache} that will be used to keep the encoded bytes of recently
+   * used transformed resources from the disk cache in memory.
+   *
+   * <p>Entries are a few times smaller than the decoded {@link android.graphics.Bitmap}s held by
+   * the {@link MemoryCache}, so a relatively small tier can avoid disk reads for many resources
+   * that have fallen out of the {@link MemoryCache}, at the cost of a decode.
+   *
+   * <p>Defaults to {@code null}, which means resources that aren't in the {@link MemoryCache} are
+   * always read from disk.
+   *
+   * @param encodedResourceCache The cache to use, or {@code null} to disable.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setEncodedResourceCache(
+      @Nullable EncodedResourceCache encodedResourceCache) {
+    this.encodedResourceCache = encodedResourceCache;
+    return this;
+  }
+
+  /**
+   * Sets the {@link GlideExecutor} to use when writing transformed resources to the disk cache,
+   * typically {@link GlideExecutor#newResourceEncodeExecutor()}.
+   *
+   * <p>Writes are queued after resources are delivered so that the threads that decode resources
+   * don't also spend time encoding them. Queued writes for the same resource are coalesced and
+   * writes are dropped when too many are queued or memory is low, so some transformed resources
+   * may not be written to the disk cache and will be decoded again the next time they're loaded.
+   *
+   * <p>Defaults to {@code null}, which means transformed resources are written on the thread that
+   * decoded them before it starts another load.
+   *
+   * @param resourceEncodeExecutor The executor to use, or {@code null} to disable.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setResourceEncodeExecutor(@Nullable GlideExecutor resourceEncodeExecutor) {
+    this.resourceEncodeExecutor = resourceEncodeExecutor;
+    return this;
+  }
+
+  /**
+   * Sets an {@link AdaptiveMemorySizeController.Policy} that will be used to periodically
+   * rebalance memory between the {@link MemoryCache} and {@link BitmapPool} based on their hit
+   * rates and to shrink both when a GC or low heap headroom is detected.
+   *
+   * <p>The sizes the cache and pool are created with, usually from the
+   * {@link MemorySizeCalculator}, are used as the starting point and budget.
+   *
+   * <p>Defaults to {@code null}, which means the sizes only change in response to
+   * {@link Glide#setMemoryCategory(MemoryCategory)} and
+   * {@link android.content.ComponentCallbacks2#onTrimMemory(int)}.
+   *
+   * @param policy The policy to use, for example
+   *               {@link AdaptiveMemorySizeController.DefaultPolicy}, or {@code null} to disable.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setAdaptiveMemorySizePolicy(
+      @Nullable AdaptiveMemorySizeController.Policy policy) {
+    this.memorySizePolicy = policy;
+    return this;
+  }
+
+  /**
+   * Set to {@code true} to make {@link com.bumptech.glide.load.MultiTransformation}s draw
+   * consecutive geometric {@link com.bumptech.glide.load.resource.bitmap.BitmapTransformation}s,
+   * like a {@link com.bumptech.glide.load.resource.bitmap.CenterCrop} followed by
+   * {@link com.bumptech.glide.load.resource.bitmap.RoundedCorners}, in a single pass without
+   * intermediate {@link android.graphics.Bitmap}s.
+   *
+   * <p>Fused transformations are resampled once rather than once per step, so their output may
+   * differ very slightly from the output of the same transformations applied one at a time.
+   *
+   * <p>See {@link com.bumptech.glide.load.resource.bitmap.FusedBitmapTransformation} for the
+   * transformations that can be fused.
+   *
+   * <p>This is an experimental API that may be removed in the future.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setFuseBitmapTransformations(boolean isEnabled) {
+    isBitmapTransformationFusionEnabled = isEnabled;
+    return this;
+  }
+
+  /**
+   * Sets the {@link SizeBuckets} that sizes obtained from
+   * {@link com.bumptech.glide.request.target.Target}s are rounded up to before loads are started,
+   * defaults to {@link SizeBuckets#NONE}.
+   *
+   * <p>Bucketing sizes lets loads into views that differ in size by only a few pixels share
+   * resources in the memory cache and the disk cache at the cost of loading resources that are
+   * slightly larger than their views.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setSizeBuckets(@NonNull SizeBuckets sizeBuckets) {
+    this.sizeBuckets = sizeBuckets;
+    return this;
+  }
+
+  /**
+   * Sets a {@link FrameBudgetedExecutor} that will deliver the results of loads into
+   * {@link com.bumptech.glide.request.target.Target}s on the main thread, in the order of their
+   * {@link Priority}s and only as many per frame as fit in its budget.
+   *
+   * <p>Delivering a result runs {@link com.bumptech.glide.request.target.Target}s,
+   * {@link com.bumptech.glide.request.transition.Transition}s and
+   * {@link com.bumptech.glide.request.RequestListener}s, so when many loads finish at once, for
+   * example while scrolling a list, delivering all of them in one frame can cause it to be
+   * dropped.
+   *
+   * <p>Defaults to {@code null}, which posts each result to the main thread as soon as it's ready.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setFrameBudgetedExecutor(
+      @Nullable FrameBudgetedExecutor frameBudgetedExecutor) {
+    this.frameBudgetedExecutor = frameBudgetedExecutor;
+    return this;
+  }
+
+  /**
+   * Sets the {@link PauseMode} that determines whether loads that are in progress are cancelled or
+   * suspended when requests are paused, for example when an {@link android.app.Activity} is
+   * stopped or while a list is flung.
+   *
+   * <p>Suspending loads avoids fetching and decoding the same media again when requests are
+   * resumed, at the cost of holding on to fetched data while they're paused.
+   *
+   * <p>Defaults to {@link PauseMode#CANCEL}.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setPauseMode(@NonNull PauseMode pauseMode) {
+    this.pauseMode = pauseMode;
+    return this;
+  }
+
+  /**
+   * Sets the {@link DiskCache.Factory} for a separate disk cache that small transformed
+   * {@link android.graphics.Bitmap}s are written to as raw pixels.
+   *
+   * <p>Raw {@link android.graphics.Bitmap}s are memory mapped and copied into
+   * {@link android.graphics.Bitmap}s from the {@link BitmapPool} when they're loaded, so loads
+   * from the resource cache don't decode a JPEG or PNG. Raw pixels are several times larger than
+   * encoded images, so they're kept in their own cache with its own size, for example
+   * {@code new InternalCacheDiskCacheFactory(context, "image_manager_disk_cache_raw", 20 * 1024 *
+   * 1024)}. The cache must be on the same volume as the cache set with
+   * {@link #setDiskCache(DiskCache.Factory)}. See
+   * {@link com.bumptech.glide.load.resource.bitmap.RawBitmapEncoder} for the options that control
+   * which {@link android.graphics.Bitmap}s are written raw.
+   *
+   * <p>Defaults to {@code null}, which means all {@link android.graphics.Bitmap}s are written as
+   * encoded images.
+   *
+   * @param rawBitmapDiskCacheFactory The factory to use, or {@code null} to disable.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setRawBitmapDiskCache(
+      @Nullable DiskCache.Factory rawBitmapDiskCacheFactory) {
+    this.rawBitmapDiskCacheFactory = rawBitmapDiskCacheFactory;
+    return this;
+  }
+
+  /**
+   * Set to {@code true} to create Glide's {@link Registry} the first time it's needed rather than
+   * while Glide is initialized.
+   *
+   * <p>Creating the {@link Registry} and running
+   * {@link com.bumptech.glide.module.LibraryGlideModule#registerComponents} and
+   * {@link com.bumptech.glide.module.AppGlideModule#registerComponents} is a large part of the
+   * time it takes to initialize Glide. The {@link Registry} isn't needed to start requests, only
+   * to load them, so when it's created lazily it's usually created on one of Glide's background
+   * threads by the first load, rather than on the thread that first calls {@link Glide#get}.
+   *
+   * <p>{@code registerComponents} methods must only use the {@link Registry} they're given and
+   * must not call {@link Glide#getRegistry()}, which is true whether or not the {@link Registry}
+   * is created lazily. They may also be called on a background thread.
+   *
+   * <p>Defaults to {@code false}.
+   *
+   * @see Glide#initializeInBackground(Context)
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setRegistryInitializedLazily(boolean isEnabled) {
+    isRegistryInitializedLazily = isEnabled;
+    return this;
+  }
+
+  /**
+   * Set to {@code true} to let loads of the same source data with different sizes,
+   * transformations or options share a single fetch and a single write to the disk cache.
+   *
+   * <p>Loads that need data that another load is already fetching wait for it and then decode the
+   * data from the disk cache independently, so this only applies to loads whose
+   * {@link com.bumptech.glide.load.engine.DiskCacheStrategy} caches data fetched from source. See
+   * {@link com.bumptech.glide.load.engine.SourceFetchCoordinator} for details and counters.
+   *
+   * <p>Defaults to {@code false}.
+   *
+   * @see Glide#getSourceFetchCoordinator()
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setShareSourceFetches(boolean isEnabled) {
+    isSourceFetchSharingEnabled = isEnabled;
+    return this;
+  }
+
+  boolean isRegistryInitializedLazily() {
+    return isRegistryInitializedLazily;
+  }
+
   void setRequestManagerFactory(@Nullable RequestManagerFactory factory) {
     this.requestManagerFactory = factory;
   }
@@ -433,8 +734,21 @@ public final class GlideBuilder {
     return this;
   }
 
+  @SuppressWarnings("deprecation")
   @NonNull
   Glide build(@NonNull Context context) {
+    return build(
+        context,
+        Collections.<com.bumptech.glide.module.GlideModule>emptyList(),
+        /*annotationGeneratedModule=*/ null);
+  }
+
+  @SuppressWarnings("deprecation")
+  @NonNull
+  Glide build(
+      @NonNull Context context,
+      @NonNull List<com.bumptech.glide.module.GlideModule> manifestModules,
+      @Nullable AppGlideModule annotationGeneratedModule) {
     if (sourceExecutor == null) {
       sourceExecutor = GlideExecutor.newSourceExecutor();
     }
@@ -447,6 +761,10 @@ public final class GlideBuilder {
       animationExecutor = GlideExecutor.newAnimationExecutor();
     }
 
+    if (resampleExecutor == null) {
+      resampleExecutor = GlideExecutor.newResampleExecutor();
+    }
+
     if (memorySizeCalculator == null) {
       memorySizeCalculator = new MemorySizeCalculator.Builder(context).build();
     }
@@ -475,17 +793,37 @@ public final class GlideBuilder {
     if (diskCacheFactory == null) {
       diskCacheFactory = new InternalCacheDiskCacheFactory(context);
     }
+    DiskCache.Factory engineDiskCacheFactory = diskCacheFactory;
+    if (rawBitmapDiskCacheFactory != null) {
+      engineDiskCacheFactory =
+          new RawBitmapDiskCache.Factory(diskCacheFactory, rawBitmapDiskCacheFactory);
+    }
 
     if (engine == null) {
       engine =
           new Engine(
               memoryCache,
-              diskCacheFactory,
+              engineDiskCacheFactory,
               diskCacheExecutor,
               sourceExecutor,
               GlideExecutor.newUnlimitedSourceExecutor(),
               GlideExecutor.newAnimationExecutor(),
-              isActiveResourceRetentionAllowed);
+              isActiveResourceRetentionAllowed,
+              negativeResultCache,
+              encodedResourceCache,
+              resourceEncodeExecutor,
+              isSourceFetchSharingEnabled);
+    }
+
+    AdaptiveMemorySizeController memorySizeController = null;
+    if (memorySizePolicy != null) {
+      memorySizeController =
+          new AdaptiveMemorySizeController(
+              memoryCache,
+              bitmapPool,
+              memorySizePolicy,
+              AdaptiveMemorySizeController.DEFAULT_INTERVAL_MS);
+      memorySizeController.start();
     }
 
     if (defaultRequestListeners == null) {
@@ -503,12 +841,22 @@ public final class GlideBuilder {
         memoryCache,
         bitmapPool,
         arrayPool,
+        resampleExecutor,
+        encodedResourceCache,
+        memorySizeController,
         requestManagerRetriever,
         connectivityMonitorFactory,
         logLevel,
         defaultRequestOptions.lock(),
         defaultTransitionOptions,
         defaultRequestListeners,
-        isLoggingRequestOriginsEnabled);
+        isLoggingRequestOriginsEnabled,
+        isBitmapTransformationFusionEnabled,
+        sizeBuckets,
+        frameBudgetedExecutor,
+        pauseMode,
+        /*isRawBitmapCacheEnabled=*/ rawBitmapDiskCacheFactory != null,
+        manifestModules,
+        annotationGeneratedModule);
   }
 }
@@ -3,17 +3,24 @@ package com.bumptech.glide;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.widget.ImageView;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.request.PauseMode;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.SizeBuckets;
 import com.bumptech.glide.request.target.ImageViewTargetFactory;
 import com.bumptech.glide.request.target.ViewTarget;
+import com.bumptech.glide.util.Executors;
+import com.bumptech.glide.util.FrameBudgetedExecutor;
+import com.bumptech.glide.util.GlideSuppliers.GlideSupplier;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 
 /**
  * Global context for all loads in Glide containing and exposing the various registries and classes
@@ -24,7 +31,7 @@ public class GlideContext extends ContextWrapper {
   static final TransitionOptions<?, ?> DEFAULT_TRANSITION_OPTIONS =
       new GenericTransitionOptions<>();
   private final ArrayPool arrayPool;
-  private final Registry registry;
+  private final GlideSupplier<Registry> registry;
   private final ImageViewTargetFactory imageViewTargetFactory;
   private final RequestOptions defaultRequestOptions;
   private final List<RequestListener<Object>> defaultRequestListeners;
@@ -32,18 +39,24 @@ public class GlideContext extends ContextWrapper {
   private final Engine engine;
   private final boolean isLoggingRequestOriginsEnabled;
   private final int logLevel;
+  private final SizeBuckets sizeBuckets;
+  @Nullable private final FrameBudgetedExecutor frameBudgetedExecutor;
+  private final PauseMode pauseMode;
 
   public GlideContext(
       @NonNull Context context,
       @NonNull ArrayPool arrayPool,
-      @NonNull Registry registry,
+      @NonNull GlideSupplier<Registry> registry,
       @NonNull ImageViewTargetFactory imageViewTargetFactory,
       @NonNull RequestOptions defaultRequestOptions,
       @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions,
       @NonNull List<RequestListener<Object>> defaultRequestListeners,
       @NonNull Engine engine,
       boolean isLoggingRequestOriginsEnabled,
-      int logLevel) {
+      int logLevel,
+      @NonNull SizeBuckets sizeBuckets,
+      @Nullable FrameBudgetedExecutor frameBudgetedExecutor,
+      @NonNull PauseMode pauseMode) {
     super(context.getApplicationContext());
     this.arrayPool = arrayPool;
     this.registry = registry;
@@ -54,6 +67,9 @@ public class GlideContext extends ContextWrapper {
     this.engine = engine;
     this.isLoggingRequestOriginsEnabled = isLoggingRequestOriginsEnabled;
     this.logLevel = logLevel;
+    this.sizeBuckets = sizeBuckets;
+    this.frameBudgetedExecutor = frameBudgetedExecutor;
+    this.pauseMode = pauseMode;
   }
 
   public List<RequestListener<Object>> getDefaultRequestListeners() {
@@ -94,7 +110,7 @@ public class GlideContext extends ContextWrapper {
 
   @NonNull
   public Registry getRegistry() {
-    return registry;
+    return registry.get();
   }
 
   public int getLogLevel() {
@@ -106,6 +122,30 @@ public class GlideContext extends ContextWrapper {
     return arrayPool;
   }
 
+  /**
+   * Returns the {@link SizeBuckets} that sizes obtained from
+   * {@link com.bumptech.glide.request.target.Target}s are rounded up to.
+   */
+  @NonNull
+  public SizeBuckets getSizeBuckets() {
+    return sizeBuckets;
+  }
+
+  /**
+   * Returns the {@link Executor} that delivers the results of loads with the given
+   * {@link Priority} into {@link com.bumptech.glide.request.target.Target}s on the main thread.
+   */
+  @NonNull
+  public Executor getCallbackExecutor(@NonNull Priority priority) {
+    return frameBudgetedExecutor != null
+        ? frameBudgetedExecutor.forPriority(priority) : Executors.mainThreadExecutor();
+  }
+
+  @NonNull
+  public PauseMode getPauseMode() {
+    return pauseMode;
+  }
+
   /**
    * Returns {@code true} if Glide should populate
    * {@link com.bumptech.glide.load.engine.GlideException#setOrigin(Exception)} for failed requests.
@@ -2,6 +2,7 @@ package com.bumptech.glide;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.Pools.Pool;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.ImageHeaderParser;
@@ -24,6 +25,7 @@ import com.bumptech.glide.provider.LoadPathCache;
 import com.bumptech.glide.provider.ModelToResourceClassCache;
 import com.bumptech.glide.provider.ResourceDecoderRegistry;
 import com.bumptech.glide.provider.ResourceEncoderRegistry;
+import com.bumptech.glide.util.MultiClassTable;
 import com.bumptech.glide.util.pool.FactoryPools;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,6 +57,11 @@ public class Registry {
       new ModelToResourceClassCache();
   private final LoadPathCache loadPathCache = new LoadPathCache();
   private final Pool<List<Throwable>> throwableListPool = FactoryPools.threadSafeList();
+  @Nullable private volatile MultiClassTable<LoadPath<?, ?, ?>> loadPathTable;
+  @Nullable private volatile MultiClassTable<List<Class<?>>> resourceClassTable;
+  // Incremented whenever the precomputed tables are discarded so that tables built while
+  // components are being registered on another thread aren't kept.
+  private int precomputedTableVersion;
 
   public Registry() {
     this.modelLoaderRegistry = new ModelLoaderRegistry(throwableListPool);
@@ -184,6 +191,7 @@ public class Registry {
       @NonNull Class<TResource> resourceClass,
       @NonNull ResourceDecoder<Data, TResource> decoder) {
     decoderRegistry.append(bucket, decoder, dataClass, resourceClass);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -244,6 +252,7 @@ public class Registry {
       @NonNull Class<TResource> resourceClass,
       @NonNull ResourceDecoder<Data, TResource> decoder) {
     decoderRegistry.prepend(bucket, decoder, dataClass, resourceClass);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -271,6 +280,7 @@ public class Registry {
     modifiedBuckets.add(0, BUCKET_PREPEND_ALL);
     modifiedBuckets.add(BUCKET_APPEND_ALL);
     decoderRegistry.setBucketPriorityList(modifiedBuckets);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -364,6 +374,7 @@ public class Registry {
       @NonNull Class<TResource> resourceClass, @NonNull Class<Transcode> transcodeClass,
       @NonNull ResourceTranscoder<TResource, Transcode> transcoder) {
     transcoderRegistry.register(resourceClass, transcodeClass, transcoder);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -404,6 +415,7 @@ public class Registry {
       @NonNull Class<Model> modelClass, @NonNull Class<Data> dataClass,
       @NonNull ModelLoaderFactory<Model, Data> factory) {
     modelLoaderRegistry.append(modelClass, dataClass, factory);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -435,6 +447,7 @@ public class Registry {
       @NonNull Class<Model> modelClass, @NonNull Class<Data> dataClass,
       @NonNull ModelLoaderFactory<Model, Data> factory) {
     modelLoaderRegistry.prepend(modelClass, dataClass, factory);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -467,6 +480,7 @@ public class Registry {
       @NonNull Class<Data> dataClass,
       @NonNull ModelLoaderFactory<? extends Model, ? extends Data> factory) {
     modelLoaderRegistry.replace(modelClass, dataClass, factory);
+    discardPrecomputedLoadPaths();
     return this;
   }
 
@@ -474,6 +488,16 @@ public class Registry {
   public <Data, TResource, Transcode> LoadPath<Data, TResource, Transcode> getLoadPath(
       @NonNull Class<Data> dataClass, @NonNull Class<TResource> resourceClass,
       @NonNull Class<Transcode> transcodeClass) {
+    MultiClassTable<LoadPath<?, ?, ?>> table = loadPathTable;
+    if (table != null) {
+      LoadPath<?, ?, ?> precomputed = table.get(dataClass, resourceClass, transcodeClass);
+      if (precomputed != null) {
+        @SuppressWarnings("unchecked")
+        LoadPath<Data, TResource, Transcode> result =
+            (LoadPath<Data, TResource, Transcode>) precomputed;
+        return result;
+      }
+    }
     LoadPath<Data, TResource, Transcode> result =
         loadPathCache.get(dataClass, resourceClass, transcodeClass);
     if (loadPathCache.isEmptyLoadPath(result)) {
@@ -492,9 +516,27 @@ public class Registry {
       }
       loadPathCache.put(dataClass, resourceClass, transcodeClass, result);
     }
+    if (table != null && result != null) {
+      // DataFetchers usually return subclasses of the registered data classes, like
+      // FileInputStream, so add them to the table the first time they're seen.
+      addToPrecomputedLoadPaths(table, dataClass, resourceClass, transcodeClass, result);
+    }
     return result;
   }
 
+  private synchronized void addToPrecomputedLoadPaths(
+      @NonNull MultiClassTable<LoadPath<?, ?, ?>> table, @NonNull Class<?> dataClass,
+      @NonNull Class<?> resourceClass, @NonNull Class<?> transcodeClass,
+      @NonNull LoadPath<?, ?, ?> loadPath) {
+    // The table may have been discarded or replaced since it was read, in which case the next
+    // miss adds the classes to the current table instead.
+    if (loadPathTable == table) {
+      loadPathTable = new MultiClassTable.Builder<>(table)
+          .put(dataClass, resourceClass, transcodeClass, loadPath)
+          .build();
+    }
+  }
+
   @NonNull
   private <Data, TResource, Transcode> List<DecodePath<Data, TResource, Transcode>> getDecodePaths(
       @NonNull Class<Data> dataClass, @NonNull Class<TResource> resourceClass,
@@ -528,28 +570,156 @@ public class Registry {
       @NonNull Class<Model> modelClass,
       @NonNull Class<TResource> resourceClass,
       @NonNull Class<Transcode> transcodeClass) {
+    MultiClassTable<List<Class<?>>> table = resourceClassTable;
+    if (table != null) {
+      List<Class<?>> precomputed = table.get(modelClass, resourceClass, transcodeClass);
+      if (precomputed != null) {
+        return precomputed;
+      }
+    }
     List<Class<?>> result =
         modelToResourceClassCache.get(modelClass, resourceClass, transcodeClass);
 
     if (result == null) {
-      result = new ArrayList<>();
-      List<Class<?>> dataClasses = modelLoaderRegistry.getDataClasses(modelClass);
-      for (Class<?> dataClass : dataClasses) {
-        List<? extends Class<?>> registeredResourceClasses =
-            decoderRegistry.getResourceClasses(dataClass, resourceClass);
-        for (Class<?> registeredResourceClass : registeredResourceClasses) {
-          List<Class<Transcode>> registeredTranscodeClasses = transcoderRegistry
-              .getTranscodeClasses(registeredResourceClass, transcodeClass);
-          if (!registeredTranscodeClasses.isEmpty() && !result.contains(registeredResourceClass)) {
-            result.add(registeredResourceClass);
+      result = Collections.unmodifiableList(
+          findRegisteredResourceClasses(modelClass, resourceClass, transcodeClass));
+      modelToResourceClassCache.put(modelClass, resourceClass, transcodeClass, result);
+    }
+    if (table != null) {
+      // Models may also be subclasses of the registered model classes, like Uri's.
+      addToPrecomputedResourceClasses(table, modelClass, resourceClass, transcodeClass, result);
+    }
+
+    return result;
+  }
+
+  private synchronized void addToPrecomputedResourceClasses(
+      @NonNull MultiClassTable<List<Class<?>>> table, @NonNull Class<?> modelClass,
+      @NonNull Class<?> resourceClass, @NonNull Class<?> transcodeClass,
+      @NonNull List<Class<?>> resourceClasses) {
+    if (resourceClassTable == table) {
+      resourceClassTable = new MultiClassTable.Builder<>(table)
+          .put(modelClass, resourceClass, transcodeClass, resourceClasses)
+          .build();
+    }
+  }
+
+  @VisibleForTesting
+  boolean isPrecomputed(
+      @NonNull Class<?> dataClass, @NonNull Class<?> resourceClass,
+      @NonNull Class<?> transcodeClass) {
+    MultiClassTable<LoadPath<?, ?, ?>> table = loadPathTable;
+    return table != null && table.get(dataClass, resourceClass, transcodeClass) != null;
+  }
+
+  @NonNull
+  private List<Class<?>> findRegisteredResourceClasses(
+      @NonNull Class<?> modelClass,
+      @NonNull Class<?> resourceClass,
+      @NonNull Class<?> transcodeClass) {
+    List<Class<?>> result = new ArrayList<>();
+    List<Class<?>> dataClasses = modelLoaderRegistry.getDataClasses(modelClass);
+    for (Class<?> dataClass : dataClasses) {
+      List<? extends Class<?>> registeredResourceClasses =
+          decoderRegistry.getResourceClasses(dataClass, resourceClass);
+      for (Class<?> registeredResourceClass : registeredResourceClasses) {
+        List<? extends Class<?>> registeredTranscodeClasses = transcoderRegistry
+            .getTranscodeClasses(registeredResourceClass, transcodeClass);
+        if (!registeredTranscodeClasses.isEmpty() && !result.contains(registeredResourceClass)) {
+          result.add(registeredResourceClass);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Builds immutable tables of the {@link LoadPath}s and registered resource classes for every
+   * combination of the model, data, resource and transcode classes that are currently registered
+   * so that later lookups for those classes don't have to search the registries or take a lock.
+   *
+   * <p>Glide calls this from {@link Glide#initializeInBackground(android.content.Context)} once all
+   * {@link com.bumptech.glide.module.GlideModule}s have registered their components. Registering
+   * any component that affects decoding afterwards discards the tables, and classes that aren't in
+   * the tables, like the concrete types of data returned by
+   * {@link com.bumptech.glide.load.data.DataFetcher}s, are added to them the first time they're
+   * looked up.
+   */
+  public void precomputeLoadPaths() {
+    int version;
+    synchronized (this) {
+      version = precomputedTableVersion;
+    }
+    List<Class<?>> dataClasses = decoderRegistry.getDataClasses();
+    // Requests only narrow the resource class when they call decode(), so only the default is
+    // worth precomputing.
+    List<Class<?>> resourceClasses = Collections.<Class<?>>singletonList(Object.class);
+    List<Class<?>> transcodeClasses = new ArrayList<>();
+    addWithSuperclasses(decoderRegistry.getResourceClasses(), transcodeClasses);
+    addWithSuperclasses(transcoderRegistry.getTranscodedClasses(), transcodeClasses);
+
+    MultiClassTable.Builder<LoadPath<?, ?, ?>> loadPaths = new MultiClassTable.Builder<>();
+    for (Class<?> dataClass : dataClasses) {
+      for (Class<?> resourceClass : resourceClasses) {
+        for (Class<?> transcodeClass : transcodeClasses) {
+          LoadPath<?, ?, ?> loadPath = buildLoadPath(dataClass, resourceClass, transcodeClass);
+          if (loadPath != null) {
+            loadPaths.put(dataClass, resourceClass, transcodeClass, loadPath);
           }
         }
       }
-      modelToResourceClassCache.put(
-          modelClass, resourceClass, transcodeClass, Collections.unmodifiableList(result));
     }
 
-    return result;
+    MultiClassTable.Builder<List<Class<?>>> registeredResourceClasses =
+        new MultiClassTable.Builder<>();
+    for (Class<?> modelClass : modelLoaderRegistry.getModelClasses()) {
+      for (Class<?> resourceClass : resourceClasses) {
+        for (Class<?> transcodeClass : transcodeClasses) {
+          List<Class<?>> result =
+              findRegisteredResourceClasses(modelClass, resourceClass, transcodeClass);
+          if (!result.isEmpty()) {
+            registeredResourceClasses.put(
+                modelClass, resourceClass, transcodeClass, Collections.unmodifiableList(result));
+          }
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (version == precomputedTableVersion) {
+        loadPathTable = loadPaths.build();
+        resourceClassTable = registeredResourceClasses.build();
+      }
+    }
+  }
+
+  private synchronized void discardPrecomputedLoadPaths() {
+    precomputedTableVersion++;
+    loadPathTable = null;
+    resourceClassTable = null;
+  }
+
+  @Nullable
+  private <Data, TResource, Transcode> LoadPath<Data, TResource, Transcode> buildLoadPath(
+      @NonNull Class<Data> dataClass, @NonNull Class<TResource> resourceClass,
+      @NonNull Class<Transcode> transcodeClass) {
+    List<DecodePath<Data, TResource, Transcode>> decodePaths =
+        getDecodePaths(dataClass, resourceClass, transcodeClass);
+    return decodePaths.isEmpty()
+        ? null
+        : new LoadPath<>(dataClass, resourceClass, transcodeClass, decodePaths, throwableListPool);
+  }
+
+  private static void addWithSuperclasses(
+      @NonNull List<Class<?>> classes, @NonNull List<Class<?>> result) {
+    for (Class<?> current : classes) {
+      while (current != null && current != Object.class) {
+        if (!result.contains(current)) {
+          result.add(current);
+        }
+        current = current.getSuperclass();
+      }
+    }
   }
 
   public boolean isResourceEncoderAvailable(@NonNull Resource<?> resource) {
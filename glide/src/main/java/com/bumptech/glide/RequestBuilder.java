@@ -610,7 +610,7 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
    */
   @NonNull
   public <Y extends Target<TranscodeType>> Y into(@NonNull Y target) {
-    return into(target, /*targetListener=*/ null, Executors.mainThreadExecutor());
+    return into(target, /*targetListener=*/ null, glideContext.getCallbackExecutor(getPriority()));
   }
 
   @NonNull
@@ -717,7 +717,7 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
         glideContext.buildImageViewTarget(view, transcodeClass),
         /*targetListener=*/ null,
         requestOptions,
-        Executors.mainThreadExecutor());
+        glideContext.getCallbackExecutor(requestOptions.getPriority()));
   }
 
   /**
@@ -671,6 +671,7 @@ public class RequestManager implements LifecycleListener,
     @Override
     public void onConnectivityChanged(boolean isConnected) {
       if (isConnected) {
+        glide.getGlideContext().getEngine().onConnectivityRestored();
         synchronized (RequestManager.this) {
           requestTracker.restartRequests();
         }
@@ -30,6 +30,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -185,6 +186,13 @@ public final class DiskLruCache implements Closeable {
      */
     private int redundantOpCount;
 
+    /**
+     * The number of {@link #beginBatch()} calls that haven't been matched by a call to
+     * {@link #endBatch()}, by the thread that made them. The journal isn't flushed when edits
+     * complete on a thread that's in a batch.
+     */
+    private final Map<Thread, Integer> batchDepths = new HashMap<Thread, Integer>();
+
     /**
      * To differentiate between old and current snapshots, each entry is given
      * a sequence number each time an edit is committed. A snapshot is stale if
@@ -679,7 +687,9 @@ public final class DiskLruCache implements Closeable {
             journalWriter.append(entry.key);
             journalWriter.append('\n');
         }
-        journalWriter.flush();
+        if (!batchDepths.containsKey(Thread.currentThread())) {
+            journalWriter.flush();
+        }
 
         if (size > maxSize || journalRebuildRequired()) {
             executorService.submit(cleanupCallable);
@@ -753,6 +763,42 @@ public final class DiskLruCache implements Closeable {
         }
     }
 
+    /**
+     * Defers flushing the journal when edits complete on the calling thread until the matching
+     * call to {@link #endBatch()} on the same thread, so that a series of edits flushes the journal
+     * once. Edits completed on other threads still flush the journal, including any records of the
+     * batch written so far.
+     * <p>
+     * The DIRTY record of each edit is still flushed before its files are created, so if the
+     * process dies before the batch ends, files whose CLEAN records weren't flushed are deleted
+     * when the cache is next opened rather than leaked.
+     */
+    public synchronized void beginBatch() {
+        Thread thread = Thread.currentThread();
+        Integer depth = batchDepths.get(thread);
+        batchDepths.put(thread, depth == null ? 1 : depth + 1);
+    }
+
+    /**
+     * Ends a batch started by {@link #beginBatch()} on the calling thread, flushing the journal if
+     * it's the thread's outermost batch.
+     */
+    public synchronized void endBatch() throws IOException {
+        Thread thread = Thread.currentThread();
+        Integer depth = batchDepths.get(thread);
+        if (depth == null) {
+            return;
+        }
+        if (depth > 1) {
+            batchDepths.put(thread, depth - 1);
+            return;
+        }
+        batchDepths.remove(thread);
+        if (journalWriter != null) {
+            journalWriter.flush();
+        }
+    }
+
     /**
      * Force buffered operations to the filesystem.
      */
@@ -4,6 +4,8 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.bumptech.glide.load.ImageHeaderParser.ImageType;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser;
+import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser.ImageHeader;
 import com.bumptech.glide.load.resource.bitmap.RecyclableBufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -99,4 +101,72 @@ public final class ImageHeaderParserUtils {
 
     return ImageHeaderParser.UNKNOWN_ORIENTATION;
   }
+
+  /**
+   * Returns the ImageType and orientation for the given InputStream, reading the header once for
+   * each parser rather than once for each parser and each attribute.
+   *
+   * <p>{@link DefaultImageHeaderParser}s parse both attributes in a single pass, any other parsers
+   * are asked only for the attributes that haven't already been found. As in
+   * {@link #getType(List, InputStream, ArrayPool)} and
+   * {@link #getOrientation(List, InputStream, ArrayPool)}, the first parser to find an attribute
+   * wins. Dimensions and the location of any embedded thumbnail are only included if they were
+   * parsed along with the ImageType.
+   */
+  @NonNull
+  public static ImageHeader getHeader(@NonNull List<ImageHeaderParser> parsers,
+      @Nullable InputStream is, @NonNull ArrayPool byteArrayPool) throws IOException {
+    if (is == null) {
+      return new ImageHeader(ImageType.UNKNOWN, ImageHeaderParser.UNKNOWN_ORIENTATION, -1, -1);
+    }
+
+    if (!is.markSupported()) {
+      is = new RecyclableBufferedInputStream(is, byteArrayPool);
+    }
+
+    ImageType type = ImageType.UNKNOWN;
+    int orientation = ImageHeaderParser.UNKNOWN_ORIENTATION;
+    int width = -1;
+    int height = -1;
+    ImageHeader thumbnailHeader = null;
+    is.mark(MARK_POSITION);
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = parsers.size(); i < size; i++) {
+      ImageHeaderParser parser = parsers.get(i);
+      try {
+        if (parser instanceof DefaultImageHeaderParser) {
+          ImageHeader header = ((DefaultImageHeaderParser) parser).parse(is, byteArrayPool);
+          if (type == ImageType.UNKNOWN && header.getType() != ImageType.UNKNOWN) {
+            type = header.getType();
+            width = header.getWidth();
+            height = header.getHeight();
+            thumbnailHeader = header;
+          }
+          if (orientation == ImageHeaderParser.UNKNOWN_ORIENTATION) {
+            orientation = header.getOrientation();
+          }
+        } else {
+          if (type == ImageType.UNKNOWN) {
+            type = parser.getType(is);
+            is.reset();
+          }
+          if (orientation == ImageHeaderParser.UNKNOWN_ORIENTATION) {
+            orientation = parser.getOrientation(is, byteArrayPool);
+          }
+        }
+      } finally {
+        is.reset();
+      }
+      if (type != ImageType.UNKNOWN && orientation != ImageHeaderParser.UNKNOWN_ORIENTATION) {
+        break;
+      }
+    }
+
+    if (thumbnailHeader == null) {
+      return new ImageHeader(type, orientation, width, height);
+    }
+    return new ImageHeader(type, orientation, width, height,
+        thumbnailHeader.getThumbnailOffset(), thumbnailHeader.getThumbnailLength(),
+        thumbnailHeader.getThumbnailWidth(), thumbnailHeader.getThumbnailHeight());
+  }
 }
@@ -2,18 +2,29 @@ package com.bumptech.glide.load;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.resource.bitmap.FusedBitmapTransformation;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * A transformation that applies one or more transformations in iteration order to a resource.
  *
+ * <p>If enabled with
+ * {@link com.bumptech.glide.GlideBuilder#setFuseBitmapTransformations(boolean)}, consecutive
+ * transformations that can be drawn in a single pass are applied by a
+ * {@link FusedBitmapTransformation} instead.
+ *
  * @param <T> The type of {@link Resource} that will be transformed.
  */
 public class MultiTransformation<T> implements Transformation<T> {
   private final Collection<? extends Transformation<T>> transformations;
+  @Nullable
+  private final List<Transformation<T>> fusedTransformations;
 
   @SafeVarargs
   @SuppressWarnings("varargs")
@@ -23,6 +34,7 @@ public class MultiTransformation<T> implements Transformation<T> {
           "MultiTransformation must contain at least one Transformation");
     }
     this.transformations = Arrays.asList(transformations);
+    this.fusedTransformations = FusedBitmapTransformation.fuse(this.transformations);
   }
 
   public MultiTransformation(@NonNull Collection<? extends Transformation<T>> transformationList) {
@@ -31,15 +43,21 @@ public class MultiTransformation<T> implements Transformation<T> {
           "MultiTransformation must contain at least one Transformation");
     }
     this.transformations = transformationList;
+    this.fusedTransformations = FusedBitmapTransformation.fuse(transformationList);
   }
 
   @NonNull
   @Override
   public Resource<T> transform(
       @NonNull Context context, @NonNull Resource<T> resource, int outWidth, int outHeight) {
-    Resource<T> previous = resource;
+    Collection<? extends Transformation<T>> toApply = transformations;
+    if (fusedTransformations != null
+        && Glide.get(context).isBitmapTransformationFusionEnabled()) {
+      toApply = fusedTransformations;
+    }
 
-    for (Transformation<T> transformation : transformations) {
+    Resource<T> previous = resource;
+    for (Transformation<T> transformation : toApply) {
       Resource<T> transformed = transformation.transform(context, previous, outWidth, outHeight);
       if (previous != null && !previous.equals(resource) && !previous.equals(transformed)) {
         previous.recycle();
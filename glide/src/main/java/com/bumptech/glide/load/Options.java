@@ -23,6 +23,16 @@ public final class Options implements Key {
     return this;
   }
 
+  /**
+   * Removes any value set for the given {@link Option} so that {@link #get(Option)} returns the
+   * {@link Option}'s default value.
+   */
+  @NonNull
+  public Options remove(@NonNull Option<?> option) {
+    values.remove(option);
+    return this;
+  }
+
   @Nullable
   @SuppressWarnings("unchecked")
   public <T> T get(@NonNull Option<T> option) {
@@ -0,0 +1,357 @@
+package com.bumptech.glide.load.data;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable sequence of bytes stored in a chain of fixed size segments obtained from an
+ * {@link ArrayPool}.
+ *
+ * <p>Unlike {@link java.io.ByteArrayOutputStream}, growing the chain never copies data that's
+ * already been written and never requires a single large allocation. Data can be read using
+ * {@link #asInputStream()} or {@link #asByteBuffers()} without copying, or copied exactly once
+ * into a contiguous array or buffer when the consumer requires one.
+ *
+ * <p>Segments are returned to the pool by {@link #release()}, after which the chain must not be
+ * used. Instances are not thread safe.
+ */
+public final class ByteChain {
+  /**
+   * The size in bytes of each segment in the chain.
+   */
+  public static final int SEGMENT_SIZE = ArrayPool.STANDARD_BUFFER_SIZE_BYTES;
+
+  private final ArrayPool byteArrayPool;
+  @Synthetic final List<byte[]> segments = new ArrayList<>();
+  @Synthetic int size;
+  private boolean isReleased;
+
+  public ByteChain(@NonNull ArrayPool byteArrayPool) {
+    this.byteArrayPool = Preconditions.checkNotNull(byteArrayPool);
+  }
+
+  /**
+   * Returns the number of bytes in the chain.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Appends the given bytes to the end of the chain.
+   */
+  public void write(@NonNull byte[] buffer, int offset, int length) {
+    while (length > 0) {
+      byte[] segment = getWritableSegment();
+      int segmentOffset = size % SEGMENT_SIZE;
+      int toCopy = Math.min(length, SEGMENT_SIZE - segmentOffset);
+      System.arraycopy(buffer, offset, segment, segmentOffset, toCopy);
+      offset += toCopy;
+      length -= toCopy;
+      size += toCopy;
+    }
+  }
+
+  /**
+   * Appends the given byte to the end of the chain.
+   */
+  public void write(int b) {
+    byte[] segment = getWritableSegment();
+    segment[size % SEGMENT_SIZE] = (byte) b;
+    size++;
+  }
+
+  /**
+   * Reads the given stream until it's exhausted, appending its contents to the end of the chain.
+   *
+   * <p>Data is read directly into the segments without an intermediate buffer.
+   *
+   * @return The number of bytes read.
+   */
+  public int readFrom(@NonNull InputStream is) throws IOException {
+    int start = size;
+    int read;
+    do {
+      byte[] segment = getWritableSegment();
+      int segmentOffset = size % SEGMENT_SIZE;
+      read = is.read(segment, segmentOffset, SEGMENT_SIZE - segmentOffset);
+      if (read > 0) {
+        if (size + read < 0) {
+          throw new IOException("Stream too large, read: " + size + " bytes");
+        }
+        size += read;
+      }
+    } while (read != -1);
+    return size - start;
+  }
+
+  /**
+   * Copies the contents of the chain into a new array of exactly {@link #size()} bytes.
+   */
+  @NonNull
+  public byte[] toByteArray() {
+    assertNotReleased();
+    byte[] result = new byte[size];
+    copyTo(result);
+    return result;
+  }
+
+  /**
+   * Copies the contents of the chain into a new direct {@link ByteBuffer} with a capacity of
+   * exactly {@link #size()} bytes and a position of zero.
+   */
+  @NonNull
+  public ByteBuffer toDirectByteBuffer() {
+    assertNotReleased();
+    ByteBuffer result = ByteBuffer.allocateDirect(size);
+    int remaining = size;
+    for (int i = 0, count = segments.size(); i < count && remaining > 0; i++) {
+      int toCopy = Math.min(remaining, SEGMENT_SIZE);
+      result.put(segments.get(i), 0, toCopy);
+      remaining -= toCopy;
+    }
+    result.position(0);
+    return result;
+  }
+
+  /**
+   * Returns read only {@link ByteBuffer} views of each segment in order, limited to the bytes in
+   * the chain.
+   *
+   * <p>The views share the segments and must not be used after {@link #release()}.
+   */
+  @NonNull
+  public List<ByteBuffer> asByteBuffers() {
+    assertNotReleased();
+    List<ByteBuffer> result = new ArrayList<>(segments.size());
+    int remaining = size;
+    for (int i = 0, count = segments.size(); i < count && remaining > 0; i++) {
+      int length = Math.min(remaining, SEGMENT_SIZE);
+      result.add(ByteBuffer.wrap(segments.get(i), 0, length).asReadOnlyBuffer());
+      remaining -= length;
+    }
+    return result;
+  }
+
+  /**
+   * Returns an {@link OutputStream} that appends to the end of the chain.
+   */
+  @NonNull
+  public OutputStream asOutputStream() {
+    return new ChainOutputStream(this);
+  }
+
+  /**
+   * Returns a new {@link ChainInputStream} that reads the chain from the beginning.
+   *
+   * <p>Closing the returned stream releases the chain.
+   */
+  @NonNull
+  public ChainInputStream asInputStream() {
+    assertNotReleased();
+    return new ChainInputStream(this);
+  }
+
+  /**
+   * Returns all segments to the pool.
+   */
+  public void release() {
+    if (isReleased) {
+      return;
+    }
+    isReleased = true;
+    for (int i = 0, count = segments.size(); i < count; i++) {
+      byteArrayPool.put(segments.get(i));
+    }
+    segments.clear();
+    size = 0;
+  }
+
+  private void copyTo(byte[] result) {
+    int offset = 0;
+    for (int i = 0, count = segments.size(); i < count && offset < size; i++) {
+      int toCopy = Math.min(size - offset, SEGMENT_SIZE);
+      System.arraycopy(segments.get(i), 0, result, offset, toCopy);
+      offset += toCopy;
+    }
+  }
+
+  private byte[] getWritableSegment() {
+    assertNotReleased();
+    int index = size / SEGMENT_SIZE;
+    if (index == segments.size()) {
+      segments.add(byteArrayPool.get(SEGMENT_SIZE, byte[].class));
+    }
+    return segments.get(index);
+  }
+
+  @Synthetic
+  void assertNotReleased() {
+    if (isReleased) {
+      throw new IllegalStateException("Chain has already been released");
+    }
+  }
+
+  private static final class ChainOutputStream extends OutputStream {
+    private final ByteChain chain;
+
+    ChainOutputStream(ByteChain chain) {
+      this.chain = chain;
+    }
+
+    @Override
+    public void write(int b) {
+      chain.write(b);
+    }
+
+    @Override
+    public void write(@NonNull byte[] buffer, int offset, int length) {
+      chain.write(buffer, offset, length);
+    }
+  }
+
+  /**
+   * An {@link InputStream} over the contents of a {@link ByteChain} that supports
+   * {@link #mark(int)} and {@link #reset()} without any buffering.
+   */
+  public static final class ChainInputStream extends InputStream {
+    @Synthetic final ByteChain chain;
+    private int pos;
+    private int markPos;
+
+    @Synthetic
+    ChainInputStream(ByteChain chain) {
+      this.chain = chain;
+    }
+
+    /**
+     * Moves back to the beginning of the chain.
+     */
+    public void rewind() {
+      pos = 0;
+      markPos = 0;
+    }
+
+    @Override
+    public int read() {
+      if (pos >= chain.size) {
+        return -1;
+      }
+      int result = chain.segments.get(pos / SEGMENT_SIZE)[pos % SEGMENT_SIZE] & 0xFF;
+      pos++;
+      return result;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (pos >= chain.size) {
+        return -1;
+      }
+      int toRead = Math.min(length, chain.size - pos);
+      int remaining = toRead;
+      while (remaining > 0) {
+        int segmentOffset = pos % SEGMENT_SIZE;
+        int toCopy = Math.min(remaining, SEGMENT_SIZE - segmentOffset);
+        System.arraycopy(
+            chain.segments.get(pos / SEGMENT_SIZE), segmentOffset, buffer, offset, toCopy);
+        offset += toCopy;
+        remaining -= toCopy;
+        pos += toCopy;
+      }
+      return toRead;
+    }
+
+    @Override
+    public long skip(long byteCount) {
+      if (byteCount <= 0) {
+        return 0;
+      }
+      int skipped = (int) Math.min(byteCount, chain.size - pos);
+      pos += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return chain.size - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      markPos = pos;
+    }
+
+    @Override
+    public void reset() {
+      pos = markPos;
+    }
+
+    /**
+     * Releases the underlying {@link ByteChain}.
+     */
+    @Override
+    public void close() {
+      chain.release();
+    }
+  }
+
+  /**
+   * Rewinds {@link ChainInputStream}s by moving them back to the beginning of their chain, which
+   * avoids buffering them like {@link InputStreamRewinder} does.
+   */
+  public static final class Rewinder implements DataRewinder<ChainInputStream> {
+    private final ChainInputStream stream;
+
+    @Synthetic
+    Rewinder(ChainInputStream stream) {
+      this.stream = stream;
+    }
+
+    @NonNull
+    @Override
+    public ChainInputStream rewindAndGet() throws IOException {
+      stream.chain.assertNotReleased();
+      stream.rewind();
+      return stream;
+    }
+
+    @Override
+    public void cleanup() {
+      // Do nothing, the stream is owned by whoever opened it.
+    }
+
+    /**
+     * Factory for producing {@link Rewinder}s from {@link ChainInputStream}s.
+     */
+    public static final class Factory implements DataRewinder.Factory<ChainInputStream> {
+
+      @NonNull
+      @Override
+      public DataRewinder<ChainInputStream> build(@NonNull ChainInputStream data) {
+        return new Rewinder(data);
+      }
+
+      @NonNull
+      @Override
+      public Class<ChainInputStream> getDataClass() {
+        return ChainInputStream.class;
+      }
+    }
+  }
+}
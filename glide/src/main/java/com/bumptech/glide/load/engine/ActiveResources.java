@@ -117,8 +117,8 @@ final class ActiveResources {
         if (!ref.isCacheable || ref.resource == null) {
           return;
         }
-        EngineResource<?> newResource =
-            new EngineResource<>(ref.resource, /*isCacheable=*/ true, /*isRecyclable=*/ false);
+        EngineResource<?> newResource = new EngineResource<>(ref.resource, /*isCacheable=*/ true,
+            /*isRecyclable=*/ false, ref.resourceCacheKey);
         newResource.setResourceListener(ref.key, listener);
         listener.onResourceReleased(ref.key, newResource);
       }
@@ -167,6 +167,7 @@ final class ActiveResources {
   static final class ResourceWeakReference extends WeakReference<EngineResource<?>> {
     @SuppressWarnings("WeakerAccess") @Synthetic final Key key;
     @SuppressWarnings("WeakerAccess") @Synthetic final boolean isCacheable;
+    @Nullable @SuppressWarnings("WeakerAccess") @Synthetic final Key resourceCacheKey;
 
     @Nullable @SuppressWarnings("WeakerAccess") @Synthetic Resource<?> resource;
 
@@ -183,6 +184,7 @@ final class ActiveResources {
           referent.isCacheable() && isActiveResourceRetentionAllowed
               ? Preconditions.checkNotNull(referent.getResource()) : null;
       isCacheable = referent.isCacheable();
+      resourceCacheKey = referent.getResourceCacheKey();
     }
 
     void reset() {
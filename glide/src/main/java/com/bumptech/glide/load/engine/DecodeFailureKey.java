@@ -0,0 +1,70 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import java.security.MessageDigest;
+
+/**
+ * An in memory only cache key identifying a load whose data couldn't be decoded by any of the
+ * available {@link com.bumptech.glide.load.model.ModelLoader}s and decoders.
+ *
+ * <p>Unlike fetch failures, decode failures depend on the resource and transcode classes and the
+ * {@link Options} as well as the source data, so the same model loaded as a different type may
+ * still succeed.
+ */
+final class DecodeFailureKey implements Key {
+  private final Object model;
+  private final Key signature;
+  private final Class<?> resourceClass;
+  private final Class<?> transcodeClass;
+  private final Options options;
+
+  DecodeFailureKey(Object model, Key signature, Class<?> resourceClass, Class<?> transcodeClass,
+      Options options) {
+    this.model = model;
+    this.signature = signature;
+    this.resourceClass = resourceClass;
+    this.transcodeClass = transcodeClass;
+    this.options = options;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof DecodeFailureKey) {
+      DecodeFailureKey other = (DecodeFailureKey) o;
+      return model.equals(other.model)
+          && signature.equals(other.signature)
+          && resourceClass.equals(other.resourceClass)
+          && transcodeClass.equals(other.transcodeClass)
+          && options.equals(other.options);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = model.hashCode();
+    result = 31 * result + signature.hashCode();
+    result = 31 * result + resourceClass.hashCode();
+    result = 31 * result + transcodeClass.hashCode();
+    result = 31 * result + options.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "DecodeFailureKey{"
+        + "model=" + model
+        + ", signature=" + signature
+        + ", resourceClass=" + resourceClass
+        + ", transcodeClass=" + transcodeClass
+        + ", options=" + options
+        + '}';
+  }
+
+  @Override
+  public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -1,5 +1,6 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.Registry;
@@ -11,10 +12,13 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.DecodeJob.DiskCacheProvider;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.EncodedResourceCache;
+import com.bumptech.glide.load.engine.cache.NegativeResultCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import com.bumptech.glide.load.resource.UnitTransformation;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +45,15 @@ final class DecodeHelper<Transcode> {
   private DiskCacheStrategy diskCacheStrategy;
   private boolean isTransformationRequired;
   private boolean isScaleOnlyOrNoTransform;
+  @Nullable
+  private NegativeResultCache negativeResultCache;
+  @Nullable
+  private EncodedResourceCache encodedResourceCache;
+  @Nullable
+  private SourceFetchCoordinator sourceFetchCoordinator;
+  @Nullable
+  private Exception sourceDecodeFailure;
+  private boolean isSourceFetchFailed;
 
   @SuppressWarnings("unchecked")
   <R> void init(
@@ -57,7 +70,10 @@ final class DecodeHelper<Transcode> {
       Map<Class<?>, Transformation<?>> transformations,
       boolean isTransformationRequired,
       boolean isScaleOnlyOrNoTransform,
-      DiskCacheProvider diskCacheProvider) {
+      DiskCacheProvider diskCacheProvider,
+      @Nullable NegativeResultCache negativeResultCache,
+      @Nullable EncodedResourceCache encodedResourceCache,
+      @Nullable SourceFetchCoordinator sourceFetchCoordinator) {
     this.glideContext = glideContext;
     this.model = model;
     this.signature = signature;
@@ -72,7 +88,9 @@ final class DecodeHelper<Transcode> {
     this.transformations = transformations;
     this.isTransformationRequired = isTransformationRequired;
     this.isScaleOnlyOrNoTransform = isScaleOnlyOrNoTransform;
-
+    this.negativeResultCache = negativeResultCache;
+    this.encodedResourceCache = encodedResourceCache;
+    this.sourceFetchCoordinator = sourceFetchCoordinator;
   }
 
   void clear() {
@@ -85,6 +103,10 @@ final class DecodeHelper<Transcode> {
     priority = null;
     transformations = null;
     diskCacheStrategy = null;
+    negativeResultCache = null;
+    encodedResourceCache = null;
+    sourceDecodeFailure = null;
+    isSourceFetchFailed = false;
 
     loadData.clear();
     isLoadDataSet = false;
@@ -96,10 +118,86 @@ final class DecodeHelper<Transcode> {
     return diskCacheProvider.getDiskCache();
   }
 
+  @Nullable
+  SourceFetchCoordinator getSourceFetchCoordinator() {
+    return sourceFetchCoordinator;
+  }
+
   DiskCacheStrategy getDiskCacheStrategy() {
     return diskCacheStrategy;
   }
 
+  /**
+   * Returns the cause of a recent failure to fetch data for the given source key, or {@code null}
+   * if the data hasn't failed to load recently.
+   */
+  @Nullable
+  Exception getRecentFailure(Key sourceKey) {
+    return negativeResultCache != null ? negativeResultCache.get(sourceKey) : null;
+  }
+
+  /**
+   * Returns the cause of a recent failure to decode the data for this load from source with every
+   * available loader, or {@code null} if this load hasn't failed to decode recently.
+   */
+  @Nullable
+  Exception getRecentDecodeFailure() {
+    return negativeResultCache != null ? negativeResultCache.get(getDecodeFailureKey()) : null;
+  }
+
+  void onFetchFailed(Key sourceKey, Exception e) {
+    isSourceFetchFailed = true;
+    if (negativeResultCache != null) {
+      negativeResultCache.putFetchFailure(sourceKey, e);
+    }
+  }
+
+  /**
+   * Called when a fetch is skipped because the same fetch failed recently.
+   */
+  void onFetchSkipped() {
+    isSourceFetchFailed = true;
+  }
+
+  /**
+   * Called when data fetched from source couldn't be decoded, other loaders may still succeed.
+   */
+  void onDecodeFailed(Exception e) {
+    sourceDecodeFailure = e;
+  }
+
+  /**
+   * Remembers the decode failure for this load once every loader has been tried, unless some of
+   * the loaders failed to fetch their data, in which case they might succeed next time.
+   */
+  void onLoadFailed() {
+    if (negativeResultCache != null && sourceDecodeFailure != null && !isSourceFetchFailed) {
+      negativeResultCache.putDecodeFailure(getDecodeFailureKey(), sourceDecodeFailure);
+    }
+  }
+
+  private Key getDecodeFailureKey() {
+    return new DecodeFailureKey(model, signature, resourceClass, transcodeClass, options);
+  }
+
+  boolean hasEncodedResourceCache() {
+    return encodedResourceCache != null;
+  }
+
+  @Nullable
+  ByteBuffer getEncodedResource(Key key) {
+    return encodedResourceCache != null ? encodedResourceCache.get(key) : null;
+  }
+
+  /**
+   * Reads the given disk cache file into the in memory cache of encoded resources and returns its
+   * contents, or returns {@code null} if the contents can't or shouldn't be kept in memory.
+   */
+  @Nullable
+  ByteBuffer putEncodedResource(Key key, File file) {
+    return encodedResourceCache != null ? encodedResourceCache.put(key, file) : null;
+  }
+
   Priority getPriority() {
     return priority;
   }
@@ -124,6 +222,10 @@ final class DecodeHelper<Transcode> {
     return glideContext.getArrayPool();
   }
 
+  File getCacheDir() {
+    return glideContext.getCacheDir();
+  }
+
   Class<?> getTranscodeClass() {
     return transcodeClass;
   }
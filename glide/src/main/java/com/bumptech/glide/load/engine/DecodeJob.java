@@ -2,6 +2,7 @@ package com.bumptech.glide.load.engine;
 
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 import android.util.Log;
 import com.bumptech.glide.GlideContext;
@@ -16,6 +17,9 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.data.DataRewinder;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.EncodedResourceCache;
+import com.bumptech.glide.load.engine.cache.NegativeResultCache;
+import com.bumptech.glide.load.resource.bitmap.DerivativeSizes;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
@@ -45,6 +49,14 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private final List<Throwable> throwables = new ArrayList<>();
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
   private final DiskCacheProvider diskCacheProvider;
+  @Nullable
+  private final NegativeResultCache negativeResultCache;
+  @Nullable
+  private final EncodedResourceCache encodedResourceCache;
+  @Nullable
+  private final ResourceEncodeQueue resourceEncodeQueue;
+  @Nullable
+  private final SourceFetchCoordinator sourceFetchCoordinator;
   private final Pools.Pool<DecodeJob<?>> pool;
   private final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
   private final ReleaseManager releaseManager = new ReleaseManager();
@@ -71,13 +83,23 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private Object currentData;
   private DataSource currentDataSource;
   private DataFetcher<?> currentFetcher;
+  private boolean isCurrentDataCached;
 
   private volatile DataFetcherGenerator currentGenerator;
   private volatile boolean isCallbackNotified;
   private volatile boolean isCancelled;
 
-  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+  DecodeJob(DiskCacheProvider diskCacheProvider,
+      @Nullable NegativeResultCache negativeResultCache,
+      @Nullable EncodedResourceCache encodedResourceCache,
+      @Nullable ResourceEncodeQueue resourceEncodeQueue,
+      @Nullable SourceFetchCoordinator sourceFetchCoordinator,
+      Pools.Pool<DecodeJob<?>> pool) {
     this.diskCacheProvider = diskCacheProvider;
+    this.sourceFetchCoordinator = sourceFetchCoordinator;
+    this.negativeResultCache = negativeResultCache;
+    this.encodedResourceCache = encodedResourceCache;
+    this.resourceEncodeQueue = resourceEncodeQueue;
     this.pool = pool;
   }
 
@@ -113,7 +135,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         transformations,
         isTransformationRequired,
         isScaleOnlyOrNoTransform,
-        diskCacheProvider);
+        diskCacheProvider,
+        negativeResultCache,
+        encodedResourceCache,
+        sourceFetchCoordinator);
     this.glideContext = glideContext;
     this.signature = signature;
     this.priority = priority;
@@ -135,6 +160,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
    * will always decode from source.
    */
   boolean willDecodeFromCache() {
+    if (runReason != RunReason.INITIALIZE) {
+      return false;
+    }
     Stage firstStage = getNextStage(Stage.INITIALIZE);
     return firstStage == Stage.RESOURCE_CACHE || firstStage == Stage.DATA_CACHE;
   }
@@ -188,6 +216,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     currentData = null;
     currentDataSource = null;
     currentFetcher = null;
+    isCurrentDataCached = false;
     startFetchTime = 0L;
     isCancelled = false;
     model = null;
@@ -223,6 +252,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     // This should be much more fine grained, but since Java's thread pool implementation silently
     // swallows all otherwise fatal exceptions, this will at least make it obvious to developers
     // that something is failing.
+    // Return before the fetcher below is cleaned up so that any data we've already read from the
+    // disk cache is kept until the callback resumes us.
+    if (!isCancelled && deferIfPaused()) {
+      onDeferred();
+      return;
+    }
     GlideTrace.beginSectionFormat("DecodeJob#run(model=%s)", model);
     // Methods in the try statement can invalidate currentFetcher, so set a local variable here to
     // ensure that the fetcher is cleaned up either way.
@@ -293,6 +328,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       case DATA_CACHE:
         return new DataCacheGenerator(decodeHelper, this);
       case SOURCE:
+        if (skipRecentlyFailedDecode()) {
+          stage = Stage.FINISHED;
+          return null;
+        }
         return new SourceGenerator(decodeHelper, this);
       case FINISHED:
         return null;
@@ -301,6 +340,21 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  /**
+   * Returns {@code true} and records the failure if this load recently failed to decode its data
+   * from source with every available loader.
+   */
+  private boolean skipRecentlyFailedDecode() {
+    Exception recentFailure = decodeHelper.getRecentDecodeFailure();
+    if (recentFailure == null) {
+      return false;
+    }
+    GlideException e = new GlideException("Skipped recently failed decode", recentFailure);
+    e.setFromNegativeResultCache();
+    throwables.add(e);
+    return true;
+  }
+
   private void runGenerators() {
     currentThread = Thread.currentThread();
     startFetchTime = LogTime.getLogTime();
@@ -327,13 +381,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private void notifyFailed() {
     setNotifiedOrThrow();
     GlideException e = new GlideException("Failed to load resource", new ArrayList<>(throwables));
+    if (!isCancelled) {
+      decodeHelper.onLoadFailed();
+    }
     callback.onLoadFailed(e);
     onLoadFailed();
   }
 
   private void notifyComplete(Resource<R> resource, DataSource dataSource) {
     setNotifiedOrThrow();
-    callback.onResourceReady(resource, dataSource);
+    Key resourceCacheKey = dataSource == DataSource.RESOURCE_DISK_CACHE
+        ? currentAttemptingKey : deferredEncodeManager.getResourceCacheKey();
+    callback.onResourceReady(resource, dataSource, resourceCacheKey);
   }
 
   private void setNotifiedOrThrow() {
@@ -378,10 +437,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     this.currentFetcher = fetcher;
     this.currentDataSource = dataSource;
     this.currentAttemptingKey = attemptedKey;
+    this.isCurrentDataCached = isDataFromDiskCache();
     if (Thread.currentThread() != currentThread) {
       runReason = RunReason.DECODE_DATA;
       callback.reschedule(this);
-    } else {
+    } else if (!deferDecodeIfPaused()) {
       GlideTrace.beginSection("DecodeJob.decodeFromRetrievedData");
       try {
         decodeFromRetrievedData();
@@ -419,6 +479,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     } catch (GlideException e) {
       e.setLoggingDetails(currentAttemptingKey, currentDataSource);
       throwables.add(e);
+      if (stage == Stage.SOURCE && !isCancelled) {
+        decodeHelper.onDecodeFailed(e);
+      }
     }
     if (resource != null) {
       notifyEncodeAndRelease(resource, currentDataSource);
@@ -442,13 +505,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     notifyComplete(result, dataSource);
 
     stage = Stage.ENCODE;
-    try {
-      if (deferredEncodeManager.hasResourceToEncode()) {
-        deferredEncodeManager.encode(diskCacheProvider, options);
-      }
-    } finally {
-      if (lockedResource != null) {
-        lockedResource.unlock();
+    if (resourceEncodeQueue != null && deferredEncodeManager.hasResourceToEncode()) {
+      // The queue unlocks the result once the resource has been written or dropped.
+      deferredEncodeManager.enqueue(resourceEncodeQueue, options, lockedResource);
+    } else {
+      try {
+        if (deferredEncodeManager.hasResourceToEncode()) {
+          deferredEncodeManager.encode(diskCacheProvider, options);
+        }
+      } finally {
+        if (lockedResource != null) {
+          lockedResource.unlock();
+        }
       }
     }
     // Call onEncodeComplete outside the finally block so that it's not called if the encode process
@@ -458,17 +526,22 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
   private <Data> Resource<R> decodeFromData(DataFetcher<?> fetcher, Data data,
       DataSource dataSource) throws GlideException {
+    Resource<R> result = null;
     try {
       if (data == null) {
         return null;
       }
       long startTime = LogTime.getLogTime();
-      Resource<R> result = decodeFromFetcher(data, dataSource);
+      result = decodeFromFetcher(data, dataSource);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         logWithTimeAndKey("Decoded result " + result, startTime);
       }
       return result;
     } finally {
+      // Don't block this thread downloading the rest of data we failed to decode.
+      if (result == null && fetcher instanceof TeeDataFetcher) {
+        ((TeeDataFetcher) fetcher).abandonUnreadData();
+      }
       fetcher.cleanup();
     }
   }
@@ -487,8 +560,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       return options;
     }
 
+    // Derivatives are scaled from the decoded Bitmap's pixels, which hardware Bitmaps don't expose.
     boolean isHardwareConfigSafe =
-        dataSource == DataSource.RESOURCE_DISK_CACHE || decodeHelper.isScaleOnlyOrNoTransform();
+        dataSource == DataSource.RESOURCE_DISK_CACHE
+            || (decodeHelper.isScaleOnlyOrNoTransform()
+                && options.get(DerivativeSizes.OPTION) == null);
     Boolean isHardwareConfigAllowed = options.get(Downsampler.ALLOW_HARDWARE_CONFIG);
 
     // If allow hardware config is defined, we can use it if it's set to false or if it's safe to
@@ -547,10 +623,6 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       appliedTransformation = decodeHelper.getTransformation(resourceSubClass);
       transformed = appliedTransformation.transform(glideContext, decoded, width, height);
     }
-    // TODO: Make this the responsibility of the Transformation.
-    if (!decoded.equals(transformed)) {
-      decoded.recycle();
-    }
 
     final EncodeStrategy encodeStrategy;
     final ResourceEncoder<Z> encoder;
@@ -563,6 +635,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
 
     Resource<Z> result = transformed;
+    boolean isDecodedRetained = false;
     boolean isFromAlternateCacheKey = !decodeHelper.isSourceKey(currentSourceKey);
     if (diskCacheStrategy.isResourceCacheable(isFromAlternateCacheKey, dataSource,
         encodeStrategy)) {
@@ -590,10 +663,23 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
           throw new IllegalArgumentException("Unknown strategy: " + encodeStrategy);
       }
 
+      DerivativeWriter<Z> derivativeWriter = null;
+      if (encodeStrategy == EncodeStrategy.TRANSFORMED) {
+        // The decoded resource is kept until the derivatives have been written, either by the
+        // writer or, if it wasn't changed by the transformation, by the lock on the result.
+        derivativeWriter = DerivativeWriter.create(glideContext, decodeHelper.getArrayPool(),
+            decoded, /*isDecodedOwned=*/ !decoded.equals(transformed), width, height,
+            currentSourceKey, signature, appliedTransformation, resourceSubClass, options);
+        isDecodedRetained = derivativeWriter != null;
+      }
       LockedResource<Z> lockedResult = LockedResource.obtain(transformed);
-      deferredEncodeManager.init(key, encoder, lockedResult);
+      deferredEncodeManager.init(key, encoder, lockedResult, derivativeWriter);
       result = lockedResult;
     }
+    // TODO: Make this the responsibility of the Transformation.
+    if (!decoded.equals(transformed) && !isDecodedRetained) {
+      decoded.recycle();
+    }
     return result;
   }
 
@@ -658,16 +744,31 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     private Key key;
     private ResourceEncoder<Z> encoder;
     private LockedResource<Z> toEncode;
+    @Nullable private DerivativeWriter<Z> derivativeWriter;
 
     @Synthetic
     DeferredEncodeManager() { }
 
     // We just need the encoder and resource type to match, which this will enforce.
     @SuppressWarnings("unchecked")
-    <X> void init(Key key, ResourceEncoder<X> encoder, LockedResource<X> toEncode) {
+    <X> void init(Key key, ResourceEncoder<X> encoder, LockedResource<X> toEncode,
+        @Nullable DerivativeWriter<X> derivativeWriter) {
+      // A previous decode attempt may have failed after its resource was decoded.
+      releaseDerivatives();
       this.key = key;
       this.encoder = (ResourceEncoder<Z>) encoder;
       this.toEncode = (LockedResource<Z>) toEncode;
+      this.derivativeWriter = (DerivativeWriter<Z>) derivativeWriter;
+    }
+
+    /**
+     * Hands the resource and any derivatives to the given queue, which unlocks or recycles them
+     * once they've been written.
+     */
+    void enqueue(ResourceEncodeQueue queue, Options options, LockedResource<?> result) {
+      DerivativeWriter<Z> derivativeWriter = this.derivativeWriter;
+      this.derivativeWriter = null;
+      queue.enqueueLocked(key, encoder, toEncode, options, result, derivativeWriter);
     }
 
     void encode(DiskCacheProvider diskCacheProvider, Options options) {
@@ -675,7 +776,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       try {
         diskCacheProvider.getDiskCache().put(key,
             new DataCacheWriter<>(encoder, toEncode, options));
+        if (derivativeWriter != null) {
+          derivativeWriter.writeTo(diskCacheProvider.getDiskCache(), encoder);
+        }
       } finally {
+        // Derivatives may be created from the resource, so they're released before it's unlocked.
+        releaseDerivatives();
         toEncode.unlock();
         GlideTrace.endSection();
       }
@@ -685,20 +791,145 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       return toEncode != null;
     }
 
+    /**
+     * Returns the key the transformed resource is written to, or {@code null} if the resource
+     * isn't written or the source data is written instead.
+     */
+    @Nullable
+    Key getResourceCacheKey() {
+      return toEncode != null && key instanceof ResourceCacheKey ? key : null;
+    }
+
     void clear() {
       key = null;
       encoder = null;
       toEncode = null;
+      releaseDerivatives();
+    }
+
+    private void releaseDerivatives() {
+      if (derivativeWriter != null) {
+        derivativeWriter.release();
+        derivativeWriter = null;
+      }
+    }
+  }
+
+  private boolean isPopulatingDiskCache() {
+    return runReason != RunReason.DECODE_DATA
+        && !onlyRetrieveFromCache
+        && diskCacheStrategy.isDataCacheable(DataSource.REMOTE);
+  }
+
+  private boolean deferIfPaused() {
+    if (isHoldingUncachedData() && callback.isPaused(isPopulatingDiskCache())) {
+      releaseUncachedData();
+    }
+    return callback.deferIfPaused(this, isPopulatingDiskCache());
+  }
+
+  private boolean deferDecodeIfPaused() {
+    // Set before asking the callback so that it's visible to whichever thread resumes us.
+    RunReason previous = runReason;
+    runReason = RunReason.DECODE_DATA;
+    if (!isCurrentDataCached && callback.isPaused(/*isPopulatingDiskCache=*/ false)) {
+      releaseUncachedData();
+      if (!callback.deferIfPaused(this, isPopulatingDiskCache())) {
+        // We were resumed while releasing the data, start again straight away.
+        callback.reschedule(this);
+      }
+      return true;
+    }
+    if (callback.deferIfPaused(this, /*isPopulatingDiskCache=*/ false)) {
+      onDeferred();
+      return true;
+    }
+    runReason = previous;
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the data we'd decode next came from the disk cache rather than directly
+   * from source.
+   */
+  private boolean isDataFromDiskCache() {
+    DataFetcherGenerator generator = currentGenerator;
+    return !(generator instanceof SourceGenerator)
+        || ((SourceGenerator) generator).isDataFromDiskCache();
+  }
+
+  /**
+   * Returns {@code true} if we're holding data that isn't in the disk cache, typically a stream
+   * from the network that would keep its connection open for as long as we're paused.
+   */
+  private boolean isHoldingUncachedData() {
+    if (runReason == RunReason.DECODE_DATA) {
+      return !isCurrentDataCached;
+    }
+    DataFetcherGenerator generator = currentGenerator;
+    return generator instanceof SourceGenerator
+        && ((SourceGenerator) generator).hasUncachedData();
+  }
+
+  /**
+   * Releases data that isn't in the disk cache so that the load starts again from the disk cache or
+   * source when it's resumed.
+   */
+  private void releaseUncachedData() {
+    DataFetcherGenerator generator = currentGenerator;
+    if (generator instanceof SourceGenerator) {
+      ((SourceGenerator) generator).release();
+    }
+    DataFetcher<?> fetcher = currentFetcher;
+    if (runReason == RunReason.DECODE_DATA && fetcher != null) {
+      fetcher.cancel();
+      fetcher.cleanup();
+    }
+    currentGenerator = null;
+    currentData = null;
+    currentFetcher = null;
+    runReason = RunReason.INITIALIZE;
+  }
+
+  /**
+   * Lets other loads waiting for data we're fetching fetch it themselves rather than waiting for
+   * our load to be resumed.
+   */
+  private void onDeferred() {
+    DataFetcherGenerator generator = currentGenerator;
+    if (generator instanceof SourceGenerator) {
+      ((SourceGenerator) generator).onPaused();
     }
   }
 
   interface Callback<R> {
 
-    void onResourceReady(Resource<R> resource, DataSource dataSource);
+    /**
+     * @param resourceCacheKey The key of the resource disk cache entry the resource was read from
+     *                         or is about to be written to, or {@code null} if there isn't one.
+     */
+    void onResourceReady(Resource<R> resource, DataSource dataSource,
+        @Nullable Key resourceCacheKey);
 
     void onLoadFailed(GlideException e);
 
     void reschedule(DecodeJob<?> job);
+
+    /**
+     * Returns {@code true} if {@link #deferIfPaused(DecodeJob, boolean)} would currently defer the
+     * job, without deferring it.
+     */
+    boolean isPaused(boolean isPopulatingDiskCache);
+
+    /**
+     * Returns {@code true} if the load is paused, in which case the callback holds on to the job
+     * and submits it again when the load is resumed or cancelled, or {@code false} if the job
+     * should continue.
+     *
+     * @param isPopulatingDiskCache {@code true} if the job may be about to fetch source data that
+     *                              will be written to the disk cache.
+     */
+    boolean deferIfPaused(DecodeJob<?> job, boolean isPopulatingDiskCache);
   }
 
   interface DiskCacheProvider {
@@ -0,0 +1,207 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.resource.bitmap.DerivativeSizes;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.load.resource.bitmap.ResampleKernel;
+import com.bumptech.glide.request.target.Target;
+
+/**
+ * Scales and transforms a decoded {@link Bitmap} to each of the sizes in
+ * {@link DerivativeSizes#OPTION} and writes the results to the disk cache under the
+ * {@link ResourceCacheKey}s that loads at those sizes would use.
+ *
+ * <p>Derivatives are only created when {@link #writeTo(DiskCache, ResourceEncoder)} is called,
+ * after the requested resource has been delivered and written, so they never delay the requested
+ * resource. The decoded resource must stay valid until {@link #release()} is called.
+ *
+ * @param <Z> The type of the decoded resource, always {@link Bitmap}.
+ */
+final class DerivativeWriter<Z> {
+  private static final String TAG = "DerivativeWriter";
+
+  private final Context context;
+  private final ArrayPool arrayPool;
+  private final Resource<Z> decoded;
+  private final boolean isDecodedOwned;
+  private final DerivativeSizes derivativeSizes;
+  private final int width;
+  private final int height;
+  private final Key sourceKey;
+  private final Key signature;
+  private final Transformation<Z> transformation;
+  private final Class<Z> resourceClass;
+  private final Options options;
+  private final Options derivativeOptions;
+  private final DownsampleStrategy downsampleStrategy;
+  @Nullable private final ResampleKernel kernel;
+
+  private DerivativeWriter(
+      Context context,
+      ArrayPool arrayPool,
+      Resource<Z> decoded,
+      boolean isDecodedOwned,
+      DerivativeSizes derivativeSizes,
+      int width,
+      int height,
+      Key sourceKey,
+      Key signature,
+      Transformation<Z> transformation,
+      Class<Z> resourceClass,
+      Options options,
+      DownsampleStrategy downsampleStrategy) {
+    this.context = context;
+    this.arrayPool = arrayPool;
+    this.decoded = decoded;
+    this.isDecodedOwned = isDecodedOwned;
+    this.derivativeSizes = derivativeSizes;
+    this.width = width;
+    this.height = height;
+    this.sourceKey = sourceKey;
+    this.signature = signature;
+    this.transformation = transformation;
+    this.resourceClass = resourceClass;
+    this.options = options;
+    this.downsampleStrategy = downsampleStrategy;
+    kernel = options.get(Downsampler.RESAMPLE_KERNEL);
+    // Derivatives are cached under the keys requests without the option would use.
+    derivativeOptions = new Options();
+    derivativeOptions.putAll(options);
+    derivativeOptions.remove(DerivativeSizes.OPTION);
+  }
+
+  /**
+   * Returns a {@link DerivativeWriter} for the sizes in the given {@link Options}, or {@code null}
+   * if there's nothing to derive.
+   *
+   * @param decoded The decoded resource to derive from.
+   * @param isDecodedOwned {@code true} if {@code decoded} is recycled by {@link #release()},
+   *                       {@code false} if the caller keeps it valid until then.
+   * @param width The width that {@code decoded} was transformed to.
+   * @param height The height that {@code decoded} was transformed to.
+   */
+  @Nullable
+  static <Z> DerivativeWriter<Z> create(
+      @NonNull Context context,
+      @NonNull ArrayPool arrayPool,
+      @NonNull Resource<Z> decoded,
+      boolean isDecodedOwned,
+      int width,
+      int height,
+      @NonNull Key sourceKey,
+      @NonNull Key signature,
+      @NonNull Transformation<Z> transformation,
+      @NonNull Class<Z> resourceClass,
+      @NonNull Options options) {
+    DerivativeSizes derivativeSizes = options.get(DerivativeSizes.OPTION);
+    if (derivativeSizes == null || !(decoded.get() instanceof Bitmap)) {
+      return null;
+    }
+    DownsampleStrategy downsampleStrategy = options.get(DownsampleStrategy.OPTION);
+    // These strategies decode at a power of two of the source's size, which depends on the
+    // source's size rather than on the decoded Bitmap's size.
+    if (downsampleStrategy == DownsampleStrategy.AT_MOST
+        || downsampleStrategy == DownsampleStrategy.AT_LEAST) {
+      return null;
+    }
+    boolean hasDerivableSize = false;
+    for (int i = 0; i < derivativeSizes.size() && !hasDerivableSize; i++) {
+      hasDerivableSize = isDerivableSize(
+          width, height, derivativeSizes.getWidth(i), derivativeSizes.getHeight(i));
+    }
+    if (!hasDerivableSize) {
+      return null;
+    }
+    return new DerivativeWriter<>(context, arrayPool, decoded, isDecodedOwned, derivativeSizes,
+        width, height, sourceKey, signature, transformation, resourceClass, options,
+        downsampleStrategy);
+  }
+
+  /**
+   * Creates each derivative, writes it with the given encoder and recycles it.
+   *
+   * <p>Derivatives that fail to be created or written are skipped.
+   */
+  void writeTo(@NonNull DiskCache diskCache, @NonNull ResourceEncoder<Z> encoder) {
+    for (int i = 0; i < derivativeSizes.size(); i++) {
+      int derivativeWidth = derivativeSizes.getWidth(i);
+      int derivativeHeight = derivativeSizes.getHeight(i);
+      if (!isDerivableSize(width, height, derivativeWidth, derivativeHeight)) {
+        continue;
+      }
+      try {
+        write(diskCache, encoder, derivativeWidth, derivativeHeight);
+      } catch (RuntimeException e) {
+        // The derivative is just decoded the next time it's requested.
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Failed to derive " + derivativeWidth + "x" + derivativeHeight, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Recycles the decoded resource if it's owned by this object.
+   */
+  void release() {
+    if (isDecodedOwned) {
+      decoded.recycle();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void write(DiskCache diskCache, ResourceEncoder<Z> encoder, int derivativeWidth,
+      int derivativeHeight) {
+    Resource<Z> downsampled = null;
+    Resource<Z> derivative = null;
+    try {
+      downsampled = (Resource<Z>) DerivativeSizes.downsample(context, arrayPool,
+          (Resource<Bitmap>) decoded, downsampleStrategy, kernel, derivativeWidth,
+          derivativeHeight);
+      derivative =
+          transformation.transform(context, downsampled, derivativeWidth, derivativeHeight);
+      // If neither scaling nor transforming changed the resource, there's nothing to derive.
+      if (derivative.get() != decoded.get()) {
+        Key key =
+            new ResourceCacheKey(
+                arrayPool,
+                sourceKey,
+                signature,
+                derivativeWidth,
+                derivativeHeight,
+                transformation,
+                resourceClass,
+                derivativeOptions);
+        diskCache.put(key, new DataCacheWriter<>(encoder, derivative, options));
+      }
+    } finally {
+      // Transformations may return their input or wrap the same Bitmap in a new Resource.
+      boolean isDerivativeNew = derivative != null && derivative.get() != decoded.get();
+      if (isDerivativeNew) {
+        derivative.recycle();
+      }
+      if (downsampled != null && downsampled.get() != decoded.get()
+          && (derivative == null || downsampled.get() != derivative.get())) {
+        downsampled.recycle();
+      }
+    }
+  }
+
+  private static boolean isDerivableSize(
+      int width, int height, int derivativeWidth, int derivativeHeight) {
+    return (width == Target.SIZE_ORIGINAL || derivativeWidth <= width)
+        && (height == Target.SIZE_ORIGINAL || derivativeHeight <= height)
+        && (derivativeWidth != width || derivativeHeight != height);
+  }
+}
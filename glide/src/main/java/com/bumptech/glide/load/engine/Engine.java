@@ -13,15 +13,22 @@ import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
+import com.bumptech.glide.load.engine.cache.EncodedResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.cache.NegativeResultCache;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
+import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.Executors;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
 /**
@@ -41,6 +48,23 @@ public class Engine implements EngineJobListener,
   private final LazyDiskCacheProvider diskCacheProvider;
   private final DecodeJobFactory decodeJobFactory;
   private final ActiveResources activeResources;
+  @Nullable
+  private final NegativeResultCache negativeResultCache;
+  @Nullable
+  private final EncodedResourceCache encodedResourceCache;
+  private final GlideExecutor diskCacheExecutor;
+  // The thread putting a released resource in the memory cache. Resources it evicts are kept in the
+  // encoded resource cache, unlike those cleared or trimmed from the memory cache to free memory.
+  @Nullable
+  private Thread memoryCachePutThread;
+  @Nullable
+  private final GlideExecutor resourceEncodeExecutor;
+  @Nullable
+  private final ResourceEncodeQueue resourceEncodeQueue;
+  @Nullable
+  private final SourceFetchCoordinator sourceFetchCoordinator;
+  // The keys of loads started by fetchSource that may still be in progress.
+  private final Set<Key> sourceFetchKeys = new HashSet<>();
 
   public Engine(
       MemoryCache memoryCache,
@@ -50,6 +74,32 @@ public class Engine implements EngineJobListener,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
       boolean isActiveResourceRetentionAllowed) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        isActiveResourceRetentionAllowed,
+        /*negativeResultCache=*/ null,
+        /*encodedResourceCache=*/ null,
+        /*resourceEncodeExecutor=*/ null,
+        /*isSourceFetchSharingEnabled=*/ false);
+  }
+
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      boolean isActiveResourceRetentionAllowed,
+      @Nullable NegativeResultCache negativeResultCache,
+      @Nullable EncodedResourceCache encodedResourceCache,
+      @Nullable GlideExecutor resourceEncodeExecutor,
+      boolean isSourceFetchSharingEnabled) {
     this(
         memoryCache,
         diskCacheFactory,
@@ -63,7 +113,11 @@ public class Engine implements EngineJobListener,
         /*engineJobFactory=*/ null,
         /*decodeJobFactory=*/ null,
         /*resourceRecycler=*/ null,
-        isActiveResourceRetentionAllowed);
+        isActiveResourceRetentionAllowed,
+        negativeResultCache,
+        encodedResourceCache,
+        resourceEncodeExecutor,
+        isSourceFetchSharingEnabled);
   }
 
   @VisibleForTesting
@@ -79,9 +133,22 @@ public class Engine implements EngineJobListener,
       EngineJobFactory engineJobFactory,
       DecodeJobFactory decodeJobFactory,
       ResourceRecycler resourceRecycler,
-      boolean isActiveResourceRetentionAllowed) {
+      boolean isActiveResourceRetentionAllowed,
+      @Nullable NegativeResultCache negativeResultCache,
+      @Nullable EncodedResourceCache encodedResourceCache,
+      @Nullable GlideExecutor resourceEncodeExecutor,
+      boolean isSourceFetchSharingEnabled) {
     this.cache = cache;
+    this.sourceFetchCoordinator =
+        isSourceFetchSharingEnabled ? new SourceFetchCoordinator() : null;
+    this.negativeResultCache = negativeResultCache;
+    this.encodedResourceCache = encodedResourceCache;
+    this.diskCacheExecutor = diskCacheExecutor;
     this.diskCacheProvider = new LazyDiskCacheProvider(diskCacheFactory);
+    this.resourceEncodeExecutor = resourceEncodeExecutor;
+    this.resourceEncodeQueue = resourceEncodeExecutor == null
+        ? null
+        : new ResourceEncodeQueue(resourceEncodeExecutor, diskCacheProvider);
 
     if (activeResources == null) {
       activeResources = new ActiveResources(isActiveResourceRetentionAllowed);
@@ -107,7 +174,9 @@ public class Engine implements EngineJobListener,
     this.engineJobFactory = engineJobFactory;
 
     if (decodeJobFactory == null) {
-      decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+      decodeJobFactory =
+          new DecodeJobFactory(diskCacheProvider, negativeResultCache, encodedResourceCache,
+              resourceEncodeQueue, sourceFetchCoordinator);
     }
     this.decodeJobFactory = decodeJobFactory;
 
@@ -228,7 +297,20 @@ public class Engine implements EngineJobListener,
     jobs.put(key, engineJob);
 
     engineJob.addCallback(cb, callbackExecutor);
-    engineJob.start(decodeJob);
+    EngineJob<?> sourceFetch = diskCacheStrategy.decodeCachedData()
+        ? getSourceFetch(model, signature, options) : null;
+    if (sourceFetch != null) {
+      // Decode from the data disk cache once the source data has been written to it, rather than
+      // fetching the same data again.
+      engineJob.prepare(decodeJob);
+      sourceFetch.addCallback(
+          new StartAfterSourceFetch(engineJob), Executors.mainThreadExecutor());
+      if (VERBOSE_IS_LOGGABLE) {
+        logWithTimeAndKey("Waiting for source fetch", startTime, key);
+      }
+    } else {
+      engineJob.start(decodeJob);
+    }
 
     if (VERBOSE_IS_LOGGABLE) {
       logWithTimeAndKey("Started new load", startTime, key);
@@ -236,6 +318,77 @@ public class Engine implements EngineJobListener,
     return new LoadStatus(cb, engineJob);
   }
 
+  /**
+   * Starts fetching the source data for the given model into the data disk cache without decoding
+   * it, so that it can be fetched before the size needed to decode it is known.
+   *
+   * <p>Loads for the same model, signature and {@link Options} that are started while the fetch is
+   * in progress and that decode cached data wait for the fetch to finish and then decode from the
+   * data disk cache instead of fetching the data again. Loads that can be completed from memory
+   * don't wait.
+   *
+   * <p>Must be called on the main thread. The fetch only writes to the disk cache if the given
+   * {@link DiskCacheStrategy} caches data for the source the model is loaded from.
+   *
+   * @param cb The callback that will be called when the fetch completes, which must release any
+   *           {@link Resource} it's given with {@link #release(Resource)}.
+   */
+  public synchronized LoadStatus fetchSource(
+      GlideContext glideContext,
+      Object model,
+      Key signature,
+      Priority priority,
+      DiskCacheStrategy diskCacheStrategy,
+      Options options,
+      boolean useUnlimitedSourceExecutorPool,
+      ResourceCallback cb,
+      Executor callbackExecutor) {
+    LoadStatus loadStatus =
+        load(
+            glideContext,
+            model,
+            signature,
+            Target.SIZE_ORIGINAL,
+            Target.SIZE_ORIGINAL,
+            File.class,
+            File.class,
+            priority,
+            diskCacheStrategy,
+            Collections.<Class<?>, Transformation<?>>emptyMap(),
+            /*isTransformationRequired=*/ false,
+            /*isScaleOnlyOrNoTransform=*/ true,
+            options,
+            /*isMemoryCacheable=*/ false,
+            useUnlimitedSourceExecutorPool,
+            /*useAnimationPool=*/ false,
+            /*onlyRetrieveFromCache=*/ false,
+            cb,
+            callbackExecutor);
+    sourceFetchKeys.add(buildSourceFetchKey(model, signature, options));
+    return loadStatus;
+  }
+
+  @Nullable
+  private EngineJob<?> getSourceFetch(Object model, Key signature, Options options) {
+    if (sourceFetchKeys.isEmpty()) {
+      return null;
+    }
+    Key sourceFetchKey = buildSourceFetchKey(model, signature, options);
+    if (!sourceFetchKeys.contains(sourceFetchKey)) {
+      return null;
+    }
+    EngineJob<?> sourceFetch = jobs.get(sourceFetchKey, /*onlyRetrieveFromCache=*/ false);
+    if (sourceFetch == null) {
+      sourceFetchKeys.remove(sourceFetchKey);
+    }
+    return sourceFetch;
+  }
+
+  private Key buildSourceFetchKey(Object model, Key signature, Options options) {
+    return keyFactory.buildKey(model, signature, Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL,
+        Collections.<Class<?>, Transformation<?>>emptyMap(), File.class, File.class, options);
+  }
+
   private static void logWithTimeAndKey(String log, long startTime, Key key) {
     Log.v(TAG, log + " in " + LogTime.getElapsedMillis(startTime) + "ms, key: " + key);
   }
@@ -303,15 +456,25 @@ public class Engine implements EngineJobListener,
     }
 
     jobs.removeIfCurrent(key, engineJob);
+    sourceFetchKeys.remove(key);
   }
 
   @Override
   public synchronized void onEngineJobCancelled(EngineJob<?> engineJob, Key key) {
     jobs.removeIfCurrent(key, engineJob);
+    sourceFetchKeys.remove(key);
   }
 
   @Override
   public void onResourceRemoved(@NonNull final Resource<?> resource) {
+    if (encodedResourceCache != null && memoryCachePutThread == Thread.currentThread()
+        && resource instanceof EngineResource) {
+      Key resourceCacheKey = ((EngineResource<?>) resource).getResourceCacheKey();
+      if (resourceCacheKey != null) {
+        diskCacheExecutor.execute(new KeepEncodedResource(
+            diskCacheProvider, encodedResourceCache, resourceCacheKey));
+      }
+    }
     resourceRecycler.recycle(resource);
   }
 
@@ -319,7 +482,12 @@ public class Engine implements EngineJobListener,
   public synchronized void onResourceReleased(Key cacheKey, EngineResource<?> resource) {
     activeResources.deactivate(cacheKey);
     if (resource.isCacheable()) {
-      cache.put(cacheKey, resource);
+      memoryCachePutThread = Thread.currentThread();
+      try {
+        cache.put(cacheKey, resource);
+      } finally {
+        memoryCachePutThread = null;
+      }
     } else {
       resourceRecycler.recycle(resource);
     }
@@ -327,11 +495,50 @@ public class Engine implements EngineJobListener,
 
   public void clearDiskCache() {
     diskCacheProvider.getDiskCache().clear();
+    // The encoded resources are copies of disk cache entries, so they're stale now too.
+    if (encodedResourceCache != null) {
+      encodedResourceCache.clearMemory();
+    }
+  }
+
+  /**
+   * Returns the {@link SourceFetchCoordinator} that lets loads share fetches of the same source
+   * data, along with counts of how often they've done so, or {@code null} if sharing fetches isn't
+   * enabled.
+   */
+  @Nullable
+  public SourceFetchCoordinator getSourceFetchCoordinator() {
+    return sourceFetchCoordinator;
+  }
+
+  /**
+   * Forgets recent fetch failures, if any are being remembered, because they may have been caused
+   * by the connection that was just restored.
+   */
+  public void onConnectivityRestored() {
+    if (negativeResultCache != null) {
+      negativeResultCache.onConnectivityRestored();
+    }
+  }
+
+  /**
+   * Drops transformed resources that are waiting to be written to the disk cache if memory is
+   * running low.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  public void trimMemory(int level) {
+    if (resourceEncodeQueue != null) {
+      resourceEncodeQueue.trimMemory(level);
+    }
   }
 
   @VisibleForTesting
   public void shutdown() {
     engineJobFactory.shutdown();
+    if (resourceEncodeExecutor != null) {
+      Executors.shutdownAndAwaitTermination(resourceEncodeExecutor);
+    }
     diskCacheProvider.clearDiskCacheIfCreated();
     activeResources.shutdown();
   }
@@ -359,6 +566,75 @@ public class Engine implements EngineJobListener,
         engineJob.removeCallback(cb);
       }
     }
+
+    /**
+     * Pauses the load for this callback without cancelling it, see
+     * {@link com.bumptech.glide.request.PauseMode}.
+     *
+     * @param isDiskCacheWriteAllowed {@code true} to let the load keep fetching source data that
+     *                                will be written to the disk cache while it's paused.
+     */
+    public void pause(boolean isDiskCacheWriteAllowed) {
+      engineJob.pauseCallback(cb, isDiskCacheWriteAllowed);
+    }
+
+    /**
+     * Resumes a load previously paused with {@link #pause(boolean)}.
+     */
+    public void resume() {
+      engineJob.resumeCallback(cb);
+    }
+  }
+
+  /**
+   * Starts a load once the source fetch it's waiting for has finished, whether or not the fetch
+   * succeeded.
+   */
+  private final class StartAfterSourceFetch implements ResourceCallback {
+    private final EngineJob<?> engineJob;
+
+    StartAfterSourceFetch(EngineJob<?> engineJob) {
+      this.engineJob = engineJob;
+    }
+
+    @Override
+    public void onResourceReady(Resource<?> resource, DataSource dataSource) {
+      release(resource);
+      engineJob.startLater();
+    }
+
+    @Override
+    public void onLoadFailed(GlideException e) {
+      engineJob.startLater();
+    }
+  }
+
+  /**
+   * Reads the resource disk cache entry of a resource evicted from the memory cache into the
+   * {@link EncodedResourceCache}, so that it can be decoded again without reading it from disk.
+   */
+  private static final class KeepEncodedResource implements Runnable {
+    private final DecodeJob.DiskCacheProvider diskCacheProvider;
+    private final EncodedResourceCache encodedResourceCache;
+    private final Key resourceCacheKey;
+
+    KeepEncodedResource(DecodeJob.DiskCacheProvider diskCacheProvider,
+        EncodedResourceCache encodedResourceCache, Key resourceCacheKey) {
+      this.diskCacheProvider = diskCacheProvider;
+      this.encodedResourceCache = encodedResourceCache;
+      this.resourceCacheKey = resourceCacheKey;
+    }
+
+    @Override
+    public void run() {
+      if (encodedResourceCache.get(resourceCacheKey) != null) {
+        return;
+      }
+      File cacheFile = diskCacheProvider.getDiskCache().get(resourceCacheKey);
+      if (cacheFile != null) {
+        encodedResourceCache.put(resourceCacheKey, cacheFile);
+      }
+    }
   }
 
   private static class LazyDiskCacheProvider implements DecodeJob.DiskCacheProvider {
@@ -397,18 +673,36 @@ public class Engine implements EngineJobListener,
   @VisibleForTesting
   static class DecodeJobFactory {
     @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
+    @Synthetic @Nullable final NegativeResultCache negativeResultCache;
+    @Synthetic @Nullable final EncodedResourceCache encodedResourceCache;
+    @Synthetic @Nullable final ResourceEncodeQueue resourceEncodeQueue;
+    @Synthetic @Nullable final SourceFetchCoordinator sourceFetchCoordinator;
     @Synthetic final Pools.Pool<DecodeJob<?>> pool =
         FactoryPools.threadSafe(JOB_POOL_SIZE,
             new FactoryPools.Factory<DecodeJob<?>>() {
           @Override
           public DecodeJob<?> create() {
-            return new DecodeJob<>(diskCacheProvider, pool);
+            return new DecodeJob<>(
+                diskCacheProvider,
+                negativeResultCache,
+                encodedResourceCache,
+                resourceEncodeQueue,
+                sourceFetchCoordinator,
+                pool);
           }
         });
     private int creationOrder;
 
-    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider,
+        @Nullable NegativeResultCache negativeResultCache,
+        @Nullable EncodedResourceCache encodedResourceCache,
+        @Nullable ResourceEncodeQueue resourceEncodeQueue,
+        @Nullable SourceFetchCoordinator sourceFetchCoordinator) {
       this.diskCacheProvider = diskCacheProvider;
+      this.negativeResultCache = negativeResultCache;
+      this.encodedResourceCache = encodedResourceCache;
+      this.resourceEncodeQueue = resourceEncodeQueue;
+      this.sourceFetchCoordinator = sourceFetchCoordinator;
     }
 
     @SuppressWarnings("unchecked")
@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.Pools;
 import com.bumptech.glide.load.DataSource;
@@ -39,6 +40,9 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private final GlideExecutor sourceUnlimitedExecutor;
   private final GlideExecutor animationExecutor;
   private final AtomicInteger pendingCallbacks = new AtomicInteger();
+  private final List<ResourceCallback> pausedCbs = new ArrayList<>(2);
+  // The paused callbacks that let the DecodeJob keep writing to the disk cache.
+  private final List<ResourceCallback> diskCacheWritingPausedCbs = new ArrayList<>(2);
 
   private Key key;
   private boolean isCacheable;
@@ -46,6 +50,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private boolean useAnimationPool;
   private boolean onlyRetrieveFromCache;
   private Resource<?> resource;
+  @Nullable private Key resourceCacheKey;
 
   @SuppressWarnings("WeakerAccess")
   @Synthetic
@@ -65,6 +70,9 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
   private DecodeJob<R> decodeJob;
 
+  // True if the DecodeJob is waiting for us to resubmit it because it was paused.
+  private boolean isDecodeJobDeferred;
+
   // Checked primarily on the main thread, but also on other threads in reschedule.
   private volatile boolean isCancelled;
 
@@ -120,6 +128,26 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
   public synchronized void start(DecodeJob<R> decodeJob) {
     this.decodeJob = decodeJob;
+    submitDecodeJob();
+  }
+
+  /**
+   * Sets the {@link DecodeJob} without running it until {@link #startLater()} is called, so that
+   * the load can be joined or cancelled in the meantime.
+   */
+  synchronized void prepare(DecodeJob<R> decodeJob) {
+    this.decodeJob = decodeJob;
+  }
+
+  /**
+   * Runs the {@link DecodeJob} set with {@link #prepare(DecodeJob)}, if the load was cancelled in
+   * the meantime the {@link DecodeJob} notices and releases the load.
+   */
+  synchronized void startLater() {
+    submitDecodeJob();
+  }
+
+  private void submitDecodeJob() {
     GlideExecutor executor = decodeJob.willDecodeFromCache()
         ? diskCacheExecutor
         : getActiveSourceExecutor();
@@ -129,6 +157,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   synchronized void addCallback(final ResourceCallback cb, Executor callbackExecutor) {
     stateVerifier.throwIfRecycled();
     cbs.add(cb, callbackExecutor);
+    resumeDecodeJobIfDeferred();
     if (hasResource) {
       // Acquire early so that the resource isn't recycled while the Runnable below is still sitting
       // in the executors queue.
@@ -168,9 +197,53 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
   }
 
+  /**
+   * Pauses the given callback, once every callback is paused the {@link DecodeJob} stops before it
+   * next starts running or decoding until a callback is resumed or added, or until every callback
+   * is removed. Data it has read from the disk cache is kept, data it has fetched from source that
+   * isn't in the disk cache is released and fetched again when the job is resumed.
+   *
+   * @param isDiskCacheWriteAllowed {@code true} to let the {@link DecodeJob} keep fetching source
+   *                                data that will be written to the disk cache while paused. The
+   *                                job keeps writing if any of its paused callbacks allow it.
+   */
+  synchronized void pauseCallback(ResourceCallback cb, boolean isDiskCacheWriteAllowed) {
+    stateVerifier.throwIfRecycled();
+    // The callback may have been removed on another thread if the load finished while the
+    // request was being paused.
+    if (cbs.contains(cb) && !pausedCbs.contains(cb)) {
+      pausedCbs.add(cb);
+      if (isDiskCacheWriteAllowed) {
+        diskCacheWritingPausedCbs.add(cb);
+      }
+    }
+  }
+
+  synchronized void resumeCallback(ResourceCallback cb) {
+    stateVerifier.throwIfRecycled();
+    pausedCbs.remove(cb);
+    diskCacheWritingPausedCbs.remove(cb);
+    resumeDecodeJobIfDeferred();
+  }
+
+  private boolean isPaused() {
+    return !pausedCbs.isEmpty() && pausedCbs.size() == cbs.size();
+  }
+
+  private void resumeDecodeJobIfDeferred() {
+    if (isDecodeJobDeferred && !isPaused()) {
+      isDecodeJobDeferred = false;
+      // DecodeJobs are ordered by their priority and the order they were created in, so they
+      // resume ahead of any lower priority jobs that were started while they were paused.
+      submitDecodeJob();
+    }
+  }
+
   synchronized void removeCallback(ResourceCallback cb) {
     stateVerifier.throwIfRecycled();
     cbs.remove(cb);
+    pausedCbs.remove(cb);
+    diskCacheWritingPausedCbs.remove(cb);
     if (cbs.isEmpty()) {
       cancel();
       boolean isFinishedRunning = hasResource || hasLoadFailed;
@@ -198,6 +271,11 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     isCancelled = true;
     decodeJob.cancel();
     listener.onEngineJobCancelled(this, key);
+    if (isDecodeJobDeferred) {
+      isDecodeJobDeferred = false;
+      // Run the job so that it notices it's cancelled and releases any data it fetched.
+      getActiveSourceExecutor().execute(decodeJob);
+    }
   }
 
   // Exposed for testing.
@@ -231,7 +309,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       } else if (hasResource) {
         throw new IllegalStateException("Already have resource");
       }
-      engineResource = engineResourceFactory.build(resource, isCacheable);
+      engineResource = engineResourceFactory.build(resource, isCacheable, resourceCacheKey);
       // Hold on to resource for duration of our callbacks below so we don't recycle it in the
       // middle of notifying if it synchronously released by one of the callbacks. Acquire it under
       // a lock here so that any newly added callback that executes before the next locked section
@@ -282,6 +360,9 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       throw new IllegalArgumentException();
     }
     cbs.clear();
+    pausedCbs.clear();
+    diskCacheWritingPausedCbs.clear();
+    isDecodeJobDeferred = false;
     key = null;
     engineResource = null;
     resource = null;
@@ -292,14 +373,17 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     decodeJob = null;
     exception = null;
     dataSource = null;
+    resourceCacheKey = null;
     pool.release(this);
   }
 
   @Override
-  public void onResourceReady(Resource<R> resource, DataSource dataSource) {
+  public void onResourceReady(Resource<R> resource, DataSource dataSource,
+      @Nullable Key resourceCacheKey) {
     synchronized (this) {
       this.resource = resource;
       this.dataSource = dataSource;
+      this.resourceCacheKey = resourceCacheKey;
     }
     notifyCallbacksOfResult();
   }
@@ -319,6 +403,22 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     getActiveSourceExecutor().execute(job);
   }
 
+  @Override
+  public synchronized boolean isPaused(boolean isPopulatingDiskCache) {
+    // If any of the paused requests allows it, keep writing to the disk cache.
+    return !isCancelled && isPaused()
+        && !(isPopulatingDiskCache && !diskCacheWritingPausedCbs.isEmpty());
+  }
+
+  @Override
+  public synchronized boolean deferIfPaused(DecodeJob<?> job, boolean isPopulatingDiskCache) {
+    if (!isPaused(isPopulatingDiskCache)) {
+      return false;
+    }
+    isDecodeJobDeferred = true;
+    return true;
+  }
+
   // We have to post Runnables in a loop. Typically there will be very few callbacks. Acessor method
   // warning seems to be false positive.
   @SuppressWarnings(
@@ -480,8 +580,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
   @VisibleForTesting
   static class EngineResourceFactory {
-    public <R> EngineResource<R> build(Resource<R> resource, boolean isMemoryCacheable) {
-      return new EngineResource<>(resource, isMemoryCacheable, /*isRecyclable=*/ true);
+    public <R> EngineResource<R> build(Resource<R> resource, boolean isMemoryCacheable,
+        @Nullable Key resourceCacheKey) {
+      return new EngineResource<>(
+          resource, isMemoryCacheable, /*isRecyclable=*/ true, resourceCacheKey);
     }
   }
 }
@@ -0,0 +1,26 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Option;
+
+/**
+ * Options related to how the {@link Engine} fetches, caches and decodes data.
+ */
+public final class EngineOptions {
+
+  /**
+   * If set to {@code true} and the {@link DiskCacheStrategy} caches original source data,
+   * {@link java.io.InputStream}s retrieved from source are decoded directly while the bytes that
+   * are read are copied into the data disk cache, rather than first being written to the disk cache
+   * in full and then read back and decoded from the cache file.
+   *
+   * <p>The copy is only committed to the disk cache if the entire stream is read successfully. Only
+   * applies when the default {@link com.bumptech.glide.load.model.StreamEncoder} is registered for
+   * {@link java.io.InputStream}s. Defaults to {@code false}.
+   */
+  public static final Option<Boolean> TEE_SOURCE_TO_DATA_CACHE = Option.memory(
+      "com.bumptech.glide.load.engine.EngineOptions.TeeSourceToDataCache", false);
+
+  private EngineOptions() {
+    // Utility class.
+  }
+}
@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.util.Preconditions;
 
@@ -18,15 +19,26 @@ class EngineResource<Z> implements Resource<Z> {
   private int acquired;
   private boolean isRecycled;
   private final Resource<Z> resource;
+  @Nullable private final Key resourceCacheKey;
 
   interface ResourceListener {
     void onResourceReleased(Key key, EngineResource<?> resource);
   }
 
   EngineResource(Resource<Z> toWrap, boolean isCacheable, boolean isRecyclable) {
+    this(toWrap, isCacheable, isRecyclable, /*resourceCacheKey=*/ null);
+  }
+
+  /**
+   * @param resourceCacheKey The key of the resource disk cache entry the resource was read from or
+   *                         is written to, or {@code null} if there isn't one.
+   */
+  EngineResource(Resource<Z> toWrap, boolean isCacheable, boolean isRecyclable,
+      @Nullable Key resourceCacheKey) {
     resource = Preconditions.checkNotNull(toWrap);
     this.isCacheable = isCacheable;
     this.isRecyclable = isRecyclable;
+    this.resourceCacheKey = resourceCacheKey;
   }
 
   synchronized void setResourceListener(Key key, ResourceListener listener) {
@@ -42,6 +54,11 @@ class EngineResource<Z> implements Resource<Z> {
     return isCacheable;
   }
 
+  @Nullable
+  Key getResourceCacheKey() {
+    return resourceCacheKey;
+  }
+
   @NonNull
   @Override
   public Class<Z> getResourceClass() {
@@ -29,6 +29,7 @@ public final class GlideException extends Exception {
   private String detailMessage;
   @Nullable
   private Exception exception;
+  private boolean isFromNegativeResultCache;
 
   public GlideException(String message) {
     this(message, Collections.<Throwable>emptyList());
@@ -74,6 +75,30 @@ public final class GlideException extends Exception {
     return exception;
   }
 
+  void setFromNegativeResultCache() {
+    isFromNegativeResultCache = true;
+  }
+
+  /**
+   * Returns {@code true} if this exception or any of its {@link GlideException} causes was reported
+   * without attempting a load because the same load failed recently, see
+   * {@link com.bumptech.glide.load.engine.cache.NegativeResultCache}.
+   *
+   * <p>The root causes of such exceptions are the exceptions that caused the original failure.
+   */
+  public boolean isFromNegativeResultCache() {
+    if (isFromNegativeResultCache) {
+      return true;
+    }
+    for (Throwable cause : causes) {
+      if (cause instanceof GlideException
+          && ((GlideException) cause).isFromNegativeResultCache()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   // No need to synchronize when doing nothing whatsoever.
   @SuppressWarnings("UnsynchronizedOverridesSynchronized")
   @Override
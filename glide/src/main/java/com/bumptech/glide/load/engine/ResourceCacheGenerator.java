@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Transformation;
@@ -8,11 +9,15 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
  * Generates {@link DataFetcher DataFetchers} from cache files
  * containing downsampled/transformed resource data.
+ *
+ * <p>If an {@link com.bumptech.glide.load.engine.cache.EncodedResourceCache} is available, cached
+ * data is read from and added to it so that it can be decoded without any file I/O.
  */
 class ResourceCacheGenerator implements DataFetcherGenerator,
     DataFetcher.DataCallback<Object> {
@@ -80,7 +85,23 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
               transformation,
               resourceClass,
               helper.getOptions());
-      cacheFile = helper.getDiskCache().get(currentKey);
+      boolean canDecodeEncoded =
+          helper.hasEncodedResourceCache() && helper.hasLoadPath(ByteBuffer.class);
+      ByteBuffer encoded = canDecodeEncoded ? helper.getEncodedResource(currentKey) : null;
+      if (encoded == null) {
+        cacheFile = helper.getDiskCache().get(currentKey);
+        if (cacheFile != null && canDecodeEncoded) {
+          encoded = helper.putEncodedResource(currentKey, cacheFile);
+        }
+      }
+      if (encoded != null) {
+        // If decoding the encoded data fails, decoding the cache file would fail too, so we just
+        // move on to the next key if we're started again.
+        sourceKey = sourceId;
+        loadData = new LoadData<>(currentKey, new EncodedResourceFetcher(encoded));
+        loadData.fetcher.loadData(helper.getPriority(), this);
+        return true;
+      }
       if (cacheFile != null) {
         sourceKey = sourceId;
         modelLoaders = helper.getModelLoaders(cacheFile);
@@ -125,4 +146,43 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
   public void onLoadFailed(@NonNull Exception e) {
     cb.onDataFetcherFailed(currentKey, e, loadData.fetcher, DataSource.RESOURCE_DISK_CACHE);
   }
+
+  /**
+   * Provides encoded resource data that's already in memory.
+   */
+  private static final class EncodedResourceFetcher implements DataFetcher<ByteBuffer> {
+    private final ByteBuffer data;
+
+    EncodedResourceFetcher(ByteBuffer data) {
+      this.data = data;
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super ByteBuffer> callback) {
+      callback.onDataReady(data);
+    }
+
+    @Override
+    public void cleanup() {
+      // Do nothing.
+    }
+
+    @Override
+    public void cancel() {
+      // Do nothing.
+    }
+
+    @NonNull
+    @Override
+    public Class<ByteBuffer> getDataClass() {
+      return ByteBuffer.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.RESOURCE_DISK_CACHE;
+    }
+  }
 }
@@ -0,0 +1,234 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.GuardedBy;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.DecodeJob.DiskCacheProvider;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.pool.GlideTrace;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes transformed resources to the disk cache on a separate, low priority {@link Executor} so
+ * that {@link DecodeJob}s don't encode on the threads that decode.
+ *
+ * <p>Resources stay locked until they've been written or dropped, so they can't be recycled while
+ * they're being encoded. Writes are keyed by their disk cache {@link Key}: a write for a key that
+ * is already waiting to be written is dropped. Writes are also dropped rather than queued when
+ * more than {@link #MAX_PENDING_WRITES} are waiting, which happens when decodes outpace the
+ * encode thread, and pending writes are dropped when memory is low. Dropped resources are decoded
+ * again the next time they're requested.
+ *
+ * <p>Each run of the {@link Executor} writes every pending resource inside a single
+ * {@link DiskCache.Batchable} batch if the {@link DiskCache} supports batches.
+ */
+final class ResourceEncodeQueue {
+  private static final String TAG = "ResourceEncodeQueue";
+  private static final int MAX_PENDING_WRITES = 16;
+
+  private final Executor executor;
+  private final DiskCacheProvider diskCacheProvider;
+  private final Runnable drainWrites = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  @GuardedBy("this")
+  private final Map<Key, Write<?>> pendingWrites = new LinkedHashMap<>();
+  @GuardedBy("this")
+  private boolean isDrainScheduled;
+  @GuardedBy("this")
+  private int droppedWrites;
+
+  ResourceEncodeQueue(
+      @NonNull Executor executor,
+      @NonNull DiskCacheProvider diskCacheProvider) {
+    this.executor = executor;
+    this.diskCacheProvider = diskCacheProvider;
+  }
+
+  /**
+   * Queues a write of a resource that's locked by the caller.
+   *
+   * <p>{@code toEncode} and {@code result}, if given, are unlocked once {@code toEncode} has been
+   * written or dropped. Derivatives, if given, are created and written right after
+   * {@code toEncode} and released before it's unlocked.
+   */
+  <Z> void enqueueLocked(
+      @NonNull Key key,
+      @NonNull ResourceEncoder<Z> encoder,
+      @NonNull LockedResource<Z> toEncode,
+      @NonNull Options options,
+      @Nullable LockedResource<?> result,
+      @Nullable DerivativeWriter<Z> derivativeWriter) {
+    enqueue(new Write<>(key, encoder, toEncode, options, result, derivativeWriter));
+  }
+
+  /**
+   * Drops pending writes if the app is running low on memory or has been moved to the background.
+   */
+  void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      clear();
+    }
+  }
+
+  /**
+   * Drops every pending write.
+   */
+  void clear() {
+    Write<?>[] toDrop;
+    synchronized (this) {
+      toDrop = pendingWrites.values().toArray(new Write<?>[0]);
+      pendingWrites.clear();
+      droppedWrites += toDrop.length;
+    }
+    for (Write<?> write : toDrop) {
+      write.release();
+    }
+  }
+
+  private void enqueue(Write<?> write) {
+    boolean isDropped = false;
+    boolean isDrainNeeded = false;
+    synchronized (this) {
+      if (pendingWrites.containsKey(write.key) || pendingWrites.size() >= MAX_PENDING_WRITES) {
+        isDropped = true;
+        droppedWrites++;
+      } else {
+        pendingWrites.put(write.key, write);
+        isDrainNeeded = !isDrainScheduled;
+        isDrainScheduled = true;
+      }
+    }
+    if (isDropped) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Dropped write for: " + write.key);
+      }
+      write.release();
+      return;
+    }
+    if (isDrainNeeded) {
+      try {
+        executor.execute(drainWrites);
+      } catch (RejectedExecutionException e) {
+        // The executor has been shut down, so nothing more will be written.
+        synchronized (this) {
+          isDrainScheduled = false;
+        }
+        clear();
+      }
+    }
+  }
+
+  @Synthetic
+  void drain() {
+    GlideTrace.beginSection("ResourceEncodeQueue.drain");
+    long startTime = LogTime.getLogTime();
+    int written = 0;
+    DiskCache diskCache = diskCacheProvider.getDiskCache();
+    DiskCache.Batchable batchable =
+        diskCache instanceof DiskCache.Batchable ? (DiskCache.Batchable) diskCache : null;
+    if (batchable != null) {
+      batchable.beginBatch();
+    }
+    try {
+      Write<?> write;
+      while ((write = poll()) != null) {
+        try {
+          write.writeTo(diskCache);
+          written++;
+        } catch (RuntimeException e) {
+          // Keep draining, a resource that fails to encode is just decoded again next time.
+          if (Log.isLoggable(TAG, Log.WARN)) {
+            Log.w(TAG, "Failed to write: " + write.key, e);
+          }
+        } finally {
+          write.release();
+        }
+      }
+    } finally {
+      if (batchable != null) {
+        batchable.endBatch();
+      }
+      GlideTrace.endSection();
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      int dropped;
+      synchronized (this) {
+        dropped = droppedWrites;
+      }
+      Log.v(TAG, "Wrote " + written + " resources in " + LogTime.getElapsedMillis(startTime)
+          + ", dropped " + dropped + " so far");
+    }
+  }
+
+  @Nullable
+  private synchronized Write<?> poll() {
+    Iterator<Write<?>> iterator = pendingWrites.values().iterator();
+    if (!iterator.hasNext()) {
+      isDrainScheduled = false;
+      return null;
+    }
+    Write<?> result = iterator.next();
+    iterator.remove();
+    return result;
+  }
+
+  private static final class Write<Z> {
+    @Synthetic final Key key;
+    private final ResourceEncoder<Z> encoder;
+    private final LockedResource<Z> toEncode;
+    private final Options options;
+    @Nullable private final LockedResource<?> resultLock;
+    @Nullable private final DerivativeWriter<Z> derivativeWriter;
+
+    Write(
+        Key key,
+        ResourceEncoder<Z> encoder,
+        LockedResource<Z> toEncode,
+        Options options,
+        @Nullable LockedResource<?> resultLock,
+        @Nullable DerivativeWriter<Z> derivativeWriter) {
+      this.key = key;
+      this.encoder = encoder;
+      this.toEncode = toEncode;
+      this.options = options;
+      this.resultLock = resultLock;
+      this.derivativeWriter = derivativeWriter;
+    }
+
+    void writeTo(DiskCache diskCache) {
+      diskCache.put(key, new DataCacheWriter<>(encoder, toEncode, options));
+      if (derivativeWriter != null) {
+        derivativeWriter.writeTo(diskCache, encoder);
+      }
+    }
+
+    void release() {
+      // Derivatives may be created from toEncode, so they're released before it's unlocked.
+      if (derivativeWriter != null) {
+        derivativeWriter.release();
+      }
+      toEncode.unlock();
+      if (resultLock != null) {
+        resultLock.unlock();
+      }
+    }
+  }
+}
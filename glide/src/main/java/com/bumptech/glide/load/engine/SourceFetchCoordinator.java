@@ -0,0 +1,202 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Synthetic;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lets loads with different {@link EngineKey}s that need the same source data share a single
+ * fetch and a single write to the disk cache.
+ *
+ * <p>Fetches are keyed by the {@link DataCacheKey} their data will be written to. The first load to
+ * ask for a key fetches the data and writes it to the disk cache as usual. Loads that ask for the
+ * same key while that fetch is in progress wait for it to finish and then decode the data from the
+ * disk cache independently. If the fetch fails, waiting loads fail with the same cause. If it's
+ * cancelled or the data isn't written, waiting loads start again and one of them fetches the data
+ * instead.
+ *
+ * <p>A fetch runs at the {@link Priority} of the load that started it, so loads with a higher
+ * priority don't wait for it and fetch the data themselves instead.
+ *
+ * <p>Loads may miss a fetch that finished after they checked the disk cache but before they were
+ * ready to fetch the data themselves, so the keys of recently finished fetches are remembered and
+ * loads that ask for them read the data from the disk cache rather than fetching it again.
+ *
+ * @see com.bumptech.glide.GlideBuilder#setShareSourceFetches(boolean)
+ */
+public final class SourceFetchCoordinator {
+  private static final int MAX_RECENTLY_FINISHED = 50;
+
+  private final Map<Key, SharedFetch> fetches = new HashMap<>();
+  // Used as an insertion ordered set.
+  private final Map<Key, Boolean> recentlyFinished = new LinkedHashMap<>();
+  private long fetchCount;
+  private long sharedFetchCount;
+  private long sharedFetchMissCount;
+
+  SourceFetchCoordinator() { }
+
+  /**
+   * Determines whether the given {@link Waiter} should fetch the data for the given key itself,
+   * wait for another load that's already fetching it, or read it from the disk cache.
+   *
+   * <p>If {@link JoinResult#FETCH} is returned, the {@link Waiter} must call
+   * {@link #finish(Key, Waiter, Exception)} or {@link #abandon(Key, Waiter)} when it's done.
+   *
+   * @param priority The {@link Priority} of the {@link Waiter}'s load.
+   */
+  @NonNull
+  synchronized JoinResult join(
+      @NonNull Key key, @NonNull Waiter waiter, @NonNull Priority priority) {
+    SharedFetch fetch = fetches.get(key);
+    if (fetch != null) {
+      if (priority.ordinal() < fetch.priority.ordinal()) {
+        // Fetchers can't be re-prioritized once started, so waiting would hold this load back to
+        // the pace of a lower priority one. The fetch stays shared with lower priority loads.
+        return JoinResult.FETCH;
+      }
+      fetch.waiters.add(waiter);
+      sharedFetchCount++;
+      return JoinResult.WAIT;
+    } else if (recentlyFinished.containsKey(key)) {
+      sharedFetchCount++;
+      return JoinResult.READ_CACHE;
+    }
+    fetches.put(key, new SharedFetch(waiter, priority));
+    fetchCount++;
+    return JoinResult.FETCH;
+  }
+
+  /**
+   * Stops notifying the given {@link Waiter} about the fetch for the given key, typically because
+   * its load was cancelled.
+   */
+  synchronized void removeWaiter(@NonNull Key key, @NonNull Waiter waiter) {
+    SharedFetch fetch = fetches.get(key);
+    if (fetch != null) {
+      fetch.waiters.remove(waiter);
+    }
+  }
+
+  /**
+   * Finishes the fetch for the given key and notifies any waiting loads, or does nothing if the
+   * given {@link Waiter} isn't fetching the data for the key.
+   *
+   * @param failure The cause of the failure if the fetch failed, or {@code null} if the data was
+   *                written to the disk cache.
+   */
+  void finish(@NonNull Key key, @NonNull Waiter leader, @Nullable Exception failure) {
+    finish(key, leader, failure, /*isWritten=*/ failure == null);
+  }
+
+  /**
+   * Finishes the fetch for the given key without writing any data, for example because it was
+   * cancelled, so that waiting loads start again. Does nothing if the given {@link Waiter} isn't
+   * fetching the data for the key.
+   */
+  void abandon(@NonNull Key key, @NonNull Waiter leader) {
+    finish(key, leader, /*failure=*/ null, /*isWritten=*/ false);
+  }
+
+  private void finish(Key key, Waiter leader, @Nullable Exception failure, boolean isWritten) {
+    SharedFetch fetch;
+    synchronized (this) {
+      fetch = fetches.get(key);
+      if (fetch == null || fetch.leader != leader) {
+        return;
+      }
+      fetches.remove(key);
+      if (isWritten) {
+        recentlyFinished.put(key, Boolean.TRUE);
+        if (recentlyFinished.size() > MAX_RECENTLY_FINISHED) {
+          Iterator<Key> iterator = recentlyFinished.keySet().iterator();
+          iterator.next();
+          iterator.remove();
+        }
+      }
+    }
+    for (Waiter waiter : fetch.waiters) {
+      waiter.onSharedFetchFinished(failure);
+    }
+  }
+
+  /**
+   * Notes that a load didn't find the data for the given key in the disk cache after another load
+   * fetched it, so that the next load to ask for the key fetches it again.
+   */
+  synchronized void onSharedFetchMissed(@NonNull Key key) {
+    recentlyFinished.remove(key);
+    sharedFetchMissCount++;
+  }
+
+  /**
+   * Returns the number of fetches that loads were able to share, including those that no other
+   * load ended up waiting for.
+   */
+  public synchronized long getFetchCount() {
+    return fetchCount;
+  }
+
+  /**
+   * Returns the number of times a load waited for or reused another load's fetch instead of
+   * fetching the same data itself.
+   */
+  public synchronized long getSharedFetchCount() {
+    return sharedFetchCount;
+  }
+
+  /**
+   * Returns the number of times a load waited for or reused another load's fetch but then
+   * couldn't find the data in the disk cache, for example because it had already been evicted, and
+   * had to start again.
+   */
+  public synchronized long getSharedFetchMissCount() {
+    return sharedFetchMissCount;
+  }
+
+  /**
+   * What a load should do about the data for a key, see {@link #join(Key, Waiter, Priority)}.
+   */
+  enum JoinResult {
+    /** Fetch the data and write it to the disk cache. */
+    FETCH,
+    /** Wait for another load that's already fetching the data. */
+    WAIT,
+    /** Read the data from the disk cache, another load recently wrote it. */
+    READ_CACHE,
+  }
+
+  /**
+   * Notified when a fetch that a load is waiting for finishes.
+   */
+  interface Waiter {
+
+    /**
+     * Called on the thread that finished the fetch.
+     *
+     * @param failure The cause of the failure if the fetch failed, or {@code null} if the data
+     *                should be looked for in the disk cache before starting again.
+     */
+    void onSharedFetchFinished(@Nullable Exception failure);
+  }
+
+  private static final class SharedFetch {
+    @Synthetic final Waiter leader;
+    @Synthetic final Priority priority;
+    @Synthetic final List<Waiter> waiters = new ArrayList<>(2);
+
+    @Synthetic
+    SharedFetch(Waiter leader, Priority priority) {
+      this.leader = leader;
+      this.priority = priority;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Encoder;
@@ -8,7 +9,10 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.load.model.StreamEncoder;
 import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import java.io.InputStream;
 import java.util.Collections;
 
 /**
@@ -18,10 +22,18 @@ import java.util.Collections;
  *
  * <p> Depending on the disk cache strategy, source data may first be written to disk and then
  * loaded from the cache file rather than returned directly. </p>
+ *
+ * <p> If {@link EngineOptions#TEE_SOURCE_TO_DATA_CACHE} is set, {@link InputStream}s are instead
+ * decoded directly and copied to the disk cache as they're read, see {@link TeeDataFetcher}. </p>
+ *
+ * <p> If sharing fetches is enabled, source data that will be written to the disk cache is fetched
+ * at most once at a time, loads that need data that another load is already fetching wait for it
+ * and then read the data from the disk cache, see {@link SourceFetchCoordinator}. </p>
  */
 class SourceGenerator implements DataFetcherGenerator,
     DataFetcher.DataCallback<Object>,
-    DataFetcherGenerator.FetcherReadyCallback {
+    DataFetcherGenerator.FetcherReadyCallback,
+    SourceFetchCoordinator.Waiter {
   private static final String TAG = "SourceGenerator";
 
   private final DecodeHelper<?> helper;
@@ -32,6 +44,12 @@ class SourceGenerator implements DataFetcherGenerator,
   private Object dataToCache;
   private volatile LoadData<?> loadData;
   private DataCacheKey originalKey;
+  private volatile TeeDataFetcher teeFetcher;
+  private volatile boolean isCancelled;
+  // The key of the shared fetch this generator is waiting for or fetching data for, if any.
+  @Nullable private volatile DataCacheKey sharedFetchKey;
+  private volatile boolean isSharedFetchFinished;
+  private volatile boolean isDataFromDiskCache;
 
   SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this.helper = helper;
@@ -51,6 +69,16 @@ class SourceGenerator implements DataFetcherGenerator,
     }
     sourceCacheGenerator = null;
 
+    if (isSharedFetchFinished) {
+      isSharedFetchFinished = false;
+      // If the fetch we waited for didn't write the data, usually because it was cancelled, try
+      // again with the same loader rather than moving on to the next one.
+      if (!startSharedDataLoad()) {
+        startLoad();
+      }
+      return true;
+    }
+
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
@@ -59,12 +87,161 @@ class SourceGenerator implements DataFetcherGenerator,
           && (helper.getDiskCacheStrategy().isDataCacheable(loadData.fetcher.getDataSource())
           || helper.hasLoadPath(loadData.fetcher.getDataClass()))) {
         started = true;
-        loadData.fetcher.loadData(helper.getPriority(), this);
+        startLoad();
       }
     }
     return started;
   }
 
+  private void startLoad() {
+    Exception recentFailure = helper.getRecentFailure(loadData.sourceKey);
+    if (recentFailure != null) {
+      onRecentlyFailed(recentFailure);
+      return;
+    }
+    switch (joinSharedFetch()) {
+      case FETCH:
+        loadData.fetcher.loadData(helper.getPriority(), this);
+        break;
+      case WAIT:
+        // We'll be called back in onSharedFetchFinished.
+        break;
+      case READ_CACHE:
+        // The coordinator forgets the key if the data isn't cached, so this only recurses once.
+        if (!startSharedDataLoad()) {
+          startLoad();
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unrecognized join result");
+    }
+  }
+
+  /**
+   * Returns whether we should fetch the data ourselves, wait for another load with the same or a
+   * higher priority that's already fetching the data we'd write to the disk cache, or read the
+   * data another load wrote.
+   */
+  private SourceFetchCoordinator.JoinResult joinSharedFetch() {
+    SourceFetchCoordinator coordinator = helper.getSourceFetchCoordinator();
+    if (coordinator == null
+        || !helper.getDiskCacheStrategy().isDataCacheable(loadData.fetcher.getDataSource())) {
+      sharedFetchKey = null;
+      return SourceFetchCoordinator.JoinResult.FETCH;
+    }
+    DataCacheKey key = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+    sharedFetchKey = key;
+    return coordinator.join(key, this, helper.getPriority());
+  }
+
+  /**
+   * Starts loading the data another load fetched from the disk cache and returns {@code true}, or
+   * returns {@code false} if the data isn't in the disk cache.
+   */
+  private boolean startSharedDataLoad() {
+    sourceCacheGenerator =
+        new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
+    if (sourceCacheGenerator.startNext()) {
+      return true;
+    }
+    sourceCacheGenerator = null;
+    helper.getSourceFetchCoordinator().onSharedFetchMissed(sharedFetchKey);
+    return false;
+  }
+
+  /**
+   * Lets any loads waiting for the data we're fetching continue, does nothing if we aren't
+   * fetching data for other loads or have already finished.
+   *
+   * @param failure The cause of the failure if the fetch failed, or {@code null} if the data was
+   *                written to the disk cache.
+   */
+  private void finishSharedFetch(@Nullable Exception failure) {
+    finishSharedFetch(sharedFetchKey, failure);
+  }
+
+  @Synthetic
+  void finishSharedFetch(@Nullable DataCacheKey key, @Nullable Exception failure) {
+    if (key != null) {
+      helper.getSourceFetchCoordinator().finish(key, this, failure);
+    }
+  }
+
+  /**
+   * Lets any loads waiting for the data we're fetching start again because we won't write it to
+   * the disk cache, does nothing if we aren't fetching data for other loads or have already
+   * finished.
+   */
+  private void abandonSharedFetch() {
+    DataCacheKey key = sharedFetchKey;
+    if (key != null) {
+      helper.getSourceFetchCoordinator().abandon(key, this);
+    }
+  }
+
+  /**
+   * Returns {@code true} if we've fetched data that we haven't yet written to the disk cache.
+   */
+  boolean hasUncachedData() {
+    return dataToCache != null;
+  }
+
+  /**
+   * Returns {@code true} if the data most recently passed to our callback was read from the disk
+   * cache, or {@code false} if it came directly from source.
+   */
+  boolean isDataFromDiskCache() {
+    return isDataFromDiskCache;
+  }
+
+  /**
+   * Cancels any fetch we started and releases any data we fetched but haven't written to the disk
+   * cache, so that we don't hold on to it, or the connection it came from, while our load is
+   * paused. The generator can't be used afterwards.
+   */
+  void release() {
+    cancel();
+    Object data = dataToCache;
+    if (data != null) {
+      dataToCache = null;
+      loadData.fetcher.cleanup();
+    }
+  }
+
+  /**
+   * Called when our load is paused, lets any loads waiting for data we haven't yet written to the
+   * disk cache start again so that one of them can fetch it instead.
+   */
+  void onPaused() {
+    abandonSharedFetch();
+  }
+
+  @Override
+  public void onSharedFetchFinished(@Nullable Exception failure) {
+    if (isCancelled) {
+      return;
+    }
+    if (failure != null) {
+      cb.onDataFetcherFailed(loadData.sourceKey, new GlideException("Shared fetch failed", failure),
+          loadData.fetcher, loadData.fetcher.getDataSource());
+    } else {
+      isSharedFetchFinished = true;
+      // We're called back on the thread of the load that fetched the data, get back onto our own.
+      cb.reschedule();
+    }
+  }
+
+  /**
+   * Fails the current load without starting it because the same load failed recently.
+   */
+  private void onRecentlyFailed(Exception recentFailure) {
+    helper.onFetchSkipped();
+    GlideException e = new GlideException("Skipped recently failed load", recentFailure);
+    e.setFromNegativeResultCache();
+    cb.onDataFetcherFailed(loadData.sourceKey, e, loadData.fetcher,
+        loadData.fetcher.getDataSource());
+  }
+
   private boolean hasNextModelLoader() {
     return loadDataListIndex < helper.getLoadData().size();
   }
@@ -86,29 +263,86 @@ class SourceGenerator implements DataFetcherGenerator,
       }
     } finally {
       loadData.fetcher.cleanup();
+      finishSharedFetch(/*failure=*/ null);
     }
 
     sourceCacheGenerator =
         new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
   }
 
+  /**
+   * Starts decoding the given data while copying it into the disk cache and returns {@code true},
+   * or returns {@code false} if the data can't be copied as it's decoded.
+   */
+  private boolean decodeWhileCaching(Object data) {
+    if (!(data instanceof InputStream)
+        || !helper.getOptions().get(EngineOptions.TEE_SOURCE_TO_DATA_CACHE)) {
+      return false;
+    }
+    // Other encoders may modify the data they write, so we can't copy the original bytes.
+    Encoder<?> encoder = helper.getSourceEncoder(data);
+    if (!(encoder instanceof StreamEncoder)) {
+      return false;
+    }
+    originalKey = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+    // The data is only in the cache once the decode finishes and the fetcher is cleaned up, by
+    // which time we may be fetching data for a different key.
+    final DataCacheKey key = sharedFetchKey;
+    TeeDataFetcher fetcher =
+        TeeDataFetcher.obtain(loadData.fetcher, (InputStream) data, helper.getDiskCache(),
+            originalKey, helper.getArrayPool(), helper.getCacheDir(), new Runnable() {
+              @Override
+              public void run() {
+                finishSharedFetch(key, /*failure=*/ null);
+              }
+            });
+    if (fetcher == null) {
+      return false;
+    }
+    teeFetcher = fetcher;
+    isDataFromDiskCache = false;
+    // If decoding the stream fails, we'll be asked to start again. If the decoder read the whole
+    // stream, the data will be in the cache by then, so we can try any other decoders for the
+    // cached file the same way we would if we had written the data before decoding it.
+    sourceCacheGenerator =
+        new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
+    cb.onDataFetcherReady(loadData.sourceKey, fetcher.getData(), fetcher,
+        loadData.fetcher.getDataSource(), loadData.sourceKey);
+    return true;
+  }
+
   @Override
   public void cancel() {
+    isCancelled = true;
+    DataCacheKey key = sharedFetchKey;
+    if (key != null) {
+      helper.getSourceFetchCoordinator().removeWaiter(key, this);
+      helper.getSourceFetchCoordinator().abandon(key, this);
+    }
     LoadData<?> local = loadData;
     if (local != null) {
       local.fetcher.cancel();
     }
+    TeeDataFetcher localTee = teeFetcher;
+    if (localTee != null) {
+      localTee.cancel();
+    }
   }
 
   @Override
   public void onDataReady(Object data) {
     DiskCacheStrategy diskCacheStrategy = helper.getDiskCacheStrategy();
     if (data != null && diskCacheStrategy.isDataCacheable(loadData.fetcher.getDataSource())) {
+      if (decodeWhileCaching(data)) {
+        return;
+      }
       dataToCache = data;
       // We might be being called back on someone else's thread. Before doing anything, we should
       // reschedule to get back onto Glide's thread.
       cb.reschedule();
     } else {
+      abandonSharedFetch();
+      isDataFromDiskCache = false;
       cb.onDataFetcherReady(loadData.sourceKey, data, loadData.fetcher,
           loadData.fetcher.getDataSource(), originalKey);
     }
@@ -116,6 +350,15 @@ class SourceGenerator implements DataFetcherGenerator,
 
   @Override
   public void onLoadFailed(@NonNull Exception e) {
+    // Failures caused by cancellation say nothing about whether or not the load will fail again.
+    if (!isCancelled) {
+      helper.onFetchFailed(loadData.sourceKey, e);
+    }
+    if (isCancelled) {
+      abandonSharedFetch();
+    } else {
+      finishSharedFetch(e);
+    }
     cb.onDataFetcherFailed(originalKey, e, loadData.fetcher, loadData.fetcher.getDataSource());
   }
 
@@ -132,6 +375,7 @@ class SourceGenerator implements DataFetcherGenerator,
       DataSource dataSource, Key attemptedKey) {
     // This data fetcher will be loading from a File and provide the wrong data source, so override
     // with the data source of the original fetcher
+    isDataFromDiskCache = true;
     cb.onDataFetcherReady(sourceKey, data, fetcher, loadData.fetcher.getDataSource(), sourceKey);
   }
 
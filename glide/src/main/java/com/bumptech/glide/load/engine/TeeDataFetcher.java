@@ -0,0 +1,264 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.GuardedBy;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.data.BufferedOutputStream;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a {@link DataFetcher} that has already produced an {@link InputStream} so that the stream
+ * can be decoded directly while the bytes that are read are copied to a temporary file.
+ *
+ * <p>When the decode finishes and {@link #cleanup()} is called, any bytes the decoder didn't read
+ * are copied and, if the stream was read in full, the temporary file is moved into the
+ * {@link DiskCache} under the given key. If the decode failed, see {@link #abandonUnreadData()},
+ * the unread bytes aren't downloaded just to be copied, so only streams the decoder read in full
+ * are written. If the load is cancelled or any part of the copy fails, nothing is written to the
+ * {@link DiskCache}. Either way, the given cleanup callback is run afterwards.
+ *
+ * <p>Temporary files left behind when the process dies during a load are deleted the first time a
+ * temporary file is created in the same directory by a later process.
+ */
+final class TeeDataFetcher implements DataFetcher<InputStream> {
+  private static final String TAG = "TeeDataFetcher";
+  private static final String TEMP_FILE_PREFIX = "glide_tee";
+  // Other processes may be copying into their own temporary files in the same directory, so only
+  // delete files they can't still be writing to.
+  private static final long STALE_TEMP_FILE_AGE_MS = TimeUnit.HOURS.toMillis(1);
+  @GuardedBy("SWEPT_DIRECTORIES")
+  private static final Set<File> SWEPT_DIRECTORIES = new HashSet<>();
+
+  private final DataFetcher<?> wrapped;
+  private final DiskCache diskCache;
+  private final Key key;
+  private final ArrayPool arrayPool;
+  private final File tempFile;
+  private final OutputStream sink;
+  private final TeeInputStream stream;
+  @Nullable private final Runnable cleanupCallback;
+  private volatile boolean isCancelled;
+  private volatile boolean isUnreadDataAbandoned;
+  private boolean isCleanedUp;
+
+  private TeeDataFetcher(DataFetcher<?> wrapped, InputStream data, DiskCache diskCache, Key key,
+      ArrayPool arrayPool, File tempFile, OutputStream sink, @Nullable Runnable cleanupCallback) {
+    this.wrapped = wrapped;
+    this.diskCache = diskCache;
+    this.key = key;
+    this.arrayPool = arrayPool;
+    this.tempFile = tempFile;
+    this.sink = sink;
+    this.cleanupCallback = cleanupCallback;
+    stream = new TeeInputStream(data, sink);
+  }
+
+  /**
+   * Returns a new {@link TeeDataFetcher}, or {@code null} if a temporary file to copy into couldn't
+   * be created.
+   */
+  static TeeDataFetcher obtain(DataFetcher<?> wrapped, InputStream data, DiskCache diskCache,
+      Key key, ArrayPool arrayPool, File tempDirectory, @Nullable Runnable cleanupCallback) {
+    deleteStaleTempFilesOnce(tempDirectory);
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile(TEMP_FILE_PREFIX, null /*suffix*/, tempDirectory);
+      OutputStream sink = new BufferedOutputStream(new FileOutputStream(tempFile), arrayPool);
+      return new TeeDataFetcher(
+          wrapped, data, diskCache, key, arrayPool, tempFile, sink, cleanupCallback);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to create temporary file, falling back to write then read", e);
+      }
+      if (tempFile != null && !tempFile.delete() && Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to delete temporary file: " + tempFile);
+      }
+      return null;
+    }
+  }
+
+  private static void deleteStaleTempFilesOnce(File directory) {
+    synchronized (SWEPT_DIRECTORIES) {
+      if (!SWEPT_DIRECTORIES.add(directory)) {
+        return;
+      }
+    }
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    long staleBefore = System.currentTimeMillis() - STALE_TEMP_FILE_AGE_MS;
+    for (File file : files) {
+      if (file.getName().startsWith(TEMP_FILE_PREFIX)
+          && file.lastModified() < staleBefore
+          && !file.delete()
+          && Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to delete stale temporary file: " + file);
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link InputStream} that should be decoded in place of the original data.
+   */
+  @NonNull
+  InputStream getData() {
+    return stream;
+  }
+
+  @Override
+  public void loadData(@NonNull Priority priority,
+      @NonNull DataCallback<? super InputStream> callback) {
+    callback.onDataReady(stream);
+  }
+
+  /**
+   * Stops {@link #cleanup()} from reading the rest of the stream, typically because the decode
+   * failed and nothing will use the data before it's in the {@link DiskCache}.
+   */
+  void abandonUnreadData() {
+    isUnreadDataAbandoned = true;
+  }
+
+  /**
+   * Finishes copying the stream and commits it to the {@link DiskCache} if possible.
+   *
+   * <p>Safe to call multiple times, only the first call has any effect.
+   */
+  @Override
+  public void cleanup() {
+    synchronized (this) {
+      if (isCleanedUp) {
+        return;
+      }
+      isCleanedUp = true;
+    }
+    try {
+      boolean isCopyComplete = finishCopy();
+      if (isCopyComplete && !isCancelled) {
+        diskCache.put(key, new MoveFileWriter(tempFile, arrayPool));
+      }
+    } finally {
+      if (tempFile.exists() && !tempFile.delete() && Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to delete temporary file: " + tempFile);
+      }
+      wrapped.cleanup();
+      if (cleanupCallback != null) {
+        cleanupCallback.run();
+      }
+    }
+  }
+
+  private boolean finishCopy() {
+    byte[] buffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    try {
+      // Check for cancellation between reads so that cancelling stops a long download.
+      while (!isUnreadDataAbandoned && !isCancelled && !stream.isCopyFailed()
+          && stream.read(buffer) != -1) {
+        // Keep reading.
+      }
+      sink.close();
+      return stream.isCopyComplete();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to finish copying data to the disk cache", e);
+      }
+      return false;
+    } finally {
+      arrayPool.put(buffer);
+      try {
+        sink.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    isCancelled = true;
+    wrapped.cancel();
+  }
+
+  @NonNull
+  @Override
+  public Class<InputStream> getDataClass() {
+    return InputStream.class;
+  }
+
+  @NonNull
+  @Override
+  public DataSource getDataSource() {
+    return wrapped.getDataSource();
+  }
+
+  /**
+   * Moves the completed copy into the disk cache's file, falling back to copying if the move fails,
+   * for example because the disk cache is on a different file system.
+   */
+  private static final class MoveFileWriter implements DiskCache.Writer {
+    private final File source;
+    private final ArrayPool arrayPool;
+
+    MoveFileWriter(File source, ArrayPool arrayPool) {
+      this.source = source;
+      this.arrayPool = arrayPool;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      if (source.renameTo(file)) {
+        return true;
+      }
+      byte[] buffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+      InputStream is = null;
+      OutputStream os = null;
+      try {
+        is = new FileInputStream(source);
+        os = new FileOutputStream(file);
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+          os.write(buffer, 0, read);
+        }
+        os.close();
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to copy data into the disk cache", e);
+        }
+        return false;
+      } finally {
+        arrayPool.put(buffer);
+        if (is != null) {
+          try {
+            is.close();
+          } catch (IOException e) {
+            // Ignored.
+          }
+        }
+        if (os != null) {
+          try {
+            os.close();
+          } catch (IOException e) {
+            // Ignored.
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link InputStream} that copies every byte it reads from the wrapped stream into the given
+ * {@link OutputStream}.
+ *
+ * <p>Failures writing to the {@link OutputStream} never fail reads, they just stop the copy and are
+ * exposed via {@link #isCopyFailed()}. Marking is not supported because bytes read twice would be
+ * copied twice.
+ */
+final class TeeInputStream extends FilterInputStream {
+  private static final String TAG = "TeeInputStream";
+  private static final int SKIP_BUFFER_SIZE = 4 * 1024;
+
+  private final OutputStream sink;
+  private boolean isCopyFailed;
+  private boolean isExhausted;
+  private byte[] skipBuffer;
+
+  TeeInputStream(@NonNull InputStream in, @NonNull OutputStream sink) {
+    super(in);
+    this.sink = sink;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int result = super.read();
+    if (result == -1) {
+      isExhausted = true;
+    } else {
+      copy(result);
+    }
+    return result;
+  }
+
+  @Override
+  public int read(@NonNull byte[] buffer) throws IOException {
+    return read(buffer, 0, buffer.length);
+  }
+
+  @Override
+  public int read(@NonNull byte[] buffer, int byteOffset, int byteCount) throws IOException {
+    int read = super.read(buffer, byteOffset, byteCount);
+    if (read == -1) {
+      isExhausted = true;
+    } else {
+      copy(buffer, byteOffset, read);
+    }
+    return read;
+  }
+
+  /**
+   * Reads and copies rather than skipping so that the copy doesn't contain holes.
+   */
+  @Override
+  public long skip(long byteCount) throws IOException {
+    if (skipBuffer == null) {
+      skipBuffer = new byte[SKIP_BUFFER_SIZE];
+    }
+    long skipped = 0;
+    while (skipped < byteCount) {
+      int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, byteCount - skipped));
+      if (read == -1) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {
+    // Not supported.
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("Mark/reset not supported");
+  }
+
+  /**
+   * Returns {@code true} if the wrapped stream has been read until it returned -1 and every byte
+   * was copied successfully.
+   */
+  boolean isCopyComplete() {
+    return isExhausted && !isCopyFailed;
+  }
+
+  boolean isCopyFailed() {
+    return isCopyFailed;
+  }
+
+  private void copy(int b) {
+    if (isCopyFailed) {
+      return;
+    }
+    try {
+      sink.write(b);
+    } catch (IOException e) {
+      onCopyFailed(e);
+    }
+  }
+
+  private void copy(byte[] buffer, int offset, int count) {
+    if (isCopyFailed) {
+      return;
+    }
+    try {
+      sink.write(buffer, offset, count);
+    } catch (IOException e) {
+      onCopyFailed(e);
+    }
+  }
+
+  private void onCopyFailed(IOException e) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Failed to copy data, continuing without copy", e);
+    }
+    isCopyFailed = true;
+  }
+}
@@ -73,6 +73,28 @@ public class LruBitmapPool implements BitmapPool {
     return maxSize;
   }
 
+  /**
+   * Returns the number of times a {@link Bitmap} was requested and found in the pool.
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of times a {@link Bitmap} was requested but not found in the pool, each of
+   * which required a new allocation.
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of {@link Bitmap}s evicted from the pool to stay within its size.
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
   @Override
   public synchronized void setSizeMultiplier(float sizeMultiplier) {
     maxSize = Math.round(initialMaxSize * sizeMultiplier);
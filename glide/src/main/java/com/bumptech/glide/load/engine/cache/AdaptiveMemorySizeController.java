@@ -0,0 +1,563 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically retunes the sizes of the {@link MemoryCache} and the {@link BitmapPool} from
+ * runtime signals rather than relying only on the sizes {@link MemorySizeCalculator} picks at
+ * startup.
+ *
+ * <p>The sizes the cache and pool were created with form a global budget. Every
+ * {@link #DEFAULT_INTERVAL_MS} the controller takes a {@link Sample} of hits, misses and evictions
+ * since the previous sample along with the current heap headroom and whether any blocking garbage
+ * collections occurred, and passes it to a {@link Policy} that decides how to split the budget
+ * between the cache and the pool. The resulting {@link Decision} is applied on the main thread
+ * using {@link MemoryCache#setSizeMultiplier(float)} and
+ * {@link BitmapPool#setSizeMultiplier(float)}, combined with the multiplier of the current {@link com.bumptech.glide.MemoryCategory}.
+ *
+ * <p>Hit and miss counts are only available for {@link LruResourceCache},
+ * {@link TinyLfuResourceCache} and {@link LruBitmapPool}. Other implementations are still shrunk
+ * under memory pressure, but the budget won't be rebalanced towards or away from them. Blocking
+ * garbage collections are only reported by the runtime on Android M and above.
+ */
+public final class AdaptiveMemorySizeController implements Runnable {
+  private static final String TAG = "AdaptiveMemorySize";
+  /**
+   * The default amount of time in ms between samples.
+   */
+  public static final long DEFAULT_INTERVAL_MS = TimeUnit.SECONDS.toMillis(10);
+
+  private final MemoryCache memoryCache;
+  private final BitmapPool bitmapPool;
+  private final Policy policy;
+  private final GcCounter gcCounter;
+  private final long intervalMs;
+  @Synthetic final Handler handler;
+  private final long memoryCacheBaseSize;
+  private final long bitmapPoolBaseSize;
+
+  @Nullable
+  private Listener listener;
+  private Decision decision = Decision.DEFAULT;
+  private float categoryMultiplier = 1f;
+  @Synthetic boolean isRunning;
+  private long lastGcCount;
+  private long lastCacheHits;
+  private long lastCacheMisses;
+  private long lastCacheEvictions;
+  private long lastPoolHits;
+  private long lastPoolMisses;
+  private long lastPoolEvictions;
+
+  private final Runnable startRunnable = new Runnable() {
+    @Override
+    public void run() {
+      if (isRunning) {
+        return;
+      }
+      isRunning = true;
+      takeBaseline();
+      schedule();
+    }
+  };
+
+  private final Runnable stopRunnable = new Runnable() {
+    @Override
+    public void run() {
+      isRunning = false;
+      handler.removeCallbacks(AdaptiveMemorySizeController.this);
+    }
+  };
+
+  /**
+   * Constructor for AdaptiveMemorySizeController that uses the {@link DefaultPolicy}.
+   */
+  public AdaptiveMemorySizeController(
+      @NonNull MemoryCache memoryCache, @NonNull BitmapPool bitmapPool) {
+    this(memoryCache, bitmapPool, new DefaultPolicy(), DEFAULT_INTERVAL_MS);
+  }
+
+  /**
+   * Constructor for AdaptiveMemorySizeController.
+   *
+   * @param memoryCache The cache to resize.
+   * @param bitmapPool The pool to resize.
+   * @param policy The policy that decides how to split the budget.
+   * @param intervalMs The amount of time in ms between samples.
+   */
+  public AdaptiveMemorySizeController(
+      @NonNull MemoryCache memoryCache,
+      @NonNull BitmapPool bitmapPool,
+      @NonNull Policy policy,
+      long intervalMs) {
+    this(memoryCache, bitmapPool, policy, intervalMs, new Handler(Looper.getMainLooper()),
+        new RuntimeStatGcCounter());
+  }
+
+  @VisibleForTesting
+  AdaptiveMemorySizeController(
+      MemoryCache memoryCache,
+      BitmapPool bitmapPool,
+      Policy policy,
+      long intervalMs,
+      Handler handler,
+      GcCounter gcCounter) {
+    this.memoryCache = memoryCache;
+    this.bitmapPool = bitmapPool;
+    this.policy = Preconditions.checkNotNull(policy);
+    this.gcCounter = gcCounter;
+    this.intervalMs = intervalMs;
+    this.handler = handler;
+    memoryCacheBaseSize = memoryCache.getMaxSize();
+    bitmapPoolBaseSize = bitmapPool.getMaxSize();
+  }
+
+  /**
+   * Sets a listener that will be notified on the main thread of every {@link Decision}.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  public void setListener(@Nullable Listener listener) {
+    Util.assertMainThread();
+    this.listener = listener;
+  }
+
+  /**
+   * Returns the most recently applied {@link Decision}.
+   */
+  @NonNull
+  public Decision getDecision() {
+    Util.assertMainThread();
+    return decision;
+  }
+
+  /**
+   * Starts taking samples periodically.
+   *
+   * <p>May be called on any thread.
+   */
+  public void start() {
+    handler.post(startRunnable);
+  }
+
+  /**
+   * Stops taking samples, leaving the current sizes in place.
+   *
+   * <p>May be called on any thread.
+   */
+  public void stop() {
+    handler.post(stopRunnable);
+  }
+
+  /**
+   * Sets the multiplier of the current {@link com.bumptech.glide.MemoryCategory} and re-applies
+   * the current {@link Decision} with it.
+   */
+  public void setCategoryMultiplier(float multiplier) {
+    Util.assertMainThread();
+    categoryMultiplier = multiplier;
+    apply();
+  }
+
+  @Override
+  public void run() {
+    if (!isRunning) {
+      return;
+    }
+    Sample sample = takeSample();
+    Decision previous = decision;
+    decision = Preconditions.checkNotNull(policy.decide(sample, previous));
+    if (!decision.equals(previous)) {
+      apply();
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, sample + " -> " + decision);
+    }
+    if (listener != null) {
+      listener.onDecision(sample, decision);
+    }
+    schedule();
+  }
+
+  @Synthetic
+  void schedule() {
+    handler.postDelayed(this, intervalMs);
+  }
+
+  private void apply() {
+    memoryCache.setSizeMultiplier(categoryMultiplier * decision.getMemoryCacheMultiplier());
+    bitmapPool.setSizeMultiplier(categoryMultiplier * decision.getBitmapPoolMultiplier());
+  }
+
+  @Synthetic
+  void takeBaseline() {
+    lastGcCount = gcCounter.getBlockingGcCount();
+    if (memoryCache instanceof LruResourceCache) {
+      LruResourceCache cache = (LruResourceCache) memoryCache;
+      lastCacheHits = cache.getHitCount();
+      lastCacheMisses = cache.getMissCount();
+      lastCacheEvictions = cache.getEvictionCount();
+    } else if (memoryCache instanceof TinyLfuResourceCache) {
+      TinyLfuResourceCache cache = (TinyLfuResourceCache) memoryCache;
+      lastCacheHits = cache.getHitCount();
+      lastCacheMisses = cache.getMissCount();
+      lastCacheEvictions = cache.getEvictionCount();
+    }
+    if (bitmapPool instanceof LruBitmapPool) {
+      LruBitmapPool pool = (LruBitmapPool) bitmapPool;
+      lastPoolHits = pool.getHitCount();
+      lastPoolMisses = pool.getMissCount();
+      lastPoolEvictions = pool.getEvictionCount();
+    }
+  }
+
+  private Sample takeSample() {
+    long cacheHits = lastCacheHits;
+    long cacheMisses = lastCacheMisses;
+    long cacheEvictions = lastCacheEvictions;
+    long poolHits = lastPoolHits;
+    long poolMisses = lastPoolMisses;
+    long poolEvictions = lastPoolEvictions;
+    long gcCount = lastGcCount;
+    takeBaseline();
+
+    Runtime runtime = Runtime.getRuntime();
+    long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+    long maxHeap = runtime.maxMemory();
+    float heapHeadroom = maxHeap > 0 ? (maxHeap - usedHeap) / (float) maxHeap : 1f;
+    // Concurrent collections happen routinely, but blocking ones mean that allocations had to wait
+    // for memory to be freed.
+    boolean isGcDetected = gcCount >= 0 && lastGcCount > gcCount;
+
+    return new Sample(
+        memoryCacheBaseSize,
+        bitmapPoolBaseSize,
+        lastCacheHits - cacheHits,
+        lastCacheMisses - cacheMisses,
+        lastCacheEvictions - cacheEvictions,
+        lastPoolHits - poolHits,
+        lastPoolMisses - poolMisses,
+        lastPoolEvictions - poolEvictions,
+        heapHeadroom,
+        isGcDetected);
+  }
+
+  /**
+   * Decides how to split the global budget between the {@link MemoryCache} and the
+   * {@link BitmapPool}.
+   */
+  public interface Policy {
+
+    /**
+     * Returns the {@link Decision} to apply given the signals collected since the last sample.
+     *
+     * <p>Called on the main thread.
+     *
+     * @param sample The signals collected since the previous sample.
+     * @param current The {@link Decision} currently in effect.
+     */
+    @NonNull
+    Decision decide(@NonNull Sample sample, @NonNull Decision current);
+  }
+
+  /**
+   * Counts blocking garbage collections.
+   */
+  @VisibleForTesting
+  interface GcCounter {
+
+    /**
+     * Returns the number of blocking garbage collections since the process started, or {@code -1}
+     * if the runtime doesn't report it.
+     */
+    long getBlockingGcCount();
+  }
+
+  private static final class RuntimeStatGcCounter implements GcCounter {
+    private static final String BLOCKING_GC_COUNT = "art.gc.blocking-gc-count";
+
+    @Override
+    public long getBlockingGcCount() {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+        return -1;
+      }
+      return getBlockingGcCountV23();
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private static long getBlockingGcCountV23() {
+      String value = Debug.getRuntimeStat(BLOCKING_GC_COUNT);
+      if (value == null) {
+        return -1;
+      }
+      try {
+        return Long.parseLong(value);
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * Notified of every {@link Decision} made by the {@link Policy}, typically to export them to
+   * logs or analytics.
+   */
+  public interface Listener {
+
+    /**
+     * Called on the main thread after each sample.
+     */
+    void onDecision(@NonNull Sample sample, @NonNull Decision decision);
+  }
+
+  /**
+   * The runtime signals collected during one sampling interval.
+   */
+  public static final class Sample {
+    private final long memoryCacheBaseSize;
+    private final long bitmapPoolBaseSize;
+    private final long memoryCacheHits;
+    private final long memoryCacheMisses;
+    private final long memoryCacheEvictions;
+    private final long bitmapPoolHits;
+    private final long bitmapPoolMisses;
+    private final long bitmapPoolEvictions;
+    private final float heapHeadroom;
+    private final boolean isGcDetected;
+
+    @VisibleForTesting
+    Sample(
+        long memoryCacheBaseSize,
+        long bitmapPoolBaseSize,
+        long memoryCacheHits,
+        long memoryCacheMisses,
+        long memoryCacheEvictions,
+        long bitmapPoolHits,
+        long bitmapPoolMisses,
+        long bitmapPoolEvictions,
+        float heapHeadroom,
+        boolean isGcDetected) {
+      this.memoryCacheBaseSize = memoryCacheBaseSize;
+      this.bitmapPoolBaseSize = bitmapPoolBaseSize;
+      this.memoryCacheHits = memoryCacheHits;
+      this.memoryCacheMisses = memoryCacheMisses;
+      this.memoryCacheEvictions = memoryCacheEvictions;
+      this.bitmapPoolHits = bitmapPoolHits;
+      this.bitmapPoolMisses = bitmapPoolMisses;
+      this.bitmapPoolEvictions = bitmapPoolEvictions;
+      this.heapHeadroom = heapHeadroom;
+      this.isGcDetected = isGcDetected;
+    }
+
+    /**
+     * Returns the size in bytes of the {@link MemoryCache} with a multiplier of one.
+     */
+    public long getMemoryCacheBaseSize() {
+      return memoryCacheBaseSize;
+    }
+
+    /**
+     * Returns the size in bytes of the {@link BitmapPool} with a multiplier of one.
+     */
+    public long getBitmapPoolBaseSize() {
+      return bitmapPoolBaseSize;
+    }
+
+    public long getMemoryCacheHits() {
+      return memoryCacheHits;
+    }
+
+    public long getMemoryCacheMisses() {
+      return memoryCacheMisses;
+    }
+
+    public long getMemoryCacheEvictions() {
+      return memoryCacheEvictions;
+    }
+
+    public long getBitmapPoolHits() {
+      return bitmapPoolHits;
+    }
+
+    /**
+     * Returns the number of {@link android.graphics.Bitmap} requests the pool couldn't satisfy,
+     * each of which resulted in a new allocation.
+     */
+    public long getBitmapPoolMisses() {
+      return bitmapPoolMisses;
+    }
+
+    public long getBitmapPoolEvictions() {
+      return bitmapPoolEvictions;
+    }
+
+    /**
+     * Returns the fraction of the maximum Java heap size that was unused when the sample was
+     * taken.
+     */
+    public float getHeapHeadroom() {
+      return heapHeadroom;
+    }
+
+    /**
+     * Returns {@code true} if the runtime reported at least one blocking garbage collection during
+     * the interval.
+     */
+    public boolean isGcDetected() {
+      return isGcDetected;
+    }
+
+    @Override
+    public String toString() {
+      return "Sample{"
+          + "memoryCacheBaseSize=" + memoryCacheBaseSize
+          + ", bitmapPoolBaseSize=" + bitmapPoolBaseSize
+          + ", memoryCacheHits=" + memoryCacheHits
+          + ", memoryCacheMisses=" + memoryCacheMisses
+          + ", memoryCacheEvictions=" + memoryCacheEvictions
+          + ", bitmapPoolHits=" + bitmapPoolHits
+          + ", bitmapPoolMisses=" + bitmapPoolMisses
+          + ", bitmapPoolEvictions=" + bitmapPoolEvictions
+          + ", heapHeadroom=" + heapHeadroom
+          + ", isGcDetected=" + isGcDetected
+          + '}';
+    }
+  }
+
+  /**
+   * The size multipliers to apply to the {@link MemoryCache} and the {@link BitmapPool}, relative
+   * to the sizes they were created with.
+   */
+  public static final class Decision {
+    static final Decision DEFAULT = new Decision(1f, 1f, "initial");
+
+    private final float memoryCacheMultiplier;
+    private final float bitmapPoolMultiplier;
+    private final String reason;
+
+    public Decision(
+        float memoryCacheMultiplier, float bitmapPoolMultiplier, @NonNull String reason) {
+      if (memoryCacheMultiplier < 0 || bitmapPoolMultiplier < 0) {
+        throw new IllegalArgumentException("Multipliers must be >= 0");
+      }
+      this.memoryCacheMultiplier = memoryCacheMultiplier;
+      this.bitmapPoolMultiplier = bitmapPoolMultiplier;
+      this.reason = Preconditions.checkNotNull(reason);
+    }
+
+    public float getMemoryCacheMultiplier() {
+      return memoryCacheMultiplier;
+    }
+
+    public float getBitmapPoolMultiplier() {
+      return bitmapPoolMultiplier;
+    }
+
+    /**
+     * Returns a short human readable explanation of why the decision was made.
+     */
+    @NonNull
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof Decision) {
+        Decision other = (Decision) o;
+        return memoryCacheMultiplier == other.memoryCacheMultiplier
+            && bitmapPoolMultiplier == other.bitmapPoolMultiplier;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Float.floatToIntBits(memoryCacheMultiplier)
+          + Float.floatToIntBits(bitmapPoolMultiplier);
+    }
+
+    @Override
+    public String toString() {
+      return "Decision{"
+          + "memoryCacheMultiplier=" + memoryCacheMultiplier
+          + ", bitmapPoolMultiplier=" + bitmapPoolMultiplier
+          + ", reason='" + reason + '\''
+          + '}';
+    }
+  }
+
+  /**
+   * The default {@link Policy}.
+   *
+   * <p>Under memory pressure, either a blocking GC or little heap headroom, both sizes are
+   * shrunk. Once the pressure passes they're slowly grown back. Otherwise, if only one of the
+   * cache and the pool both missed and evicted during the interval, meaning it's full and would
+   * benefit from more memory, a step of bytes is moved to it from the other one so that the total
+   * stays the same. Neither is moved more than half of its base size away from it.
+   */
+  public static class DefaultPolicy implements Policy {
+    private static final float MIN_HEAP_HEADROOM = 0.1f;
+    private static final float PRESSURE_SCALE = 0.8f;
+    private static final float MIN_SCALE = 0.5f;
+    private static final float STEP = 0.1f;
+    private static final float MAX_SHIFT = 0.5f;
+
+    private float scale = 1f;
+    // The number of bytes moved from the bitmap pool to the memory cache, may be negative.
+    private long shiftBytes;
+
+    @NonNull
+    @Override
+    public Decision decide(@NonNull Sample sample, @NonNull Decision current) {
+      String reason;
+      if (sample.isGcDetected() || sample.getHeapHeadroom() < MIN_HEAP_HEADROOM) {
+        scale = Math.max(MIN_SCALE, scale * PRESSURE_SCALE);
+        reason = "memory pressure";
+      } else if (scale < 1f) {
+        scale = Math.min(1f, scale + STEP);
+        reason = "recovering";
+      } else {
+        long step = Math.round(STEP * Math.min(
+            sample.getMemoryCacheBaseSize(), sample.getBitmapPoolBaseSize()));
+        long maxShift = Math.round(MAX_SHIFT * Math.min(
+            sample.getMemoryCacheBaseSize(), sample.getBitmapPoolBaseSize()));
+        boolean cacheNeedsMemory =
+            sample.getMemoryCacheMisses() > 0 && sample.getMemoryCacheEvictions() > 0;
+        boolean poolNeedsMemory =
+            sample.getBitmapPoolMisses() > 0 && sample.getBitmapPoolEvictions() > 0;
+        if (cacheNeedsMemory && !poolNeedsMemory) {
+          shiftBytes = Math.min(maxShift, shiftBytes + step);
+          reason = "memory cache thrashing";
+        } else if (poolNeedsMemory && !cacheNeedsMemory) {
+          shiftBytes = Math.max(-maxShift, shiftBytes - step);
+          reason = "bitmap pool thrashing";
+        } else {
+          return current;
+        }
+      }
+      return new Decision(
+          scale * getMultiplier(sample.getMemoryCacheBaseSize(), shiftBytes),
+          scale * getMultiplier(sample.getBitmapPoolBaseSize(), -shiftBytes),
+          reason);
+    }
+
+    private static float getMultiplier(long baseSize, long delta) {
+      return baseSize > 0 ? (baseSize + delta) / (float) baseSize : 1f;
+    }
+  }
+}
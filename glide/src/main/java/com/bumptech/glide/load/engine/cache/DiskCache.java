@@ -36,6 +36,24 @@ public interface DiskCache {
     boolean write(@NonNull File file);
   }
 
+  /**
+   * An optional interface for {@link DiskCache}s that can defer some of the work done for each
+   * {@link #put(Key, Writer)} until the end of a series of puts.
+   */
+  interface Batchable {
+    /**
+     * Indicates that a series of {@link #put(Key, Writer)}s on the calling thread is about to
+     * start.
+     */
+    void beginBatch();
+
+    /**
+     * Indicates that the series of {@link #put(Key, Writer)}s started by the matching call to
+     * {@link #beginBatch()} on the calling thread is complete.
+     */
+    void endBatch();
+  }
+
   /**
    * Get the cache for the value at the given key.
    *
@@ -17,7 +17,7 @@ import java.io.IOException;
  *
  * @see #get(File, long)
  */
-public class DiskLruCacheWrapper implements DiskCache {
+public class DiskLruCacheWrapper implements DiskCache, DiskCache.Batchable {
   private static final String TAG = "DiskLruCacheWrapper";
 
   private static final int APP_VERSION = 1;
@@ -159,6 +159,28 @@ public class DiskLruCacheWrapper implements DiskCache {
     }
   }
 
+  @Override
+  public void beginBatch() {
+    try {
+      getDiskCache().beginBatch();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to begin disk cache batch", e);
+      }
+    }
+  }
+
+  @Override
+  public void endBatch() {
+    try {
+      getDiskCache().endBatch();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to flush disk cache batch", e);
+      }
+    }
+  }
+
   @Override
   public synchronized void clear() {
     try {
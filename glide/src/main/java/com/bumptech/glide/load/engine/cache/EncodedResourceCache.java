@@ -0,0 +1,185 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.LruCache;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An optional in memory tier between the {@link MemoryCache} and the {@link DiskCache} that holds
+ * the encoded bytes of recently used resource disk cache entries in direct (off heap)
+ * {@link ByteBuffer}s.
+ *
+ * <p>Encoded resources are typically an order of magnitude smaller than the decoded resources
+ * they're created from, so a small cache can hold many more resources than the {@link MemoryCache}.
+ * Resources found here are decoded directly from memory, avoiding any file I/O.
+ *
+ * <p>Entries are added when resources are read from the resource disk cache and when resources
+ * that have resource disk cache entries are evicted from the {@link MemoryCache} to make room for
+ * other resources. Resources cleared or trimmed from the {@link MemoryCache} to free memory aren't
+ * added.
+ *
+ * <p>Sizes are in bytes. Entries larger than a quarter of the maximum size are never cached.
+ */
+public class EncodedResourceCache {
+  private static final String TAG = "EncodedResourceCache";
+  private static final int MAX_ENTRY_SIZE_DIVISOR = 4;
+
+  private final BufferLruCache cache;
+
+  /**
+   * Constructor for EncodedResourceCache.
+   *
+   * @param size The maximum size in bytes of the encoded data the cache can hold.
+   */
+  public EncodedResourceCache(long size) {
+    cache = new BufferLruCache(size);
+  }
+
+  /**
+   * Returns a read only view of the encoded data for the given key, or {@code null} if the data
+   * isn't cached.
+   */
+  @Nullable
+  public ByteBuffer get(@NonNull Key key) {
+    ByteBuffer result = cache.get(key);
+    return result != null ? result.asReadOnlyBuffer() : null;
+  }
+
+  /**
+   * Reads the given disk cache file into memory and returns a read only view of its contents, or
+   * {@code null} if the file is too large or can't be read.
+   *
+   * @param key The disk cache key of the file.
+   * @param file The disk cache file containing the encoded data.
+   */
+  @Nullable
+  public ByteBuffer put(@NonNull Key key, @NonNull File file) {
+    long length = file.length();
+    if (length <= 0 || length > cache.getMaxSize() / MAX_ENTRY_SIZE_DIVISOR) {
+      return null;
+    }
+    ByteBuffer buffer;
+    try {
+      buffer = readFully(file, (int) length);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to read disk cache file into memory", e);
+      }
+      return null;
+    }
+    cache.put(key, buffer);
+    return buffer.asReadOnlyBuffer();
+  }
+
+  private static ByteBuffer readFully(File file, int length) throws IOException {
+    RandomAccessFile raf = null;
+    FileChannel channel = null;
+    try {
+      raf = new RandomAccessFile(file, "r");
+      channel = raf.getChannel();
+      ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) == -1) {
+          throw new IOException("File truncated while reading, expected: " + length
+              + ", read: " + buffer.position());
+        }
+      }
+      buffer.flip();
+      return buffer;
+    } finally {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+      if (raf != null) {
+        try {
+          raf.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the encoded data for the given key, if present.
+   */
+  public void remove(@NonNull Key key) {
+    cache.remove(key);
+  }
+
+  /**
+   * Returns the sum of the sizes of all encoded data in the cache in bytes.
+   */
+  public long getCurrentSize() {
+    return cache.getCurrentSize();
+  }
+
+  /**
+   * Returns the current maximum size of the cache in bytes.
+   */
+  public long getMaxSize() {
+    return cache.getMaxSize();
+  }
+
+  /**
+   * Adjusts the maximum size of the cache by multiplying the original size by the given
+   * multiplier.
+   *
+   * @param multiplier A size multiplier >= 0.
+   */
+  public void setSizeMultiplier(float multiplier) {
+    cache.setSizeMultiplier(multiplier);
+  }
+
+  /**
+   * Evicts all encoded data from the cache.
+   */
+  public void clearMemory() {
+    cache.clearMemory();
+  }
+
+  /**
+   * Trims the cache to the appropriate level.
+   *
+   * @param level This integer represents a trim level as specified in {@link
+   *              android.content.ComponentCallbacks2}.
+   */
+  @SuppressLint("InlinedApi")
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      cache.trimToSize(cache.getMaxSize() / 2);
+    }
+  }
+
+  private static final class BufferLruCache extends LruCache<Key, ByteBuffer> {
+
+    BufferLruCache(long size) {
+      super(size);
+    }
+
+    @Override
+    protected int getSize(@Nullable ByteBuffer item) {
+      return item == null ? super.getSize(null) : item.capacity();
+    }
+
+    @Override
+    protected synchronized void trimToSize(long size) {
+      super.trimToSize(size);
+    }
+  }
+}
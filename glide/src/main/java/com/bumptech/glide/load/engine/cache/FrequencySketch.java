@@ -0,0 +1,143 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * A probabilistic, aging estimate of how often keys have been seen, used to decide which resources
+ * are worth admitting to a {@link TinyLfuResourceCache}.
+ *
+ * <p>Frequencies are tracked with a count-min sketch of 4-bit counters, four to a key, packed
+ * sixteen to a {@code long}. Keys are first recorded in a small bloom filter, the doorkeeper, and
+ * only start incrementing counters once they've been seen twice, so that the many keys that are
+ * only ever seen once don't pollute the sketch. Once the number of recorded accesses reaches a
+ * multiple of the sketch's width, all counters are halved and the doorkeeper is cleared so that
+ * the estimates favor recent history.
+ *
+ * <p>This class is not thread safe.
+ */
+final class FrequencySketch {
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long COUNTER_MASK = 0xfL;
+  private static final int MIN_CAPACITY = 16;
+  private static final int SAMPLE_SIZE_MULTIPLIER = 10;
+
+  private final long[] table;
+  private final int tableMask;
+  private final long[] doorkeeper;
+  private final int doorkeeperMask;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * @param expectedEntries The expected maximum number of distinct keys held by the cache at once.
+   */
+  FrequencySketch(int expectedEntries) {
+    int capacity = ceilingPowerOfTwo(Math.max(expectedEntries, MIN_CAPACITY));
+    table = new long[capacity];
+    tableMask = capacity - 1;
+    // Eight bits per expected entry.
+    doorkeeper = new long[capacity / 8];
+    doorkeeperMask = doorkeeper.length * Long.SIZE - 1;
+    sampleSize = SAMPLE_SIZE_MULTIPLIER * capacity;
+  }
+
+  /**
+   * Returns the estimated number of times the given key has been seen recently, at most 16.
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    if (!isInDoorkeeper(hash)) {
+      return 0;
+    }
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & COUNTER_MASK);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency + 1;
+  }
+
+  /**
+   * Records an access of the given key.
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    if (addToDoorkeeper(hash)) {
+      int start = (hash & 3) << 2;
+      boolean isIncremented = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        isIncremented |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (!isIncremented) {
+        // All counters are saturated, this access doesn't count towards aging.
+        return;
+      }
+    }
+    if (++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Returns {@code true} if the key was already in the doorkeeper, and adds it otherwise.
+   */
+  private boolean addToDoorkeeper(int hash) {
+    int first = hash & doorkeeperMask;
+    int second = rehash(hash) & doorkeeperMask;
+    boolean isPresent = isBitSet(first) && isBitSet(second);
+    doorkeeper[first >>> 6] |= 1L << first;
+    doorkeeper[second >>> 6] |= 1L << second;
+    return isPresent;
+  }
+
+  private boolean isInDoorkeeper(int hash) {
+    return isBitSet(hash & doorkeeperMask) && isBitSet(rehash(hash) & doorkeeperMask);
+  }
+
+  private boolean isBitSet(int bit) {
+    return (doorkeeper[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = COUNTER_MASK << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    for (int i = 0; i < doorkeeper.length; i++) {
+      doorkeeper[i] = 0;
+    }
+    size /= 2;
+  }
+
+  private int indexOf(int hash, int seedIndex) {
+    long result = (hash + SEEDS[seedIndex]) * SEEDS[seedIndex];
+    result += result >>> 32;
+    return ((int) result) & tableMask;
+  }
+
+  private static int spread(int hash) {
+    int result = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    result = ((result >>> 16) ^ result) * 0x45d9f3b;
+    return (result >>> 16) ^ result;
+  }
+
+  private static int rehash(int hash) {
+    int result = hash * 0x31848bab;
+    return result ^ (result >>> 14);
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    return 1 << -Integer.numberOfLeadingZeros(value - 1);
+  }
+}
@@ -12,6 +12,13 @@ import com.bumptech.glide.util.LruCache;
  */
 public class LruResourceCache extends LruCache<Key, Resource<?>> implements MemoryCache {
   private ResourceRemovedListener listener;
+  private long hits;
+  private long misses;
+  private long evictions;
+  // Only evictions made to fit new resources are counted, not those made to clear or trim the
+  // cache, nor the resources that new ones replace.
+  private boolean isPutting;
+  @Nullable private Resource<?> replaced;
 
   /**
    * Constructor for LruResourceCache.
@@ -27,8 +34,58 @@ public class LruResourceCache extends LruCache<Key, Resource<?>> implements Memo
     this.listener = listener;
   }
 
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(@NonNull Key key, @Nullable Resource<?> item) {
+    isPutting = true;
+    replaced = get(key);
+    try {
+      return super.put(key, item);
+    } finally {
+      isPutting = false;
+      replaced = null;
+    }
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(@NonNull Key key) {
+    Resource<?> result = super.remove(key);
+    if (result != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of times a {@link Resource} was removed from the cache to be used.
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of times a {@link Resource} was looked up but wasn't in the cache.
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of {@link Resource}s evicted from the cache, or not admitted to it, to make
+   * room for new {@link Resource}s.
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
   @Override
   protected void onItemEvicted(@NonNull Key key, @Nullable Resource<?> item) {
+    if (isPutting && (item == null || item != replaced)) {
+      evictions++;
+    }
     if (listener != null && item != null) {
       listener.onResourceRemoved(item);
     }
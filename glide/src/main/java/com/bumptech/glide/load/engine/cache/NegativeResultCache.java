@@ -0,0 +1,200 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.Key;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded, in memory cache of recently failed loads.
+ *
+ * <p>Fetch failures are keyed by the source {@link Key} of the data that failed to load. Decode
+ * failures are keyed by the whole load, including the resource and transcode classes and options,
+ * and are only remembered once none of the available loaders could decode the data, so a failure
+ * to decode data as one type doesn't prevent it from being decoded as another.
+ *
+ * <p>While an entry is present and unexpired, Glide won't try to fetch data for the corresponding
+ * key and instead fails immediately with a
+ * {@link com.bumptech.glide.load.engine.GlideException} for which
+ * {@link com.bumptech.glide.load.engine.GlideException#isFromNegativeResultCache()} returns
+ * {@code true}. How long failures are remembered is determined by the {@link TtlPolicy}.
+ *
+ * <p>Fetch failures are forgotten when connectivity is regained, see
+ * {@link #onConnectivityRestored()}. Decode failures are only forgotten when they expire.
+ */
+public final class NegativeResultCache {
+  /** The default maximum number of failures to remember. */
+  public static final int DEFAULT_MAX_SIZE = 100;
+
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final int maxSize;
+  private final TtlPolicy ttlPolicy;
+
+  /**
+   * Determines how long failures should be remembered.
+   *
+   * <p>Implementations must be thread safe.
+   */
+  public interface TtlPolicy {
+
+    /**
+     * Returns the number of milliseconds for which a failure to fetch data should be remembered,
+     * or 0 if the failure shouldn't be remembered at all.
+     *
+     * @param e The cause of the failure, for example an {@link HttpException}.
+     */
+    long getFetchFailureTtlMillis(@NonNull Exception e);
+
+    /**
+     * Returns the number of milliseconds for which a failure to decode fetched data should be
+     * remembered, or 0 if the failure shouldn't be remembered at all.
+     *
+     * @param e The cause of the failure.
+     */
+    long getDecodeFailureTtlMillis(@NonNull Exception e);
+  }
+
+  /**
+   * A {@link TtlPolicy} that remembers {@link HttpException}s with client error status codes for
+   * longer than those with server error status codes and remembers decode failures for longest.
+   *
+   * <p>Failures without a status code, which are usually caused by poor connectivity, and other
+   * fetch failures aren't remembered.
+   */
+  public static class DefaultTtlPolicy implements TtlPolicy {
+    private static final long CLIENT_ERROR_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long SERVER_ERROR_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long DECODE_FAILURE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Override
+    public long getFetchFailureTtlMillis(@NonNull Exception e) {
+      if (!(e instanceof HttpException)) {
+        return 0;
+      }
+      int statusCode = ((HttpException) e).getStatusCode();
+      if (statusCode >= 400 && statusCode < 500) {
+        return CLIENT_ERROR_TTL_MILLIS;
+      } else if (statusCode >= 500 && statusCode < 600) {
+        return SERVER_ERROR_TTL_MILLIS;
+      }
+      return 0;
+    }
+
+    @Override
+    public long getDecodeFailureTtlMillis(@NonNull Exception e) {
+      return DECODE_FAILURE_TTL_MILLIS;
+    }
+  }
+
+  /**
+   * Constructs a new cache that remembers up to {@link #DEFAULT_MAX_SIZE} failures using the
+   * {@link DefaultTtlPolicy}.
+   */
+  public NegativeResultCache() {
+    this(DEFAULT_MAX_SIZE, new DefaultTtlPolicy());
+  }
+
+  /**
+   * Constructor for NegativeResultCache.
+   *
+   * @param maxSize The maximum number of failures to remember, the least recently used are evicted
+   *                first.
+   * @param ttlPolicy The policy used to determine how long to remember each failure.
+   */
+  public NegativeResultCache(int maxSize, @NonNull TtlPolicy ttlPolicy) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Max size must be > 0");
+    }
+    this.maxSize = maxSize;
+    this.ttlPolicy = ttlPolicy;
+  }
+
+  /**
+   * Returns the cause of an unexpired failure for the given key, or {@code null} if there isn't
+   * one.
+   */
+  @Nullable
+  public synchronized Exception get(@NonNull Key key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expiresAtMillis <= SystemClock.elapsedRealtime()) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.cause;
+  }
+
+  /**
+   * Remembers a failure to fetch data for the given source key if the {@link TtlPolicy} allows it.
+   */
+  public void putFetchFailure(@NonNull Key sourceKey, @NonNull Exception cause) {
+    put(sourceKey, cause, ttlPolicy.getFetchFailureTtlMillis(cause), false /*isDecodeFailure*/);
+  }
+
+  /**
+   * Remembers a failure to decode data for the load with the given key if the {@link TtlPolicy}
+   * allows it.
+   */
+  public void putDecodeFailure(@NonNull Key loadKey, @NonNull Exception cause) {
+    put(loadKey, cause, ttlPolicy.getDecodeFailureTtlMillis(cause), true /*isDecodeFailure*/);
+  }
+
+  private synchronized void put(Key key, Exception cause, long ttlMillis, boolean isDecodeFailure) {
+    if (ttlMillis <= 0) {
+      return;
+    }
+    entries.put(key,
+        new Entry(cause, SystemClock.elapsedRealtime() + ttlMillis, isDecodeFailure));
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (entries.size() > maxSize) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Forgets any failure for the given key.
+   */
+  public synchronized void remove(@NonNull Key key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Forgets all fetch failures, which may have been caused by the connection that was just
+   * restored.
+   */
+  public synchronized void onConnectivityRestored() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (!iterator.next().isDecodeFailure) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Forgets all failures.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  private static final class Entry {
+    final Exception cause;
+    final long expiresAtMillis;
+    final boolean isDecodeFailure;
+
+    Entry(Exception cause, long expiresAtMillis, boolean isDecodeFailure) {
+      this.cause = cause;
+      this.expiresAtMillis = expiresAtMillis;
+      this.isDecodeFailure = isDecodeFailure;
+    }
+  }
+}
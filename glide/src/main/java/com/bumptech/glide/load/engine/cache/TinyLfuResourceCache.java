@@ -0,0 +1,355 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in memory cache for {@link Resource}s that uses an admission policy (W-TinyLFU) to keep
+ * frequently used resources in the cache when large numbers of resources that are only used once
+ * pass through it.
+ *
+ * <p>Resources are first added to a small LRU window that holds 1% of the cache's size, or one
+ * resource of the average size in the cache if that's larger. Resources that overflow the window
+ * are only admitted to the main cache if they've been requested more often than the resource that
+ * would be evicted to make room for them, as estimated by a {@link FrequencySketch}. The main cache
+ * is split into a probationary segment for newly admitted resources and a protected segment for
+ * resources that have been requested repeatedly.
+ *
+ * <p>Because the {@link com.bumptech.glide.load.engine.Engine} removes resources from the cache
+ * when they're used and puts them back once they're released, every call to {@link #remove(Key)}
+ * is treated as a request for the key. Resources that are put back after being requested more than
+ * once go directly to the protected segment.
+ *
+ * <p>As with {@link LruResourceCache}, sizes are in bytes as returned by
+ * {@link Resource#getSize()}.
+ */
+public class TinyLfuResourceCache implements MemoryCache {
+  private static final float WINDOW_PERCENT = 0.01f;
+  private static final float PROTECTED_PERCENT = 0.8f;
+  private static final int ESTIMATED_BYTES_PER_ENTRY = 64 * 1024;
+  private static final int MIN_EXPECTED_ENTRIES = 128;
+  private static final int MAX_EXPECTED_ENTRIES = 8192;
+
+  private final Map<Key, Resource<?>> window = new LinkedHashMap<>();
+  private final Map<Key, Resource<?>> probation = new LinkedHashMap<>();
+  private final Map<Key, Resource<?>> protectedSegment = new LinkedHashMap<>();
+  private final List<Key> candidates = new ArrayList<>();
+  private final FrequencySketch sketch;
+  private final long initialMaxSize;
+  private long maxSize;
+  private long maxWindowSize;
+  private long maxProtectedSize;
+  private long windowSize;
+  private long probationSize;
+  private long protectedSize;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private ResourceRemovedListener listener;
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   */
+  public TinyLfuResourceCache(long size) {
+    this(size, estimateEntryCount(size));
+  }
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   * @param expectedEntries The expected maximum number of resources in the cache at once, used to
+   *                        size the frequency sketch.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public TinyLfuResourceCache(long size, int expectedEntries) {
+    initialMaxSize = size;
+    sketch = new FrequencySketch(expectedEntries);
+    setMaxSize(size);
+  }
+
+  private static int estimateEntryCount(long size) {
+    long estimate = size / ESTIMATED_BYTES_PER_ENTRY;
+    return (int) Math.max(MIN_EXPECTED_ENTRIES, Math.min(MAX_EXPECTED_ENTRIES, estimate));
+  }
+
+  @Override
+  public void setResourceRemovedListener(@NonNull ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public synchronized long getCurrentSize() {
+    return windowSize + probationSize + protectedSize;
+  }
+
+  @Override
+  public synchronized long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    setMaxSize(Math.round(initialMaxSize * multiplier));
+    trimToSize(maxSize);
+  }
+
+  private void setMaxSize(long size) {
+    maxSize = size;
+    maxWindowSize = (long) (size * WINDOW_PERCENT);
+    maxProtectedSize = (long) ((size - maxWindowSize) * PROTECTED_PERCENT);
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(@NonNull Key key) {
+    sketch.increment(key);
+    Resource<?> result = removeFromSegments(key);
+    if (result != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(@NonNull Key key, @Nullable Resource<?> resource) {
+    if (resource == null) {
+      return removeFromSegments(key);
+    }
+    int size = getSize(resource);
+    if (size >= maxSize) {
+      onItemEvicted(resource);
+      return null;
+    }
+
+    Resource<?> old = removeFromSegments(key);
+    if (old != null && !old.equals(resource)) {
+      onItemRemoved(old);
+    }
+
+    if (sketch.frequency(key) > 1) {
+      protectedSegment.put(key, resource);
+      protectedSize += size;
+      demoteProtected();
+    } else {
+      window.put(key, resource);
+      windowSize += size;
+    }
+    evict();
+    return old;
+  }
+
+  /**
+   * Returns the number of times a {@link Resource} was removed from the cache to be used.
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of times a {@link Resource} was looked up but wasn't in the cache.
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of {@link Resource}s evicted from the cache, or not admitted to it, to make
+   * room for new {@link Resource}s.
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  @Override
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Entering list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      // The app's UI is no longer visible, or app is in the foreground but system is running
+      // critically low on memory
+      // Evict half of our bitmap cache, least valuable resources first.
+      trimToSize(getMaxSize() / 2);
+    }
+  }
+
+  /**
+   * Returns the size of the given resource in bytes.
+   */
+  protected int getSize(@NonNull Resource<?> resource) {
+    return resource.getSize();
+  }
+
+  /**
+   * Removes resources, least frequently requested segments and least recently used resources
+   * first, until the current size is less than or equal to the given size.
+   */
+  protected synchronized void trimToSize(long size) {
+    while (getCurrentSize() > size) {
+      Key victim = getEldest(probation);
+      if (victim == null) {
+        victim = getEldest(window);
+      }
+      if (victim == null) {
+        victim = getEldest(protectedSegment);
+      }
+      onItemRemoved(removeFromSegments(victim));
+    }
+  }
+
+  private void evict() {
+    evictFromWindow();
+    evictFromMain();
+  }
+
+  /**
+   * Moves resources that overflow the window to the probationary segment as candidates for
+   * admission to the main cache.
+   */
+  private void evictFromWindow() {
+    candidates.clear();
+    long windowLimit = getWindowLimit();
+    while (windowSize > windowLimit) {
+      Iterator<Map.Entry<Key, Resource<?>>> iterator = window.entrySet().iterator();
+      Map.Entry<Key, Resource<?>> eldest = iterator.next();
+      iterator.remove();
+      Key key = eldest.getKey();
+      Resource<?> resource = eldest.getValue();
+      int size = getSize(resource);
+      windowSize -= size;
+      probation.put(key, resource);
+      probationSize += size;
+      candidates.add(key);
+    }
+  }
+
+  /**
+   * Returns the maximum size of the window, which is at least the size of an average resource so
+   * that the window isn't always empty when 1% of the cache is smaller than a typical
+   * {@link android.graphics.Bitmap}.
+   */
+  private long getWindowLimit() {
+    int count = window.size() + probation.size() + protectedSegment.size();
+    long averageSize = count == 0 ? 0 : getCurrentSize() / count;
+    return Math.min(maxSize, Math.max(maxWindowSize, averageSize));
+  }
+
+  /**
+   * Evicts resources until the cache is within its maximum size, comparing each candidate moved
+   * from the window against the least recently used resource in the main cache and evicting
+   * whichever has been requested less often.
+   */
+  private void evictFromMain() {
+    int candidateIndex = 0;
+    while (getCurrentSize() > maxSize) {
+      Key victim = getEldest(probation);
+      if (victim == null) {
+        victim = getEldest(protectedSegment);
+      }
+      if (victim == null) {
+        victim = getEldest(window);
+      }
+
+      Key candidate = null;
+      while (candidate == null && candidateIndex < candidates.size()) {
+        Key next = candidates.get(candidateIndex);
+        if (probation.containsKey(next)) {
+          candidate = next;
+        } else {
+          candidateIndex++;
+        }
+      }
+
+      final Key toEvict;
+      if (candidate == null || candidate.equals(victim)) {
+        toEvict = victim;
+      } else if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+        toEvict = victim;
+      } else {
+        toEvict = candidate;
+        candidateIndex++;
+      }
+      onItemEvicted(removeFromSegments(toEvict));
+    }
+    candidates.clear();
+  }
+
+  /**
+   * Moves the least recently used resources from the protected segment to the probationary
+   * segment until the protected segment fits.
+   */
+  private void demoteProtected() {
+    while (protectedSize > maxProtectedSize && !protectedSegment.isEmpty()) {
+      Iterator<Map.Entry<Key, Resource<?>>> iterator = protectedSegment.entrySet().iterator();
+      Map.Entry<Key, Resource<?>> eldest = iterator.next();
+      iterator.remove();
+      int size = getSize(eldest.getValue());
+      protectedSize -= size;
+      probation.put(eldest.getKey(), eldest.getValue());
+      probationSize += size;
+    }
+  }
+
+  @Nullable
+  private Resource<?> removeFromSegments(Key key) {
+    Resource<?> result = window.remove(key);
+    if (result != null) {
+      windowSize -= getSize(result);
+      return result;
+    }
+    result = probation.remove(key);
+    if (result != null) {
+      probationSize -= getSize(result);
+      return result;
+    }
+    result = protectedSegment.remove(key);
+    if (result != null) {
+      protectedSize -= getSize(result);
+    }
+    return result;
+  }
+
+  @Nullable
+  private static Key getEldest(Map<Key, Resource<?>> segment) {
+    return segment.isEmpty() ? null : segment.keySet().iterator().next();
+  }
+
+  private void onItemEvicted(@Nullable Resource<?> item) {
+    if (item != null) {
+      evictions++;
+    }
+    onItemRemoved(item);
+  }
+
+  private void onItemRemoved(@Nullable Resource<?> item) {
+    if (listener != null && item != null) {
+      listener.onResourceRemoved(item);
+    }
+  }
+}
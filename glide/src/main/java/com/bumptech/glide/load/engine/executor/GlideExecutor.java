@@ -12,6 +12,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
@@ -51,6 +52,10 @@ public final class GlideExecutor implements ExecutorService {
 
   private static final String ANIMATION_EXECUTOR_NAME = "animation";
 
+  private static final String RESAMPLE_EXECUTOR_NAME = "resample";
+
+  private static final String RESOURCE_ENCODE_EXECUTOR_NAME = "resource-encode";
+
   /**
    * The default keep alive time for threads in our cached thread pools in milliseconds.
    */
@@ -258,6 +263,50 @@ public final class GlideExecutor implements ExecutorService {
                 true)));
   }
 
+  /**
+   * Returns a new cached thread pool with one fewer thread than the default thread count returned
+   * from {@link #calculateBestThreadCount()} used to help decode threads resample large
+   * {@link android.graphics.Bitmap}s.
+   *
+   * <p>The pool has no queue, work submitted while every thread is busy is rejected with a
+   * {@link java.util.concurrent.RejectedExecutionException} so that the submitting thread can do
+   * the work itself rather than wait for it.
+   */
+  public static GlideExecutor newResampleExecutor() {
+    int threadCount = Math.max(1, calculateBestThreadCount() - 1);
+    return new GlideExecutor(
+        new ThreadPoolExecutor(
+            0 /* corePoolSize */,
+            threadCount,
+            KEEP_ALIVE_TIME_MS,
+            TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(),
+            new DefaultThreadFactory(
+                RESAMPLE_EXECUTOR_NAME,
+                UncaughtThrowableStrategy.DEFAULT,
+                true)));
+  }
+
+  /**
+   * Returns a new single threaded executor whose thread runs at priority
+   * {@link android.os.Process#THREAD_PRIORITY_BACKGROUND}, below Glide's other threads, used to
+   * write transformed resources to the disk cache after they've been delivered.
+   */
+  public static GlideExecutor newResourceEncodeExecutor() {
+    return new GlideExecutor(
+        new ThreadPoolExecutor(
+            0 /* corePoolSize */,
+            1 /* maximumPoolSize */,
+            KEEP_ALIVE_TIME_MS,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new DefaultThreadFactory(
+                RESOURCE_ENCODE_EXECUTOR_NAME,
+                UncaughtThrowableStrategy.DEFAULT,
+                true,
+                android.os.Process.THREAD_PRIORITY_BACKGROUND)));
+  }
+
   @VisibleForTesting
   GlideExecutor(ExecutorService delegate) {
     this.delegate = delegate;
@@ -410,7 +459,7 @@ public final class GlideExecutor implements ExecutorService {
 
   /**
    * A {@link ThreadFactory} that builds threads slightly above priority {@link
-   * android.os.Process#THREAD_PRIORITY_BACKGROUND}.
+   * android.os.Process#THREAD_PRIORITY_BACKGROUND} by default.
    */
   private static final class DefaultThreadFactory implements ThreadFactory {
     private static final int DEFAULT_PRIORITY = android.os.Process.THREAD_PRIORITY_BACKGROUND
@@ -419,13 +468,20 @@ public final class GlideExecutor implements ExecutorService {
     private final String name;
     @Synthetic final UncaughtThrowableStrategy uncaughtThrowableStrategy;
     @Synthetic final boolean preventNetworkOperations;
+    @Synthetic final int threadPriority;
     private int threadNum;
 
     DefaultThreadFactory(String name, UncaughtThrowableStrategy uncaughtThrowableStrategy,
         boolean preventNetworkOperations) {
+      this(name, uncaughtThrowableStrategy, preventNetworkOperations, DEFAULT_PRIORITY);
+    }
+
+    DefaultThreadFactory(String name, UncaughtThrowableStrategy uncaughtThrowableStrategy,
+        boolean preventNetworkOperations, int threadPriority) {
       this.name = name;
       this.uncaughtThrowableStrategy = uncaughtThrowableStrategy;
       this.preventNetworkOperations = preventNetworkOperations;
+      this.threadPriority = threadPriority;
     }
 
     @Override
@@ -434,7 +490,7 @@ public final class GlideExecutor implements ExecutorService {
         @Override
         public void run() {
           // why PMD suppression is needed: https://github.com/pmd/pmd/issues/808
-          android.os.Process.setThreadPriority(DEFAULT_PRIORITY); //NOPMD AccessorMethodGeneration
+          android.os.Process.setThreadPriority(threadPriority); //NOPMD AccessorMethodGeneration
           if (preventNetworkOperations) {
             StrictMode.setThreadPolicy(
                 new ThreadPolicy.Builder()
@@ -1,15 +1,21 @@
 package com.bumptech.glide.load.model;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Base64;
+import android.util.Base64OutputStream;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.ByteChain;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.Synthetic;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * A simple model loader for loading data from a Data URL String.
@@ -118,9 +124,22 @@ public final class DataUrlLoader<Model, Data> implements ModelLoader<Model, Data
    */
   public static final class StreamFactory<Model> implements ModelLoaderFactory<Model, InputStream> {
 
+    private static final int CHAR_BUFFER_SIZE = 4096;
+
     private final DataDecoder<InputStream> opener;
+    @Nullable
+    @Synthetic final ArrayPool byteArrayPool;
 
     public StreamFactory() {
+      this(/*byteArrayPool=*/ null);
+    }
+
+    /**
+     * @param byteArrayPool If non-null, data is decoded into segments obtained from the given pool
+     *                      rather than into a single array the size of the data.
+     */
+    public StreamFactory(@Nullable ArrayPool byteArrayPool) {
+      this.byteArrayPool = byteArrayPool;
       opener = new DataDecoder<InputStream>() {
         @Override
         public InputStream decode(String url) {
@@ -138,6 +157,10 @@ public final class DataUrlLoader<Model, Data> implements ModelLoader<Model, Data
             throw new IllegalArgumentException("Not a base64 image data URL.");
           }
 
+          if (byteArrayPool != null) {
+            return decodeToChain(url, commaIndex + 1, byteArrayPool);
+          }
+
           String afterComma = url.substring(commaIndex + 1);
           byte[] bytes = Base64.decode(afterComma, Base64.DEFAULT);
 
@@ -146,7 +169,9 @@ public final class DataUrlLoader<Model, Data> implements ModelLoader<Model, Data
 
         @Override
         public void close(InputStream inputStream) throws IOException {
-          inputStream.close();
+          if (inputStream != null) {
+            inputStream.close();
+          }
         }
 
         @Override
@@ -156,6 +181,31 @@ public final class DataUrlLoader<Model, Data> implements ModelLoader<Model, Data
       };
     }
 
+    @Synthetic
+    static InputStream decodeToChain(String url, int start, ArrayPool byteArrayPool) {
+      ByteChain chain = new ByteChain(byteArrayPool);
+      OutputStream os =
+          new Base64OutputStream(chain.asOutputStream(), Base64.DEFAULT, /*encode=*/ false);
+      char[] chars = new char[CHAR_BUFFER_SIZE];
+      byte[] bytes = new byte[CHAR_BUFFER_SIZE];
+      try {
+        // Base64 is ASCII, so each char maps directly to a byte.
+        for (int i = start, length = url.length(); i < length; i += CHAR_BUFFER_SIZE) {
+          int end = Math.min(length, i + CHAR_BUFFER_SIZE);
+          url.getChars(i, end, chars, 0);
+          for (int j = 0, count = end - i; j < count; j++) {
+            bytes[j] = (byte) chars[j];
+          }
+          os.write(bytes, 0, end - i);
+        }
+        os.close();
+      } catch (IOException e) {
+        chain.release();
+        throw new IllegalArgumentException("Invalid base64 data in data URL.", e);
+      }
+      return chain.asInputStream();
+    }
+
     @NonNull
     @Override
     public ModelLoader<Model, InputStream> build(
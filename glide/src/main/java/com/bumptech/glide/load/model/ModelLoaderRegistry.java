@@ -94,18 +94,30 @@ public class ModelLoaderRegistry {
     return multiModelLoaderFactory.build(modelClass, dataClass);
   }
 
+  /**
+   * Returns every model class that has at least one registered {@link ModelLoaderFactory}.
+   */
+  @NonNull
+  public synchronized List<Class<?>> getModelClasses() {
+    return multiModelLoaderFactory.getModelClasses();
+  }
+
   @NonNull
   public synchronized List<Class<?>> getDataClasses(@NonNull Class<?> modelClass) {
     return multiModelLoaderFactory.getDataClasses(modelClass);
   }
 
   @NonNull
-  private synchronized <A> List<ModelLoader<A, ?>> getModelLoadersForClass(
-      @NonNull Class<A> modelClass) {
+  private <A> List<ModelLoader<A, ?>> getModelLoadersForClass(@NonNull Class<A> modelClass) {
     List<ModelLoader<A, ?>> loaders = cache.get(modelClass);
     if (loaders == null) {
-      loaders = Collections.unmodifiableList(multiModelLoaderFactory.build(modelClass));
-      cache.put(modelClass, loaders);
+      synchronized (this) {
+        loaders = cache.get(modelClass);
+        if (loaders == null) {
+          loaders = Collections.unmodifiableList(multiModelLoaderFactory.build(modelClass));
+          cache.put(modelClass, loaders);
+        }
+      }
     }
     return loaders;
   }
@@ -116,21 +128,28 @@ public class ModelLoaderRegistry {
     return (Class<A>) model.getClass();
   }
 
+  /**
+   * Copies its map each time loaders are added or the cache is cleared so that loaders can be read
+   * without locking. Writers must synchronize on the {@link ModelLoaderRegistry}.
+   */
   private static class ModelLoaderCache {
-    private final Map<Class<?>, Entry<?>> cachedModelLoaders = new HashMap<>();
+    private volatile Map<Class<?>, Entry<?>> cachedModelLoaders =
+        Collections.<Class<?>, Entry<?>>emptyMap();
 
     @Synthetic
     ModelLoaderCache() { }
 
     public void clear() {
-      cachedModelLoaders.clear();
+      cachedModelLoaders = Collections.emptyMap();
     }
 
     public <Model> void put(Class<Model> modelClass, List<ModelLoader<Model, ?>> loaders) {
-      Entry<?> previous = cachedModelLoaders.put(modelClass, new Entry<>(loaders));
+      Map<Class<?>, Entry<?>> updated = new HashMap<>(cachedModelLoaders);
+      Entry<?> previous = updated.put(modelClass, new Entry<>(loaders));
       if (previous != null) {
         throw new IllegalStateException("Already cached loaders for model: " + modelClass);
       }
+      cachedModelLoaders = updated;
     }
 
     @Nullable
@@ -114,6 +114,17 @@ public class MultiModelLoaderFactory {
     }
   }
 
+  @NonNull
+  synchronized List<Class<?>> getModelClasses() {
+    List<Class<?>> result = new ArrayList<>();
+    for (Entry<?, ?> entry : entries) {
+      if (!result.contains(entry.modelClass)) {
+        result.add(entry.modelClass);
+      }
+    }
+    return result;
+  }
+
   @NonNull
   synchronized List<Class<?>> getDataClasses(@NonNull Class<?> modelClass) {
     List<Class<?>> result = new ArrayList<>();
@@ -186,7 +197,7 @@ public class MultiModelLoaderFactory {
   }
 
   private static class Entry<Model, Data> {
-    private final Class<Model> modelClass;
+    @Synthetic final Class<Model> modelClass;
     @Synthetic final Class<Data> dataClass;
     @Synthetic final ModelLoaderFactory<? extends Model, ? extends Data> factory;
 
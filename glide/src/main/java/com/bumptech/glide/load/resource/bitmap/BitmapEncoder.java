@@ -23,11 +23,11 @@ import java.io.OutputStream;
  * An {@link ResourceEncoder} that writes {@link Bitmap}s
  * to {@link OutputStream}s.
  *
- * <p> {@link Bitmap}s that return true from
+ * <p> By default {@link Bitmap}s that return true from
  * {@link Bitmap#hasAlpha ()}} are written using
  * {@link Bitmap.CompressFormat#PNG}
  * to preserve alpha and all other bitmaps are written using
- * {@link Bitmap.CompressFormat#JPEG}. </p>
+ * {@link Bitmap.CompressFormat#JPEG}, see {@link #COMPRESSION_POLICY}. </p>
  *
  * @see Bitmap#compress(Bitmap.CompressFormat, int,
  * OutputStream)
@@ -45,12 +45,21 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
    * An {@link Bitmap.CompressFormat} option used as the format to encode
    * the {@link Bitmap}.
    *
-   * <p> Defaults to {@link Bitmap.CompressFormat#JPEG} for images without alpha
-   * and {@link Bitmap.CompressFormat#PNG} for images with alpha. </p>
+   * <p> Defaults to the format picked by {@link #COMPRESSION_POLICY}. </p>
    */
   public static final Option<Bitmap.CompressFormat> COMPRESSION_FORMAT = Option.memory(
       "com.bumptech.glide.load.resource.bitmap.BitmapEncoder.CompressionFormat");
 
+  /**
+   * A {@link CompressionPolicy} option used to pick the format and quality used to encode
+   * {@link Bitmap}s when no format is set with {@link #COMPRESSION_FORMAT}.
+   *
+   * <p> Defaults to {@link CompressionPolicy#DEFAULT}. </p>
+   */
+  public static final Option<CompressionPolicy> COMPRESSION_POLICY = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.BitmapEncoder.CompressionPolicy",
+      CompressionPolicy.DEFAULT);
+
   private static final String TAG = "BitmapEncoder";
   @Nullable
   private final ArrayPool arrayPool;
@@ -71,12 +80,18 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
   public boolean encode(@NonNull Resource<Bitmap> resource, @NonNull File file,
       @NonNull Options options) {
     final Bitmap bitmap = resource.get();
-    Bitmap.CompressFormat format = getFormat(bitmap, options);
+    Bitmap.CompressFormat format = options.get(COMPRESSION_FORMAT);
+    int quality = options.get(COMPRESSION_QUALITY);
+    if (format == null) {
+      CompressionPolicy.Compression compression =
+          options.get(COMPRESSION_POLICY).getCompression(bitmap, quality);
+      format = compression.getFormat();
+      quality = compression.getQuality();
+    }
     GlideTrace.
         beginSectionFormat("encode: [%dx%d] %s", bitmap.getWidth(), bitmap.getHeight(), format);
     try {
       long start = LogTime.getLogTime();
-      int quality = options.get(COMPRESSION_QUALITY);
 
       boolean success = false;
       OutputStream os = null;
@@ -103,7 +118,8 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
       }
 
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
-        Log.v(TAG, "Compressed with type: " + format + " of size " + Util.getBitmapByteSize(bitmap)
+        Log.v(TAG, "Compressed with type: " + format + " and quality: " + quality
+            + " of size " + Util.getBitmapByteSize(bitmap)
             + " in " + LogTime.getElapsedMillis(start)
             + ", options format: " + options.get(COMPRESSION_FORMAT)
             + ", hasAlpha: " + bitmap.hasAlpha());
@@ -114,17 +130,6 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
     }
   }
 
-  private Bitmap.CompressFormat getFormat(Bitmap bitmap, Options options) {
-    Bitmap.CompressFormat format = options.get(COMPRESSION_FORMAT);
-    if (format != null) {
-      return format;
-    } else if (bitmap.hasAlpha()) {
-      return Bitmap.CompressFormat.PNG;
-    } else {
-      return Bitmap.CompressFormat.JPEG;
-    }
-  }
-
   @NonNull
   @Override
   public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
@@ -0,0 +1,381 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scales {@link Bitmap}s with a separable {@link ResampleKernel} by filtering each source row
+ * horizontally and then filtering the filtered rows vertically.
+ *
+ * <p>The output is produced in horizontal bands. Bands are claimed one at a time both by the
+ * calling thread and by any idle threads in the given executor, typically a
+ * {@link GlideExecutor#newResampleExecutor()}, so large images are resampled on several cores
+ * without the calling thread ever waiting on a band that no thread has started. Row buffers are
+ * obtained from and returned to an {@link ArrayPool}.
+ */
+final class BitmapResampler {
+  // Weights are fixed point numbers with WEIGHT_BITS fractional bits that sum to WEIGHT_ONE.
+  private static final int WEIGHT_BITS = 14;
+  private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+  private static final int WEIGHT_ROUND = WEIGHT_ONE >> 1;
+  private static final int LANCZOS_LOBES = 3;
+  // The number of horizontally filtered pixels a band aims to hold.
+  private static final int MAX_BAND_PIXELS = 64 * 1024;
+  // Bands with fewer output pixels than this aren't worth handing to another thread.
+  private static final int MIN_PARALLEL_BAND_PIXELS = 16 * 1024;
+
+  private BitmapResampler() {
+    // Utility class.
+  }
+
+  /**
+   * Returns {@code true} if {@link Bitmap}s with the given {@link Config} can be resampled.
+   */
+  static boolean isSupported(@Nullable Config config) {
+    return config == Config.ARGB_8888 || config == Config.RGB_565;
+  }
+
+  /**
+   * Returns a {@link Bitmap} from the given pool with the given dimensions containing
+   * {@code inBitmap} scaled using the given kernel.
+   *
+   * <p>{@code inBitmap} must have a {@link Config} for which {@link #isSupported(Config)} returns
+   * {@code true} and is not recycled or otherwise modified.
+   *
+   * <p>If {@code helperExecutor} is {@code null}, every band is resampled on the calling thread.
+   */
+  @NonNull
+  static Bitmap resample(@NonNull BitmapPool bitmapPool, @NonNull ArrayPool arrayPool,
+      @Nullable Executor helperExecutor, @NonNull Bitmap inBitmap, int width, int height,
+      @NonNull ResampleKernel kernel) {
+    Bitmap result = bitmapPool.get(width, height, inBitmap.getConfig());
+    result.setHasAlpha(inBitmap.hasAlpha());
+
+    int threadCount = GlideExecutor.calculateBestThreadCount();
+    Job job = new Job(arrayPool, inBitmap, result, kernel, threadCount);
+    if (helperExecutor != null && job.bandCount > 1 && threadCount > 1) {
+      int helperCount = Math.min(job.bandCount, threadCount) - 1;
+      for (int i = 0; i < helperCount; i++) {
+        try {
+          helperExecutor.execute(job);
+        } catch (RejectedExecutionException e) {
+          // Every helper thread is busy, so this thread will resample the remaining bands itself.
+          break;
+        }
+      }
+    }
+    job.run();
+    job.awaitBands();
+
+    Throwable failure = job.failure;
+    if (failure != null) {
+      bitmapPool.put(result);
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      throw (RuntimeException) failure;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the fixed point weights used to resample a row or column of {@code inSize} pixels to
+   * {@code outSize} pixels.
+   */
+  static Contributions getContributions(int inSize, int outSize, ResampleKernel kernel) {
+    // The number of input pixels per output pixel.
+    double scale = inSize / (double) outSize;
+    // When reducing the size, the kernel is widened to cover every input pixel.
+    double filterScale = Math.max(1d, scale);
+    double support =
+        kernel == ResampleKernel.AREA ? 0.5d * filterScale : LANCZOS_LOBES * filterScale;
+    int stride = (int) Math.ceil(2 * support) + 1;
+
+    int[] start = new int[outSize];
+    int[] count = new int[outSize];
+    int[] weights = new int[outSize * stride];
+    double[] exactWeights = new double[stride];
+    for (int i = 0; i < outSize; i++) {
+      double center = (i + 0.5d) * scale;
+      double left = center - support;
+      double right = center + support;
+      int first = Math.max(0, (int) Math.floor(left));
+      int last = Math.min(inSize, (int) Math.ceil(right));
+      double total = 0;
+      for (int j = first; j < last; j++) {
+        double weight;
+        if (kernel == ResampleKernel.AREA) {
+          weight = Math.max(0d, Math.min(j + 1, right) - Math.max(j, left));
+        } else {
+          weight = lanczos((j + 0.5d - center) / filterScale);
+        }
+        exactWeights[j - first] = weight;
+        total += weight;
+      }
+
+      // Weights are normalized so that edges, where part of the kernel falls outside of the image,
+      // aren't darkened. Any rounding error is given to the largest weight.
+      int offset = i * stride;
+      int sum = 0;
+      int largest = offset;
+      for (int j = 0; j < last - first; j++) {
+        int weight = (int) Math.round(exactWeights[j] / total * WEIGHT_ONE);
+        weights[offset + j] = weight;
+        sum += weight;
+        if (weight > weights[largest]) {
+          largest = offset + j;
+        }
+      }
+      weights[largest] += WEIGHT_ONE - sum;
+      start[i] = first;
+      count[i] = last - first;
+    }
+    return new Contributions(start, count, weights, stride);
+  }
+
+  private static double lanczos(double x) {
+    if (x == 0) {
+      return 1d;
+    }
+    if (x <= -LANCZOS_LOBES || x >= LANCZOS_LOBES) {
+      return 0d;
+    }
+    double piX = Math.PI * x;
+    return LANCZOS_LOBES * Math.sin(piX) * Math.sin(piX / LANCZOS_LOBES) / (piX * piX);
+  }
+
+  /**
+   * Filters the pixels in {@code in} starting at {@code inOffset} into
+   * {@code contributions.start.length} consecutive pixels of {@code out} starting at
+   * {@code outOffset}.
+   */
+  static void filterRow(int[] in, int inOffset, Contributions contributions, int[] out,
+      int outOffset, boolean hasAlpha) {
+    for (int i = 0; i < contributions.start.length; i++) {
+      out[outOffset + i] = filterPixel(in, inOffset + contributions.start[i], 1 /*inStep*/,
+          contributions.weights, i * contributions.stride, contributions.count[i], hasAlpha);
+    }
+  }
+
+  /**
+   * Returns the weighted sum of {@code count} pixels in {@code in} starting at {@code inIndex} and
+   * {@code inStep} pixels apart.
+   *
+   * <p>Pixels are {@link android.graphics.Color} ints, premultiplied if {@code hasAlpha} is
+   * {@code true}.
+   */
+  static int filterPixel(int[] in, int inIndex, int inStep, int[] weights, int weightIndex,
+      int count, boolean hasAlpha) {
+    int a = WEIGHT_ROUND;
+    int r = WEIGHT_ROUND;
+    int g = WEIGHT_ROUND;
+    int b = WEIGHT_ROUND;
+    for (int j = 0; j < count; j++, weightIndex++, inIndex += inStep) {
+      int weight = weights[weightIndex];
+      int color = in[inIndex];
+      a += weight * (color >>> 24);
+      r += weight * ((color >> 16) & 0xFF);
+      g += weight * ((color >> 8) & 0xFF);
+      b += weight * (color & 0xFF);
+    }
+    a = clamp(a >> WEIGHT_BITS, 0xFF);
+    // Negative lobes can push colors past their alpha, which isn't valid when premultiplied.
+    int maxColor = hasAlpha ? a : 0xFF;
+    r = clamp(r >> WEIGHT_BITS, maxColor);
+    g = clamp(g >> WEIGHT_BITS, maxColor);
+    b = clamp(b >> WEIGHT_BITS, maxColor);
+    return (a << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  private static int clamp(int value, int max) {
+    return value < 0 ? 0 : value > max ? max : value;
+  }
+
+  static void premultiply(int[] pixels, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      int color = pixels[i];
+      int a = color >>> 24;
+      if (a != 0xFF) {
+        int r = (((color >> 16) & 0xFF) * a + 127) / 0xFF;
+        int g = (((color >> 8) & 0xFF) * a + 127) / 0xFF;
+        int b = ((color & 0xFF) * a + 127) / 0xFF;
+        pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+      }
+    }
+  }
+
+  static void unpremultiply(int[] pixels, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      int color = pixels[i];
+      int a = color >>> 24;
+      if (a == 0) {
+        pixels[i] = 0;
+      } else if (a != 0xFF) {
+        int half = a / 2;
+        int r = Math.min(0xFF, (((color >> 16) & 0xFF) * 0xFF + half) / a);
+        int g = Math.min(0xFF, (((color >> 8) & 0xFF) * 0xFF + half) / a);
+        int b = Math.min(0xFF, ((color & 0xFF) * 0xFF + half) / a);
+        pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+      }
+    }
+  }
+
+  /**
+   * The input pixels and weights that contribute to each output pixel along one axis.
+   */
+  static final class Contributions {
+    // The index of the first input pixel for each output pixel.
+    final int[] start;
+    // The number of input pixels for each output pixel.
+    final int[] count;
+    // The weights for each output pixel, starting at the output pixel's index times stride.
+    final int[] weights;
+    final int stride;
+
+    Contributions(int[] start, int[] count, int[] weights, int stride) {
+      this.start = start;
+      this.count = count;
+      this.weights = weights;
+      this.stride = stride;
+    }
+  }
+
+  /**
+   * Resamples one {@link Bitmap} into another one band at a time on every thread that runs it.
+   */
+  private static final class Job implements Runnable {
+    private final ArrayPool arrayPool;
+    private final Bitmap inBitmap;
+    private final Bitmap outBitmap;
+    private final boolean hasAlpha;
+    private final Contributions horizontal;
+    private final Contributions vertical;
+    private final int bandHeight;
+    final int bandCount;
+    private final AtomicInteger nextBand = new AtomicInteger();
+    private final CountDownLatch remainingBands;
+    @Nullable volatile Throwable failure;
+
+    Job(ArrayPool arrayPool, Bitmap inBitmap, Bitmap outBitmap, ResampleKernel kernel,
+        int threadCount) {
+      this.arrayPool = arrayPool;
+      this.inBitmap = inBitmap;
+      this.outBitmap = outBitmap;
+      hasAlpha = inBitmap.hasAlpha();
+      int outWidth = outBitmap.getWidth();
+      int outHeight = outBitmap.getHeight();
+      horizontal = getContributions(inBitmap.getWidth(), outWidth, kernel);
+      vertical = getContributions(inBitmap.getHeight(), outHeight, kernel);
+
+      double inRowsPerOutRow = inBitmap.getHeight() / (double) outHeight;
+      int maxFilteredRows = MAX_BAND_PIXELS / outWidth;
+      int height = (int) ((maxFilteredRows - vertical.stride) / inRowsPerOutRow);
+      // Leave a few bands per thread so that threads that start late still have work to do.
+      int parallelHeight = (int) Math.ceil(outHeight / (2d * threadCount));
+      if (threadCount > 1 && parallelHeight * outWidth >= MIN_PARALLEL_BAND_PIXELS) {
+        height = Math.min(height, parallelHeight);
+      }
+      bandHeight = Math.max(1, Math.min(outHeight, height));
+      bandCount = (outHeight + bandHeight - 1) / bandHeight;
+      remainingBands = new CountDownLatch(bandCount);
+    }
+
+    @Override
+    public void run() {
+      int band;
+      while ((band = nextBand.getAndIncrement()) < bandCount) {
+        try {
+          if (failure == null) {
+            resampleBand(band);
+          }
+        } catch (RuntimeException | Error e) {
+          failure = e;
+        } finally {
+          remainingBands.countDown();
+        }
+      }
+    }
+
+    /**
+     * Waits for every band to finish, all of which must have been claimed by a thread.
+     */
+    void awaitBands() {
+      boolean isInterrupted = false;
+      while (true) {
+        try {
+          remainingBands.await();
+          break;
+        } catch (InterruptedException e) {
+          // Other threads may still be writing to the Bitmap, so we have to wait for them.
+          isInterrupted = true;
+        }
+      }
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void resampleBand(int band) {
+      int inWidth = inBitmap.getWidth();
+      int outWidth = outBitmap.getWidth();
+      int startY = band * bandHeight;
+      int endY = Math.min(outBitmap.getHeight(), startY + bandHeight);
+      int firstRow = vertical.start[startY];
+      int lastRow = firstRow;
+      for (int y = startY; y < endY; y++) {
+        lastRow = Math.max(lastRow, vertical.start[y] + vertical.count[y]);
+      }
+      int rows = lastRow - firstRow;
+      int outPixelCount = (endY - startY) * outWidth;
+
+      int[] inRow = arrayPool.get(inWidth, int[].class);
+      int[] filtered = arrayPool.get(rows * outWidth, int[].class);
+      int[] outPixels = arrayPool.get(outPixelCount, int[].class);
+      try {
+        for (int row = 0; row < rows; row++) {
+          // Each thread uses its own rows, the lock only guards the Bitmap's own state.
+          synchronized (inBitmap) {
+            inBitmap.getPixels(inRow, 0, inWidth, 0, firstRow + row, inWidth, 1);
+          }
+          if (hasAlpha) {
+            premultiply(inRow, 0, inWidth);
+          }
+          filterRow(inRow, 0, horizontal, filtered, row * outWidth, hasAlpha);
+        }
+
+        for (int y = startY; y < endY; y++) {
+          int outOffset = (y - startY) * outWidth;
+          // Filtered rows are indexed from the band's first row.
+          int inOffset = (vertical.start[y] - firstRow) * outWidth;
+          int weightIndex = y * vertical.stride;
+          int count = vertical.count[y];
+          for (int x = 0; x < outWidth; x++) {
+            outPixels[outOffset + x] = filterPixel(
+                filtered, inOffset + x, outWidth, vertical.weights, weightIndex, count, hasAlpha);
+          }
+        }
+        if (hasAlpha) {
+          unpremultiply(outPixels, 0, outPixelCount);
+        }
+
+        synchronized (outBitmap) {
+          outBitmap.setPixels(
+              outPixels, 0 /*offset*/, outWidth, 0 /*x*/, startY, outWidth, endY - startY);
+        }
+      } finally {
+        arrayPool.put(inRow);
+        arrayPool.put(filtered);
+        arrayPool.put(outPixels);
+      }
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import java.util.Arrays;
+
+/**
+ * Picks the {@link CompressFormat} and quality {@link BitmapEncoder} uses to write a
+ * {@link Bitmap} to the disk cache.
+ *
+ * <p>The formats used are all recognized by {@link Downsampler}, so {@link Bitmap}s written with
+ * different policies can be read back regardless of which policy is in use when they're read.
+ *
+ * <p>Policies aren't used for {@link Bitmap}s written with a format set with
+ * {@link BitmapEncoder#COMPRESSION_FORMAT}, those are written with the quality given by
+ * {@link BitmapEncoder#COMPRESSION_QUALITY}.
+ *
+ * @see BitmapEncoder#COMPRESSION_POLICY
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public abstract class CompressionPolicy {
+
+  /**
+   * Writes {@link Bitmap}s with alpha as {@link CompressFormat#PNG} and all other {@link Bitmap}s
+   * as {@link CompressFormat#JPEG} with the quality given by
+   * {@link BitmapEncoder#COMPRESSION_QUALITY}.
+   */
+  public static final CompressionPolicy DEFAULT = new Default();
+
+  /**
+   * Picks the format by the {@link Bitmap}'s content:
+   *
+   * <ul>
+   *   <li>Graphics, {@link Bitmap}s with only a handful of distinct colors like icons, are written
+   *   losslessly, as {@link CompressFormat#WEBP} with a quality of 100 on devices where that
+   *   produces lossless WEBP files and as {@link CompressFormat#PNG} otherwise.
+   *   <li>Photos with alpha, like photos transformed with {@link CircleCrop} or
+   *   {@link RoundedCorners}, are written as lossy {@link CompressFormat#WEBP} on devices that
+   *   support alpha in lossy WEBP files and as {@link CompressFormat#PNG} otherwise.
+   *   <li>Photos without alpha are written as {@link CompressFormat#JPEG}.
+   * </ul>
+   *
+   * <p>The quality of lossy formats is lowered by up to 10 from
+   * {@link BitmapEncoder#COMPRESSION_QUALITY}, but not below 70, as the number of pixels grows
+   * past 256x256, because large {@link Bitmap}s dominate the size of the disk cache and are
+   * usually displayed scaled down.
+   *
+   * <p>{@link Bitmap.Config#HARDWARE} {@link Bitmap}s can't be sampled, so they're written as
+   * photos.
+   */
+  public static final CompressionPolicy ADAPTIVE = new Adaptive();
+
+  /**
+   * Returns the format and the quality between 0 and 100 to write the given {@link Bitmap} with.
+   *
+   * @param quality The quality given by {@link BitmapEncoder#COMPRESSION_QUALITY}.
+   */
+  @NonNull
+  public abstract Compression getCompression(@NonNull Bitmap bitmap, int quality);
+
+  /**
+   * The {@link CompressFormat} and quality to write a {@link Bitmap} with.
+   */
+  public static final class Compression {
+    private final CompressFormat format;
+    private final int quality;
+
+    public Compression(@NonNull CompressFormat format, int quality) {
+      this.format = format;
+      this.quality = quality;
+    }
+
+    @NonNull
+    public CompressFormat getFormat() {
+      return format;
+    }
+
+    public int getQuality() {
+      return quality;
+    }
+  }
+
+  private static final class Default extends CompressionPolicy {
+
+    @NonNull
+    @Override
+    public Compression getCompression(@NonNull Bitmap bitmap, int quality) {
+      return new Compression(
+          bitmap.hasAlpha() ? CompressFormat.PNG : CompressFormat.JPEG, quality);
+    }
+  }
+
+  private static final class Adaptive extends CompressionPolicy {
+    // Lossy WEBP files with alpha can be written starting with JB MR2.
+    private static final boolean IS_LOSSY_WEBP_ALPHA_SUPPORTED =
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    // Starting with Q, WEBP files written with a quality of 100 are lossless.
+    private static final boolean IS_LOSSLESS_WEBP_SUPPORTED = Build.VERSION.SDK_INT >= 29;
+    private static final int LOSSLESS_QUALITY = 100;
+    private static final int SMALL_PIXEL_COUNT = 256 * 256;
+    private static final int LARGE_PIXEL_COUNT = 1024 * 1024;
+    private static final int MIN_REDUCED_QUALITY = 70;
+    // Sample at most SAMPLE_GRID_SIZE x SAMPLE_GRID_SIZE pixels when looking for graphics.
+    private static final int SAMPLE_GRID_SIZE = 16;
+    private static final int MAX_GRAPHIC_COLORS = 32;
+
+    @NonNull
+    @Override
+    public Compression getCompression(@NonNull Bitmap bitmap, int quality) {
+      if (isGraphic(bitmap)) {
+        return IS_LOSSLESS_WEBP_SUPPORTED
+            ? new Compression(CompressFormat.WEBP, LOSSLESS_QUALITY)
+            : new Compression(CompressFormat.PNG, quality);
+      } else if (bitmap.hasAlpha() && !IS_LOSSY_WEBP_ALPHA_SUPPORTED) {
+        return new Compression(CompressFormat.PNG, quality);
+      }
+      CompressFormat format = bitmap.hasAlpha() ? CompressFormat.WEBP : CompressFormat.JPEG;
+      return new Compression(format, getLossyQuality(bitmap, quality));
+    }
+
+    private static int getLossyQuality(Bitmap bitmap, int quality) {
+      long pixelCount = (long) bitmap.getWidth() * bitmap.getHeight();
+      int reduction;
+      if (pixelCount <= SMALL_PIXEL_COUNT) {
+        reduction = 0;
+      } else if (pixelCount <= LARGE_PIXEL_COUNT) {
+        reduction = 5;
+      } else {
+        reduction = 10;
+      }
+      return Math.max(quality - reduction, Math.min(quality, MIN_REDUCED_QUALITY));
+    }
+
+    /**
+     * Returns {@code true} if a grid of pixels sampled from the given {@link Bitmap} contains only
+     * a handful of distinct colors.
+     */
+    private static boolean isGraphic(Bitmap bitmap) {
+      // Pixels of hardware Bitmaps can't be read.
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+          && bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+        return false;
+      }
+      int width = bitmap.getWidth();
+      int height = bitmap.getHeight();
+      int columns = Math.min(width, SAMPLE_GRID_SIZE);
+      int rows = Math.min(height, SAMPLE_GRID_SIZE);
+      int[] colors = new int[columns * rows];
+      int count = 0;
+      for (int row = 0; row < rows; row++) {
+        int y = (int) ((row + 0.5f) * height / rows);
+        for (int column = 0; column < columns; column++) {
+          int x = (int) ((column + 0.5f) * width / columns);
+          colors[count++] = bitmap.getPixel(x, y);
+        }
+      }
+      Arrays.sort(colors);
+      int distinct = 1;
+      for (int i = 1; i < colors.length; i++) {
+        if (colors[i] != colors[i - 1] && ++distinct > MAX_GRAPHIC_COLORS) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -7,6 +7,7 @@ import static com.bumptech.glide.load.ImageHeaderParser.ImageType.PNG_A;
 import static com.bumptech.glide.load.ImageHeaderParser.ImageType.UNKNOWN;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
@@ -37,9 +38,13 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
       JPEG_EXIF_SEGMENT_PREAMBLE.getBytes(Charset.forName("UTF-8"));
   private static final int SEGMENT_SOS = 0xDA;
   private static final int MARKER_EOI = 0xD9;
+  // Sample precision, height and width.
+  private static final int START_OF_FRAME_DIMENSIONS_SIZE = 5;
   static final int SEGMENT_START_ID = 0xFF;
   static final int EXIF_SEGMENT_TYPE = 0xE1;
   private static final int ORIENTATION_TAG_TYPE = 0x0112;
+  private static final int THUMBNAIL_OFFSET_TAG_TYPE = 0x0201;
+  private static final int THUMBNAIL_LENGTH_TAG_TYPE = 0x0202;
   private static final int[] BYTES_PER_FORMAT = { 0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8 };
   // WebP-related
   // "RIFF"
@@ -54,6 +59,11 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
   private static final int VP8_HEADER_TYPE_EXTENDED = 0x00000058;
   // 'L'
   private static final int VP8_HEADER_TYPE_LOSSLESS = 0x0000004C;
+  // ' '
+  private static final int VP8_HEADER_TYPE_LOSSY = 0x00000020;
+  private static final int VP8_DIMENSION_MASK = 0x3FFF;
+  private static final int VP8L_DIMENSION_BITS = 14;
+  private static final int VP8L_DIMENSION_MASK = (1 << VP8L_DIMENSION_BITS) - 1;
   private static final int WEBP_EXTENDED_ALPHA_FLAG = 1 << 4;
   private static final int WEBP_LOSSLESS_ALPHA_FLAG = 1 << 3;
 
@@ -83,6 +93,114 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
         Preconditions.checkNotNull(byteArrayPool));
   }
 
+  /**
+   * Returns the type, exif orientation, dimensions and whether or not the image may contain
+   * transparent pixels, all parsed from the header of the given stream in a single pass.
+   */
+  @NonNull
+  public ImageHeader parse(@NonNull InputStream is, @NonNull ArrayPool byteArrayPool)
+      throws IOException {
+    return parse(new StreamReader(Preconditions.checkNotNull(is)),
+        Preconditions.checkNotNull(byteArrayPool));
+  }
+
+  /**
+   * Returns the type, exif orientation, dimensions and whether or not the image may contain
+   * transparent pixels, all parsed from the header of the given buffer in a single pass.
+   *
+   * <p>The buffer is read in place, no part of it is copied into the given pool.
+   */
+  @NonNull
+  public ImageHeader parse(@NonNull ByteBuffer byteBuffer, @NonNull ArrayPool byteArrayPool)
+      throws IOException {
+    return parse(new ByteBufferReader(Preconditions.checkNotNull(byteBuffer)),
+        Preconditions.checkNotNull(byteArrayPool));
+  }
+
+  @NonNull
+  private ImageHeader parse(Reader reader, ArrayPool byteArrayPool) throws IOException {
+    final int firstTwoBytes = reader.getUInt16();
+
+    // JPEG, or at least something that may have an exif segment.
+    if (handles(firstTwoBytes)) {
+      ImageType type = firstTwoBytes == EXIF_MAGIC_NUMBER ? JPEG : UNKNOWN;
+      return parseJpegSegments(reader, type, /*isOrientationOnly=*/ false, byteArrayPool);
+    }
+
+    final int firstFourBytes = (firstTwoBytes << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+    // PNG.
+    if (firstFourBytes == PNG_HEADER) {
+      // Skip the rest of the signature and the length and type of the IHDR chunk, which is always
+      // first.
+      reader.skip(16 - 4);
+      int width = getUInt32(reader);
+      int height = getUInt32(reader);
+      // Bit depth.
+      reader.skip(1);
+      int alpha = reader.getByte();
+      // A RGB indexed PNG can also have transparency. Better safe than sorry!
+      return new ImageHeader(alpha >= 3 ? PNG_A : PNG, UNKNOWN_ORIENTATION, width, height);
+    }
+
+    // GIF from first 3 bytes.
+    if (firstFourBytes >> 8 == GIF_HEADER) {
+      // The rest of the version.
+      reader.skip(2);
+      // The logical screen dimensions are little endian.
+      int width = swapUInt16(reader.getUInt16());
+      int height = swapUInt16(reader.getUInt16());
+      return new ImageHeader(GIF, UNKNOWN_ORIENTATION, width, height);
+    }
+
+    // WebP, see getType(Reader) and
+    // https://developers.google.com/speed/webp/docs/riff_container for details.
+    if (firstFourBytes != RIFF_HEADER) {
+      return ImageHeader.UNKNOWN_HEADER;
+    }
+    reader.skip(4);
+    final int thirdFourBytes =
+        (reader.getUInt16() << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+    if (thirdFourBytes != WEBP_HEADER) {
+      return ImageHeader.UNKNOWN_HEADER;
+    }
+    final int fourthFourBytes =
+        (reader.getUInt16() << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+    if ((fourthFourBytes & VP8_HEADER_MASK) != VP8_HEADER) {
+      return ImageHeader.UNKNOWN_HEADER;
+    }
+    // Skip the chunk size.
+    reader.skip(4);
+    if ((fourthFourBytes & VP8_HEADER_TYPE_MASK) == VP8_HEADER_TYPE_EXTENDED) {
+      int flags = reader.getByte();
+      // Reserved.
+      reader.skip(3);
+      int width = getUInt24LittleEndian(reader) + 1;
+      int height = getUInt24LittleEndian(reader) + 1;
+      return new ImageHeader(
+          (flags & WEBP_EXTENDED_ALPHA_FLAG) != 0 ? ImageType.WEBP_A : ImageType.WEBP,
+          UNKNOWN_ORIENTATION,
+          width,
+          height);
+    }
+    if ((fourthFourBytes & VP8_HEADER_TYPE_MASK) == VP8_HEADER_TYPE_LOSSLESS) {
+      int signature = reader.getByte();
+      int bits = swapUInt16(reader.getUInt16()) | swapUInt16(reader.getUInt16()) << 16;
+      return new ImageHeader(
+          (signature & WEBP_LOSSLESS_ALPHA_FLAG) != 0 ? ImageType.WEBP_A : ImageType.WEBP,
+          UNKNOWN_ORIENTATION,
+          (bits & VP8L_DIMENSION_MASK) + 1,
+          (bits >> VP8L_DIMENSION_BITS & VP8L_DIMENSION_MASK) + 1);
+    }
+    if ((fourthFourBytes & VP8_HEADER_TYPE_MASK) == VP8_HEADER_TYPE_LOSSY) {
+      // Skip the frame tag and the start code.
+      reader.skip(6);
+      int width = swapUInt16(reader.getUInt16()) & VP8_DIMENSION_MASK;
+      int height = swapUInt16(reader.getUInt16()) & VP8_DIMENSION_MASK;
+      return new ImageHeader(ImageType.WEBP, UNKNOWN_ORIENTATION, width, height);
+    }
+    return new ImageHeader(ImageType.WEBP, UNKNOWN_ORIENTATION, -1, -1);
+  }
+
   @NonNull
   private ImageType getType(Reader reader) throws IOException {
     final int firstTwoBytes = reader.getUInt16();
@@ -154,88 +272,76 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
         Log.d(TAG, "Parser doesn't handle magic number: " + magicNumber);
       }
       return UNKNOWN_ORIENTATION;
-    } else {
-      int exifSegmentLength = moveToExifSegmentAndGetLength(reader);
-      if (exifSegmentLength == -1) {
-        if (Log.isLoggable(TAG, Log.DEBUG)) {
-          Log.d(TAG, "Failed to parse exif segment length, or exif segment not found");
-        }
-        return UNKNOWN_ORIENTATION;
-      }
-
-      byte[] exifData = byteArrayPool.get(exifSegmentLength, byte[].class);
-      try {
-        return parseExifSegment(reader, exifData, exifSegmentLength);
-      } finally {
-        byteArrayPool.put(exifData);
-      }
-    }
-  }
-
-  private int parseExifSegment(Reader reader, byte[] tempArray, int exifSegmentLength)
-      throws IOException {
-    int read = reader.read(tempArray, exifSegmentLength);
-    if (read != exifSegmentLength) {
-      if (Log.isLoggable(TAG, Log.DEBUG)) {
-        Log.d(TAG, "Unable to read exif segment data"
-            + ", length: " + exifSegmentLength
-            + ", actually read: " + read);
-      }
-      return UNKNOWN_ORIENTATION;
-    }
-
-    boolean hasJpegExifPreamble = hasJpegExifPreamble(tempArray, exifSegmentLength);
-    if (hasJpegExifPreamble) {
-      return parseExifSegment(new RandomAccessReader(tempArray, exifSegmentLength));
-    } else {
-      if (Log.isLoggable(TAG, Log.DEBUG)) {
-        Log.d(TAG, "Missing jpeg exif preamble");
-      }
-      return UNKNOWN_ORIENTATION;
-    }
-  }
-
-  private boolean hasJpegExifPreamble(byte[] exifData, int exifSegmentLength) {
-    boolean result =
-        exifData != null && exifSegmentLength > JPEG_EXIF_SEGMENT_PREAMBLE_BYTES.length;
-    if (result) {
-      for (int i = 0; i < JPEG_EXIF_SEGMENT_PREAMBLE_BYTES.length; i++) {
-        if (exifData[i] != JPEG_EXIF_SEGMENT_PREAMBLE_BYTES[i]) {
-          result = false;
-          break;
-        }
-      }
     }
-    return result;
+    return parseJpegSegments(reader, UNKNOWN, /*isOrientationOnly=*/ true, byteArrayPool)
+        .getOrientation();
   }
 
   /**
-   * Moves reader to the start of the exif segment and returns the length of the exif segment or
-   * {@code -1} if no exif segment is found.
+   * Reads segments until the start of the image data, parsing the orientation and the location of
+   * any embedded thumbnail from the first exif segment and the dimensions from the start of frame
+   * segment.
+   *
+   * @param isOrientationOnly {@code true} to stop as soon as the first exif segment is parsed.
    */
-  private int moveToExifSegmentAndGetLength(Reader reader) throws IOException {
+  private ImageHeader parseJpegSegments(Reader reader, ImageType type, boolean isOrientationOnly,
+      ArrayPool byteArrayPool) throws IOException {
+    ExifSegment exifSegment = ExifSegment.EMPTY;
+    boolean isExifSegmentFound = false;
+    int width = -1;
+    int height = -1;
+    // The offset of the next segment from the start of the image, after the two magic bytes.
+    int position = 2;
     while (true) {
       short segmentId = reader.getUInt8();
       if (segmentId != SEGMENT_START_ID) {
         if (Log.isLoggable(TAG, Log.DEBUG)) {
           Log.d(TAG, "Unknown segmentId=" + segmentId);
         }
-        return -1;
+        break;
       }
 
       short segmentType = reader.getUInt8();
       if (segmentType == SEGMENT_SOS) {
-        return -1;
+        break;
       } else if (segmentType == MARKER_EOI) {
         if (Log.isLoggable(TAG, Log.DEBUG)) {
           Log.d(TAG, "Found MARKER_EOI in exif segment");
         }
-        return -1;
+        break;
       }
 
       // Segment length includes bytes for segment length.
       int segmentLength = reader.getUInt16() - 2;
-      if (segmentType != EXIF_SEGMENT_TYPE) {
+      if (segmentLength < 0) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Invalid segment length: " + segmentLength + ", type: " + segmentType);
+        }
+        break;
+      }
+      // Skip the marker and the length.
+      int segmentOffset = position + 4;
+      position = segmentOffset + segmentLength;
+      if (segmentType == EXIF_SEGMENT_TYPE && !isExifSegmentFound) {
+        isExifSegmentFound = true;
+        exifSegment = parseExifSegment(reader, segmentLength, segmentOffset, byteArrayPool);
+        if (isOrientationOnly || width != -1) {
+          break;
+        }
+      } else if (!isOrientationOnly && width == -1 && isStartOfFrame(segmentType)) {
+        // Sample precision.
+        reader.skip(1);
+        height = reader.getUInt16();
+        width = reader.getUInt16();
+        if (isExifSegmentFound) {
+          break;
+        }
+        // Keep looking for an exif segment, which some encoders write after the frame header.
+        long toSkip = segmentLength - START_OF_FRAME_DIMENSIONS_SIZE;
+        if (toSkip < 0 || reader.skip(toSkip) != toSkip) {
+          break;
+        }
+      } else {
         long skipped = reader.skip(segmentLength);
         if (skipped != segmentLength) {
           if (Log.isLoggable(TAG, Log.DEBUG)) {
@@ -244,16 +350,59 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
                 + ", wanted to skip: " + segmentLength
                 + ", but actually skipped: " + skipped);
           }
-          return -1;
+          break;
         }
-      } else {
-        return segmentLength;
       }
     }
+    if (!isExifSegmentFound && Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Failed to parse exif segment length, or exif segment not found");
+    }
+    return exifSegment.toImageHeader(type, width, height);
   }
 
-  private static int parseExifSegment(RandomAccessReader segmentData) {
-    final int headerOffsetSize = JPEG_EXIF_SEGMENT_PREAMBLE.length();
+  /**
+   * Parses the exif segment at the current position of the given reader and leaves the reader at
+   * the end of the segment.
+   *
+   * <p>Segments are read in place if the reader supports it, otherwise they're copied into an array
+   * from the given pool.
+   *
+   * @param segmentOffset The offset of the segment from the start of the image.
+   */
+  private static ExifSegment parseExifSegment(Reader reader, int exifSegmentLength,
+      int segmentOffset, ArrayPool byteArrayPool) throws IOException {
+    ByteBuffer segment = reader.slice(exifSegmentLength);
+    if (segment != null) {
+      return parseExifSegment(new RandomAccessReader(segment), segmentOffset);
+    }
+
+    byte[] exifData = byteArrayPool.get(exifSegmentLength, byte[].class);
+    try {
+      int read = reader.read(exifData, exifSegmentLength);
+      if (read != exifSegmentLength) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Unable to read exif segment data"
+              + ", length: " + exifSegmentLength
+              + ", actually read: " + read);
+        }
+        return ExifSegment.EMPTY;
+      }
+      return parseExifSegment(
+          new RandomAccessReader(exifData, exifSegmentLength), segmentOffset);
+    } finally {
+      byteArrayPool.put(exifData);
+    }
+  }
+
+  private static ExifSegment parseExifSegment(RandomAccessReader segmentData, int segmentOffset) {
+    if (!segmentData.startsWith(JPEG_EXIF_SEGMENT_PREAMBLE_BYTES)) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Missing jpeg exif preamble");
+      }
+      return ExifSegment.EMPTY;
+    }
+
+    final int headerOffsetSize = JPEG_EXIF_SEGMENT_PREAMBLE_BYTES.length;
 
     short byteOrderIdentifier = segmentData.getInt16(headerOffsetSize);
     final ByteOrder byteOrder;
@@ -275,6 +424,13 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
     segmentData.order(byteOrder);
 
     int firstIfdOffset = segmentData.getInt32(headerOffsetSize + 4) + headerOffsetSize;
+    int orientation = parseOrientation(segmentData, firstIfdOffset);
+    ExifSegment result = new ExifSegment(orientation);
+    parseThumbnail(segmentData, firstIfdOffset, segmentOffset, result);
+    return result;
+  }
+
+  private static int parseOrientation(RandomAccessReader segmentData, int firstIfdOffset) {
     int tagCount = segmentData.getInt16(firstIfdOffset);
     for (int i = 0; i < tagCount; i++) {
       final int tagOffset = calcTagOffset(firstIfdOffset, i);
@@ -337,6 +493,74 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
     return -1;
   }
 
+  /**
+   * Finds the JPEG thumbnail referenced by the second IFD, if any, and parses its dimensions from
+   * its start of frame segment.
+   */
+  private static void parseThumbnail(RandomAccessReader segmentData, int firstIfdOffset,
+      int segmentOffset, ExifSegment result) {
+    final int headerOffsetSize = JPEG_EXIF_SEGMENT_PREAMBLE_BYTES.length;
+    int firstIfdTagCount = segmentData.getInt16(firstIfdOffset);
+    if (firstIfdTagCount < 0) {
+      return;
+    }
+    int nextIfdOffset = segmentData.getInt32(calcTagOffset(firstIfdOffset, firstIfdTagCount));
+    if (nextIfdOffset <= 0) {
+      return;
+    }
+    int secondIfdOffset = nextIfdOffset + headerOffsetSize;
+    int tagCount = segmentData.getInt16(secondIfdOffset);
+    int thumbnailOffset = -1;
+    int thumbnailLength = -1;
+    for (int i = 0; i < tagCount; i++) {
+      final int tagOffset = calcTagOffset(secondIfdOffset, i);
+      final int tagType = segmentData.getInt16(tagOffset);
+      if (tagType == THUMBNAIL_OFFSET_TAG_TYPE) {
+        thumbnailOffset = segmentData.getInt32(tagOffset + 8);
+      } else if (tagType == THUMBNAIL_LENGTH_TAG_TYPE) {
+        thumbnailLength = segmentData.getInt32(tagOffset + 8);
+      }
+    }
+    // Offsets are relative to the start of the TIFF header, which follows the exif preamble.
+    int start = thumbnailOffset + headerOffsetSize;
+    if (thumbnailOffset <= 0 || thumbnailLength <= 0
+        || thumbnailLength > segmentData.length() - start) {
+      return;
+    }
+
+    // The thumbnail is a complete JPEG, which is always big endian.
+    segmentData.order(ByteOrder.BIG_ENDIAN);
+    if ((segmentData.getInt16(start) & 0xFFFF) != EXIF_MAGIC_NUMBER) {
+      return;
+    }
+    int end = start + thumbnailLength;
+    int markerOffset = start + 2;
+    while (markerOffset + 4 <= end) {
+      int marker = segmentData.getInt16(markerOffset) & 0xFFFF;
+      int segmentType = marker & 0xFF;
+      if (marker >> 8 != SEGMENT_START_ID || segmentType == SEGMENT_SOS) {
+        return;
+      }
+      int segmentLength = segmentData.getInt16(markerOffset + 2) & 0xFFFF;
+      if (isStartOfFrame(segmentType)) {
+        // Skip the marker, length and sample precision.
+        int height = segmentData.getInt16(markerOffset + 5) & 0xFFFF;
+        int width = segmentData.getInt16(markerOffset + 7) & 0xFFFF;
+        if (width > 0 && height > 0 && markerOffset + 9 <= end) {
+          result.thumbnailOffset = segmentOffset + start;
+          result.thumbnailLength = thumbnailLength;
+          result.thumbnailWidth = width;
+          result.thumbnailHeight = height;
+        }
+        return;
+      }
+      if (segmentLength < 2) {
+        return;
+      }
+      markerOffset += 2 + segmentLength;
+    }
+  }
+
   private static int calcTagOffset(int ifdOffset, int tagIndex) {
     return ifdOffset + 2 + 12 * tagIndex;
   }
@@ -347,13 +571,169 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
         || imageMagicNumber == INTEL_TIFF_MAGIC_NUMBER;
   }
 
+  private static boolean isStartOfFrame(int segmentType) {
+    // SOF0 - SOF15, excluding DHT, JPG and DAC which share the range.
+    return segmentType >= 0xC0 && segmentType <= 0xCF
+        && segmentType != 0xC4 && segmentType != 0xC8 && segmentType != 0xCC;
+  }
+
+  private static int getUInt32(Reader reader) throws IOException {
+    return (reader.getUInt16() << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+  }
+
+  private static int getUInt24LittleEndian(Reader reader) throws IOException {
+    return reader.getUInt8() | reader.getUInt8() << 8 | reader.getUInt8() << 16;
+  }
+
+  private static int swapUInt16(int value) {
+    return (value >> 8 & 0xFF) | (value << 8 & 0xFF00);
+  }
+
+  /**
+   * The type, exif orientation and dimensions parsed from an image header, along with the location
+   * and dimensions of any JPEG thumbnail embedded in the header's exif segment.
+   */
+  public static final class ImageHeader {
+    static final ImageHeader UNKNOWN_HEADER = new ImageHeader(UNKNOWN, UNKNOWN_ORIENTATION, -1, -1);
+
+    private final ImageType type;
+    private final int orientation;
+    private final int width;
+    private final int height;
+    private final int thumbnailOffset;
+    private final int thumbnailLength;
+    private final int thumbnailWidth;
+    private final int thumbnailHeight;
+
+    public ImageHeader(@NonNull ImageType type, int orientation, int width, int height) {
+      this(type, orientation, width, height, -1, -1, -1, -1);
+    }
+
+    public ImageHeader(@NonNull ImageType type, int orientation, int width, int height,
+        int thumbnailOffset, int thumbnailLength, int thumbnailWidth, int thumbnailHeight) {
+      this.type = Preconditions.checkNotNull(type);
+      this.orientation = orientation;
+      this.width = width;
+      this.height = height;
+      this.thumbnailOffset = thumbnailOffset;
+      this.thumbnailLength = thumbnailLength;
+      this.thumbnailWidth = thumbnailWidth;
+      this.thumbnailHeight = thumbnailHeight;
+    }
+
+    @NonNull
+    public ImageType getType() {
+      return type;
+    }
+
+    /**
+     * Returns the exif orientation, or {@link #UNKNOWN_ORIENTATION} if the header doesn't contain
+     * one.
+     */
+    public int getOrientation() {
+      return orientation;
+    }
+
+    /**
+     * Returns the width of the image, or {@code -1} if it couldn't be parsed.
+     */
+    public int getWidth() {
+      return width;
+    }
+
+    /**
+     * Returns the height of the image, or {@code -1} if it couldn't be parsed.
+     */
+    public int getHeight() {
+      return height;
+    }
+
+    public boolean hasAlpha() {
+      return type.hasAlpha();
+    }
+
+    /**
+     * Returns {@code true} if the header contains a JPEG thumbnail whose dimensions were parsed.
+     */
+    public boolean hasThumbnail() {
+      return thumbnailLength > 0 && thumbnailWidth > 0 && thumbnailHeight > 0;
+    }
+
+    /**
+     * Returns the offset in bytes of the embedded thumbnail from the start of the image, or
+     * {@code -1} if there isn't one.
+     */
+    public int getThumbnailOffset() {
+      return thumbnailOffset;
+    }
+
+    /**
+     * Returns the length in bytes of the embedded thumbnail, or {@code -1} if there isn't one.
+     */
+    public int getThumbnailLength() {
+      return thumbnailLength;
+    }
+
+    /**
+     * Returns the width of the embedded thumbnail, or {@code -1} if there isn't one.
+     */
+    public int getThumbnailWidth() {
+      return thumbnailWidth;
+    }
+
+    /**
+     * Returns the height of the embedded thumbnail, or {@code -1} if there isn't one.
+     */
+    public int getThumbnailHeight() {
+      return thumbnailHeight;
+    }
+
+    @Override
+    public String toString() {
+      return "ImageHeader{"
+          + "type=" + type
+          + ", orientation=" + orientation
+          + ", width=" + width
+          + ", height=" + height
+          + ", thumbnailOffset=" + thumbnailOffset
+          + ", thumbnailLength=" + thumbnailLength
+          + ", thumbnailWidth=" + thumbnailWidth
+          + ", thumbnailHeight=" + thumbnailHeight
+          + '}';
+    }
+  }
+
+  /**
+   * The values parsed from an exif segment.
+   */
+  private static final class ExifSegment {
+    static final ExifSegment EMPTY = new ExifSegment(UNKNOWN_ORIENTATION);
+
+    final int orientation;
+    int thumbnailOffset = -1;
+    int thumbnailLength = -1;
+    int thumbnailWidth = -1;
+    int thumbnailHeight = -1;
+
+    ExifSegment(int orientation) {
+      this.orientation = orientation;
+    }
+
+    ImageHeader toImageHeader(ImageType type, int width, int height) {
+      return new ImageHeader(type, orientation, width, height,
+          thumbnailOffset, thumbnailLength, thumbnailWidth, thumbnailHeight);
+    }
+  }
+
   private static final class RandomAccessReader {
     private final ByteBuffer data;
 
     RandomAccessReader(byte[] data, int length) {
-      this.data = (ByteBuffer) ByteBuffer.wrap(data)
-          .order(ByteOrder.BIG_ENDIAN)
-          .limit(length);
+      this(ByteBuffer.wrap(data, 0, length));
+    }
+
+    RandomAccessReader(ByteBuffer data) {
+      this.data = data.order(ByteOrder.BIG_ENDIAN);
     }
 
     void order(ByteOrder byteOrder) {
@@ -364,6 +744,18 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
       return data.remaining();
     }
 
+    boolean startsWith(byte[] prefix) {
+      if (data.remaining() <= prefix.length) {
+        return false;
+      }
+      for (int i = 0; i < prefix.length; i++) {
+        if (data.get(i) != prefix[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     int getInt32(int offset) {
       return isAvailable(offset, 4) ? data.getInt(offset) : -1;
     }
@@ -373,7 +765,7 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
     }
 
     private boolean isAvailable(int offset, int byteSize) {
-      return data.remaining() - offset >= byteSize;
+      return offset >= 0 && data.remaining() - offset >= byteSize;
     }
   }
 
@@ -383,6 +775,13 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
     long skip(long total) throws IOException;
     int read(byte[] buffer, int byteCount) throws IOException;
     int getByte() throws IOException;
+
+    /**
+     * Returns a view of the next {@code byteCount} bytes and moves past them without copying, or
+     * returns {@code null} and doesn't move if the bytes aren't available or can't be shared.
+     */
+    @Nullable
+    ByteBuffer slice(int byteCount);
   }
 
   private static final class ByteBufferReader implements Reader {
@@ -428,6 +827,18 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
       }
       return byteBuffer.get();
     }
+
+    @Nullable
+    @Override
+    public ByteBuffer slice(int byteCount) {
+      if (byteCount < 0 || byteBuffer.remaining() < byteCount) {
+        return null;
+      }
+      ByteBuffer result = byteBuffer.slice();
+      result.limit(byteCount);
+      byteBuffer.position(byteBuffer.position() + byteCount);
+      return result;
+    }
   }
 
   private static final class StreamReader implements Reader {
@@ -489,5 +900,11 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
     public int getByte() throws IOException {
       return is.read();
     }
+
+    @Nullable
+    @Override
+    public ByteBuffer slice(int byteCount) {
+      return null;
+    }
   }
 }
@@ -0,0 +1,177 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import java.util.Arrays;
+
+/**
+ * Additional, smaller sizes that are derived from a {@link Bitmap} decoded for a request and
+ * written to the resource disk cache along with the requested size.
+ *
+ * <p>Each derivative is scaled down in memory from the decoded {@link Bitmap} using the request's
+ * {@link DownsampleStrategy} and then transformed with the request's
+ * {@link com.bumptech.glide.load.Transformation} at the derivative's size, so later requests for
+ * the same model, {@link com.bumptech.glide.load.Transformation} and options at one of the
+ * derivative sizes are loaded from the resource cache without decoding the source again. For
+ * example, to decode a photo once and cache it at three sizes:
+ *
+ * <pre>
+ * {@code
+ * Glide.with(context)
+ *     .asBitmap()
+ *     .load(uri)
+ *     .centerCrop()
+ *     .set(DerivativeSizes.OPTION, DerivativeSizes.of(200, 200).and(480, 480))
+ *     .preload(1080, 1080);
+ * }
+ * </pre>
+ *
+ * <p>Derivatives are only produced when the requested size is decoded from source or data cache
+ * data and the request's {@link com.bumptech.glide.load.engine.DiskCacheStrategy} caches
+ * transformed resources. Sizes that are larger than the requested size in either dimension are
+ * ignored. They're produced after the requested size has been delivered, while it's written to
+ * the disk cache, on the executor set with
+ * {@link com.bumptech.glide.GlideBuilder#setResourceEncodeExecutor} if there is one.
+ *
+ * <p>{@link DownsampleStrategy#AT_MOST} and {@link DownsampleStrategy#AT_LEAST} decode at power of
+ * two fractions of the source's size, which can't be derived from the decoded {@link Bitmap}, so
+ * requests using them don't produce derivatives. For other strategies, because derivatives are
+ * scaled from an already downsampled {@link Bitmap}, their pixels may differ slightly from those
+ * of a {@link Bitmap} decoded at the derivative size directly.
+ */
+public final class DerivativeSizes {
+  /**
+   * Indicates the sizes to derive from the decoded {@link Bitmap}, defaults to none.
+   *
+   * <p>The sizes are not part of the disk cache key, so requests with and without this option
+   * share resource cache entries.
+   */
+  public static final Option<DerivativeSizes> OPTION =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.DerivativeSizes");
+
+  private final int[] sizes;
+
+  private DerivativeSizes(int[] sizes) {
+    this.sizes = sizes;
+  }
+
+  /**
+   * Returns {@link DerivativeSizes} containing the single given width and height in pixels.
+   */
+  @NonNull
+  public static DerivativeSizes of(int width, int height) {
+    return new DerivativeSizes(new int[0]).and(width, height);
+  }
+
+  /**
+   * Returns a new {@link DerivativeSizes} containing the sizes in this object and the given width
+   * and height in pixels.
+   */
+  @NonNull
+  public DerivativeSizes and(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException(
+          "Width and height must be > 0, but given: " + width + "x" + height);
+    }
+    int[] newSizes = Arrays.copyOf(sizes, sizes.length + 2);
+    newSizes[sizes.length] = width;
+    newSizes[sizes.length + 1] = height;
+    return new DerivativeSizes(newSizes);
+  }
+
+  public int size() {
+    return sizes.length / 2;
+  }
+
+  public int getWidth(int index) {
+    return sizes[index * 2];
+  }
+
+  public int getHeight(int index) {
+    return sizes[index * 2 + 1];
+  }
+
+  /**
+   * Returns a {@link Resource} containing {@code decoded} scaled by the given
+   * {@link DownsampleStrategy} for the given width and height, or {@code decoded} itself if the
+   * strategy doesn't reduce its size.
+   *
+   * <p>{@code decoded} is not recycled or otherwise modified.
+   */
+  @NonNull
+  public static Resource<Bitmap> downsample(@NonNull Context context,
+      @NonNull ArrayPool arrayPool, @NonNull Resource<Bitmap> decoded,
+      @NonNull DownsampleStrategy downsampleStrategy, @Nullable ResampleKernel kernel, int width,
+      int height) {
+    Bitmap bitmap = decoded.get();
+    int sourceWidth = bitmap.getWidth();
+    int sourceHeight = bitmap.getHeight();
+    float scaleFactor =
+        downsampleStrategy.getScaleFactor(sourceWidth, sourceHeight, width, height);
+    int targetWidth = Math.max(1, Math.round(sourceWidth * scaleFactor));
+    int targetHeight = Math.max(1, Math.round(sourceHeight * scaleFactor));
+    if (targetWidth >= sourceWidth || targetHeight >= sourceHeight) {
+      return decoded;
+    }
+
+    BitmapPool bitmapPool = Glide.get(context).getBitmapPool();
+    Config config = bitmap.getConfig();
+    Bitmap result;
+    if (BitmapResampler.isSupported(config)) {
+      // Derivatives are made in the background, so they don't take resample threads from decodes.
+      result = BitmapResampler.resample(bitmapPool, arrayPool, /*helperExecutor=*/ null, bitmap,
+          targetWidth, targetHeight, kernel != null ? kernel : ResampleKernel.AREA);
+    } else {
+      result =
+          bitmapPool.get(targetWidth, targetHeight, config != null ? config : Config.ARGB_8888);
+      TransformationUtils.setAlpha(bitmap, result);
+      TransformationUtils.getBitmapDrawableLock().lock();
+      try {
+        Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(bitmap, /*src=*/ null, new Rect(0, 0, targetWidth, targetHeight),
+            new Paint(TransformationUtils.PAINT_FLAGS));
+        canvas.setBitmap(null);
+      } finally {
+        TransformationUtils.getBitmapDrawableLock().unlock();
+      }
+    }
+    return BitmapResource.obtain(result, bitmapPool);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof DerivativeSizes) {
+      DerivativeSizes other = (DerivativeSizes) o;
+      return Arrays.equals(sizes, other.sizes);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(sizes);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("DerivativeSizes{");
+    for (int i = 0; i < size(); i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(getWidth(i)).append('x').append(getHeight(i));
+    }
+    return builder.append('}').toString();
+  }
+}
@@ -5,6 +5,7 @@ import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
 import android.os.Build;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.DisplayMetrics;
 import android.util.Log;
@@ -17,15 +18,18 @@ import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser.ImageHeader;
 import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy.SampleSizeRounding;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Util;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -33,6 +37,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Downsamples, decodes, and rotates images according to their exif orientation.
@@ -91,6 +96,77 @@ public final class Downsampler {
       Option.memory(
           "com.bumptech.glide.load.resource.bitmap.Downsampler.AllowHardwareDecode", false);
 
+  /**
+   * Indicates that {@link InputStream}s should be decoded by {@link StreamBitmapDecoder} using a
+   * spooled stream with an unbounded mark rather than a {@link RecyclableBufferedInputStream}
+   * whose buffer may grow to fit large image headers.
+   *
+   * <p>Data read before the bounds of the image are obtained is kept in pooled segments up to
+   * {@link #SPOOL_MEMORY_LIMIT_BYTES} and in a temporary file after that, so the heap used per
+   * decode is bounded even for images with very large EXIF or ICC segments.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static final Option<Boolean> SPOOL_STREAMS =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.Downsampler.SpoolStreams", false);
+
+  /**
+   * The maximum number of bytes of an {@link InputStream} kept in memory when
+   * {@link #SPOOL_STREAMS} is enabled, defaults to 1mb.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static final Option<Integer> SPOOL_MEMORY_LIMIT_BYTES =
+      Option.memory(
+          "com.bumptech.glide.load.resource.bitmap.Downsampler.SpoolMemoryLimitBytes",
+          1024 * 1024);
+
+  /**
+   * Indicates the {@link ResampleKernel} used to scale images after any power of two downsampling,
+   * or {@code null} to let {@link BitmapFactory} scale them using bilinear filtering while they
+   * are decoded.
+   *
+   * <p>Resampling with a kernel takes an extra pass over the decoded image but avoids the
+   * aliasing that bilinear filtering produces for large reductions in size. Large images are
+   * resampled on multiple threads.
+   *
+   * <p>Kernels are only used to reduce the size of images decoded into {@link Config#ARGB_8888}
+   * or {@link Config#RGB_565} {@link Bitmap}s on KitKat and above.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static final Option<ResampleKernel> RESAMPLE_KERNEL =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.Downsampler.ResampleKernel");
+
+  /**
+   * Indicates that JPEGs may be decoded from the thumbnail embedded in their exif segment instead
+   * of from the full image when the thumbnail is at least as large as the size the
+   * {@link DownsampleStrategy} would otherwise produce.
+   *
+   * <p>Most camera JPEGs embed a thumbnail of 160x120 or larger, so decoding the thumbnail is much
+   * faster for small, list or grid sized requests. Thumbnails are only used if their aspect ratio
+   * matches the image. Thumbnails are usually compressed more heavily than the image itself, so
+   * enabling this option changes the disk cache key.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static final Option<Boolean> DECODE_EXIF_THUMBNAILS = Option.disk(
+      "com.bumptech.glide.load.resource.bitmap.Downsampler.DecodeExifThumbnails", false,
+      new Option.CacheKeyUpdater<Boolean>() {
+        @Override
+        public void update(@NonNull byte[] keyBytes, @NonNull Boolean value,
+            @NonNull MessageDigest messageDigest) {
+          // Only update the key when enabled so existing cache keys remain valid.
+          if (value) {
+            messageDigest.update(keyBytes);
+          }
+        }
+      });
+
+  // The largest relative difference between the aspect ratios of an image and its thumbnail for
+  // the thumbnail to be used. Thumbnails with different aspect ratios are usually letterboxed.
+  private static final float MAX_THUMBNAIL_ASPECT_RATIO_DIFFERENCE = 0.02f;
+
   private static final String WBMP_MIME_TYPE = "image/vnd.wap.wbmp";
   private static final String ICO_MIME_TYPE = "image/x-ico";
   private static final Set<String> NO_DOWNSAMPLE_PRE_N_MIME_TYPES =
@@ -130,14 +206,27 @@ public final class Downsampler {
   private final DisplayMetrics displayMetrics;
   private final ArrayPool byteArrayPool;
   private final List<ImageHeaderParser> parsers;
+  @Nullable private final Executor resampleExecutor;
   private final HardwareConfigState hardwareConfigState = HardwareConfigState.getInstance();
 
   public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
       BitmapPool bitmapPool, ArrayPool byteArrayPool) {
+    this(parsers, displayMetrics, bitmapPool, byteArrayPool, /*resampleExecutor=*/ null);
+  }
+
+  /**
+   * @param resampleExecutor An executor whose idle threads help the decoding thread resample
+   *     images with a {@link ResampleKernel}, typically
+   *     {@link com.bumptech.glide.load.engine.executor.GlideExecutor#newResampleExecutor()}, or
+   *     {@code null} to resample on the decoding thread alone.
+   */
+  public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
+      BitmapPool bitmapPool, ArrayPool byteArrayPool, @Nullable Executor resampleExecutor) {
     this.parsers = parsers;
     this.displayMetrics = Preconditions.checkNotNull(displayMetrics);
     this.bitmapPool = Preconditions.checkNotNull(bitmapPool);
     this.byteArrayPool = Preconditions.checkNotNull(byteArrayPool);
+    this.resampleExecutor = resampleExecutor;
   }
 
   public boolean handles(@SuppressWarnings("unused") InputStream is) {
@@ -201,11 +290,14 @@ public final class Downsampler {
     boolean fixBitmapToRequestedDimensions = options.get(FIX_BITMAP_SIZE_TO_REQUESTED_DIMENSIONS);
     boolean isHardwareConfigAllowed =
       options.get(ALLOW_HARDWARE_CONFIG) != null && options.get(ALLOW_HARDWARE_CONFIG);
+    ResampleKernel resampleKernel = options.get(RESAMPLE_KERNEL);
+    boolean isExifThumbnailAllowed = options.get(DECODE_EXIF_THUMBNAILS);
 
     try {
       Bitmap result = decodeFromWrappedStreams(is, bitmapFactoryOptions,
-          downsampleStrategy, decodeFormat, isHardwareConfigAllowed, requestedWidth,
-          requestedHeight, fixBitmapToRequestedDimensions, callbacks);
+          downsampleStrategy, decodeFormat, isHardwareConfigAllowed, resampleKernel,
+          null /*header*/, isExifThumbnailAllowed, requestedWidth, requestedHeight,
+          fixBitmapToRequestedDimensions, callbacks);
       return BitmapResource.obtain(result, bitmapPool);
     } finally {
       releaseOptions(bitmapFactoryOptions);
@@ -213,11 +305,16 @@ public final class Downsampler {
     }
   }
 
+  /**
+   * @param header The already parsed header of the image, or {@code null} to parse it from the
+   *               stream.
+   */
   private Bitmap decodeFromWrappedStreams(InputStream is,
       BitmapFactory.Options options, DownsampleStrategy downsampleStrategy,
-      DecodeFormat decodeFormat, boolean isHardwareConfigAllowed, int requestedWidth,
-      int requestedHeight, boolean fixBitmapToRequestedDimensions,
-      DecodeCallbacks callbacks) throws IOException {
+      DecodeFormat decodeFormat, boolean isHardwareConfigAllowed,
+      @Nullable ResampleKernel resampleKernel, @Nullable ImageHeader header,
+      boolean isExifThumbnailAllowed, int requestedWidth, int requestedHeight,
+      boolean fixBitmapToRequestedDimensions, DecodeCallbacks callbacks) throws IOException {
     long startTime = LogTime.getLogTime();
 
     int[] sourceDimensions = getDimensions(is, options, callbacks, bitmapPool);
@@ -233,14 +330,31 @@ public final class Downsampler {
       isHardwareConfigAllowed = false;
     }
 
-    int orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    // Parse the type and orientation together so the header is only read once.
+    if (header == null) {
+      header = ImageHeaderParserUtils.getHeader(parsers, is, byteArrayPool);
+    }
+    int orientation = header.getOrientation();
     int degreesToRotate = TransformationUtils.getExifOrientationDegrees(orientation);
     boolean isExifOrientationRequired = TransformationUtils.isExifOrientationRequired(orientation);
 
     int targetWidth = requestedWidth == Target.SIZE_ORIGINAL ? sourceWidth : requestedWidth;
     int targetHeight = requestedHeight == Target.SIZE_ORIGINAL ? sourceHeight : requestedHeight;
 
-    ImageType imageType = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    if (isExifThumbnailAllowed
+        && isExifThumbnailLargeEnough(header, downsampleStrategy, degreesToRotate, sourceWidth,
+            sourceHeight, targetWidth, targetHeight)) {
+      Bitmap thumbnail = decodeExifThumbnail(is, header, options, downsampleStrategy,
+          decodeFormat, isHardwareConfigAllowed, resampleKernel, requestedWidth, requestedHeight,
+          fixBitmapToRequestedDimensions);
+      if (thumbnail != null) {
+        // The thumbnail was read from the image's stream, which may have failed while reading it.
+        callbacks.onDecodeComplete(bitmapPool, thumbnail);
+        return thumbnail;
+      }
+    }
+
+    ImageType imageType = header.getType();
 
     calculateScaling(
         imageType,
@@ -255,7 +369,7 @@ public final class Downsampler {
         targetHeight,
         options);
     calculateConfig(
-        is,
+        imageType,
         decodeFormat,
         isHardwareConfigAllowed,
         isExifOrientationRequired,
@@ -263,13 +377,24 @@ public final class Downsampler {
         targetWidth,
         targetHeight);
 
+    // Take over any reduction in size BitmapFactory would have made after inSampleSize so that
+    // it's done with the requested kernel instead of bilinear filtering.
+    float resampleScale = 1f;
+    if (resampleKernel != null && isScaling(options)
+        && options.inTargetDensity < options.inDensity
+        && BitmapResampler.isSupported(options.inPreferredConfig)) {
+      resampleScale = options.inTargetDensity / (float) options.inDensity;
+      options.inScaled = false;
+      options.inDensity = options.inTargetDensity = 0;
+    }
+
     boolean isKitKatOrGreater = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
     // Prior to KitKat, the inBitmap size must exactly match the size of the bitmap we're decoding.
     if ((options.inSampleSize == 1 || isKitKatOrGreater) && shouldUsePool(imageType)) {
       int expectedWidth;
       int expectedHeight;
       if (sourceWidth >= 0 && sourceHeight >= 0
-          && fixBitmapToRequestedDimensions && isKitKatOrGreater) {
+          && fixBitmapToRequestedDimensions && isKitKatOrGreater && resampleScale == 1f) {
         expectedWidth = targetWidth;
         expectedHeight = targetHeight;
       } else {
@@ -304,6 +429,23 @@ public final class Downsampler {
           requestedWidth, requestedHeight, startTime);
     }
 
+    if (downsampled != null && resampleScale < 1f) {
+      long resampleStartTime = LogTime.getLogTime();
+      Bitmap resampled = BitmapResampler.resample(bitmapPool, byteArrayPool, resampleExecutor,
+          downsampled,
+          Math.max(1, round(downsampled.getWidth() * resampleScale)),
+          Math.max(1, round(downsampled.getHeight() * resampleScale)),
+          resampleKernel);
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Resampled " + getBitmapString(downsampled)
+            + " to " + getBitmapString(resampled)
+            + " with " + resampleKernel
+            + " in " + LogTime.getElapsedMillis(resampleStartTime));
+      }
+      bitmapPool.put(downsampled);
+      downsampled = resampled;
+    }
+
     Bitmap rotated = null;
     if (downsampled != null) {
       // If we scaled, the Bitmap density will be our inTargetDensity. Here we correct it back to
@@ -319,6 +461,120 @@ public final class Downsampler {
     return rotated;
   }
 
+  /**
+   * Returns {@code true} if the image has an embedded JPEG thumbnail with the same aspect ratio
+   * as the image that's at least as large as the image would be after downsampling.
+   */
+  private static boolean isExifThumbnailLargeEnough(
+      ImageHeader header,
+      DownsampleStrategy downsampleStrategy,
+      int degreesToRotate,
+      int sourceWidth,
+      int sourceHeight,
+      int targetWidth,
+      int targetHeight) {
+    if (header.getType() != ImageType.JPEG || !header.hasThumbnail()
+        || sourceWidth <= 0 || sourceHeight <= 0) {
+      return false;
+    }
+    int thumbnailWidth = header.getThumbnailWidth();
+    int thumbnailHeight = header.getThumbnailHeight();
+    float aspectRatioDifference =
+        Math.abs((float) thumbnailWidth * sourceHeight - (float) thumbnailHeight * sourceWidth)
+            / ((float) thumbnailHeight * sourceWidth);
+    if (aspectRatioDifference > MAX_THUMBNAIL_ASPECT_RATIO_DIFFERENCE) {
+      return false;
+    }
+
+    // Thumbnails are stored in the same orientation as the image, see calculateScaling.
+    final float exactScaleFactor;
+    if (degreesToRotate == 90 || degreesToRotate == 270) {
+      //noinspection SuspiciousNameCombination
+      exactScaleFactor = downsampleStrategy.getScaleFactor(sourceHeight, sourceWidth,
+          targetWidth, targetHeight);
+    } else {
+      exactScaleFactor =
+          downsampleStrategy.getScaleFactor(sourceWidth, sourceHeight, targetWidth, targetHeight);
+    }
+    return exactScaleFactor > 0f
+        && round(exactScaleFactor * sourceWidth) <= thumbnailWidth
+        && round(exactScaleFactor * sourceHeight) <= thumbnailHeight;
+  }
+
+  /**
+   * Decodes the thumbnail embedded in the given image's exif segment, or returns {@code null} and
+   * leaves the stream at the start of the image if the thumbnail can't be read or decoded.
+   */
+  @Nullable
+  private Bitmap decodeExifThumbnail(InputStream is, ImageHeader header,
+      BitmapFactory.Options options, DownsampleStrategy downsampleStrategy,
+      DecodeFormat decodeFormat, boolean isHardwareConfigAllowed,
+      @Nullable ResampleKernel resampleKernel, int requestedWidth, int requestedHeight,
+      boolean fixBitmapToRequestedDimensions) throws IOException {
+    int thumbnailLength = header.getThumbnailLength();
+    byte[] thumbnailData = byteArrayPool.get(thumbnailLength, byte[].class);
+    try {
+      is.mark(MARK_POSITION);
+      Bitmap result = null;
+      if (readFully(is, header.getThumbnailOffset(), thumbnailData, thumbnailLength)) {
+        // The thumbnail has no exif segment of its own, it shares the image's orientation.
+        ImageHeader thumbnailHeader = new ImageHeader(ImageType.JPEG, header.getOrientation(),
+            header.getThumbnailWidth(), header.getThumbnailHeight());
+        // The thumbnail is decoded from memory, so the image stream's callbacks don't apply.
+        try {
+          result = decodeFromWrappedStreams(
+              new ByteArrayInputStream(thumbnailData, 0, thumbnailLength), options,
+              downsampleStrategy, decodeFormat, isHardwareConfigAllowed, resampleKernel,
+              thumbnailHeader, false /*isExifThumbnailAllowed*/, requestedWidth,
+              requestedHeight, fixBitmapToRequestedDimensions, EMPTY_CALLBACKS);
+        } catch (IOException e) {
+          if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Exception decoding exif thumbnail", e);
+          }
+        }
+      }
+
+      if (result == null) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to decode exif thumbnail, decoding full image, header: " + header);
+        }
+        if (options.inBitmap != null) {
+          bitmapPool.put(options.inBitmap);
+        }
+        byte[] tempStorage = options.inTempStorage;
+        resetOptions(options);
+        options.inTempStorage = tempStorage;
+        is.reset();
+      } else if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Decoded exif thumbnail " + getBitmapString(result) + ", header: " + header);
+      }
+      return result;
+    } finally {
+      byteArrayPool.put(thumbnailData);
+    }
+  }
+
+  private static boolean readFully(InputStream is, long offset, byte[] buffer, int length)
+      throws IOException {
+    long toSkip = offset;
+    while (toSkip > 0) {
+      long skipped = is.skip(toSkip);
+      if (skipped <= 0) {
+        return false;
+      }
+      toSkip -= skipped;
+    }
+    int read = 0;
+    while (read < length) {
+      int result = is.read(buffer, read, length - read);
+      if (result == -1) {
+        return false;
+      }
+      read += result;
+    }
+    return true;
+  }
+
   private static void calculateScaling(
       ImageType imageType,
       InputStream is,
@@ -502,7 +758,7 @@ public final class Downsampler {
 
   @SuppressWarnings("deprecation")
   private void calculateConfig(
-      InputStream is,
+      ImageType imageType,
       DecodeFormat format,
       boolean isHardwareConfigAllowed,
       boolean isExifOrientationRequired,
@@ -527,16 +783,7 @@ public final class Downsampler {
       return;
     }
 
-    boolean hasAlpha = false;
-    try {
-      hasAlpha = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool).hasAlpha();
-    } catch (IOException e) {
-      if (Log.isLoggable(TAG, Log.DEBUG)) {
-        Log.d(TAG, "Cannot determine whether the image has alpha or not from header"
-            + ", format " + format, e);
-      }
-    }
-
+    boolean hasAlpha = imageType.hasAlpha();
     optionsWithScaling.inPreferredConfig =
         hasAlpha ? Config.ARGB_8888 : Config.RGB_565;
     if (optionsWithScaling.inPreferredConfig == Config.RGB_565) {
@@ -0,0 +1,237 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.Util;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Applies a chain of geometric {@link BitmapTransformation}s by composing them into a single
+ * {@link Matrix} and an optional rounded rect or circle clip and drawing the result in one pass,
+ * rather than drawing each step into an intermediate {@link Bitmap}.
+ *
+ * <p>{@link CenterCrop}, {@link FitCenter}, {@link CenterInside}, {@link RoundedCorners} and
+ * {@link CircleCrop} can be fused. Subclasses aren't fused because they may override
+ * {@link BitmapTransformation#transform(BitmapPool, Bitmap, int, int)}. Because clipping happens
+ * while drawing, a {@link RoundedCorners} or {@link CircleCrop} always ends a fused chain.
+ *
+ * <p>If the chain can't be fused for a particular {@link Bitmap}, the transformations are applied
+ * one at a time as they would be by {@link com.bumptech.glide.load.MultiTransformation}.
+ */
+public final class FusedBitmapTransformation implements Transformation<Bitmap> {
+  private final List<Transformation<Bitmap>> transformations;
+
+  private FusedBitmapTransformation(List<Transformation<Bitmap>> transformations) {
+    this.transformations = transformations;
+  }
+
+  /**
+   * Returns a copy of the given transformations in which each run of two or more consecutive
+   * transformations that can be fused is replaced by a single {@link FusedBitmapTransformation},
+   * or {@code null} if there are no such runs.
+   */
+  @Nullable
+  public static <T> List<Transformation<T>> fuse(
+      @NonNull Collection<? extends Transformation<T>> transformations) {
+    List<Transformation<T>> result = new ArrayList<>(transformations.size());
+    List<Transformation<Bitmap>> run = new ArrayList<>();
+    boolean isFused = false;
+    for (Transformation<T> transformation : transformations) {
+      if (isFusable(transformation)) {
+        @SuppressWarnings("unchecked")
+        Transformation<Bitmap> bitmapTransformation = (Transformation<Bitmap>) transformation;
+        run.add(bitmapTransformation);
+        if (isClip(transformation)) {
+          isFused |= endRun(run, result);
+        }
+      } else {
+        isFused |= endRun(run, result);
+        result.add(transformation);
+      }
+    }
+    isFused |= endRun(run, result);
+    return isFused ? result : null;
+  }
+
+  private static <T> boolean endRun(
+      List<Transformation<Bitmap>> run, List<Transformation<T>> result) {
+    boolean isFused = run.size() > 1;
+    if (isFused) {
+      // Only Bitmap transformations are fusable, so T must be Bitmap.
+      @SuppressWarnings("unchecked")
+      Transformation<T> fused =
+          (Transformation<T>) (Transformation<?>) new FusedBitmapTransformation(
+              new ArrayList<>(run));
+      result.add(fused);
+    } else if (!run.isEmpty()) {
+      @SuppressWarnings("unchecked")
+      Transformation<T> single = (Transformation<T>) (Transformation<?>) run.get(0);
+      result.add(single);
+    }
+    run.clear();
+    return isFused;
+  }
+
+  private static boolean isFusable(Transformation<?> transformation) {
+    Class<?> transformationClass = transformation.getClass();
+    return transformationClass == CenterCrop.class
+        || transformationClass == FitCenter.class
+        || transformationClass == CenterInside.class
+        || isClip(transformation);
+  }
+
+  private static boolean isClip(Transformation<?> transformation) {
+    Class<?> transformationClass = transformation.getClass();
+    return transformationClass == RoundedCorners.class || transformationClass == CircleCrop.class;
+  }
+
+  @NonNull
+  @Override
+  public Resource<Bitmap> transform(@NonNull Context context, @NonNull Resource<Bitmap> resource,
+      int outWidth, int outHeight) {
+    if (!Util.isValidDimensions(outWidth, outHeight)) {
+      throw new IllegalArgumentException(
+          "Cannot apply transformation on width: " + outWidth + " or height: " + outHeight
+              + " less than or equal to zero and not Target.SIZE_ORIGINAL");
+    }
+    BitmapPool bitmapPool = Glide.get(context).getBitmapPool();
+    Bitmap toTransform = resource.get();
+    Bitmap transformed = transform(bitmapPool, toTransform, outWidth, outHeight);
+    if (transformed == null) {
+      return transformSequentially(context, resource, outWidth, outHeight);
+    }
+    return toTransform.equals(transformed)
+        ? resource : BitmapResource.obtain(transformed, bitmapPool);
+  }
+
+  /**
+   * Returns the transformed {@link Bitmap}, which may be {@code toTransform} if no drawing is
+   * required, or {@code null} if the transformations can't be fused for the given {@link Bitmap}.
+   */
+  @Nullable
+  private Bitmap transform(
+      @NonNull BitmapPool pool, @NonNull Bitmap toTransform, int outWidth, int outHeight) {
+    Matrix matrix = new Matrix();
+    int currentWidth = toTransform.getWidth();
+    int currentHeight = toTransform.getHeight();
+    int roundingRadius = 0;
+    boolean isCircle = false;
+
+    // Each step mirrors the geometry of the corresponding method in TransformationUtils, applied
+    // to the size the Bitmap would have had after the previous steps.
+    for (Transformation<Bitmap> transformation : transformations) {
+      int width = outWidth == Target.SIZE_ORIGINAL ? currentWidth : outWidth;
+      int height = outHeight == Target.SIZE_ORIGINAL ? currentHeight : outHeight;
+      Class<?> transformationClass = transformation.getClass();
+      if (transformationClass == CenterCrop.class) {
+        if (currentWidth == width && currentHeight == height) {
+          continue;
+        }
+        final float scale;
+        final float dx;
+        final float dy;
+        if (currentWidth * height > width * currentHeight) {
+          scale = (float) height / (float) currentHeight;
+          dx = (width - currentWidth * scale) * 0.5f;
+          dy = 0;
+        } else {
+          scale = (float) width / (float) currentWidth;
+          dx = 0;
+          dy = (height - currentHeight * scale) * 0.5f;
+        }
+        matrix.postScale(scale, scale);
+        matrix.postTranslate((int) (dx + 0.5f), (int) (dy + 0.5f));
+        currentWidth = width;
+        currentHeight = height;
+      } else if (transformationClass == FitCenter.class
+          || transformationClass == CenterInside.class) {
+        if (transformationClass == CenterInside.class
+            ? currentWidth <= width && currentHeight <= height
+            : currentWidth == width && currentHeight == height) {
+          continue;
+        }
+        float minPercentage =
+            Math.min(width / (float) currentWidth, height / (float) currentHeight);
+        if (Math.round(minPercentage * currentWidth) == currentWidth
+            && Math.round(minPercentage * currentHeight) == currentHeight) {
+          continue;
+        }
+        matrix.postScale(minPercentage, minPercentage);
+        currentWidth = (int) (minPercentage * currentWidth);
+        currentHeight = (int) (minPercentage * currentHeight);
+      } else if (transformationClass == RoundedCorners.class) {
+        roundingRadius = ((RoundedCorners) transformation).getRoundingRadius();
+      } else {
+        int destMinEdge = Math.min(width, height);
+        float maxScale =
+            Math.max(destMinEdge / (float) currentWidth, destMinEdge / (float) currentHeight);
+        matrix.postScale(maxScale, maxScale);
+        matrix.postTranslate(
+            (destMinEdge - maxScale * currentWidth) / 2f,
+            (destMinEdge - maxScale * currentHeight) / 2f);
+        currentWidth = destMinEdge;
+        currentHeight = destMinEdge;
+        isCircle = true;
+      }
+    }
+
+    boolean isClipped = isCircle || roundingRadius > 0;
+    if (!isClipped && matrix.isIdentity()
+        && currentWidth == toTransform.getWidth() && currentHeight == toTransform.getHeight()) {
+      return toTransform;
+    }
+    if (isClipped && !TransformationUtils.isAlphaSafe(toTransform)) {
+      // The unfused clips first copy the Bitmap into an alpha safe config, which isn't worth
+      // doing at the source size.
+      return null;
+    }
+    return TransformationUtils.drawFused(
+        pool, toTransform, matrix, currentWidth, currentHeight, roundingRadius, isCircle);
+  }
+
+  private Resource<Bitmap> transformSequentially(
+      Context context, Resource<Bitmap> resource, int outWidth, int outHeight) {
+    Resource<Bitmap> previous = resource;
+    for (Transformation<Bitmap> transformation : transformations) {
+      Resource<Bitmap> transformed =
+          transformation.transform(context, previous, outWidth, outHeight);
+      if (!previous.equals(resource) && !previous.equals(transformed)) {
+        previous.recycle();
+      }
+      previous = transformed;
+    }
+    return previous;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof FusedBitmapTransformation) {
+      FusedBitmapTransformation other = (FusedBitmapTransformation) o;
+      return transformations.equals(other.transformations);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return transformations.hashCode();
+  }
+
+  @Override
+  public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+    for (Transformation<Bitmap> transformation : transformations) {
+      transformation.updateDiskCacheKey(messageDigest);
+    }
+  }
+}
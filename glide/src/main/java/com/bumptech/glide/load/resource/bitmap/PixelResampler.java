@@ -0,0 +1,281 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.support.annotation.NonNull;
+import java.util.Arrays;
+
+/**
+ * Draws {@link Bitmap}s through an affine {@link Matrix} with bilinear filtering by resampling the
+ * {@code int} pixels returned by {@link Bitmap#getPixels(int[], int, int, int, int, int, int)}
+ * rather than by drawing with a {@link android.graphics.Canvas}.
+ *
+ * <p>No {@link android.graphics.Canvas} is involved, so unlike
+ * {@link TransformationUtils#getBitmapDrawableLock()} users, any number of threads can draw at
+ * once on every device. Pixels are read and written in bands so that only a small fraction of
+ * either {@link Bitmap} is ever copied onto the heap.
+ *
+ * <p>The drawing itself is done by {@code resample} and {@code clip}, which operate only on
+ * arrays.
+ */
+final class PixelResampler {
+  // The maximum number of source pixels to read at once, unless a single output row needs more.
+  private static final int MAX_BAND_PIXELS = 64 * 1024;
+  // Bilinear weights are in [0, WEIGHT_ONE], products of two weights are in [0, WEIGHT_ONE^2].
+  private static final int WEIGHT_BITS = 7;
+  private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+  private static final int WEIGHT_SHIFT = 2 * WEIGHT_BITS;
+
+  private PixelResampler() {
+    // Utility class.
+  }
+
+  /**
+   * Draws {@code inBitmap} into {@code outBitmap} using the given matrix, optionally clipping the
+   * result to rounded corners or to a circle. Pixels in {@code outBitmap} that aren't drawn are
+   * cleared.
+   *
+   * @param roundingRadius The corner radius to clip to, or 0 to avoid rounding the corners.
+   * @param isCircle {@code true} to clip the result to a circle with a diameter of the width of
+   *                 {@code outBitmap}.
+   */
+  static void draw(@NonNull Bitmap inBitmap, @NonNull Bitmap outBitmap, @NonNull Matrix matrix,
+      int roundingRadius, boolean isCircle) {
+    int inWidth = inBitmap.getWidth();
+    int inHeight = inBitmap.getHeight();
+    int outWidth = outBitmap.getWidth();
+    int outHeight = outBitmap.getHeight();
+
+    float[] inverse = new float[6];
+    Matrix inverseMatrix = new Matrix();
+    boolean isInvertible = matrix.invert(inverseMatrix);
+    if (isInvertible) {
+      float[] values = new float[9];
+      inverseMatrix.getValues(values);
+      inverse[0] = values[Matrix.MSCALE_X];
+      inverse[1] = values[Matrix.MSKEW_X];
+      inverse[2] = values[Matrix.MTRANS_X];
+      inverse[3] = values[Matrix.MSKEW_Y];
+      inverse[4] = values[Matrix.MSCALE_Y];
+      inverse[5] = values[Matrix.MTRANS_Y];
+    }
+
+    boolean hasAlpha = inBitmap.hasAlpha();
+    int maxRows = Math.max(1, Math.min(outHeight, MAX_BAND_PIXELS / outWidth));
+    int[] outPixels = new int[outWidth * maxRows];
+    int[] inPixels = new int[0];
+    int[] bounds = new int[4];
+    int y = 0;
+    while (y < outHeight) {
+      int rows = Math.min(maxRows, outHeight - y);
+      boolean hasSource = isInvertible
+          && getSourceBounds(inverse, outWidth, y, rows, inWidth, inHeight, bounds);
+      // Shrink the band until its source fits in the budget, which is mostly relevant for large
+      // reductions in size and rotations.
+      while (hasSource && rows > 1 && bounds[2] * bounds[3] > MAX_BAND_PIXELS) {
+        rows = Math.max(1, rows / 2);
+        hasSource = getSourceBounds(inverse, outWidth, y, rows, inWidth, inHeight, bounds);
+      }
+
+      if (hasSource) {
+        int sourceSize = bounds[2] * bounds[3];
+        if (inPixels.length < sourceSize) {
+          inPixels = new int[sourceSize];
+        }
+        inBitmap.getPixels(
+            inPixels, 0 /*offset*/, bounds[2], bounds[0], bounds[1], bounds[2], bounds[3]);
+        resample(inPixels, bounds[0], bounds[1], bounds[2], bounds[3], inWidth, inHeight,
+            outPixels, outWidth, y, rows, inverse, hasAlpha);
+        clip(outPixels, outWidth, outHeight, y, rows, roundingRadius, isCircle);
+      } else {
+        Arrays.fill(outPixels, 0, outWidth * rows, 0);
+      }
+      outBitmap.setPixels(outPixels, 0 /*offset*/, outWidth, 0 /*x*/, y, outWidth, rows);
+      y += rows;
+    }
+  }
+
+  /**
+   * Sets {@code bounds} to the {@code x, y, width, height} of the region of the source that's
+   * sampled by the given rows of the output and returns {@code true}, or returns {@code false} if
+   * the rows don't overlap the source.
+   */
+  private static boolean getSourceBounds(float[] inverse, int outWidth, int y, int rows,
+      int inWidth, int inHeight, int[] bounds) {
+    float minX = Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE;
+    float maxY = -Float.MAX_VALUE;
+    for (int corner = 0; corner < 4; corner++) {
+      float x = (corner & 1) == 0 ? 0 : outWidth;
+      float cornerY = (corner & 2) == 0 ? y : y + rows;
+      float sourceX = inverse[0] * x + inverse[1] * cornerY + inverse[2];
+      float sourceY = inverse[3] * x + inverse[4] * cornerY + inverse[5];
+      minX = Math.min(minX, sourceX);
+      maxX = Math.max(maxX, sourceX);
+      minY = Math.min(minY, sourceY);
+      maxY = Math.max(maxY, sourceY);
+    }
+    // Pixel centers are at half pixels, so bilinear taps are at floor(x - 0.5) and one after.
+    int left = Math.max(0, (int) Math.floor(minX - 0.5f));
+    int top = Math.max(0, (int) Math.floor(minY - 0.5f));
+    int right = Math.min(inWidth, (int) Math.floor(maxX - 0.5f) + 2);
+    int bottom = Math.min(inHeight, (int) Math.floor(maxY - 0.5f) + 2);
+    if (left >= right || top >= bottom) {
+      return false;
+    }
+    bounds[0] = left;
+    bounds[1] = top;
+    bounds[2] = right - left;
+    bounds[3] = bottom - top;
+    return true;
+  }
+
+  /**
+   * Fills {@code rows} rows of {@code out} starting at output row {@code outY} with bilinear
+   * samples of the source through the given inverse matrix.
+   *
+   * <p>Output pixels whose centers map outside of the source are transparent. Samples within the
+   * source are clamped to its edges.
+   *
+   * @param in The pixels of the region of the source at {@code inX, inY} with the given width and
+   *           height, which must contain every pixel sampled by the given output rows.
+   * @param inverse The affine matrix from output to source coordinates, as {@code scaleX, skewX,
+   *                translateX, skewY, scaleY, translateY}.
+   * @param hasAlpha {@code true} to weight colors by alpha, which avoids dark fringes around
+   *                 transparent pixels.
+   */
+  static void resample(int[] in, int inX, int inY, int inRegionWidth, int inRegionHeight,
+      int inWidth, int inHeight, int[] out, int outWidth, int outY, int rows, float[] inverse,
+      boolean hasAlpha) {
+    int maxX = Math.min(inWidth, inX + inRegionWidth) - 1;
+    int maxY = Math.min(inHeight, inY + inRegionHeight) - 1;
+    for (int row = 0; row < rows; row++) {
+      float centerY = outY + row + 0.5f;
+      float sourceX = inverse[0] * 0.5f + inverse[1] * centerY + inverse[2];
+      float sourceY = inverse[3] * 0.5f + inverse[4] * centerY + inverse[5];
+      int outIndex = row * outWidth;
+      for (int x = 0; x < outWidth; x++, outIndex++) {
+        if (sourceX < 0 || sourceY < 0 || sourceX >= inWidth || sourceY >= inHeight) {
+          out[outIndex] = 0;
+        } else {
+          float fx = sourceX - 0.5f;
+          float fy = sourceY - 0.5f;
+          int x0 = (int) Math.floor(fx);
+          int y0 = (int) Math.floor(fy);
+          int weightX = (int) ((fx - x0) * WEIGHT_ONE);
+          int weightY = (int) ((fy - y0) * WEIGHT_ONE);
+          int left = clamp(x0, inX, maxX) - inX;
+          int right = clamp(x0 + 1, inX, maxX) - inX;
+          int top = (clamp(y0, inY, maxY) - inY) * inRegionWidth;
+          int bottom = (clamp(y0 + 1, inY, maxY) - inY) * inRegionWidth;
+          out[outIndex] = bilinear(in[top + left], in[top + right], in[bottom + left],
+              in[bottom + right], weightX, weightY, hasAlpha);
+        }
+        sourceX += inverse[0];
+        sourceY += inverse[3];
+      }
+    }
+  }
+
+  private static int clamp(int value, int min, int max) {
+    return value < min ? min : value > max ? max : value;
+  }
+
+  private static int bilinear(int topLeft, int topRight, int bottomLeft, int bottomRight,
+      int weightX, int weightY, boolean hasAlpha) {
+    int weightTopLeft = (WEIGHT_ONE - weightX) * (WEIGHT_ONE - weightY);
+    int weightTopRight = weightX * (WEIGHT_ONE - weightY);
+    int weightBottomLeft = (WEIGHT_ONE - weightX) * weightY;
+    int weightBottomRight = weightX * weightY;
+    if (!hasAlpha) {
+      int rounding = 1 << (WEIGHT_SHIFT - 1);
+      int r = (channel(topLeft, 16) * weightTopLeft + channel(topRight, 16) * weightTopRight
+          + channel(bottomLeft, 16) * weightBottomLeft
+          + channel(bottomRight, 16) * weightBottomRight + rounding) >> WEIGHT_SHIFT;
+      int g = (channel(topLeft, 8) * weightTopLeft + channel(topRight, 8) * weightTopRight
+          + channel(bottomLeft, 8) * weightBottomLeft
+          + channel(bottomRight, 8) * weightBottomRight + rounding) >> WEIGHT_SHIFT;
+      int b = (channel(topLeft, 0) * weightTopLeft + channel(topRight, 0) * weightTopRight
+          + channel(bottomLeft, 0) * weightBottomLeft
+          + channel(bottomRight, 0) * weightBottomRight + rounding) >> WEIGHT_SHIFT;
+      return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+
+    // Colors are unpremultiplied, so weight each one by its alpha as well.
+    weightTopLeft *= channel(topLeft, 24);
+    weightTopRight *= channel(topRight, 24);
+    weightBottomLeft *= channel(bottomLeft, 24);
+    weightBottomRight *= channel(bottomRight, 24);
+    int totalWeight = weightTopLeft + weightTopRight + weightBottomLeft + weightBottomRight;
+    if (totalWeight == 0) {
+      return 0;
+    }
+    int half = totalWeight >> 1;
+    int a = (totalWeight + (1 << (WEIGHT_SHIFT - 1))) >> WEIGHT_SHIFT;
+    int r = (int) (((long) channel(topLeft, 16) * weightTopLeft
+        + (long) channel(topRight, 16) * weightTopRight
+        + (long) channel(bottomLeft, 16) * weightBottomLeft
+        + (long) channel(bottomRight, 16) * weightBottomRight + half) / totalWeight);
+    int g = (int) (((long) channel(topLeft, 8) * weightTopLeft
+        + (long) channel(topRight, 8) * weightTopRight
+        + (long) channel(bottomLeft, 8) * weightBottomLeft
+        + (long) channel(bottomRight, 8) * weightBottomRight + half) / totalWeight);
+    int b = (int) (((long) channel(topLeft, 0) * weightTopLeft
+        + (long) channel(topRight, 0) * weightTopRight
+        + (long) channel(bottomLeft, 0) * weightBottomLeft
+        + (long) channel(bottomRight, 0) * weightBottomRight + half) / totalWeight);
+    return a << 24 | r << 16 | g << 8 | b;
+  }
+
+  private static int channel(int color, int shift) {
+    return (color >> shift) & 0xFF;
+  }
+
+  /**
+   * Scales the alpha of {@code rows} rows of {@code out} starting at output row {@code outY} by
+   * the antialiased coverage of a rounded rect or circle filling the output.
+   *
+   * @param roundingRadius The corner radius of the rounded rect, or 0 to avoid rounding corners.
+   * @param isCircle {@code true} to clip to a circle with a diameter of {@code outWidth} instead.
+   */
+  static void clip(int[] out, int outWidth, int outHeight, int outY, int rows,
+      float roundingRadius, boolean isCircle) {
+    final float radius;
+    if (isCircle) {
+      radius = outWidth / 2f;
+    } else if (roundingRadius > 0) {
+      // As in Canvas, radii are reduced so that opposite corners don't overlap.
+      radius = Math.min(roundingRadius, Math.min(outWidth, outHeight) / 2f);
+    } else {
+      return;
+    }
+    float leftCenterX = radius;
+    float rightCenterX = outWidth - radius;
+    float topCenterY = radius;
+    float bottomCenterY = outHeight - radius;
+    for (int row = 0; row < rows; row++) {
+      float y = outY + row + 0.5f;
+      float dy = y < topCenterY ? topCenterY - y : y > bottomCenterY ? y - bottomCenterY : 0;
+      if (dy == 0) {
+        continue;
+      }
+      int outIndex = row * outWidth;
+      for (int x = 0; x < outWidth; x++, outIndex++) {
+        float centerX = x + 0.5f;
+        float dx = centerX < leftCenterX
+            ? leftCenterX - centerX : centerX > rightCenterX ? centerX - rightCenterX : 0;
+        if (dx == 0) {
+          continue;
+        }
+        float coverage = radius + 0.5f - (float) Math.sqrt(dx * dx + dy * dy);
+        if (coverage >= 1) {
+          continue;
+        }
+        int color = out[outIndex];
+        int alpha = coverage <= 0 ? 0 : (int) (channel(color, 24) * coverage + 0.5f);
+        out[outIndex] = alpha << 24 | (color & 0xFFFFFF);
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.pool.GlideTrace;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads {@link Bitmap}s written by {@link RawBitmapEncoder} by copying their pixels into
+ * {@link Bitmap}s obtained from the {@link BitmapPool}.
+ *
+ * <p>Files in the disk cache are memory mapped by
+ * {@link com.bumptech.glide.load.model.ByteBufferFileLoader}, so uncompressed pixels are copied
+ * straight from the mapped file into the {@link Bitmap} without decoding them.
+ *
+ * <p>{@link Bitmap}s are returned at the size they were written at, the requested width and height
+ * are ignored.
+ */
+public class RawBitmapDecoder implements ResourceDecoder<ByteBuffer, Bitmap> {
+  private final BitmapPool bitmapPool;
+  private final ArrayPool arrayPool;
+
+  public RawBitmapDecoder(@NonNull BitmapPool bitmapPool, @NonNull ArrayPool arrayPool) {
+    this.bitmapPool = bitmapPool;
+    this.arrayPool = arrayPool;
+  }
+
+  @Override
+  public boolean handles(@NonNull ByteBuffer source, @NonNull Options options) {
+    return RawBitmapFormat.isRawBitmap(source);
+  }
+
+  @Override
+  public Resource<Bitmap> decode(@NonNull ByteBuffer source, int width, int height,
+      @NonNull Options options) throws IOException {
+    ByteBuffer buffer = source.duplicate();
+    RawBitmapFormat.Header header = RawBitmapFormat.readHeader(buffer);
+    GlideTrace.beginSectionFormat(
+        "decode raw: [%dx%d] %s", header.width, header.height, header.config);
+    Bitmap bitmap = bitmapPool.get(header.width, header.height, header.config);
+    boolean success = false;
+    try {
+      if (bitmap.getRowBytes() * bitmap.getHeight() != header.byteCount) {
+        throw new IOException("Expected " + header.byteCount + " bytes of pixels, but Bitmap has "
+            + bitmap.getRowBytes() * bitmap.getHeight());
+      }
+      bitmap.setHasAlpha(header.hasAlpha());
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+        bitmap.setPremultiplied(header.isPremultiplied());
+      }
+      if (header.isCompressed()) {
+        inflatePixels(buffer, bitmap, header.byteCount);
+      } else {
+        if (buffer.remaining() < header.byteCount) {
+          throw new IOException("Expected " + header.byteCount + " bytes of pixels, but found "
+              + buffer.remaining());
+        }
+        buffer.limit(buffer.position() + header.byteCount);
+        bitmap.copyPixelsFromBuffer(buffer);
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        bitmapPool.put(bitmap);
+      }
+      GlideTrace.endSection();
+    }
+    return BitmapResource.obtain(bitmap, bitmapPool);
+  }
+
+  private void inflatePixels(ByteBuffer buffer, Bitmap bitmap, int byteCount)
+      throws IOException {
+    int compressedByteCount = buffer.remaining();
+    byte[] compressed = arrayPool.get(compressedByteCount, byte[].class);
+    byte[] pixels = arrayPool.get(byteCount, byte[].class);
+    Inflater inflater = new Inflater();
+    try {
+      buffer.get(compressed, 0, compressedByteCount);
+      inflater.setInput(compressed, 0, compressedByteCount);
+      int inflated = 0;
+      while (inflated < byteCount) {
+        int read = inflater.inflate(pixels, inflated, byteCount - inflated);
+        if (read == 0 && (inflater.finished() || inflater.needsInput()
+            || inflater.needsDictionary())) {
+          throw new IOException(
+              "Expected " + byteCount + " bytes of pixels, but inflated " + inflated);
+        }
+        inflated += read;
+      }
+      bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(pixels, 0, byteCount));
+    } catch (DataFormatException e) {
+      throw new IOException("Failed to inflate pixels", e);
+    } finally {
+      inflater.end();
+      arrayPool.put(compressed);
+      arrayPool.put(pixels);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+
+/**
+ * A {@link DiskCache} that keeps files written by {@link RawBitmapEncoder} in a separate
+ * {@link DiskCache} so that raw {@link android.graphics.Bitmap}s, which are much larger than
+ * encoded images, have their own size budget and can't evict everything else from the main
+ * {@link DiskCache}.
+ *
+ * <p>Every entry is written to the main {@link DiskCache}. Entries that turn out to be raw
+ * {@link android.graphics.Bitmap}s are then moved into the raw {@link DiskCache}, so both caches
+ * must be on the same volume. Entries that can't be moved are dropped.
+ */
+public final class RawBitmapDiskCache implements DiskCache, DiskCache.Batchable {
+  private final DiskCache diskCache;
+  private final DiskCache rawDiskCache;
+
+  RawBitmapDiskCache(@NonNull DiskCache diskCache, @NonNull DiskCache rawDiskCache) {
+    this.diskCache = diskCache;
+    this.rawDiskCache = rawDiskCache;
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    File result = diskCache.get(key);
+    return result != null ? result : rawDiskCache.get(key);
+  }
+
+  @Override
+  public void put(final Key key, final Writer writer) {
+    if (rawDiskCache.get(key) != null) {
+      return;
+    }
+    diskCache.put(key, new Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        if (!writer.write(file)) {
+          return false;
+        }
+        if (!RawBitmapFormat.isRawBitmap(file)) {
+          return true;
+        }
+        moveToRawDiskCache(key, file);
+        return false;
+      }
+    });
+  }
+
+  @Synthetic
+  void moveToRawDiskCache(Key key, final File file) {
+    rawDiskCache.put(key, new Writer() {
+      @Override
+      public boolean write(@NonNull File rawFile) {
+        return file.renameTo(rawFile);
+      }
+    });
+  }
+
+  @Override
+  public void delete(Key key) {
+    diskCache.delete(key);
+    rawDiskCache.delete(key);
+  }
+
+  @Override
+  public void clear() {
+    diskCache.clear();
+    rawDiskCache.clear();
+  }
+
+  @Override
+  public void beginBatch() {
+    if (diskCache instanceof Batchable) {
+      ((Batchable) diskCache).beginBatch();
+    }
+    if (rawDiskCache instanceof Batchable) {
+      ((Batchable) rawDiskCache).beginBatch();
+    }
+  }
+
+  @Override
+  public void endBatch() {
+    if (diskCache instanceof Batchable) {
+      ((Batchable) diskCache).endBatch();
+    }
+    if (rawDiskCache instanceof Batchable) {
+      ((Batchable) rawDiskCache).endBatch();
+    }
+  }
+
+  /**
+   * Creates {@link RawBitmapDiskCache}s from the {@link DiskCache.Factory}s for the main and raw
+   * caches.
+   */
+  public static final class Factory implements DiskCache.Factory {
+    private final DiskCache.Factory diskCacheFactory;
+    private final DiskCache.Factory rawDiskCacheFactory;
+
+    public Factory(
+        @NonNull DiskCache.Factory diskCacheFactory,
+        @NonNull DiskCache.Factory rawDiskCacheFactory) {
+      this.diskCacheFactory = diskCacheFactory;
+      this.rawDiskCacheFactory = rawDiskCacheFactory;
+    }
+
+    @Nullable
+    @Override
+    public DiskCache build() {
+      DiskCache diskCache = diskCacheFactory.build();
+      DiskCache rawDiskCache = rawDiskCacheFactory.build();
+      if (diskCache == null || rawDiskCache == null) {
+        return diskCache;
+      }
+      return new RawBitmapDiskCache(diskCache, rawDiskCache);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.data.BufferedOutputStream;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.pool.GlideTrace;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * An {@link ResourceEncoder} that writes small {@link Bitmap}s as their raw pixels so that
+ * {@link RawBitmapDecoder} can read them back by copying the pixels into a {@link Bitmap} rather
+ * than decoding them.
+ *
+ * <p>Raw pixels are several times larger than the same {@link Bitmap} written as a JPEG or PNG,
+ * so only {@link Bitmap}s whose pixels fit in {@link #MAX_BYTE_COUNT} bytes and whose
+ * {@link Bitmap.Config} can be copied are written raw. All other {@link Bitmap}s are written with
+ * the given fallback {@link ResourceEncoder}.
+ *
+ * @see RawBitmapDiskCache
+ */
+public class RawBitmapEncoder implements ResourceEncoder<Bitmap> {
+  /**
+   * The largest number of bytes of pixels a {@link Bitmap} can have and still be written raw.
+   *
+   * <p>Defaults to 512kb, enough for a 362x362 {@link Bitmap.Config#ARGB_8888} {@link Bitmap}.
+   */
+  public static final Option<Integer> MAX_BYTE_COUNT = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.RawBitmapEncoder.MaxByteCount", 512 * 1024);
+
+  /**
+   * Set to {@code true} to deflate raw pixels before they're written, which makes files smaller,
+   * especially for {@link Bitmap}s with large areas of a single color, at the cost of inflating
+   * them when they're read.
+   *
+   * <p>Defaults to {@code false}.
+   */
+  public static final Option<Boolean> COMPRESS = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.RawBitmapEncoder.Compress", false);
+
+  private static final String TAG = "RawBitmapEncoder";
+  private final ArrayPool arrayPool;
+  private final ResourceEncoder<Bitmap> fallback;
+
+  public RawBitmapEncoder(
+      @NonNull ArrayPool arrayPool, @NonNull ResourceEncoder<Bitmap> fallback) {
+    this.arrayPool = arrayPool;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public boolean encode(@NonNull Resource<Bitmap> resource, @NonNull File file,
+      @NonNull Options options) {
+    Bitmap bitmap = resource.get();
+    int byteCount = bitmap.getRowBytes() * bitmap.getHeight();
+    if (!RawBitmapFormat.isSupported(bitmap.getConfig())
+        || byteCount > options.get(MAX_BYTE_COUNT)) {
+      return fallback.encode(resource, file, options);
+    }
+    GlideTrace.beginSectionFormat(
+        "encode raw: [%dx%d] %s", bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+    long start = LogTime.getLogTime();
+    boolean isCompressed = options.get(COMPRESS);
+    byte[] pixels = arrayPool.get(byteCount, byte[].class);
+    Deflater deflater = null;
+    OutputStream os = null;
+    boolean success = false;
+    try {
+      bitmap.copyPixelsToBuffer(ByteBuffer.wrap(pixels, 0, byteCount));
+      os = new BufferedOutputStream(new FileOutputStream(file), arrayPool);
+      os.write(RawBitmapFormat.writeHeader(bitmap, byteCount, isCompressed));
+      if (isCompressed) {
+        deflater = new Deflater(Deflater.BEST_SPEED);
+        DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(os, deflater);
+        deflaterOutputStream.write(pixels, 0, byteCount);
+        deflaterOutputStream.finish();
+      } else {
+        os.write(pixels, 0, byteCount);
+      }
+      os.close();
+      success = true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to encode Bitmap", e);
+      }
+    } finally {
+      if (os != null) {
+        try {
+          os.close();
+        } catch (IOException e) {
+          // Do nothing.
+        }
+      }
+      if (deflater != null) {
+        deflater.end();
+      }
+      arrayPool.put(pixels);
+      GlideTrace.endSection();
+    }
+
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Wrote raw Bitmap of size " + byteCount + " to " + file.length() + " bytes in "
+          + LogTime.getElapsedMillis(start) + ", compressed: " + isCompressed);
+    }
+    return success;
+  }
+
+  @NonNull
+  @Override
+  public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
+    return EncodeStrategy.TRANSFORMED;
+  }
+}
@@ -0,0 +1,160 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The layout of the files written by {@link RawBitmapEncoder} and read by
+ * {@link RawBitmapDecoder}.
+ *
+ * <p>Files start with a fixed size, big endian header:
+ *
+ * <pre>
+ *   int   magic
+ *   int   width
+ *   int   height
+ *   byte  config
+ *   byte  flags
+ *   short reserved
+ *   int   pixel byte count
+ * </pre>
+ *
+ * <p>followed by the {@link Bitmap}'s pixels as returned by
+ * {@link Bitmap#copyPixelsToBuffer(java.nio.Buffer)}, deflated if {@link #FLAG_COMPRESSED} is
+ * set.
+ */
+final class RawBitmapFormat {
+  static final int HEADER_SIZE = 20;
+  // "GRAW", which isn't the start of any format the other decoders recognize.
+  private static final int MAGIC = 0x47524157;
+  private static final int FLAG_PREMULTIPLIED = 1;
+  private static final int FLAG_HAS_ALPHA = 1 << 1;
+  private static final int FLAG_COMPRESSED = 1 << 2;
+  // Indexes are written to files, so configs can only ever be added to the end.
+  private static final Config[] CONFIGS = {Config.ALPHA_8, Config.RGB_565, Config.ARGB_8888};
+
+  private RawBitmapFormat() {
+    // Utility class.
+  }
+
+  static boolean isSupported(@Nullable Config config) {
+    return indexOf(config) != -1;
+  }
+
+  static boolean isRawBitmap(@NonNull ByteBuffer buffer) {
+    return buffer.remaining() >= HEADER_SIZE && buffer.getInt(buffer.position()) == MAGIC;
+  }
+
+  static boolean isRawBitmap(@NonNull File file) {
+    InputStream is = null;
+    try {
+      is = new FileInputStream(file);
+      int magic = 0;
+      for (int i = 0; i < 4; i++) {
+        int read = is.read();
+        if (read == -1) {
+          return false;
+        }
+        magic = magic << 8 | read;
+      }
+      return magic == MAGIC;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      if (is != null) {
+        try {
+          is.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+    }
+  }
+
+  @NonNull
+  static byte[] writeHeader(@NonNull Bitmap bitmap, int byteCount, boolean isCompressed) {
+    boolean isPremultiplied =
+        Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1 || bitmap.isPremultiplied();
+    int flags = (isPremultiplied ? FLAG_PREMULTIPLIED : 0)
+        | (bitmap.hasAlpha() ? FLAG_HAS_ALPHA : 0)
+        | (isCompressed ? FLAG_COMPRESSED : 0);
+    return ByteBuffer.allocate(HEADER_SIZE)
+        .putInt(MAGIC)
+        .putInt(bitmap.getWidth())
+        .putInt(bitmap.getHeight())
+        .put((byte) indexOf(bitmap.getConfig()))
+        .put((byte) flags)
+        .putShort((short) 0)
+        .putInt(byteCount)
+        .array();
+  }
+
+  /**
+   * Reads the header at the given buffer's position and leaves the buffer positioned at the start
+   * of the pixels.
+   */
+  @NonNull
+  static Header readHeader(@NonNull ByteBuffer buffer) throws IOException {
+    if (!isRawBitmap(buffer)) {
+      throw new IOException("Not a raw Bitmap");
+    }
+    buffer.getInt();
+    int width = buffer.getInt();
+    int height = buffer.getInt();
+    int configIndex = buffer.get();
+    int flags = buffer.get();
+    buffer.getShort();
+    int byteCount = buffer.getInt();
+    if (width <= 0 || height <= 0 || byteCount <= 0 || configIndex < 0
+        || configIndex >= CONFIGS.length) {
+      throw new IOException("Invalid raw Bitmap header, width: " + width + ", height: " + height
+          + ", config: " + configIndex + ", byte count: " + byteCount);
+    }
+    return new Header(width, height, CONFIGS[configIndex], flags, byteCount);
+  }
+
+  private static int indexOf(@Nullable Config config) {
+    for (int i = 0; i < CONFIGS.length; i++) {
+      if (CONFIGS[i] == config) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static final class Header {
+    final int width;
+    final int height;
+    @NonNull final Config config;
+    final int byteCount;
+    private final int flags;
+
+    Header(int width, int height, @NonNull Config config, int flags, int byteCount) {
+      this.width = width;
+      this.height = height;
+      this.config = config;
+      this.flags = flags;
+      this.byteCount = byteCount;
+    }
+
+    boolean isPremultiplied() {
+      return (flags & FLAG_PREMULTIPLIED) != 0;
+    }
+
+    boolean hasAlpha() {
+      return (flags & FLAG_HAS_ALPHA) != 0;
+    }
+
+    boolean isCompressed() {
+      return (flags & FLAG_COMPRESSED) != 0;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+/**
+ * The filters that can be used by {@link Downsampler} to scale an image after any power of two
+ * downsampling instead of relying on {@link android.graphics.BitmapFactory}'s density scaling.
+ *
+ * @see Downsampler#RESAMPLE_KERNEL
+ */
+public enum ResampleKernel {
+  /**
+   * Averages the source pixels covered by each output pixel, weighted by how much of each source
+   * pixel is covered.
+   *
+   * <p>Avoids the aliasing a bilinear filter produces for large reductions and never introduces
+   * halos around sharp edges.
+   */
+  AREA,
+  /**
+   * A three lobe Lanczos filter, sharper than {@link #AREA} but more expensive and may add faint
+   * halos around sharp edges.
+   */
+  LANCZOS3
+}
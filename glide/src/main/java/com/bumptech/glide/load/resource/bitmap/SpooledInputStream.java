@@ -0,0 +1,264 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link InputStream} with an unbounded mark that retains the data read since the mark in a
+ * chain of fixed size segments obtained from an {@link ArrayPool}, spilling anything past a
+ * configurable number of bytes to a temporary file.
+ *
+ * <p>Unlike {@link RecyclableBufferedInputStream}, the retained data is never copied into a single
+ * growing buffer, the amount of heap used is bounded by the memory limit regardless of how far
+ * past the mark callers read, and reads aren't synchronized. Instances are not thread safe.
+ *
+ * <p>As in {@link RecyclableBufferedInputStream}, {@link #fixMarkLimit()} stops data from being
+ * retained once the caller knows it will no longer need to rewind past what was already read.
+ */
+final class SpooledInputStream extends InputStream {
+  private static final String TAG = "SpooledInputStream";
+  private static final int SEGMENT_SIZE = ArrayPool.STANDARD_BUFFER_SIZE_BYTES;
+
+  private final InputStream in;
+  private final ArrayPool byteArrayPool;
+  @Nullable
+  private final File spillDirectory;
+  private final long maxSegmentBytes;
+  private final List<byte[]> segments = new ArrayList<>();
+  private final byte[] single = new byte[1];
+
+  @Nullable
+  private File spillFile;
+  @Nullable
+  private RandomAccessFile spill;
+  private long spillPosition = -1;
+  /** The position in the stream of the first retained byte. */
+  private long spoolStart;
+  /** The position in the stream after the last retained byte. */
+  private long spoolEnd;
+  /** The current position in the stream. */
+  private long pos;
+  private long markPos = -1;
+  private boolean isMarkLimitFixed;
+
+  /**
+   * @param in The stream to read from.
+   * @param byteArrayPool The pool to obtain segments from.
+   * @param spillDirectory The directory to create the spill file in, or {@code null} to use the
+   *                       default temporary directory.
+   * @param memoryLimitBytes The maximum number of bytes to retain in memory, rounded up to a whole
+   *                         number of segments.
+   */
+  SpooledInputStream(@NonNull InputStream in, @NonNull ArrayPool byteArrayPool,
+      @Nullable File spillDirectory, int memoryLimitBytes) {
+    this.in = in;
+    this.byteArrayPool = byteArrayPool;
+    this.spillDirectory = spillDirectory;
+    int segmentCount = Math.max(1, (memoryLimitBytes + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+    maxSegmentBytes = (long) segmentCount * SEGMENT_SIZE;
+  }
+
+  /**
+   * Stops retaining data that's read past what's already been retained. Calling {@link #reset()}
+   * after reading past the retained data will throw.
+   */
+  void fixMarkLimit() {
+    isMarkLimitFixed = true;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  /**
+   * Marks the current position, the given read limit is ignored because the mark is unbounded.
+   */
+  @Override
+  public void mark(int readLimit) {
+    if (pos >= spoolEnd) {
+      // Nothing retained is needed to return here, so start over.
+      clear();
+    }
+    markPos = pos;
+  }
+
+  @Override
+  public void reset() throws IOException {
+    if (markPos == -1) {
+      throw new IOException("Mark has been invalidated, pos: " + pos + " markPos: " + markPos);
+    }
+    pos = markPos;
+  }
+
+  @Override
+  public int available() throws IOException {
+    long retained = spoolEnd - pos;
+    return (int) Math.min(Integer.MAX_VALUE, retained + in.available());
+  }
+
+  @Override
+  public int read() throws IOException {
+    int read = read(single, 0, 1);
+    return read == -1 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (pos < spoolEnd) {
+      int toRead = (int) Math.min(length, spoolEnd - pos);
+      readRetained(pos - spoolStart, buffer, offset, toRead);
+      pos += toRead;
+      return toRead;
+    }
+    int read = in.read(buffer, offset, length);
+    if (read == -1) {
+      return -1;
+    }
+    if (markPos != -1) {
+      if (isMarkLimitFixed) {
+        markPos = -1;
+        clear();
+      } else {
+        retain(buffer, offset, read);
+        spoolEnd += read;
+      }
+    }
+    pos += read;
+    return read;
+  }
+
+  @Override
+  public long skip(long byteCount) throws IOException {
+    if (byteCount <= 0) {
+      return 0;
+    }
+    if (pos < spoolEnd) {
+      long skipped = Math.min(byteCount, spoolEnd - pos);
+      pos += skipped;
+      return skipped;
+    }
+    if (markPos == -1 || isMarkLimitFixed) {
+      markPos = -1;
+      clear();
+      long skipped = in.skip(byteCount);
+      pos += skipped;
+      return skipped;
+    }
+    // Skipped data still has to be retained so that we can rewind over it.
+    byte[] buffer = byteArrayPool.get(SEGMENT_SIZE, byte[].class);
+    try {
+      int read = read(buffer, 0, (int) Math.min(SEGMENT_SIZE, byteCount));
+      return read == -1 ? 0 : read;
+    } finally {
+      byteArrayPool.put(buffer);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    release();
+    in.close();
+  }
+
+  /**
+   * Returns any segments to the pool and deletes the spill file, if one was created.
+   */
+  void release() {
+    markPos = -1;
+    clear();
+  }
+
+  private void retain(byte[] buffer, int offset, int length) throws IOException {
+    long retainedOffset = spoolEnd - spoolStart;
+    while (length > 0 && retainedOffset < maxSegmentBytes) {
+      int segmentIndex = (int) (retainedOffset / SEGMENT_SIZE);
+      int segmentOffset = (int) (retainedOffset % SEGMENT_SIZE);
+      if (segmentIndex == segments.size()) {
+        segments.add(byteArrayPool.get(SEGMENT_SIZE, byte[].class));
+      }
+      int toCopy = Math.min(length, SEGMENT_SIZE - segmentOffset);
+      System.arraycopy(buffer, offset, segments.get(segmentIndex), segmentOffset, toCopy);
+      offset += toCopy;
+      length -= toCopy;
+      retainedOffset += toCopy;
+    }
+    if (length > 0) {
+      RandomAccessFile file = getSpill();
+      seekSpill(file, retainedOffset - maxSegmentBytes);
+      file.write(buffer, offset, length);
+      spillPosition += length;
+    }
+  }
+
+  private void readRetained(long retainedOffset, byte[] buffer, int offset, int length)
+      throws IOException {
+    while (length > 0 && retainedOffset < maxSegmentBytes) {
+      int segmentIndex = (int) (retainedOffset / SEGMENT_SIZE);
+      int segmentOffset = (int) (retainedOffset % SEGMENT_SIZE);
+      int toCopy = Math.min(length, SEGMENT_SIZE - segmentOffset);
+      System.arraycopy(segments.get(segmentIndex), segmentOffset, buffer, offset, toCopy);
+      offset += toCopy;
+      length -= toCopy;
+      retainedOffset += toCopy;
+    }
+    if (length > 0) {
+      RandomAccessFile file = getSpill();
+      seekSpill(file, retainedOffset - maxSegmentBytes);
+      file.readFully(buffer, offset, length);
+      spillPosition += length;
+    }
+  }
+
+  private void seekSpill(RandomAccessFile file, long position) throws IOException {
+    // Avoid a system call when reading or writing sequentially.
+    if (spillPosition != position) {
+      file.seek(position);
+      spillPosition = position;
+    }
+  }
+
+  private RandomAccessFile getSpill() throws IOException {
+    if (spill == null) {
+      spillFile = File.createTempFile("glide_spool", null, spillDirectory);
+      spill = new RandomAccessFile(spillFile, "rw");
+      spillPosition = 0;
+    }
+    return spill;
+  }
+
+  private void clear() {
+    for (int i = 0, size = segments.size(); i < size; i++) {
+      byteArrayPool.put(segments.get(i));
+    }
+    segments.clear();
+    spoolStart = pos;
+    spoolEnd = pos;
+    if (spill != null) {
+      try {
+        spill.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+      spill = null;
+    }
+    if (spillFile != null) {
+      if (!spillFile.delete() && Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to delete spill file: " + spillFile);
+      }
+      spillFile = null;
+    }
+    spillPosition = -1;
+  }
+}
@@ -2,6 +2,7 @@ package com.bumptech.glide.load.resource.bitmap;
 
 import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.engine.Resource;
@@ -9,6 +10,8 @@ import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.util.ExceptionCatchingInputStream;
 import com.bumptech.glide.util.MarkEnforcingInputStream;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -19,10 +22,23 @@ public class StreamBitmapDecoder implements ResourceDecoder<InputStream, Bitmap>
 
   private final Downsampler downsampler;
   private final ArrayPool byteArrayPool;
+  @Nullable
+  private final File spoolDirectory;
 
   public StreamBitmapDecoder(Downsampler downsampler, ArrayPool byteArrayPool) {
+    this(downsampler, byteArrayPool, /*spoolDirectory=*/ null);
+  }
+
+  /**
+   * @param spoolDirectory The directory to create temporary files in when
+   *                       {@link Downsampler#SPOOL_STREAMS} is enabled, or {@code null} to use the
+   *                       default temporary directory.
+   */
+  public StreamBitmapDecoder(Downsampler downsampler, ArrayPool byteArrayPool,
+      @Nullable File spoolDirectory) {
     this.downsampler = downsampler;
     this.byteArrayPool = byteArrayPool;
+    this.spoolDirectory = spoolDirectory;
   }
 
   @Override
@@ -34,6 +50,9 @@ public class StreamBitmapDecoder implements ResourceDecoder<InputStream, Bitmap>
   public Resource<Bitmap> decode(@NonNull InputStream source, int width, int height,
       @NonNull Options options)
       throws IOException {
+    if (options.get(Downsampler.SPOOL_STREAMS)) {
+      return decodeSpooled(source, width, height, options);
+    }
 
     // Use to fix the mark limit to avoid allocating buffers that fit entire images.
     final RecyclableBufferedInputStream bufferedStream;
@@ -68,6 +87,27 @@ public class StreamBitmapDecoder implements ResourceDecoder<InputStream, Bitmap>
     }
   }
 
+  private Resource<Bitmap> decodeSpooled(InputStream source, int width, int height,
+      Options options) throws IOException {
+    if (source instanceof RecyclableBufferedInputStream) {
+      // The spooled stream retains everything we need to rewind over, so there's no need for the
+      // buffer in the given stream to grow while we read.
+      ((RecyclableBufferedInputStream) source).fixMarkLimit();
+    }
+    int memoryLimitBytes = options.get(Downsampler.SPOOL_MEMORY_LIMIT_BYTES);
+    SpooledInputStream spooledStream =
+        new SpooledInputStream(source, byteArrayPool, spoolDirectory, memoryLimitBytes);
+    ExceptionCatchingInputStream exceptionStream =
+        ExceptionCatchingInputStream.obtain(spooledStream);
+    SpooledCallbacks callbacks = new SpooledCallbacks(spooledStream, exceptionStream);
+    try {
+      return downsampler.decode(exceptionStream, width, height, options, callbacks);
+    } finally {
+      exceptionStream.release();
+      spooledStream.release();
+    }
+  }
+
   /**
    * Callbacks that provide reasonable handling for streams that may be unbuffered or insufficiently
    * buffered or that may throw exceptions during decoding.
@@ -92,17 +132,49 @@ public class StreamBitmapDecoder implements ResourceDecoder<InputStream, Bitmap>
 
     @Override
     public void onDecodeComplete(BitmapPool bitmapPool, Bitmap downsampled) throws IOException {
-      // BitmapFactory swallows exceptions during decodes and in some cases when inBitmap is non
-      // null, may catch and log a stack trace but still return a non null bitmap. To avoid
-      // displaying partially decoded bitmaps, we catch exceptions reading from the stream in our
-      // ExceptionCatchingInputStream and throw them here.
-      IOException streamException = exceptionStream.getException();
-      if (streamException != null) {
-        if (downsampled != null) {
-          bitmapPool.put(downsampled);
-        }
-        throw streamException;
+      throwIfReadFailed(exceptionStream, bitmapPool, downsampled);
+    }
+  }
+
+  /**
+   * Callbacks for {@link SpooledInputStream}s that may throw exceptions during decoding.
+   */
+  static final class SpooledCallbacks implements Downsampler.DecodeCallbacks {
+    private final SpooledInputStream spooledStream;
+    private final ExceptionCatchingInputStream exceptionStream;
+
+    SpooledCallbacks(SpooledInputStream spooledStream,
+        ExceptionCatchingInputStream exceptionStream) {
+      this.spooledStream = spooledStream;
+      this.exceptionStream = exceptionStream;
+    }
+
+    @Override
+    public void onObtainBounds() {
+      // Once we've read the image header, there's no need to write the rest of the image to the
+      // spool.
+      spooledStream.fixMarkLimit();
+    }
+
+    @Override
+    public void onDecodeComplete(BitmapPool bitmapPool, Bitmap downsampled) throws IOException {
+      throwIfReadFailed(exceptionStream, bitmapPool, downsampled);
+    }
+  }
+
+  @Synthetic
+  static void throwIfReadFailed(ExceptionCatchingInputStream exceptionStream,
+      BitmapPool bitmapPool, Bitmap downsampled) throws IOException {
+    // BitmapFactory swallows exceptions during decodes and in some cases when inBitmap is non
+    // null, may catch and log a stack trace but still return a non null bitmap. To avoid
+    // displaying partially decoded bitmaps, we catch exceptions reading from the stream in our
+    // ExceptionCatchingInputStream and throw them here.
+    IOException streamException = exceptionStream.getException();
+    if (streamException != null) {
+      if (downsampled != null) {
+        bitmapPool.put(downsampled);
       }
+      throw streamException;
     }
   }
 }
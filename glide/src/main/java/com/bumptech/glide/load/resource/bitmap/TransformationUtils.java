@@ -14,6 +14,7 @@ import android.graphics.Shader;
 import android.media.ExifInterface;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 import com.bumptech.glide.load.Transformation;
@@ -90,6 +91,10 @@ public final class TransformationUtils {
       MODELS_REQUIRING_BITMAP_LOCK.contains(Build.MODEL)
           ? new ReentrantLock() : new NoLock();
 
+  // Drawing on the devices that need the lock above is serialized, so avoid Canvas there.
+  private static volatile boolean isPixelResamplerEnabled =
+      MODELS_REQUIRING_BITMAP_LOCK.contains(Build.MODEL);
+
   static {
     CIRCLE_CROP_BITMAP_PAINT = new Paint(CIRCLE_CROP_PAINT_FLAGS);
     CIRCLE_CROP_BITMAP_PAINT.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
@@ -104,6 +109,30 @@ public final class TransformationUtils {
     return BITMAP_DRAWABLE_LOCK;
   }
 
+  /**
+   * Sets whether the transformations in this class resample pixels in Java instead of drawing
+   * with a {@link Canvas}.
+   *
+   * <p>Resampled transformations don't hold the lock returned by {@link #getBitmapDrawableLock()},
+   * so they can run in parallel on devices where {@link Canvas} drawing must be serialized. They're
+   * usually slower than {@link Canvas} drawing on a single thread, so they're only enabled by
+   * default on those devices. Transformations of {@link Bitmap}s in configs other than
+   * {@link Config#ARGB_8888} and {@link Config#RGB_565} always use a {@link Canvas}.
+   */
+  public static void setPixelResamplerEnabled(boolean isEnabled) {
+    isPixelResamplerEnabled = isEnabled;
+  }
+
+  /**
+   * Returns {@code true} if the transformations in this class resample pixels in Java instead of
+   * drawing with a {@link Canvas}.
+   *
+   * @see #setPixelResamplerEnabled(boolean)
+   */
+  public static boolean isPixelResamplerEnabled() {
+    return isPixelResamplerEnabled;
+  }
+
   /**
    * A potentially expensive operation to crop the given Bitmap so that it fills the given
    * dimensions. This operation is significantly less expensive in terms of memory if a mutable
@@ -384,13 +413,21 @@ public final class TransformationUtils {
 
     RectF destRect = new RectF(left, top, left + scaledWidth, top + scaledHeight);
 
-    // Alpha is required for this transformation.
-    Bitmap toTransform = getAlphaSafeBitmap(pool, inBitmap);
-
     Config outConfig = getAlphaSafeConfig(inBitmap);
     Bitmap result = pool.get(destMinEdge, destMinEdge, outConfig);
     result.setHasAlpha(true);
 
+    if (canUsePixelResampler(inBitmap, result)) {
+      Matrix matrix = new Matrix();
+      matrix.setScale(maxScale, maxScale);
+      matrix.postTranslate(left, top);
+      PixelResampler.draw(inBitmap, result, matrix, 0 /*roundingRadius*/, true /*isCircle*/);
+      return result;
+    }
+
+    // Alpha is required for this transformation.
+    Bitmap toTransform = getAlphaSafeBitmap(pool, inBitmap);
+
     BITMAP_DRAWABLE_LOCK.lock();
     try {
       Canvas canvas = new Canvas(result);
@@ -412,10 +449,10 @@ public final class TransformationUtils {
 
   private static Bitmap getAlphaSafeBitmap(
       @NonNull BitmapPool pool, @NonNull Bitmap maybeAlphaSafe) {
-    Config safeConfig = getAlphaSafeConfig(maybeAlphaSafe);
-    if (safeConfig.equals(maybeAlphaSafe.getConfig())) {
+    if (isAlphaSafe(maybeAlphaSafe)) {
       return maybeAlphaSafe;
     }
+    Config safeConfig = getAlphaSafeConfig(maybeAlphaSafe);
 
     Bitmap argbBitmap =
         pool.get(maybeAlphaSafe.getWidth(), maybeAlphaSafe.getHeight(), safeConfig);
@@ -426,6 +463,10 @@ public final class TransformationUtils {
     return argbBitmap;
   }
 
+  static boolean isAlphaSafe(@NonNull Bitmap bitmap) {
+    return getAlphaSafeConfig(bitmap).equals(bitmap.getConfig());
+  }
+
   @NonNull
   private static Config getAlphaSafeConfig(@NonNull Bitmap inBitmap) {
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -480,11 +521,16 @@ public final class TransformationUtils {
 
     // Alpha is required for this transformation.
     Config safeConfig = getAlphaSafeConfig(inBitmap);
-    Bitmap toTransform = getAlphaSafeBitmap(pool, inBitmap);
-    Bitmap result = pool.get(toTransform.getWidth(), toTransform.getHeight(), safeConfig);
-
+    Bitmap result = pool.get(inBitmap.getWidth(), inBitmap.getHeight(), safeConfig);
     result.setHasAlpha(true);
 
+    if (canUsePixelResampler(inBitmap, result)) {
+      PixelResampler.draw(inBitmap, result, new Matrix(), roundingRadius, false /*isCircle*/);
+      return result;
+    }
+
+    Bitmap toTransform = getAlphaSafeBitmap(pool, inBitmap);
+
     BitmapShader shader = new BitmapShader(toTransform, Shader.TileMode.CLAMP,
         Shader.TileMode.CLAMP);
     Paint paint = new Paint();
@@ -508,11 +554,72 @@ public final class TransformationUtils {
     return result;
   }
 
+  /**
+   * Draws the given Bitmap into a Bitmap of the given dimensions in a single pass using the given
+   * matrix, optionally clipping the result to rounded corners or a circle.
+   *
+   * <p>If the result is clipped, the given Bitmap must have an alpha safe config.
+   *
+   * @param roundingRadius The corner radius to clip to, or 0 to avoid rounding the corners.
+   * @param isCircle {@code true} to clip the result to a circle with a diameter of {@code width}.
+   */
+  static Bitmap drawFused(@NonNull BitmapPool pool, @NonNull Bitmap inBitmap, Matrix matrix,
+      int width, int height, int roundingRadius, boolean isCircle) {
+    boolean isClipped = isCircle || roundingRadius > 0;
+    Config config = isClipped ? getAlphaSafeConfig(inBitmap) : getNonNullConfig(inBitmap);
+    Bitmap result = pool.get(width, height, config);
+    // Clipping adds transparent pixels, otherwise keep the alpha setting of the Bitmap we were
+    // given.
+    result.setHasAlpha(isClipped || inBitmap.hasAlpha());
+
+    if (canUsePixelResampler(inBitmap, result)) {
+      PixelResampler.draw(inBitmap, result, matrix, roundingRadius, isCircle);
+      return result;
+    }
+
+    BITMAP_DRAWABLE_LOCK.lock();
+    try {
+      Canvas canvas = new Canvas(result);
+      if (isClipped) {
+        BitmapShader shader =
+            new BitmapShader(inBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(matrix);
+        Paint paint = new Paint(CIRCLE_CROP_PAINT_FLAGS);
+        paint.setShader(shader);
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        if (isCircle) {
+          float radius = width / 2f;
+          canvas.drawCircle(radius, radius, radius, paint);
+        } else {
+          RectF rect = new RectF(0, 0, width, height);
+          canvas.drawRoundRect(rect, roundingRadius, roundingRadius, paint);
+        }
+      } else {
+        canvas.drawBitmap(inBitmap, matrix, DEFAULT_PAINT);
+      }
+      clear(canvas);
+    } finally {
+      BITMAP_DRAWABLE_LOCK.unlock();
+    }
+    return result;
+  }
+
   // Avoids warnings in M+.
   private static void clear(Canvas canvas) {
     canvas.setBitmap(null);
   }
 
+  private static boolean canUsePixelResampler(@NonNull Bitmap inBitmap, @NonNull Bitmap outBitmap) {
+    return isPixelResamplerEnabled
+        && isPixelResamplerConfig(inBitmap.getConfig())
+        && isPixelResamplerConfig(outBitmap.getConfig());
+  }
+
+  // Other configs either can't be read (HARDWARE) or would lose precision (RGBA_F16).
+  private static boolean isPixelResamplerConfig(@Nullable Config config) {
+    return config == Config.ARGB_8888 || config == Config.RGB_565;
+  }
+
   @NonNull
   private static Config getNonNullConfig(@NonNull Bitmap bitmap) {
     return bitmap.getConfig() != null ? bitmap.getConfig() : Config.ARGB_8888;
@@ -520,6 +627,10 @@ public final class TransformationUtils {
 
   private static void applyMatrix(@NonNull Bitmap inBitmap, @NonNull Bitmap targetBitmap,
       Matrix matrix) {
+    if (canUsePixelResampler(inBitmap, targetBitmap)) {
+      PixelResampler.draw(inBitmap, targetBitmap, matrix, 0 /*roundingRadius*/, false /*isCircle*/);
+      return;
+    }
     BITMAP_DRAWABLE_LOCK.lock();
     try {
       Canvas canvas = new Canvas(targetBitmap);
@@ -7,9 +7,9 @@ import com.bumptech.glide.load.ImageHeaderParser.ImageType;
 import com.bumptech.glide.load.ImageHeaderParserUtils;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.data.ByteChain;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -51,22 +51,20 @@ public class StreamGifDecoder implements ResourceDecoder<InputStream, GifDrawabl
     return byteBufferDecoder.decode(byteBuffer, width, height, options);
   }
 
-  private static byte[] inputStreamToBytes(InputStream is) {
-    final int bufferSize = 16384;
-    ByteArrayOutputStream buffer = new ByteArrayOutputStream(bufferSize);
+  private byte[] inputStreamToBytes(InputStream is) {
+    // Reading into pooled segments and copying once avoids the repeated copies and the
+    // intermediate arrays a growing ByteArrayOutputStream would allocate.
+    ByteChain chain = new ByteChain(byteArrayPool);
     try {
-      int nRead;
-      byte[] data = new byte[bufferSize];
-      while ((nRead = is.read(data)) != -1) {
-        buffer.write(data, 0, nRead);
-      }
-      buffer.flush();
+      chain.readFrom(is);
+      return chain.toByteArray();
     } catch (IOException e) {
       if (Log.isLoggable(TAG, Log.WARN)) {
         Log.w(TAG, "Error reading data from stream", e);
       }
       return null;
+    } finally {
+      chain.release();
     }
-    return buffer.toByteArray();
   }
 }
@@ -4,7 +4,9 @@ import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.ByteChain;
 import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.resource.bytes.BytesResource;
 import java.io.ByteArrayOutputStream;
 
@@ -17,22 +19,50 @@ import java.io.ByteArrayOutputStream;
 public class BitmapBytesTranscoder implements ResourceTranscoder<Bitmap, byte[]> {
   private final Bitmap.CompressFormat compressFormat;
   private final int quality;
+  @Nullable
+  private final ArrayPool byteArrayPool;
 
   public BitmapBytesTranscoder() {
     this(Bitmap.CompressFormat.JPEG, 100);
   }
 
+  /**
+   * Compresses into segments obtained from the given {@link ArrayPool} rather than into a growing
+   * array.
+   */
+  public BitmapBytesTranscoder(@NonNull ArrayPool byteArrayPool) {
+    this(Bitmap.CompressFormat.JPEG, 100, byteArrayPool);
+  }
+
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public BitmapBytesTranscoder(@NonNull Bitmap.CompressFormat compressFormat, int quality) {
+    this(compressFormat, quality, /*byteArrayPool=*/ null);
+  }
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public BitmapBytesTranscoder(@NonNull Bitmap.CompressFormat compressFormat, int quality,
+      @Nullable ArrayPool byteArrayPool) {
     this.compressFormat = compressFormat;
     this.quality = quality;
+    this.byteArrayPool = byteArrayPool;
   }
 
   @Nullable
   @Override
   public Resource<byte[]> transcode(@NonNull Resource<Bitmap> toTranscode,
       @NonNull Options options) {
+    if (byteArrayPool != null) {
+      ByteChain chain = new ByteChain(byteArrayPool);
+      try {
+        toTranscode.get().compress(compressFormat, quality, chain.asOutputStream());
+        toTranscode.recycle();
+        return new BytesResource(chain.toByteArray());
+      } finally {
+        chain.release();
+      }
+    }
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     toTranscode.get().compress(compressFormat, quality, os);
     toTranscode.recycle();
@@ -77,9 +77,23 @@ public class TranscoderRegistry {
     return transcodeClasses;
   }
 
+  /**
+   * Returns every class that at least one registered {@link ResourceTranscoder} transcodes to.
+   */
+  @NonNull
+  public synchronized List<Class<?>> getTranscodedClasses() {
+    List<Class<?>> result = new ArrayList<>();
+    for (Entry<?, ?> entry : transcoders) {
+      if (!result.contains(entry.toClass)) {
+        result.add(entry.toClass);
+      }
+    }
+    return result;
+  }
+
   private static final class Entry<Z, R> {
     private final Class<Z> fromClass;
-    private final Class<R> toClass;
+    @Synthetic final Class<R> toClass;
     @Synthetic final ResourceTranscoder<Z, R> transcoder;
 
     Entry(@NonNull Class<Z> fromClass, @NonNull Class<R> toClass,
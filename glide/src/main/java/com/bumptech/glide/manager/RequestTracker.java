@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
+import com.bumptech.glide.request.PausableRequest;
 import com.bumptech.glide.request.Request;
 import com.bumptech.glide.util.Util;
 import java.util.ArrayList;
@@ -92,13 +93,18 @@ public class RequestTracker {
   }
 
   /**
-   * Stops any in progress requests.
+   * Stops any in progress requests, either by clearing them or, depending on the
+   * {@link com.bumptech.glide.request.PauseMode}, by suspending their loads.
    */
   public void pauseRequests() {
     isPaused = true;
     for (Request request : Util.getSnapshot(requests)) {
       if (request.isRunning()) {
-        request.clear();
+        if (request instanceof PausableRequest) {
+          ((PausableRequest) request).pause();
+        } else {
+          request.clear();
+        }
         pendingRequests.add(request);
       }
     }
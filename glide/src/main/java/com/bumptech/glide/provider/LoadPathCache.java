@@ -1,18 +1,19 @@
 package com.bumptech.glide.provider;
 
 import android.support.annotation.Nullable;
-import android.support.v4.util.ArrayMap;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.engine.DecodePath;
 import com.bumptech.glide.load.engine.LoadPath;
 import com.bumptech.glide.load.resource.transcode.UnitTranscoder;
-import com.bumptech.glide.util.MultiClassKey;
+import com.bumptech.glide.util.MultiClassTable;
 import java.util.Collections;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Maintains a cache of data, resource, and transcode classes to available
  * {@link LoadPath}s capable of decoding with the requested types.
+ *
+ * <p>The cache is copied each time a {@link LoadPath} is added, which happens at most once per set
+ * of classes, so that reads don't need to lock or allocate.
  */
 public class LoadPathCache {
   private static final LoadPath<?, ?, ?> NO_PATHS_SIGNAL =
@@ -30,8 +31,8 @@ public class LoadPathCache {
                   /*listPool=*/ null)),
           /*listPool=*/ null);
 
-  private final ArrayMap<MultiClassKey, LoadPath<?, ?, ?>> cache = new ArrayMap<>();
-  private final AtomicReference<MultiClassKey> keyRef = new AtomicReference<>();
+  private volatile MultiClassTable<LoadPath<?, ?, ?>> cache =
+      new MultiClassTable.Builder<LoadPath<?, ?, ?>>().build();
 
   /**
    * Returns {@code} true if the given {@link LoadPath} is the signal object returned from
@@ -51,34 +52,19 @@ public class LoadPathCache {
   @Nullable
   public <Data, TResource, Transcode> LoadPath<Data, TResource, Transcode> get(
       Class<Data> dataClass, Class<TResource> resourceClass, Class<Transcode> transcodeClass) {
-    MultiClassKey key = getKey(dataClass, resourceClass, transcodeClass);
-    LoadPath<?, ?, ?> result;
-    synchronized (cache) {
-       result = cache.get(key);
-    }
-    keyRef.set(key);
-
-    return (LoadPath<Data, TResource, Transcode>) result;
+    return (LoadPath<Data, TResource, Transcode>)
+        cache.get(dataClass, resourceClass, transcodeClass);
   }
 
   public void put(
       Class<?> dataClass, Class<?> resourceClass,
       Class<?> transcodeClass,
       @Nullable LoadPath<?, ?, ?> loadPath) {
-    synchronized (cache) {
-      cache.put(
-          new MultiClassKey(dataClass, resourceClass, transcodeClass),
-          loadPath != null ? loadPath : NO_PATHS_SIGNAL);
-    }
-  }
-
-  private MultiClassKey getKey(Class<?> dataClass, Class<?> resourceClass,
-      Class<?> transcodeClass) {
-     MultiClassKey key = keyRef.getAndSet(null);
-    if (key == null) {
-      key = new MultiClassKey();
+    synchronized (this) {
+      cache = new MultiClassTable.Builder<>(cache)
+          .put(dataClass, resourceClass, transcodeClass,
+              loadPath != null ? loadPath : NO_PATHS_SIGNAL)
+          .build();
     }
-    key.set(dataClass, resourceClass, transcodeClass);
-    return key;
   }
 }
@@ -2,37 +2,26 @@ package com.bumptech.glide.provider;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.ArrayMap;
-import com.bumptech.glide.util.MultiClassKey;
+import com.bumptech.glide.util.MultiClassTable;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Maintains a cache of Model + Resource class to a set of registered resource classes that are
  * subclasses of the resource class that can be decoded from the model class.
+ *
+ * <p>The cache is copied each time a set of resource classes is added so that reads don't need to
+ * lock or allocate.
  */
 public class ModelToResourceClassCache {
-  private final AtomicReference<MultiClassKey> resourceClassKeyRef = new AtomicReference<>();
-  private final ArrayMap<MultiClassKey, List<Class<?>>> registeredResourceClassCache =
-      new ArrayMap<>();
+  private volatile MultiClassTable<List<Class<?>>> registeredResourceClassCache =
+      new MultiClassTable.Builder<List<Class<?>>>().build();
 
   @Nullable
   public List<Class<?>> get(
       @NonNull Class<?> modelClass,
       @NonNull Class<?> resourceClass,
       @NonNull Class<?> transcodeClass) {
-    MultiClassKey key = resourceClassKeyRef.getAndSet(null);
-    if (key == null) {
-      key = new MultiClassKey(modelClass, resourceClass, transcodeClass);
-    } else {
-      key.set(modelClass, resourceClass, transcodeClass);
-    }
-    final List<Class<?>> result;
-    synchronized (registeredResourceClassCache) {
-      result = registeredResourceClassCache.get(key);
-    }
-    resourceClassKeyRef.set(key);
-    return result;
+    return registeredResourceClassCache.get(modelClass, resourceClass, transcodeClass);
   }
 
   public void put(
@@ -40,15 +29,16 @@ public class ModelToResourceClassCache {
       @NonNull Class<?> resourceClass,
       @NonNull Class<?> transcodeClass,
       @NonNull List<Class<?>> resourceClasses) {
-    synchronized (registeredResourceClassCache) {
-      registeredResourceClassCache
-          .put(new MultiClassKey(modelClass, resourceClass, transcodeClass), resourceClasses);
+    synchronized (this) {
+      registeredResourceClassCache = new MultiClassTable.Builder<>(registeredResourceClassCache)
+          .put(modelClass, resourceClass, transcodeClass, resourceClasses)
+          .build();
     }
   }
 
   public void clear() {
-    synchronized (registeredResourceClassCache) {
-      registeredResourceClassCache.clear();
+    synchronized (this) {
+      registeredResourceClassCache = new MultiClassTable.Builder<List<Class<?>>>().build();
     }
   }
 }
@@ -71,6 +71,38 @@ public class ResourceDecoderRegistry {
     return result;
   }
 
+  /**
+   * Returns every data class that has at least one registered {@link ResourceDecoder}.
+   */
+  @NonNull
+  public synchronized List<Class<?>> getDataClasses() {
+    List<Class<?>> result = new ArrayList<>();
+    for (List<Entry<?, ?>> entries : decoders.values()) {
+      for (Entry<?, ?> entry : entries) {
+        if (!result.contains(entry.dataClass)) {
+          result.add(entry.dataClass);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns every resource class that at least one registered {@link ResourceDecoder} decodes to.
+   */
+  @NonNull
+  public synchronized List<Class<?>> getResourceClasses() {
+    List<Class<?>> result = new ArrayList<>();
+    for (List<Entry<?, ?>> entries : decoders.values()) {
+      for (Entry<?, ?> entry : entries) {
+        if (!result.contains(entry.resourceClass)) {
+          result.add(entry.resourceClass);
+        }
+      }
+    }
+    return result;
+  }
+
   public synchronized <T, R> void append(@NonNull String bucket,
       @NonNull ResourceDecoder<T, R> decoder,
       @NonNull Class<T> dataClass, @NonNull Class<R> resourceClass) {
@@ -98,7 +130,7 @@ public class ResourceDecoderRegistry {
   }
 
   private static class Entry<T, R> {
-    private final Class<T> dataClass;
+    @Synthetic final Class<T> dataClass;
     @Synthetic final Class<R> resourceClass;
     @Synthetic final ResourceDecoder<T, R> decoder;
 
@@ -68,6 +68,7 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
   private static final int USE_UNLIMITED_SOURCE_GENERATORS_POOL = 1 << 18;
   private static final int ONLY_RETRIEVE_FROM_CACHE = 1 << 19;
   private static final int USE_ANIMATION_POOL = 1 << 20;
+  private static final int FETCH_SOURCE_BEFORE_SIZE = 1 << 21;
 
   private int fields;
   private float sizeMultiplier = 1f;
@@ -105,6 +106,7 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
   private boolean onlyRetrieveFromCache;
   private boolean isScaleOnlyOrNoTransform = true;
   private boolean useAnimationPool;
+  private boolean fetchSourceBeforeSize;
 
 
   private static boolean isSet(int fields, int flag) {
@@ -188,6 +190,33 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
     return selfOrThrowIfLocked();
   }
 
+  /**
+   * If set to {@code true}, starts fetching source data into the data disk cache as soon as the
+   * request is started if the size of the {@link com.bumptech.glide.request.target.Target} isn't
+   * known yet, for example because a {@link android.view.View} hasn't been laid out.
+   *
+   * <p>Fetching source data doesn't depend on the size, so the fetch can run while the
+   * {@link com.bumptech.glide.request.target.Target} waits for layout. Once the size is known, the
+   * load waits for the fetch and then decodes from the disk cache, rather than starting to fetch
+   * only after layout.
+   *
+   * <p>Only has an effect if the {@link DiskCacheStrategy} both caches and decodes data for
+   * remote sources and {@link #onlyRetrieveFromCache(boolean)} isn't set. Defaults to
+   * {@code false}.
+   */
+  @NonNull
+  @CheckResult
+  public T fetchSourceBeforeSize(boolean flag) {
+    if (isAutoCloneEnabled) {
+      return clone().fetchSourceBeforeSize(flag);
+    }
+
+    fetchSourceBeforeSize = flag;
+    fields |= FETCH_SOURCE_BEFORE_SIZE;
+
+    return selfOrThrowIfLocked();
+  }
+
   /**
    *
    * If set to true, will only load an item if found in the cache, and will not fetch from source.
@@ -1140,6 +1169,9 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
     if (isSet(other.fields, USE_ANIMATION_POOL)) {
       useAnimationPool = other.useAnimationPool;
     }
+    if (isSet(other.fields, FETCH_SOURCE_BEFORE_SIZE)) {
+      fetchSourceBeforeSize = other.fetchSourceBeforeSize;
+    }
     if (isSet(other.fields, DISK_CACHE_STRATEGY)) {
       diskCacheStrategy = other.diskCacheStrategy;
     }
@@ -1240,6 +1272,7 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
           && isTransformationAllowed == other.isTransformationAllowed
           && useUnlimitedSourceGeneratorsPool == other.useUnlimitedSourceGeneratorsPool
           && onlyRetrieveFromCache == other.onlyRetrieveFromCache
+          && fetchSourceBeforeSize == other.fetchSourceBeforeSize
           && diskCacheStrategy.equals(other.diskCacheStrategy)
           && priority == other.priority
           && options.equals(other.options)
@@ -1267,6 +1300,7 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
     hashCode = Util.hashCode(isTransformationAllowed, hashCode);
     hashCode = Util.hashCode(useUnlimitedSourceGeneratorsPool, hashCode);
     hashCode = Util.hashCode(onlyRetrieveFromCache, hashCode);
+    hashCode = Util.hashCode(fetchSourceBeforeSize, hashCode);
     hashCode = Util.hashCode(diskCacheStrategy, hashCode);
     hashCode = Util.hashCode(priority, hashCode);
     hashCode = Util.hashCode(options, hashCode);
@@ -1453,6 +1487,12 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
     return onlyRetrieveFromCache;
   }
 
+  // get is just as clear.
+  @SuppressWarnings("PMD.BooleanGetMethodName")
+  public final boolean getFetchSourceBeforeSize() {
+    return fetchSourceBeforeSize;
+  }
+
   @SuppressWarnings("unchecked")
   private T self() {
     return (T) this;
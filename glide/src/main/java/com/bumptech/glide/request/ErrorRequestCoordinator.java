@@ -7,7 +7,7 @@ import android.support.annotation.Nullable;
  * if the single primary request fails.
  */
 public final class ErrorRequestCoordinator implements RequestCoordinator,
-    Request {
+    PausableRequest {
 
   @Nullable
   private final RequestCoordinator parent;
@@ -40,6 +40,22 @@ public final class ErrorRequestCoordinator implements RequestCoordinator,
     }
   }
 
+  @Override
+  public void pause() {
+    pause(primary);
+    if (error.isRunning()) {
+      pause(error);
+    }
+  }
+
+  private static void pause(Request request) {
+    if (request instanceof PausableRequest) {
+      ((PausableRequest) request).pause();
+    } else {
+      request.clear();
+    }
+  }
+
   @Override
   public boolean isRunning() {
     return primary.isFailed() ? error.isRunning() : primary.isRunning();
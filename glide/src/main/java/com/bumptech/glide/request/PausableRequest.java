@@ -0,0 +1,18 @@
+package com.bumptech.glide.request;
+
+/**
+ * A {@link Request} that can pause its load without cancelling it.
+ *
+ * <p>Requests that don't implement this interface are {@link Request#clear() cleared} instead
+ * when they're paused.
+ */
+public interface PausableRequest extends Request {
+
+  /**
+   * Similar to {@link #clear()} but may keep any in progress load so that it can continue when the
+   * request is restarted with {@link #begin()}.
+   *
+   * @see PauseMode
+   */
+  void pause();
+}
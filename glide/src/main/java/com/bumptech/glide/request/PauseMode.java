@@ -0,0 +1,35 @@
+package com.bumptech.glide.request;
+
+/**
+ * Controls what happens to loads that are already in progress when requests are paused, either
+ * because the {@link android.app.Activity} or {@link android.support.v4.app.Fragment} they were
+ * started for is stopped or because {@link com.bumptech.glide.RequestManager#pauseRequests()} was
+ * called.
+ *
+ * @see com.bumptech.glide.GlideBuilder#setPauseMode(PauseMode)
+ */
+public enum PauseMode {
+  /**
+   * Cancels in progress loads, the default.
+   *
+   * <p>Loads are started again from the beginning when requests are resumed, although any data or
+   * resources written to the disk cache before they were cancelled will be used.
+   */
+  CANCEL,
+
+  /**
+   * Suspends in progress loads without cancelling them.
+   *
+   * <p>Loads that haven't started are held back rather than run, loads that are running stop
+   * before they next decode and keep the data they've already fetched. When requests are resumed,
+   * loads pick up where they stopped, in their original priority order. Loads that are shared with
+   * requests that aren't paused keep running.
+   */
+  SUSPEND,
+
+  /**
+   * Like {@link #SUSPEND}, but lets loads keep fetching source data that will be written to the
+   * disk cache so that it's ready when requests are resumed. Loads still stop before they decode.
+   */
+  SUSPEND_EXCEPT_DISK_CACHE_WRITES,
+}
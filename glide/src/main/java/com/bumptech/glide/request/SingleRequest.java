@@ -4,7 +4,6 @@ import android.content.Context;
 import android.content.res.Resources.Theme;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.DrawableRes;
-import android.support.annotation.GuardedBy;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
@@ -12,6 +11,7 @@ import android.util.Log;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.engine.Resource;
@@ -20,6 +20,7 @@ import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
 import com.bumptech.glide.request.transition.TransitionFactory;
+import com.bumptech.glide.util.Executors;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
@@ -27,14 +28,22 @@ import com.bumptech.glide.util.pool.FactoryPools;
 import com.bumptech.glide.util.pool.StateVerifier;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A {@link Request} that loads a {@link Resource} into a given
  * {@link Target}.
  *
+ * <p>Requests don't lock. Their {@link Status} is held in a single atomic state word that each
+ * transition compares and sets, so results from a load that arrive on one thread after the request
+ * was cleared or paused on another thread are either ignored or released rather than delivered.
+ * Other fields are written before, and read after, the transition that publishes them. A request
+ * cleared on one thread while another thread is calling its callbacks is cleared by the thread
+ * calling callbacks once they've returned.
+ *
  * @param <R> The type of the resource that will be transcoded from the loaded resource.
  */
-public final class SingleRequest<R> implements Request,
+public final class SingleRequest<R> implements PausableRequest,
     SizeReadyCallback,
     ResourceCallback,
     FactoryPools.Poolable {
@@ -49,7 +58,6 @@ public final class SingleRequest<R> implements Request,
           return new SingleRequest<Object>();
         }
       });
-  private boolean isCallingCallbacks;
 
   private static final boolean IS_VERBOSE_LOGGABLE =
       Log.isLoggable(TAG, Log.VERBOSE);
@@ -79,11 +87,25 @@ public final class SingleRequest<R> implements Request,
      * Cleared by the user with a placeholder set, may be restarted.
      */
     CLEARED,
+    /**
+     * Paused while fetching media without cancelling the load, may be resumed.
+     */
+    PAUSED,
   }
 
+  // The low bits of the state hold the ordinal of the current Status.
+  private static final int STATUS_MASK = 0x7;
+  // Set while a thread is calling RequestListener and Target callbacks.
+  private static final int CALLING_CALLBACKS = 1 << 3;
+  // Set if the request was cleared on another thread while callbacks were being called, in which
+  // case the thread calling callbacks clears the request once they've returned.
+  private static final int CLEAR_AFTER_CALLBACKS = 1 << 4;
+  private static final Status[] STATUSES = Status.values();
+
   @Nullable
   private final String tag = IS_VERBOSE_LOGGABLE ? String.valueOf(super.hashCode()) : null;
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
+  private final AtomicInteger state = new AtomicInteger(Status.PENDING.ordinal());
 
   @Nullable
   private RequestListener<R> targetListener;
@@ -103,15 +125,21 @@ public final class SingleRequest<R> implements Request,
   private TransitionFactory<? super R> animationFactory;
   private Executor callbackExecutor;
   private Resource<R> resource;
-  private Engine.LoadStatus loadStatus;
+  @Nullable
+  private volatile Engine.LoadStatus loadStatus;
+  @Nullable
+  private volatile Thread callingCallbacksThread;
+  // Only used on the main thread.
+  @Nullable
+  private SourceFetch sourceFetch;
   private long startTime;
-  @GuardedBy("this")
-  private Status status;
   private Drawable errorDrawable;
   private Drawable placeholderDrawable;
   private Drawable fallbackDrawable;
   private int width;
   private int height;
+  // True if the width and height were changed by SizeBuckets and the load hasn't finished yet.
+  private boolean isSizeBucketed;
   @Nullable
   private RuntimeException requestOrigin;
 
@@ -161,7 +189,7 @@ public final class SingleRequest<R> implements Request,
     // just create, instances are reused with recycle/init
   }
 
-  private synchronized void init(
+  private void init(
       Context context,
       GlideContext glideContext,
       Object model,
@@ -192,7 +220,7 @@ public final class SingleRequest<R> implements Request,
     this.engine = engine;
     this.animationFactory = animationFactory;
     this.callbackExecutor = callbackExecutor;
-    status = Status.PENDING;
+    setStatus(Status.PENDING);
 
     if (requestOrigin == null && glideContext.isLoggingRequestOriginsEnabled()) {
       requestOrigin = new RuntimeException("Glide request origin trace");
@@ -206,7 +234,7 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public synchronized void recycle() {
+  public void recycle() {
     assertNotCallingCallbacks();
     context = null;
     glideContext = null;
@@ -226,12 +254,13 @@ public final class SingleRequest<R> implements Request,
     fallbackDrawable = null;
     width = -1;
     height = -1;
+    isSizeBucketed = false;
     requestOrigin = null;
     POOL.release(this);
   }
 
   @Override
-  public synchronized void begin() {
+  public void begin() {
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
     startTime = LogTime.getLogTime();
@@ -243,14 +272,28 @@ public final class SingleRequest<R> implements Request,
       // Only log at more verbose log levels if the user has set a fallback drawable, because
       // fallback Drawables indicate the user expects null models occasionally.
       int logLevel = getFallbackDrawable() == null ? Log.WARN : Log.DEBUG;
-      onLoadFailed(new GlideException("Received null model"), logLevel);
+      onLoadFailed(new GlideException("Received null model"), logLevel, /*isFromLoad=*/ false);
       return;
     }
 
+    Status status = getStatus();
     if (status == Status.RUNNING) {
       throw new IllegalArgumentException("Cannot restart a running request");
     }
 
+    if (status == Status.PAUSED) {
+      Engine.LoadStatus loadStatus = this.loadStatus;
+      if (loadStatus != null && compareAndSetStatus(Status.PAUSED, Status.RUNNING)) {
+        loadStatus.resume();
+        if (IS_VERBOSE_LOGGABLE) {
+          logV("resumed in " + LogTime.getElapsedMillis(startTime));
+        }
+        return;
+      }
+      // The load finished while we were paused.
+      status = getStatus();
+    }
+
     // If we're restarted after we're complete (usually via something like a notifyDataSetChanged
     // that starts an identical request into the same Target or View), we can simply use the
     // resource and size we retrieved the last time around and skip obtaining a new size, starting a
@@ -265,13 +308,17 @@ public final class SingleRequest<R> implements Request,
     // Restarts for requests that are neither complete nor running can be treated as new requests
     // and can run again from the beginning.
 
-    status = Status.WAITING_FOR_SIZE;
+    setStatus(Status.WAITING_FOR_SIZE);
     if (Util.isValidDimensions(overrideWidth, overrideHeight)) {
       onSizeReady(overrideWidth, overrideHeight);
     } else {
       target.getSize(this);
+      if (getStatus() == Status.WAITING_FOR_SIZE && requestOptions.getFetchSourceBeforeSize()) {
+        startSourceFetch();
+      }
     }
 
+    status = getStatus();
     if ((status == Status.RUNNING || status == Status.WAITING_FOR_SIZE)
         && canNotifyStatusChanged()) {
       target.onLoadStarted(getPlaceholderDrawable());
@@ -293,15 +340,51 @@ public final class SingleRequest<R> implements Request,
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
     target.removeCallback(this);
+    Engine.LoadStatus loadStatus = this.loadStatus;
     if (loadStatus != null) {
       loadStatus.cancel();
-      loadStatus = null;
+      this.loadStatus = null;
+    }
+    cancelSourceFetch();
+  }
+
+  private void startSourceFetch() {
+    DiskCacheStrategy diskCacheStrategy = requestOptions.getDiskCacheStrategy();
+    // Fetched data is only useful if it's written to and then decoded from the disk cache.
+    if (requestOptions.getOnlyRetrieveFromCache()
+        || !diskCacheStrategy.isDataCacheable(DataSource.REMOTE)
+        || !diskCacheStrategy.decodeCachedData()) {
+      return;
+    }
+    SourceFetch sourceFetch = new SourceFetch();
+    this.sourceFetch = sourceFetch;
+    sourceFetch.loadStatus =
+        engine.fetchSource(
+            glideContext,
+            model,
+            requestOptions.getSignature(),
+            priority,
+            diskCacheStrategy,
+            requestOptions.getOptions(),
+            requestOptions.getUseUnlimitedSourceGeneratorsPool(),
+            sourceFetch,
+            Executors.mainThreadExecutor());
+  }
+
+  private void cancelSourceFetch() {
+    SourceFetch sourceFetch = this.sourceFetch;
+    if (sourceFetch != null) {
+      this.sourceFetch = null;
+      sourceFetch.cancel();
     }
   }
 
   // Avoids difficult to understand errors like #2413.
   private void assertNotCallingCallbacks() {
-    if (isCallingCallbacks) {
+    // Only the thread calling callbacks is prevented from starting or clearing loads, other threads
+    // may clear the request at any time.
+    if ((state.get() & CALLING_CALLBACKS) != 0
+        && callingCallbacksThread == Thread.currentThread()) {
       throw new IllegalStateException("You can't start or clear loads in RequestListener or"
           + " Target callbacks. If you're trying to start a fallback request when a load fails, use"
           + " RequestBuilder#error(RequestBuilder). Otherwise consider posting your into() or"
@@ -318,12 +401,24 @@ public final class SingleRequest<R> implements Request,
    * @see #cancel()
    */
   @Override
-  public synchronized void clear() {
+  public void clear() {
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
-    if (status == Status.CLEARED) {
-      return;
+    while (true) {
+      int current = state.get();
+      if (getStatus(current) == Status.CLEARED) {
+        return;
+      } else if ((current & CALLING_CALLBACKS) != 0) {
+        // Another thread is calling callbacks, the Target may not see onLoadCleared until it has
+        // returned from them, so that thread clears the request instead.
+        if (state.compareAndSet(current, current | CLEAR_AFTER_CALLBACKS)) {
+          return;
+        }
+      } else if (state.compareAndSet(current, Status.CLEARED.ordinal())) {
+        break;
+      }
     }
+
     cancel();
     // Resource must be released before canNotifyStatusChanged is called.
     if (resource != null) {
@@ -332,8 +427,26 @@ public final class SingleRequest<R> implements Request,
     if (canNotifyCleared()) {
       target.onLoadCleared(getPlaceholderDrawable());
     }
+  }
 
-    status = Status.CLEARED;
+  /**
+   * Pauses the load without cancelling it if it's in progress and the {@link PauseMode} allows it,
+   * otherwise {@link #clear() clears} the request.
+   */
+  @Override
+  public void pause() {
+    PauseMode pauseMode = glideContext.getPauseMode();
+    Engine.LoadStatus loadStatus = this.loadStatus;
+    if (loadStatus != null && pauseMode != PauseMode.CANCEL) {
+      assertNotCallingCallbacks();
+      stateVerifier.throwIfRecycled();
+      if (compareAndSetStatus(Status.RUNNING, Status.PAUSED)) {
+        loadStatus.pause(
+            /*isDiskCacheWriteAllowed=*/ pauseMode == PauseMode.SUSPEND_EXCEPT_DISK_CACHE_WRITES);
+        return;
+      }
+    }
+    clear();
   }
 
   private void releaseResource(Resource<?> resource) {
@@ -342,28 +455,99 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public synchronized boolean isRunning() {
+  public boolean isRunning() {
+    Status status = getStatus();
     return status == Status.RUNNING || status == Status.WAITING_FOR_SIZE;
   }
 
   @Override
-  public synchronized boolean isComplete() {
-    return status == Status.COMPLETE;
+  public boolean isComplete() {
+    return getStatus() == Status.COMPLETE;
   }
 
   @Override
-  public synchronized boolean isResourceSet() {
+  public boolean isResourceSet() {
     return isComplete();
   }
 
   @Override
-  public synchronized boolean isCleared() {
-    return status == Status.CLEARED;
+  public boolean isCleared() {
+    return getStatus() == Status.CLEARED;
   }
 
   @Override
-  public synchronized boolean isFailed() {
-    return status == Status.FAILED;
+  public boolean isFailed() {
+    return getStatus() == Status.FAILED;
+  }
+
+  private Status getStatus() {
+    return getStatus(state.get());
+  }
+
+  private static Status getStatus(int state) {
+    return STATUSES[state & STATUS_MASK];
+  }
+
+  private void setStatus(Status status) {
+    int current;
+    do {
+      current = state.get();
+    } while (!state.compareAndSet(current, (current & ~STATUS_MASK) | status.ordinal()));
+  }
+
+  private boolean compareAndSetStatus(Status expected, Status status) {
+    int current;
+    do {
+      current = state.get();
+      if (getStatus(current) != expected) {
+        return false;
+      }
+    } while (!state.compareAndSet(current, (current & ~STATUS_MASK) | status.ordinal()));
+    return true;
+  }
+
+  /**
+   * Moves to the {@link Status} for a finished load and returns {@code true}, or returns
+   * {@code false} without changing the {@link Status} if {@code isFromLoad} is {@code true} and
+   * the request is no longer waiting for a load, because it was cleared for example.
+   *
+   * @param isCallingCallbacks {@code true} if the current thread will call callbacks and then
+   *                           {@link #finishCallingCallbacks()}.
+   */
+  private boolean setFinishedStatus(
+      Status status, boolean isFromLoad, boolean isCallingCallbacks) {
+    int next = isCallingCallbacks ? status.ordinal() | CALLING_CALLBACKS : status.ordinal();
+    int current;
+    do {
+      current = state.get();
+      if (isFromLoad && !isWaitingForLoad(getStatus(current))) {
+        return false;
+      }
+    } while (!state.compareAndSet(current, next));
+    loadStatus = null;
+    if (isCallingCallbacks) {
+      callingCallbacksThread = Thread.currentThread();
+    }
+    return true;
+  }
+
+  private static boolean isWaitingForLoad(Status status) {
+    // Complete requests are given their resource again when they're restarted.
+    return status == Status.RUNNING || status == Status.PAUSED || status == Status.COMPLETE;
+  }
+
+  /**
+   * Returns {@code true} if the request was cleared on another thread while callbacks were being
+   * called, in which case the caller must {@link #clear()} the request.
+   */
+  private boolean finishCallingCallbacks() {
+    callingCallbacksThread = null;
+    int current;
+    do {
+      current = state.get();
+    } while (!state.compareAndSet(
+        current, current & ~(CALLING_CALLBACKS | CLEAR_AFTER_CALLBACKS)));
+    return (current & CLEAR_AFTER_CALLBACKS) != 0;
   }
 
   private Drawable getErrorDrawable() {
@@ -402,7 +586,7 @@ public final class SingleRequest<R> implements Request,
     return DrawableDecoderCompat.getDrawable(glideContext, resourceId, theme);
   }
 
-  private synchronized void setErrorPlaceholder() {
+  private void setErrorPlaceholder() {
     if (!canNotifyStatusChanged()) {
       return;
     }
@@ -426,19 +610,31 @@ public final class SingleRequest<R> implements Request,
    * A callback method that should never be invoked directly.
    */
   @Override
-  public synchronized void onSizeReady(int width, int height) {
+  public void onSizeReady(int width, int height) {
     stateVerifier.throwIfRecycled();
     if (IS_VERBOSE_LOGGABLE) {
       logV("Got onSizeReady in " + LogTime.getElapsedMillis(startTime));
     }
-    if (status != Status.WAITING_FOR_SIZE) {
+    if (!compareAndSetStatus(Status.WAITING_FOR_SIZE, Status.RUNNING)) {
       return;
     }
-    status = Status.RUNNING;
 
     float sizeMultiplier = requestOptions.getSizeMultiplier();
     this.width = maybeApplySizeMultiplier(width, sizeMultiplier);
     this.height = maybeApplySizeMultiplier(height, sizeMultiplier);
+    // Sizes set explicitly with override are used as is.
+    if (!Util.isValidDimensions(
+        requestOptions.getOverrideWidth(), requestOptions.getOverrideHeight())) {
+      SizeBuckets sizeBuckets = glideContext.getSizeBuckets();
+      int bucketedWidth = sizeBuckets.getBucketedWidth(this.width, this.height);
+      int bucketedHeight = sizeBuckets.getBucketedHeight(this.width, this.height);
+      isSizeBucketed = bucketedWidth != this.width || bucketedHeight != this.height;
+      if (isSizeBucketed) {
+        sizeBuckets.onBucketedLoad();
+      }
+      this.width = bucketedWidth;
+      this.height = bucketedHeight;
+    }
 
     if (IS_VERBOSE_LOGGABLE) {
       logV("finished setup for calling load in " + LogTime.getElapsedMillis(startTime));
@@ -468,9 +664,11 @@ public final class SingleRequest<R> implements Request,
     // This is a hack that's only useful for testing right now where loads complete synchronously
     // even though under any executor running on any thread but the main thread, the load would
     // have completed asynchronously.
-    if (status != Status.RUNNING) {
+    if (getStatus() != Status.RUNNING) {
       loadStatus = null;
     }
+    // Any load that still needs the fetched data waits for the fetch in the Engine.
+    cancelSourceFetch();
     if (IS_VERBOSE_LOGGABLE) {
       logV("finished onSizeReady in " + LogTime.getElapsedMillis(startTime));
     }
@@ -511,9 +709,8 @@ public final class SingleRequest<R> implements Request,
   /** A callback method that should never be invoked directly. */
   @SuppressWarnings("unchecked")
   @Override
-  public synchronized void onResourceReady(Resource<?> resource, DataSource dataSource) {
+  public void onResourceReady(Resource<?> resource, DataSource dataSource) {
     stateVerifier.throwIfRecycled();
-    loadStatus = null;
     if (resource == null) {
       GlideException exception = new GlideException("Expected to receive a Resource<R> with an "
           + "object of " + transcodeClass + " inside, but instead got null.");
@@ -537,7 +734,7 @@ public final class SingleRequest<R> implements Request,
     if (!canSetResource()) {
       releaseResource(resource);
       // We can't put the status to complete before asking canSetResource().
-      status = Status.COMPLETE;
+      setFinishedStatus(Status.COMPLETE, /*isFromLoad=*/ true, /*isCallingCallbacks=*/ false);
       return;
     }
 
@@ -551,11 +748,21 @@ public final class SingleRequest<R> implements Request,
    * @param result object returned by {@link Resource#get()}, checked for type and never <code>null
    *     </code>
    */
-  private synchronized void onResourceReady(Resource<R> resource, R result, DataSource dataSource) {
+  private void onResourceReady(Resource<R> resource, R result, DataSource dataSource) {
     // We must call isFirstReadyResource before setting status.
     boolean isFirstResource = isFirstReadyResource();
-    status = Status.COMPLETE;
+    if (!setFinishedStatus(Status.COMPLETE, /*isFromLoad=*/ true, /*isCallingCallbacks=*/ true)) {
+      // Cleared on another thread after the load finished.
+      engine.release(resource);
+      return;
+    }
     this.resource = resource;
+    if (isSizeBucketed) {
+      isSizeBucketed = false;
+      if (dataSource == DataSource.MEMORY_CACHE || dataSource == DataSource.RESOURCE_DISK_CACHE) {
+        glideContext.getSizeBuckets().onBucketedCacheHit();
+      }
+    }
 
     if (glideContext.getLogLevel() <= Log.DEBUG) {
       Log.d(GLIDE_TAG, "Finished loading " + result.getClass().getSimpleName() + " from "
@@ -563,39 +770,50 @@ public final class SingleRequest<R> implements Request,
           + LogTime.getElapsedMillis(startTime) + " ms");
     }
 
-    isCallingCallbacks = true;
+    boolean isClearPending = false;
     try {
-      boolean anyListenerHandledUpdatingTarget = false;
-      if (requestListeners != null) {
-        for (RequestListener<R> listener : requestListeners) {
-          anyListenerHandledUpdatingTarget |=
-              listener.onResourceReady(result, model, target, dataSource, isFirstResource);
+      try {
+        boolean anyListenerHandledUpdatingTarget = false;
+        if (requestListeners != null) {
+          for (RequestListener<R> listener : requestListeners) {
+            anyListenerHandledUpdatingTarget |=
+                listener.onResourceReady(result, model, target, dataSource, isFirstResource);
+          }
         }
+        anyListenerHandledUpdatingTarget |=
+            targetListener != null
+                && targetListener.onResourceReady(
+                    result, model, target, dataSource, isFirstResource);
+
+        if (!anyListenerHandledUpdatingTarget) {
+          Transition<? super R> animation =
+              animationFactory.build(dataSource, isFirstResource);
+          target.onResourceReady(result, animation);
+        }
+      } finally {
+        isClearPending = finishCallingCallbacks();
       }
-      anyListenerHandledUpdatingTarget |=
-          targetListener != null
-              && targetListener.onResourceReady(result, model, target, dataSource, isFirstResource);
-
-      if (!anyListenerHandledUpdatingTarget) {
-        Transition<? super R> animation =
-            animationFactory.build(dataSource, isFirstResource);
-        target.onResourceReady(result, animation);
-      }
+
+      notifyLoadSuccess();
     } finally {
-      isCallingCallbacks = false;
+      // Clears from other threads wait for callbacks, as they would if requests were locked.
+      if (isClearPending) {
+        clear();
+      }
     }
-
-    notifyLoadSuccess();
   }
 
   /** A callback method that should never be invoked directly. */
   @Override
-  public synchronized void onLoadFailed(GlideException e) {
-    onLoadFailed(e, Log.WARN);
+  public void onLoadFailed(GlideException e) {
+    onLoadFailed(e, Log.WARN, /*isFromLoad=*/ true);
   }
 
-  private synchronized void onLoadFailed(GlideException e, int maxLogLevel) {
+  private void onLoadFailed(GlideException e, int maxLogLevel, boolean isFromLoad) {
     stateVerifier.throwIfRecycled();
+    if (!setFinishedStatus(Status.FAILED, isFromLoad, /*isCallingCallbacks=*/ true)) {
+      return;
+    }
     e.setOrigin(requestOrigin);
     int logLevel = glideContext.getLogLevel();
     if (logLevel <= maxLogLevel) {
@@ -605,64 +823,100 @@ public final class SingleRequest<R> implements Request,
       }
     }
 
-    loadStatus = null;
-    status = Status.FAILED;
-
-    isCallingCallbacks = true;
+    boolean isClearPending = false;
     try {
-      //TODO: what if this is a thumbnail request?
-      boolean anyListenerHandledUpdatingTarget = false;
-      if (requestListeners != null) {
-        for (RequestListener<R> listener : requestListeners) {
-          anyListenerHandledUpdatingTarget |=
-              listener.onLoadFailed(e, model, target, isFirstReadyResource());
+      try {
+        //TODO: what if this is a thumbnail request?
+        boolean anyListenerHandledUpdatingTarget = false;
+        if (requestListeners != null) {
+          for (RequestListener<R> listener : requestListeners) {
+            anyListenerHandledUpdatingTarget |=
+                listener.onLoadFailed(e, model, target, isFirstReadyResource());
+          }
         }
-      }
-      anyListenerHandledUpdatingTarget |=
-          targetListener != null
-              && targetListener.onLoadFailed(e, model, target, isFirstReadyResource());
+        anyListenerHandledUpdatingTarget |=
+            targetListener != null
+                && targetListener.onLoadFailed(e, model, target, isFirstReadyResource());
 
-      if (!anyListenerHandledUpdatingTarget) {
-        setErrorPlaceholder();
+        if (!anyListenerHandledUpdatingTarget) {
+          setErrorPlaceholder();
+        }
+      } finally {
+        isClearPending = finishCallingCallbacks();
       }
+
+      notifyLoadFailed();
     } finally {
-      isCallingCallbacks = false;
+      if (isClearPending) {
+        clear();
+      }
     }
-
-    notifyLoadFailed();
   }
 
-  @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
   @Override
-  public synchronized boolean isEquivalentTo(Request o) {
+  public boolean isEquivalentTo(Request o) {
     if (o instanceof SingleRequest) {
       SingleRequest<?> that = (SingleRequest<?>) o;
-      synchronized (that) {
-        return overrideWidth == that.overrideWidth
-            && overrideHeight == that.overrideHeight
-            && Util.bothModelsNullEquivalentOrEquals(model, that.model)
-            && transcodeClass.equals(that.transcodeClass)
-            && requestOptions.equals(that.requestOptions)
-            && priority == that.priority
-            // We do not want to require that RequestListeners implement equals/hashcode, so we
-            // don't compare them using equals(). We can however, at least assert that the same
-            // amount of request listeners are present in both requests.
-            && listenerCountEquals(that);
-      }
+      return overrideWidth == that.overrideWidth
+          && overrideHeight == that.overrideHeight
+          && Util.bothModelsNullEquivalentOrEquals(model, that.model)
+          && transcodeClass.equals(that.transcodeClass)
+          && requestOptions.equals(that.requestOptions)
+          && priority == that.priority
+          // We do not want to require that RequestListeners implement equals/hashcode, so we
+          // don't compare them using equals(). We can however, at least assert that the same
+          // amount of request listeners are present in both requests.
+          && listenerCountEquals(that);
     }
     return false;
   }
 
-  @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
-  private synchronized boolean listenerCountEquals(SingleRequest<?> other) {
-    synchronized (other) {
-      int firstListenerCount = requestListeners == null ? 0 : requestListeners.size();
-      int secondListenerCount = other.requestListeners == null ? 0 : other.requestListeners.size();
-      return firstListenerCount == secondListenerCount;
-    }
+  private boolean listenerCountEquals(SingleRequest<?> other) {
+    int firstListenerCount = requestListeners == null ? 0 : requestListeners.size();
+    int secondListenerCount = other.requestListeners == null ? 0 : other.requestListeners.size();
+    return firstListenerCount == secondListenerCount;
   }
 
   private void logV(String message) {
     Log.v(TAG, message + " this: " + tag);
   }
+
+  /**
+   * Fetches source data into the disk cache while the request waits for the size of its
+   * {@link Target}, see {@link BaseRequestOptions#fetchSourceBeforeSize(boolean)}.
+   */
+  private final class SourceFetch implements ResourceCallback {
+    @Nullable
+    @Synthetic
+    Engine.LoadStatus loadStatus;
+
+    @Synthetic
+    SourceFetch() { }
+
+    @Override
+    public void onResourceReady(Resource<?> resource, DataSource dataSource) {
+      engine.release(resource);
+      onFinished();
+    }
+
+    @Override
+    public void onLoadFailed(GlideException e) {
+      onFinished();
+    }
+
+    private void onFinished() {
+      loadStatus = null;
+      if (sourceFetch == this) {
+        sourceFetch = null;
+      }
+    }
+
+    @Synthetic
+    void cancel() {
+      if (loadStatus != null) {
+        loadStatus.cancel();
+        loadStatus = null;
+      }
+    }
+  }
 }
@@ -0,0 +1,167 @@
+package com.bumptech.glide.request;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.request.target.Target;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rounds the sizes {@link Target}s ask for up to one of a smaller set of sizes so that loads into
+ * views that differ in size by only a few pixels, like 358x358 and 360x360 grid cells, share
+ * memory and disk cache entries rather than each decoding and caching their own resource.
+ *
+ * <p>Only the larger of the width and the height is rounded to a bucket. The other is scaled by
+ * the same factor and rounded up, so the aspect ratio, and with it the region that
+ * transformations like {@link com.bumptech.glide.load.resource.bitmap.CenterCrop} keep, changes by
+ * at most a pixel. Bucketed sizes are never smaller than the sizes they're derived from, so
+ * resources are at most one bucket larger than the {@link Target}s they're loaded into.
+ * {@link android.widget.ImageView}s scale them down to fit when they're drawn, custom
+ * {@link Target}s must be prepared to do the same.
+ *
+ * <p>Sizes set with {@link BaseRequestOptions#override(int, int)} are never bucketed.
+ *
+ * <p>{@link #getBucketedLoadCount()} and {@link #getBucketedCacheHitCount()} count how often the
+ * buckets change sizes and how often that lets loads reuse cached resources.
+ *
+ * @see com.bumptech.glide.GlideBuilder#setSizeBuckets(SizeBuckets)
+ */
+public abstract class SizeBuckets {
+  /**
+   * Leaves sizes unchanged, the default.
+   */
+  public static final SizeBuckets NONE = new SizeBuckets() {
+    @Override
+    public int getBucket(int size) {
+      return size;
+    }
+  };
+
+  private final AtomicLong bucketedLoadCount = new AtomicLong();
+  private final AtomicLong bucketedCacheHitCount = new AtomicLong();
+
+  /**
+   * Returns {@link SizeBuckets} that round sizes up to the nearest multiple of the given step, so
+   * that with a step of 32, 358 and 360 both become 384.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public static SizeBuckets multiplesOf(int step) {
+    if (step <= 0) {
+      throw new IllegalArgumentException("Step must be > 0, but given: " + step);
+    }
+    return new MultipleSizeBuckets(step);
+  }
+
+  /**
+   * Returns {@link SizeBuckets} that round sizes up to the smallest of the given sizes that's at
+   * least as large. Sizes larger than every given size are left unchanged.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public static SizeBuckets of(@NonNull int... sizes) {
+    int[] sorted = Arrays.copyOf(sizes, sizes.length);
+    Arrays.sort(sorted);
+    if (sorted.length == 0 || sorted[0] <= 0) {
+      throw new IllegalArgumentException(
+          "Sizes must be non-empty and > 0, but given: " + Arrays.toString(sizes));
+    }
+    return new FixedSizeBuckets(sorted);
+  }
+
+  /**
+   * Returns a size greater than or equal to the given width or height in pixels.
+   *
+   * <p>{@link Target#SIZE_ORIGINAL} is never passed to this method.
+   */
+  public abstract int getBucket(int size);
+
+  /**
+   * Returns the number of loads whose size was changed by these buckets.
+   */
+  public long getBucketedLoadCount() {
+    return bucketedLoadCount.get();
+  }
+
+  /**
+   * Returns the number of loads whose size was changed by these buckets that finished from the
+   * memory cache or from the disk cache of transformed resources.
+   *
+   * <p>Each of these hits that the load's original size would have missed is a decode and a disk
+   * cache write the buckets avoided, so this is an upper bound on the work they save.
+   */
+  public long getBucketedCacheHitCount() {
+    return bucketedCacheHitCount.get();
+  }
+
+  /**
+   * Returns the bucketed width for a {@link Target} of the given size.
+   */
+  final int getBucketedWidth(int width, int height) {
+    return getBucketedSize(width, height);
+  }
+
+  /**
+   * Returns the bucketed height for a {@link Target} of the given size.
+   */
+  final int getBucketedHeight(int width, int height) {
+    return getBucketedSize(height, width);
+  }
+
+  final void onBucketedLoad() {
+    bucketedLoadCount.incrementAndGet();
+  }
+
+  final void onBucketedCacheHit() {
+    bucketedCacheHitCount.incrementAndGet();
+  }
+
+  private int getBucketedSize(int size, int otherSize) {
+    if (size == Target.SIZE_ORIGINAL) {
+      return size;
+    } else if (otherSize == Target.SIZE_ORIGINAL || size >= otherSize) {
+      return getBucket(size);
+    }
+    // Scale the smaller dimension by the same factor as the larger one so that the aspect ratio
+    // stays the same.
+    long bucketedOtherSize = getBucket(otherSize);
+    long scaled = (size * bucketedOtherSize + otherSize - 1) / otherSize;
+    return (int) Math.min(scaled, Integer.MAX_VALUE);
+  }
+
+  private static final class MultipleSizeBuckets extends SizeBuckets {
+    private final int step;
+
+    MultipleSizeBuckets(int step) {
+      this.step = step;
+    }
+
+    @Override
+    public int getBucket(int size) {
+      int remainder = size % step;
+      if (remainder == 0 || size > Integer.MAX_VALUE - step) {
+        return size;
+      }
+      return size + step - remainder;
+    }
+  }
+
+  private static final class FixedSizeBuckets extends SizeBuckets {
+    private final int[] sizes;
+
+    FixedSizeBuckets(int[] sizes) {
+      this.sizes = sizes;
+    }
+
+    @Override
+    public int getBucket(int size) {
+      int index = Arrays.binarySearch(sizes, size);
+      if (index >= 0) {
+        return size;
+      }
+      int insertionPoint = -(index + 1);
+      return insertionPoint < sizes.length ? sizes[insertionPoint] : size;
+    }
+  }
+}
@@ -8,7 +8,7 @@ import android.support.annotation.VisibleForTesting;
  * version of an image and the full size version of the image at the same time.
  */
 public class ThumbnailRequestCoordinator implements RequestCoordinator,
-    Request {
+    PausableRequest {
   @Nullable private final RequestCoordinator parent;
 
   private Request full;
@@ -127,6 +127,21 @@ public class ThumbnailRequestCoordinator implements RequestCoordinator,
     full.clear();
   }
 
+  @Override
+  public void pause() {
+    isRunning = false;
+    pause(thumb);
+    pause(full);
+  }
+
+  private static void pause(Request request) {
+    if (request instanceof PausableRequest) {
+      ((PausableRequest) request).pause();
+    } else {
+      request.clear();
+    }
+  }
+
   /**
    * Returns true if the full request is still running.
    */
@@ -152,7 +152,9 @@ public final class ByteBufferUtil {
     byte[] bytes = outStream.toByteArray();
 
     // Some resource decoders require a direct byte buffer. Prefer allocateDirect() over wrap()
-    return (ByteBuffer) ByteBuffer.allocateDirect(bytes.length).put(bytes).position(0);
+    ByteBuffer result = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+    result.position(0);
+    return result;
   }
 
   @Nullable
@@ -0,0 +1,221 @@
+package com.bumptech.glide.util;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.view.Choreographer;
+import com.bumptech.glide.Priority;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers callbacks on the main thread in {@link Priority} order, running only as many of them
+ * in each frame as fit in a time budget so that many loads finishing at once are delivered over
+ * several frames rather than in one long frame.
+ *
+ * <p>On API 16 and above callbacks run from a {@link Choreographer} frame callback, before the
+ * frame is laid out and drawn, so resources delivered in a frame are drawn in that same frame. On
+ * older versions each batch runs in its own {@link Handler} message. At least one callback runs in
+ * every batch so that delivery always makes progress, even if a single callback takes longer than
+ * the budget.
+ */
+public final class FrameBudgetedExecutor {
+  /** The default per frame budget, about a quarter of a 60fps frame. */
+  public static final long DEFAULT_FRAME_BUDGET_MS = 4;
+
+  private static final String TAG = "FrameBudgetedExecutor";
+  private static final int MSG_SCHEDULE = 1;
+  private static final int MSG_DRAIN = 2;
+
+  private final long frameBudgetNanos;
+  private final Executor[] executors;
+  private final List<ArrayDeque<Runnable>> queues;
+  private final Handler handler;
+  private final Choreographer.FrameCallback frameCallback;
+  @Nullable private Listener listener;
+  private int pendingCount;
+  private boolean isScheduled;
+
+  public FrameBudgetedExecutor() {
+    this(DEFAULT_FRAME_BUDGET_MS, TimeUnit.MILLISECONDS);
+  }
+
+  public FrameBudgetedExecutor(long frameBudget, @NonNull TimeUnit unit) {
+    Preconditions.checkArgument(frameBudget > 0, "Frame budget must be greater than 0");
+    frameBudgetNanos = unit.toNanos(frameBudget);
+    Priority[] priorities = Priority.values();
+    executors = new Executor[priorities.length];
+    queues = new ArrayList<>(priorities.length);
+    for (Priority priority : priorities) {
+      executors[priority.ordinal()] = new PriorityExecutor(priority);
+      queues.add(new ArrayDeque<Runnable>());
+    }
+    handler = new Handler(Looper.getMainLooper(), new MainThreadCallback());
+    frameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+        ? new DrainFrameCallback() : null;
+  }
+
+  /**
+   * Returns an {@link Executor} that delivers callbacks with the given {@link Priority}.
+   *
+   * <p>Queued callbacks with higher {@link Priority}s are run first, callbacks with the same
+   * {@link Priority} are run in the order they were queued.
+   */
+  @NonNull
+  public Executor forPriority(@NonNull Priority priority) {
+    return executors[priority.ordinal()];
+  }
+
+  /**
+   * Sets a {@link Listener} that's notified after each batch of callbacks, or {@code null} to
+   * remove the current {@link Listener}.
+   */
+  public void setListener(@Nullable Listener listener) {
+    Util.assertMainThread();
+    this.listener = listener;
+  }
+
+  @Synthetic
+  void execute(@NonNull Priority priority, @NonNull Runnable command) {
+    synchronized (this) {
+      queues.get(priority.ordinal()).add(command);
+      pendingCount++;
+      if (isScheduled) {
+        return;
+      }
+      isScheduled = true;
+    }
+    handler.obtainMessage(MSG_SCHEDULE).sendToTarget();
+  }
+
+  @Synthetic
+  void schedule() {
+    if (frameCallback != null) {
+      postFrameCallback(frameCallback);
+    } else {
+      handler.obtainMessage(MSG_DRAIN).sendToTarget();
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private static void postFrameCallback(@NonNull Choreographer.FrameCallback callback) {
+    Choreographer.getInstance().postFrameCallback(callback);
+  }
+
+  @Synthetic
+  void drain() {
+    long startNanos = System.nanoTime();
+    long elapsedNanos = 0;
+    int deliveredCount = 0;
+    int remainingCount;
+    try {
+      Runnable next;
+      while ((next = poll()) != null) {
+        next.run();
+        deliveredCount++;
+        elapsedNanos = System.nanoTime() - startNanos;
+        if (elapsedNanos >= frameBudgetNanos) {
+          break;
+        }
+      }
+    } finally {
+      synchronized (this) {
+        remainingCount = pendingCount;
+        isScheduled = remainingCount > 0;
+      }
+      if (remainingCount > 0) {
+        schedule();
+      }
+    }
+
+    long overrunNanos = Math.max(0, elapsedNanos - frameBudgetNanos);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Delivered " + deliveredCount + " callbacks in "
+          + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us, overran the budget by "
+          + TimeUnit.NANOSECONDS.toMicros(overrunNanos) + "us, " + remainingCount + " remaining");
+    }
+    if (listener != null) {
+      listener.onBatchDelivered(deliveredCount, remainingCount, elapsedNanos, overrunNanos);
+    }
+  }
+
+  @Nullable
+  private synchronized Runnable poll() {
+    for (ArrayDeque<Runnable> queue : queues) {
+      Runnable next = queue.poll();
+      if (next != null) {
+        pendingCount--;
+        return next;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Notified on the main thread after each batch of callbacks, typically to export frame metrics
+   * to logs or analytics.
+   */
+  public interface Listener {
+
+    /**
+     * @param deliveredCount The number of callbacks run in this batch.
+     * @param remainingCount The number of callbacks left for later frames.
+     * @param elapsedNanos The time spent running callbacks in this batch.
+     * @param overrunNanos The time by which {@code elapsedNanos} exceeded the budget, or 0.
+     */
+    void onBatchDelivered(
+        int deliveredCount, int remainingCount, long elapsedNanos, long overrunNanos);
+  }
+
+  private final class PriorityExecutor implements Executor {
+    private final Priority priority;
+
+    @Synthetic
+    PriorityExecutor(Priority priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+      FrameBudgetedExecutor.this.execute(priority, command);
+    }
+  }
+
+  private final class MainThreadCallback implements Handler.Callback {
+
+    @Synthetic
+    MainThreadCallback() { }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+      if (msg.what == MSG_SCHEDULE) {
+        schedule();
+        return true;
+      } else if (msg.what == MSG_DRAIN) {
+        drain();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private final class DrainFrameCallback implements Choreographer.FrameCallback {
+
+    @Synthetic
+    DrainFrameCallback() { }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      drain();
+    }
+  }
+}
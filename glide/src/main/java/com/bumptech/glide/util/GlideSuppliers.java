@@ -0,0 +1,62 @@
+package com.bumptech.glide.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Utilities for lazily creating objects on first use.
+ */
+public final class GlideSuppliers {
+
+  private GlideSuppliers() {
+    // Utility class.
+  }
+
+  /**
+   * Produces a non-null instance of {@code T}.
+   *
+   * @param <T> The type of object produced.
+   */
+  public interface GlideSupplier<T> {
+    @NonNull
+    T get();
+  }
+
+  /**
+   * Returns a {@link GlideSupplier} that calls the given {@link GlideSupplier} once, the first time
+   * it's used, and returns the same object from then on.
+   *
+   * <p>Concurrent callers block until the object is created. Calling the returned
+   * {@link GlideSupplier} from within the given {@link GlideSupplier} throws.
+   */
+  @NonNull
+  public static <T> GlideSupplier<T> memoize(@NonNull final GlideSupplier<T> supplier) {
+    return new GlideSupplier<T>() {
+      private volatile T instance;
+      private boolean isCreating;
+
+      @NonNull
+      @Override
+      public T get() {
+        T result = instance;
+        if (result == null) {
+          synchronized (this) {
+            result = instance;
+            if (result == null) {
+              if (isCreating) {
+                throw new IllegalStateException("Recursive call while creating " + supplier);
+              }
+              isCreating = true;
+              try {
+                result = Preconditions.checkNotNull(supplier.get());
+              } finally {
+                isCreating = false;
+              }
+              instance = result;
+            }
+          }
+        }
+        return result;
+      }
+    };
+  }
+}
@@ -0,0 +1,149 @@
+package com.bumptech.glide.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * An immutable, open addressed hash table from three {@link Class}es to a value.
+ *
+ * <p>Lookups compare {@link Class}es by identity and don't allocate or lock, so tables can be read
+ * concurrently from any number of threads once they've been safely published.
+ *
+ * @param <V> The type of the values in the table.
+ */
+public final class MultiClassTable<V> {
+  @Synthetic final Class<?>[] keys;
+  @Synthetic final Object[] values;
+  private final int mask;
+
+  MultiClassTable(Class<?>[] keys, Object[] values) {
+    this.keys = keys;
+    this.values = values;
+    mask = values.length - 1;
+  }
+
+  /**
+   * Returns the value for the given {@link Class}es, or {@code null} if the table doesn't contain
+   * them.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(@NonNull Class<?> first, @NonNull Class<?> second, @NonNull Class<?> third) {
+    int index = hash(first, second, third) & mask;
+    while (true) {
+      int keyIndex = index * 3;
+      Class<?> current = keys[keyIndex];
+      if (current == null) {
+        return null;
+      } else if (current == first && keys[keyIndex + 1] == second
+          && keys[keyIndex + 2] == third) {
+        return (V) values[index];
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Object value : values) {
+      if (value != null) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Synthetic
+  static int hash(Class<?> first, Class<?> second, Class<?> third) {
+    int hash = System.identityHashCode(first);
+    hash = 31 * hash + System.identityHashCode(second);
+    hash = 31 * hash + System.identityHashCode(third);
+    // Spread the high bits so that tables with small masks don't only use the low bits.
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Builds {@link MultiClassTable}s.
+   *
+   * @param <V> The type of the values in the table.
+   */
+  public static final class Builder<V> {
+    private Class<?>[] keys;
+    private Object[] values;
+    private int size;
+
+    public Builder() {
+      keys = new Class<?>[3 * 16];
+      values = new Object[16];
+    }
+
+    /**
+     * Creates a builder that starts with all of the entries in the given table.
+     */
+    public Builder(@NonNull MultiClassTable<V> table) {
+      keys = table.keys.clone();
+      values = table.values.clone();
+      size = table.size();
+    }
+
+    /**
+     * Adds the given value for the given {@link Class}es, replacing any existing value.
+     */
+    @NonNull
+    public Builder<V> put(@NonNull Class<?> first, @NonNull Class<?> second,
+        @NonNull Class<?> third, @NonNull V value) {
+      // Keep the table at most half full so that probes stay short.
+      if ((size + 1) * 2 > values.length) {
+        resize();
+      }
+      if (insert(keys, values, first, second, third, value)) {
+        size++;
+      }
+      return this;
+    }
+
+    @NonNull
+    public MultiClassTable<V> build() {
+      return new MultiClassTable<>(keys.clone(), values.clone());
+    }
+
+    private void resize() {
+      Class<?>[] oldKeys = keys;
+      Object[] oldValues = values;
+      keys = new Class<?>[oldKeys.length * 2];
+      values = new Object[oldValues.length * 2];
+      for (int i = 0; i < oldValues.length; i++) {
+        if (oldValues[i] != null) {
+          insert(keys, values, oldKeys[i * 3], oldKeys[i * 3 + 1], oldKeys[i * 3 + 2],
+              oldValues[i]);
+        }
+      }
+    }
+
+    /**
+     * Returns {@code true} if a new entry was added or {@code false} if an existing entry was
+     * replaced.
+     */
+    private static boolean insert(Class<?>[] keys, Object[] values, Class<?> first,
+        Class<?> second, Class<?> third, Object value) {
+      int mask = values.length - 1;
+      int index = hash(first, second, third) & mask;
+      while (true) {
+        int keyIndex = index * 3;
+        Class<?> current = keys[keyIndex];
+        if (current == null) {
+          keys[keyIndex] = first;
+          keys[keyIndex + 1] = second;
+          keys[keyIndex + 2] = third;
+          values[index] = value;
+          return true;
+        } else if (current == first && keys[keyIndex + 1] == second
+            && keys[keyIndex + 2] == third) {
+          values[index] = value;
+          return false;
+        }
+        index = (index + 1) & mask;
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.bumptech.glide;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@SuppressWarnings("deprecation")
+public class GlideTest {
+  private static final long TIMEOUT_MS = 5000;
+
+  private Context context;
+  private CountingModule module;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.application;
+    module = new CountingModule();
+  }
+
+  @After
+  public void tearDown() {
+    Glide.tearDown();
+  }
+
+  @Test
+  public void build_withRegistryInitializedLazily_doesNotCreateRegistry() {
+    build(new GlideBuilder().setRegistryInitializedLazily(true));
+
+    assertThat(module.registrations.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void getRegistry_withRegistryInitializedLazily_createsRegistryOnce() {
+    Glide glide = build(new GlideBuilder().setRegistryInitializedLazily(true));
+
+    Registry registry = glide.getRegistry();
+
+    assertThat(glide.getRegistry()).isSameAs(registry);
+    assertThat(module.registrations.get()).isEqualTo(1);
+    assertThat(module.registry).isSameAs(registry);
+  }
+
+  @Test
+  public void getRegistry_withRegistryInitializedLazily_fromManyThreads_createsRegistryOnce()
+      throws InterruptedException {
+    final Glide glide = build(new GlideBuilder().setRegistryInitializedLazily(true));
+    final Registry[] registries = new Registry[4];
+    Thread[] threads = new Thread[registries.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          registries[index] = glide.getRegistry();
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join(TIMEOUT_MS);
+    }
+
+    assertThat(module.registrations.get()).isEqualTo(1);
+    for (Registry registry : registries) {
+      assertThat(registry).isSameAs(module.registry);
+    }
+  }
+
+  @Test
+  public void getRegistry_withoutPrecompute_doesNotPrecomputeLoadPaths() {
+    Glide glide = build(new GlideBuilder());
+
+    assertThat(glide.getRegistry().isPrecomputed(InputStream.class, Object.class, Bitmap.class))
+        .isFalse();
+  }
+
+  @Test
+  public void initializeInBackground_withRegistryInitializedLazily_createsRegistryInBackground()
+      throws InterruptedException {
+    Glide.init(build(new GlideBuilder().setRegistryInitializedLazily(true)));
+
+    Glide.initializeInBackground(context);
+
+    assertThat(module.registered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(module.registrationThread).isNotSameAs(Looper.getMainLooper().getThread());
+  }
+
+  @Test
+  public void initializeInBackground_precomputesLoadPaths() throws InterruptedException {
+    Glide glide = build(new GlideBuilder());
+    Glide.init(glide);
+
+    Glide.initializeInBackground(context);
+
+    Registry registry = glide.getRegistry();
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!registry.isPrecomputed(InputStream.class, Object.class, Bitmap.class)
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(registry.isPrecomputed(InputStream.class, Object.class, Bitmap.class)).isTrue();
+  }
+
+  private Glide build(GlideBuilder builder) {
+    Glide glide = builder.build(
+        context, Collections.<com.bumptech.glide.module.GlideModule>singletonList(module),
+        /*annotationGeneratedModule=*/ null);
+    if (!builder.isRegistryInitializedLazily()) {
+      glide.getRegistry();
+    }
+    return glide;
+  }
+
+  private static final class CountingModule implements com.bumptech.glide.module.GlideModule {
+    final CountDownLatch registered = new CountDownLatch(1);
+    final AtomicInteger registrations = new AtomicInteger();
+    volatile Registry registry;
+    volatile Thread registrationThread;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+      // Do nothing.
+    }
+
+    @Override
+    public void registerComponents(
+        @NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+      registrations.incrementAndGet();
+      this.registry = registry;
+      registrationThread = Thread.currentThread();
+      registered.countDown();
+    }
+  }
+}
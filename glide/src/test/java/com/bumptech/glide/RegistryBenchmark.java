@@ -0,0 +1,209 @@
+package com.bumptech.glide;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.tests.Benchmarks;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Compares {@link Registry} lookups with and without {@link Registry#precomputeLoadPaths()}, using
+ * a {@link Registry} with the same registrations as {@link Glide}'s defaults.
+ *
+ * <p>Only {@link Class}es of Android types are used, so this runs without Robolectric, which
+ * would otherwise slow down every lookup.
+ */
+@RunWith(JUnit4.class)
+public class RegistryBenchmark {
+  private static final int WARM_UP_RUNS = 200;
+  private static final int RUNS = 50;
+  private static final int LOOKUPS_PER_THREAD = 2000000;
+  private static final int ROUNDS = 3;
+  private static final int LAZY_ROUNDS = 5;
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+  }
+
+  @Test
+  public void firstLookups() {
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      firstLookupNanos(RegistryTest.createDefaultRegistry());
+      RegistryTest.createDefaultRegistry().precomputeLoadPaths();
+    }
+    long precompute = Long.MAX_VALUE;
+    long precomputed = Long.MAX_VALUE;
+    long lazy = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      Registry registry = RegistryTest.createDefaultRegistry();
+      long start = System.nanoTime();
+      registry.precomputeLoadPaths();
+      precompute = Math.min(precompute, System.nanoTime() - start);
+      precomputed = Math.min(precomputed, firstLookupNanos(registry));
+      lazy = Math.min(lazy, firstLookupNanos(RegistryTest.createDefaultRegistry()));
+    }
+    Benchmarks.report("precomputeLoadPaths %.1f us", precompute / 1e3);
+    Benchmarks.report("first %d lookups lazy %.1f us, precomputed %.1f us",
+        RegistryTest.LOAD_PATH_QUERIES.length + RegistryTest.RESOURCE_CLASS_QUERIES.length,
+        lazy / 1e3, precomputed / 1e3);
+  }
+
+  @Test
+  public void repeatedLookups() throws InterruptedException {
+    Registry lazy = RegistryTest.createDefaultRegistry();
+    Registry precomputed = RegistryTest.createDefaultRegistry();
+    precomputed.precomputeLoadPaths();
+    for (int threads : new int[] {1, 4}) {
+      double lazyNanos = 0;
+      double precomputedNanos = 0;
+      // Only the last round is reported, the earlier rounds warm up the JIT.
+      for (int round = 0; round < ROUNDS; round++) {
+        lazyNanos = repeatedLookupNanos(lazy, threads);
+        precomputedNanos = repeatedLookupNanos(precomputed, threads);
+      }
+      Benchmarks.report("%d threads lazy %.1f ns/lookup, precomputed %.1f ns/lookup",
+          threads, lazyNanos, precomputedNanos);
+    }
+  }
+
+  /**
+   * Measures the lookups a request makes without precomputed tables, so every lookup goes through
+   * the lazily filled caches, and the bytes allocated per request.
+   */
+  @Test
+  public void repeatedLazyLookups() throws InterruptedException {
+    Registry registry = RegistryTest.createDefaultRegistry()
+        .prepend(Model.class, InputStream.class, new ModelFactory());
+    for (int threads : new int[] {1, 4, 8}) {
+      double best = Double.MAX_VALUE;
+      long[] bytesPerIteration = new long[1];
+      for (int round = 0; round < LAZY_ROUNDS; round++) {
+        best = Math.min(best, repeatedLazyLookupNanos(registry, threads, bytesPerIteration));
+      }
+      Benchmarks.report("%d threads lazy with ModelLoaders %.1f ns/lookup, %d bytes/request",
+          threads, best, bytesPerIteration[0]);
+    }
+  }
+
+  private static long firstLookupNanos(Registry registry) {
+    long start = System.nanoTime();
+    for (Class<?>[] query : RegistryTest.LOAD_PATH_QUERIES) {
+      RegistryTest.getLoadPath(registry, query);
+    }
+    for (Class<?>[] query : RegistryTest.RESOURCE_CLASS_QUERIES) {
+      RegistryTest.getRegisteredResourceClasses(registry, query);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static double repeatedLookupNanos(final Registry registry, int threadCount)
+      throws InterruptedException {
+    // Keeps the JIT from removing the lookups.
+    final AtomicInteger sink = new AtomicInteger();
+    Thread[] threads = new Thread[threadCount];
+    long start = System.nanoTime();
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          int found = 0;
+          for (int j = 0; j < LOOKUPS_PER_THREAD; j++) {
+            Class<?>[] query =
+                RegistryTest.LOAD_PATH_QUERIES[j % RegistryTest.LOAD_PATH_QUERIES.length];
+            if (RegistryTest.getLoadPath(registry, query) != null) {
+              found++;
+            }
+            query = RegistryTest.RESOURCE_CLASS_QUERIES[
+                j % RegistryTest.RESOURCE_CLASS_QUERIES.length];
+            found += RegistryTest.getRegisteredResourceClasses(registry, query).size();
+          }
+          sink.addAndGet(found);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // Each thread does two lookups per iteration.
+    return (System.nanoTime() - start) / (LOOKUPS_PER_THREAD * 2d);
+  }
+
+  private static double repeatedLazyLookupNanos(final Registry registry, int threadCount,
+      long[] bytesPerIteration) throws InterruptedException {
+    final com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final AtomicInteger sink = new AtomicInteger();
+    final AtomicLong allocatedBytes = new AtomicLong();
+    final Model model = new Model();
+    Thread[] threads = new Thread[threadCount];
+    long start = System.nanoTime();
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          long threadId = Thread.currentThread().getId();
+          long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+          int found = 0;
+          for (int j = 0; j < LOOKUPS_PER_THREAD; j++) {
+            Class<?>[] query =
+                RegistryTest.LOAD_PATH_QUERIES[j % RegistryTest.LOAD_PATH_QUERIES.length];
+            if (RegistryTest.getLoadPath(registry, query) != null) {
+              found++;
+            }
+            query = RegistryTest.RESOURCE_CLASS_QUERIES[
+                j % RegistryTest.RESOURCE_CLASS_QUERIES.length];
+            found += RegistryTest.getRegisteredResourceClasses(registry, query).size();
+            found += registry.getModelLoaders(model).size();
+          }
+          allocatedBytes.addAndGet(threadBean.getThreadAllocatedBytes(threadId) - startBytes);
+          sink.addAndGet(found);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - start;
+    bytesPerIteration[0] = allocatedBytes.get() / ((long) threadCount * LOOKUPS_PER_THREAD);
+    // Each thread does three lookups per iteration.
+    return elapsed / (LOOKUPS_PER_THREAD * 3d);
+  }
+
+  private static final class Model { }
+
+  private static final class ModelFactory implements ModelLoaderFactory<Model, InputStream> {
+    @NonNull
+    @Override
+    public ModelLoader<Model, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new ModelLoader<Model, InputStream>() {
+        @Override
+        public LoadData<InputStream> buildLoadData(@NonNull Model model, int width, int height,
+            @NonNull Options options) {
+          return null;
+        }
+
+        @Override
+        public boolean handles(@NonNull Model model) {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,365 @@
+package com.bumptech.glide;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.LoadPath;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
+import com.bumptech.glide.load.resource.transcode.ResourceTranscoder;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RegistryTest {
+  /** {@link Registry#getLoadPath(Class, Class, Class)} arguments a typical screen looks up. */
+  static final Class<?>[][] LOAD_PATH_QUERIES = {
+      {InputStream.class, Object.class, Drawable.class},
+      {ByteBuffer.class, Object.class, Drawable.class},
+      {InputStream.class, Object.class, Bitmap.class},
+      {ParcelFileDescriptor.class, Object.class, Drawable.class},
+      {AssetFileDescriptor.class, Object.class, Drawable.class},
+      {Uri.class, Object.class, Drawable.class},
+      {File.class, Object.class, File.class},
+      {InputStream.class, Object.class, GifDrawable.class},
+      {ByteBuffer.class, Object.class, Bitmap.class},
+      {Drawable.class, Object.class, Drawable.class},
+      // DecodeJob looks up the concrete classes DataFetchers return.
+      {FileInputStream.class, Object.class, Drawable.class},
+  };
+
+  /**
+   * {@link Registry#getRegisteredResourceClasses(Class, Class, Class)} arguments a typical screen
+   * looks up.
+   */
+  static final Class<?>[][] RESOURCE_CLASS_QUERIES = {
+      {String.class, Object.class, Drawable.class},
+      {Uri.class, Object.class, Drawable.class},
+      {File.class, Object.class, Drawable.class},
+      {Integer.class, Object.class, Drawable.class},
+      {String.class, Object.class, Bitmap.class},
+      {GlideUrl.class, Object.class, Drawable.class},
+      {byte[].class, Object.class, Drawable.class},
+      {File.class, Object.class, File.class},
+  };
+
+  private Registry lazy;
+  private Registry precomputed;
+
+  @Before
+  public void setUp() {
+    lazy = createDefaultRegistry();
+    precomputed = createDefaultRegistry();
+    precomputed.precomputeLoadPaths();
+  }
+
+  @Test
+  public void precomputeLoadPaths_returnsSameLoadPathsAsLazyLookups() {
+    for (Class<?>[] query : LOAD_PATH_QUERIES) {
+      assertThat(describe(getLoadPath(precomputed, query)))
+          .named(Arrays.toString(query))
+          .isEqualTo(describe(getLoadPath(lazy, query)));
+    }
+  }
+
+  @Test
+  public void precomputeLoadPaths_returnsSameResourceClassesAsLazyLookups() {
+    for (Class<?>[] query : RESOURCE_CLASS_QUERIES) {
+      assertThat(getRegisteredResourceClasses(precomputed, query))
+          .named(Arrays.toString(query))
+          .containsExactlyElementsIn(getRegisteredResourceClasses(lazy, query))
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void getLoadPath_withNoDecoders_afterPrecompute_returnsNull() {
+    assertThat(precomputed.getLoadPath(URL.class, Object.class, Drawable.class)).isNull();
+  }
+
+  @Test
+  public void getLoadPath_withDataSubclass_afterPrecompute_findsLoadPathLazily() {
+    Class<?>[] query = {ByteArrayInputStream.class, Object.class, Bitmap.class};
+
+    assertThat(describe(getLoadPath(precomputed, query)))
+        .isEqualTo(describe(getLoadPath(lazy, query)));
+  }
+
+  @Test
+  public void getLoadPath_withDataSubclass_afterPrecompute_addsLoadPathToTable() {
+    assertThat(precomputed.isPrecomputed(ByteArrayInputStream.class, Object.class, Bitmap.class))
+        .isFalse();
+
+    LoadPath<?, ?, ?> loadPath =
+        precomputed.getLoadPath(ByteArrayInputStream.class, Object.class, Bitmap.class);
+
+    assertThat(precomputed.isPrecomputed(ByteArrayInputStream.class, Object.class, Bitmap.class))
+        .isTrue();
+    assertThat(precomputed.getLoadPath(ByteArrayInputStream.class, Object.class, Bitmap.class))
+        .isSameAs(loadPath);
+    assertThat(precomputed.isPrecomputed(InputStream.class, Object.class, Bitmap.class)).isTrue();
+  }
+
+  @Test
+  public void getLoadPath_withDataSubclass_withoutPrecompute_doesNotPrecompute() {
+    lazy.getLoadPath(ByteArrayInputStream.class, Object.class, Bitmap.class);
+
+    assertThat(lazy.isPrecomputed(ByteArrayInputStream.class, Object.class, Bitmap.class))
+        .isFalse();
+  }
+
+  @Test
+  public void getLoadPath_withNoDecoders_afterPrecompute_doesNotAddToTable() {
+    precomputed.getLoadPath(URL.class, Object.class, Drawable.class);
+
+    assertThat(precomputed.isPrecomputed(URL.class, Object.class, Drawable.class)).isFalse();
+  }
+
+  @Test
+  public void append_decoderAfterDataSubclassLookup_discardsTable() {
+    precomputed.getLoadPath(ByteArrayInputStream.class, Object.class, Bitmap.class);
+    precomputed.append(
+        InputStream.class, Bitmap.class, new FakeDecoder<InputStream, Bitmap>("new"));
+    precomputed.getLoadPath(ByteArrayInputStream.class, Object.class, Bitmap.class);
+
+    assertThat(precomputed.isPrecomputed(ByteArrayInputStream.class, Object.class, Bitmap.class))
+        .isFalse();
+  }
+
+  @Test
+  public void getLoadPath_withNarrowedResourceClass_afterPrecompute_findsLoadPathLazily() {
+    assertThat(describe(precomputed.getLoadPath(InputStream.class, Bitmap.class, Drawable.class)))
+        .isEqualTo(describe(lazy.getLoadPath(InputStream.class, Bitmap.class, Drawable.class)));
+  }
+
+  @Test
+  public void append_decoderAfterPrecompute_isIncludedInLoadPath() {
+    precomputed.append(
+        InputStream.class, Bitmap.class, new FakeDecoder<InputStream, Bitmap>("new"));
+
+    assertThat(describe(precomputed.getLoadPath(InputStream.class, Object.class, Bitmap.class)))
+        .contains("new");
+  }
+
+  @Test
+  public void prepend_decoderAfterPrecompute_isIncludedInLoadPath() {
+    precomputed.prepend(
+        InputStream.class, Bitmap.class, new FakeDecoder<InputStream, Bitmap>("new"));
+
+    assertThat(describe(precomputed.getLoadPath(InputStream.class, Object.class, Bitmap.class)))
+        .contains("new");
+  }
+
+  @Test
+  public void register_transcoderAfterPrecompute_isIncludedInLoadPath() {
+    precomputed.register(
+        Bitmap.class, Integer.class, new FakeTranscoder<Bitmap, Integer>("new"));
+
+    assertThat(describe(precomputed.getLoadPath(InputStream.class, Object.class, Integer.class)))
+        .contains("new");
+  }
+
+  @Test
+  public void setResourceDecoderBucketPriorityList_afterPrecompute_reordersDecoders() {
+    List<String> buckets =
+        Arrays.asList(Registry.BUCKET_BITMAP_DRAWABLE, Registry.BUCKET_BITMAP, Registry.BUCKET_GIF);
+    precomputed.setResourceDecoderBucketPriorityList(buckets);
+    lazy.setResourceDecoderBucketPriorityList(buckets);
+
+    assertThat(describe(precomputed.getLoadPath(InputStream.class, Object.class, Drawable.class)))
+        .isEqualTo(describe(lazy.getLoadPath(InputStream.class, Object.class, Drawable.class)));
+  }
+
+  @Test
+  public void append_modelLoaderAfterPrecompute_isIncludedInResourceClasses() {
+    precomputed.append(Long.class, InputStream.class, new FakeFactory<Long, InputStream>());
+
+    assertThat(precomputed.getRegisteredResourceClasses(Long.class, Object.class, Drawable.class))
+        .isNotEmpty();
+  }
+
+  @Test
+  public void precomputeLoadPaths_afterRegistration_includesNewComponents() {
+    precomputed.append(
+        InputStream.class, Bitmap.class, new FakeDecoder<InputStream, Bitmap>("new"));
+    precomputed.precomputeLoadPaths();
+
+    assertThat(describe(precomputed.getLoadPath(InputStream.class, Object.class, Bitmap.class)))
+        .contains("new");
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static LoadPath<?, ?, ?> getLoadPath(Registry registry, Class<?>[] query) {
+    return registry.getLoadPath((Class) query[0], (Class) query[1], (Class) query[2]);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static List<Class<?>> getRegisteredResourceClasses(Registry registry, Class<?>[] query) {
+    return registry.getRegisteredResourceClasses(
+        (Class) query[0], (Class) query[1], (Class) query[2]);
+  }
+
+  private static String describe(LoadPath<?, ?, ?> loadPath) {
+    return String.valueOf(loadPath);
+  }
+
+  /**
+   * Returns a {@link Registry} with fake components registered for the same classes, and in the
+   * same order, as the defaults {@link Glide} registers.
+   */
+  static Registry createDefaultRegistry() {
+    return new Registry()
+        .append(Registry.BUCKET_BITMAP, ByteBuffer.class, Bitmap.class,
+            new FakeDecoder<ByteBuffer, Bitmap>("ByteBufferBitmapDecoder"))
+        .append(Registry.BUCKET_BITMAP, InputStream.class, Bitmap.class,
+            new FakeDecoder<InputStream, Bitmap>("StreamBitmapDecoder"))
+        .append(Registry.BUCKET_BITMAP, ParcelFileDescriptor.class, Bitmap.class,
+            new FakeDecoder<ParcelFileDescriptor, Bitmap>("ParcelFileDescriptorVideoDecoder"))
+        .append(Registry.BUCKET_BITMAP, AssetFileDescriptor.class, Bitmap.class,
+            new FakeDecoder<AssetFileDescriptor, Bitmap>("AssetFileDescriptorVideoDecoder"))
+        .append(Bitmap.class, Bitmap.class, new FakeFactory<Bitmap, Bitmap>())
+        .append(Registry.BUCKET_BITMAP, Bitmap.class, Bitmap.class,
+            new FakeDecoder<Bitmap, Bitmap>("UnitBitmapDecoder"))
+        .append(Registry.BUCKET_BITMAP_DRAWABLE, ByteBuffer.class, BitmapDrawable.class,
+            new FakeDecoder<ByteBuffer, BitmapDrawable>("ByteBufferBitmapDrawableDecoder"))
+        .append(Registry.BUCKET_BITMAP_DRAWABLE, InputStream.class, BitmapDrawable.class,
+            new FakeDecoder<InputStream, BitmapDrawable>("StreamBitmapDrawableDecoder"))
+        .append(Registry.BUCKET_BITMAP_DRAWABLE, ParcelFileDescriptor.class, BitmapDrawable.class,
+            new FakeDecoder<ParcelFileDescriptor, BitmapDrawable>("VideoBitmapDrawableDecoder"))
+        .append(Registry.BUCKET_GIF, InputStream.class, GifDrawable.class,
+            new FakeDecoder<InputStream, GifDrawable>("StreamGifDecoder"))
+        .append(Registry.BUCKET_GIF, ByteBuffer.class, GifDrawable.class,
+            new FakeDecoder<ByteBuffer, GifDrawable>("ByteBufferGifDecoder"))
+        .append(GifDecoder.class, GifDecoder.class, new FakeFactory<GifDecoder, GifDecoder>())
+        .append(Registry.BUCKET_BITMAP, GifDecoder.class, Bitmap.class,
+            new FakeDecoder<GifDecoder, Bitmap>("GifFrameResourceDecoder"))
+        .append(Uri.class, Drawable.class,
+            new FakeDecoder<Uri, Drawable>("ResourceDrawableDecoder"))
+        .append(Uri.class, Bitmap.class, new FakeDecoder<Uri, Bitmap>("ResourceBitmapDecoder"))
+        .append(File.class, ByteBuffer.class, new FakeFactory<File, ByteBuffer>())
+        .append(File.class, InputStream.class, new FakeFactory<File, InputStream>())
+        .append(File.class, File.class, new FakeDecoder<File, File>("FileDecoder"))
+        .append(File.class, ParcelFileDescriptor.class,
+            new FakeFactory<File, ParcelFileDescriptor>())
+        .append(File.class, File.class, new FakeFactory<File, File>())
+        .append(int.class, InputStream.class, new FakeFactory<Integer, InputStream>())
+        .append(int.class, ParcelFileDescriptor.class,
+            new FakeFactory<Integer, ParcelFileDescriptor>())
+        .append(Integer.class, InputStream.class, new FakeFactory<Integer, InputStream>())
+        .append(Integer.class, ParcelFileDescriptor.class,
+            new FakeFactory<Integer, ParcelFileDescriptor>())
+        .append(Integer.class, Uri.class, new FakeFactory<Integer, Uri>())
+        .append(int.class, AssetFileDescriptor.class,
+            new FakeFactory<Integer, AssetFileDescriptor>())
+        .append(Integer.class, AssetFileDescriptor.class,
+            new FakeFactory<Integer, AssetFileDescriptor>())
+        .append(int.class, Uri.class, new FakeFactory<Integer, Uri>())
+        .append(String.class, InputStream.class, new FakeFactory<String, InputStream>())
+        .append(Uri.class, InputStream.class, new FakeFactory<Uri, InputStream>())
+        .append(String.class, InputStream.class, new FakeFactory<String, InputStream>())
+        .append(String.class, ParcelFileDescriptor.class,
+            new FakeFactory<String, ParcelFileDescriptor>())
+        .append(String.class, AssetFileDescriptor.class,
+            new FakeFactory<String, AssetFileDescriptor>())
+        .append(Uri.class, InputStream.class, new FakeFactory<Uri, InputStream>())
+        .append(Uri.class, ParcelFileDescriptor.class, new FakeFactory<Uri, ParcelFileDescriptor>())
+        .append(Uri.class, AssetFileDescriptor.class, new FakeFactory<Uri, AssetFileDescriptor>())
+        .append(URL.class, InputStream.class, new FakeFactory<URL, InputStream>())
+        .append(Uri.class, File.class, new FakeFactory<Uri, File>())
+        .append(GlideUrl.class, InputStream.class, new FakeFactory<GlideUrl, InputStream>())
+        .append(byte[].class, ByteBuffer.class, new FakeFactory<byte[], ByteBuffer>())
+        .append(byte[].class, InputStream.class, new FakeFactory<byte[], InputStream>())
+        .append(Uri.class, Uri.class, new FakeFactory<Uri, Uri>())
+        .append(Drawable.class, Drawable.class, new FakeFactory<Drawable, Drawable>())
+        .append(Drawable.class, Drawable.class,
+            new FakeDecoder<Drawable, Drawable>("UnitDrawableDecoder"))
+        .register(Bitmap.class, BitmapDrawable.class,
+            new FakeTranscoder<Bitmap, BitmapDrawable>("BitmapDrawableTranscoder"))
+        .register(Bitmap.class, byte[].class,
+            new FakeTranscoder<Bitmap, byte[]>("BitmapBytesTranscoder"))
+        .register(Drawable.class, byte[].class,
+            new FakeTranscoder<Drawable, byte[]>("DrawableBytesTranscoder"))
+        .register(GifDrawable.class, byte[].class,
+            new FakeTranscoder<GifDrawable, byte[]>("GifDrawableBytesTranscoder"));
+  }
+
+  private static final class FakeDecoder<T, Z> implements ResourceDecoder<T, Z> {
+    private final String name;
+
+    FakeDecoder(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean handles(@NonNull T source, @NonNull Options options) {
+      return true;
+    }
+
+    @Override
+    public Resource<Z> decode(@NonNull T source, int width, int height,
+        @NonNull Options options) {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static final class FakeTranscoder<Z, R> implements ResourceTranscoder<Z, R> {
+    private final String name;
+
+    FakeTranscoder(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Resource<R> transcode(@NonNull Resource<Z> toTranscode, @NonNull Options options) {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static final class FakeFactory<Model, Data> implements ModelLoaderFactory<Model, Data> {
+    @NonNull
+    @Override
+    public ModelLoader<Model, Data> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return null;
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.bumptech.glide.disklrucache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DiskLruCacheTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File directory;
+  private DiskLruCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = temporaryFolder.newFolder();
+    cache = DiskLruCache.open(directory, /*appVersion=*/ 1, /*valueCount=*/ 1, 1024 * 1024);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    cache.close();
+  }
+
+  @Test
+  public void commit_withoutBatch_flushesJournal() throws IOException {
+    put("a");
+
+    assertThat(readJournal()).contains("CLEAN a");
+  }
+
+  @Test
+  public void commit_inBatch_flushesJournalWhenBatchEnds() throws IOException {
+    cache.beginBatch();
+    put("a");
+
+    assertThat(readJournal()).doesNotContain("CLEAN a");
+
+    cache.endBatch();
+
+    assertThat(readJournal()).contains("CLEAN a");
+  }
+
+  @Test
+  public void commit_inNestedBatch_flushesJournalWhenOutermostBatchEnds() throws IOException {
+    cache.beginBatch();
+    cache.beginBatch();
+    put("a");
+    cache.endBatch();
+
+    assertThat(readJournal()).doesNotContain("CLEAN a");
+
+    cache.endBatch();
+
+    assertThat(readJournal()).contains("CLEAN a");
+  }
+
+  @Test
+  public void commit_onOtherThreadDuringBatch_flushesJournal() throws Exception {
+    cache.beginBatch();
+
+    runOnOtherThread(new Task() {
+      @Override
+      public void run() throws IOException {
+        put("other");
+      }
+    });
+
+    assertThat(readJournal()).contains("CLEAN other");
+    cache.endBatch();
+  }
+
+  @Test
+  public void endBatch_onOtherThread_doesNotEndBatch() throws Exception {
+    cache.beginBatch();
+
+    runOnOtherThread(new Task() {
+      @Override
+      public void run() throws IOException {
+        cache.endBatch();
+      }
+    });
+    put("a");
+
+    assertThat(readJournal()).doesNotContain("CLEAN a");
+    cache.endBatch();
+    assertThat(readJournal()).contains("CLEAN a");
+  }
+
+  private void put(String key) throws IOException {
+    DiskLruCache.Editor editor = cache.edit(key);
+    editor.set(0, key);
+    editor.commit();
+  }
+
+  private String readJournal() throws IOException {
+    File journal = new File(directory, DiskLruCache.JOURNAL_FILE);
+    byte[] bytes = new byte[(int) journal.length()];
+    FileInputStream is = new FileInputStream(journal);
+    try {
+      int read = 0;
+      while (read < bytes.length) {
+        read += is.read(bytes, read, bytes.length - read);
+      }
+    } finally {
+      is.close();
+    }
+    return new String(bytes, "US-ASCII");
+  }
+
+  private static void runOnOtherThread(final Task task) throws Exception {
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          task.run();
+        } catch (Exception e) {
+          failure.set(e);
+        }
+      }
+    });
+    thread.start();
+    thread.join();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  private interface Task {
+    void run() throws IOException;
+  }
+}
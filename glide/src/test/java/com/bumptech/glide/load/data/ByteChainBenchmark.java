@@ -0,0 +1,94 @@
+package com.bumptech.glide.load.data;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.tests.Benchmarks;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the bytes allocated to read a stream fully into an array with a
+ * {@link ByteArrayOutputStream} and with a {@link ByteChain}, after the pool has warmed up.
+ *
+ * <p>Requires a JVM that implements {@link com.sun.management.ThreadMXBean}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ByteChainBenchmark {
+  private static final int MB = 1024 * 1024;
+  private static final int WARM_UP_ITERATIONS = 3;
+
+  private final com.sun.management.ThreadMXBean threadMxBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  // Large enough to hold every segment of the largest chain.
+  private final ArrayPool byteArrayPool = new LruArrayPool(64 * MB);
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+  }
+
+  @Test
+  public void readFully() throws IOException {
+    for (int sizeMb : new int[] {1, 10, 50}) {
+      byte[] source = new byte[sizeMb * MB];
+      new Random(sizeMb).nextBytes(source);
+      for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+        readWithByteArrayOutputStream(new ByteArrayInputStream(source));
+        readWithByteChain(new ByteArrayInputStream(source));
+      }
+
+      long start = allocatedBytes();
+      byte[] fromOutputStream = readWithByteArrayOutputStream(new ByteArrayInputStream(source));
+      long outputStreamAllocated = allocatedBytes() - start;
+      start = allocatedBytes();
+      byte[] fromChain = readWithByteChain(new ByteArrayInputStream(source));
+      long chainAllocated = allocatedBytes() - start;
+
+      assertThat(fromOutputStream).isEqualTo(source);
+      assertThat(fromChain).isEqualTo(source);
+      Benchmarks.report("%dMB: ByteArrayOutputStream %.1fMB allocated, ByteChain %.1fMB allocated",
+          sizeMb, outputStreamAllocated / (double) MB, chainAllocated / (double) MB);
+    }
+  }
+
+  /**
+   * Reads the stream the way {@link com.bumptech.glide.load.resource.gif.StreamGifDecoder} did
+   * before it used a {@link ByteChain}.
+   */
+  private static byte[] readWithByteArrayOutputStream(InputStream is) throws IOException {
+    final int bufferSize = 16384;
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(bufferSize);
+    byte[] data = new byte[bufferSize];
+    int read;
+    while ((read = is.read(data)) != -1) {
+      buffer.write(data, 0, read);
+    }
+    return buffer.toByteArray();
+  }
+
+  private byte[] readWithByteChain(InputStream is) throws IOException {
+    ByteChain chain = new ByteChain(byteArrayPool);
+    try {
+      chain.readFrom(is);
+      return chain.toByteArray();
+    } finally {
+      chain.release();
+    }
+  }
+
+  private long allocatedBytes() {
+    return threadMxBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
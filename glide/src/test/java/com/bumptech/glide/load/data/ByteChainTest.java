@@ -0,0 +1,240 @@
+package com.bumptech.glide.load.data;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.data.ByteChain.ChainInputStream;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ByteChainTest {
+  private static final int SEGMENT_SIZE = ByteChain.SEGMENT_SIZE;
+
+  private final CountingArrayPool byteArrayPool = new CountingArrayPool();
+  private ByteChain chain;
+  private byte[] data;
+
+  @Before
+  public void setUp() {
+    chain = new ByteChain(byteArrayPool);
+    data = new byte[2 * SEGMENT_SIZE + 100];
+    new Random(1).nextBytes(data);
+  }
+
+  @Test
+  public void toByteArray_withEmptyChain_returnsEmptyArray() {
+    assertThat(chain.size()).isEqualTo(0);
+    assertThat(chain.toByteArray()).isEmpty();
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void write_acrossSegments_appendsData() {
+    chain.write(data, 0, 10);
+    chain.write(data, 10, data.length - 10);
+
+    assertThat(chain.size()).isEqualTo(data.length);
+    assertThat(chain.toByteArray()).isEqualTo(data);
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void write_withSingleBytes_appendsData() {
+    for (byte b : data) {
+      chain.write(b);
+    }
+
+    assertThat(chain.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void readFrom_readsWholeStream() throws IOException {
+    chain.write(data, 0, 10);
+
+    int read = chain.readFrom(new ByteArrayInputStream(data, 10, data.length - 10));
+
+    assertThat(read).isEqualTo(data.length - 10);
+    assertThat(chain.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void readFrom_withStreamReturningPartialReads_readsWholeStream() throws IOException {
+    int read = chain.readFrom(new TrickleInputStream(data));
+
+    assertThat(read).isEqualTo(data.length);
+    assertThat(chain.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void toDirectByteBuffer_copiesData() {
+    chain.write(data, 0, data.length);
+
+    ByteBuffer buffer = chain.toDirectByteBuffer();
+
+    assertThat(buffer.isDirect()).isTrue();
+    assertThat(buffer.position()).isEqualTo(0);
+    assertThat(buffer.capacity()).isEqualTo(data.length);
+    byte[] result = new byte[data.length];
+    buffer.get(result);
+    assertThat(result).isEqualTo(data);
+  }
+
+  @Test
+  public void asByteBuffers_returnsReadOnlyViewOfEachSegment() {
+    chain.write(data, 0, data.length);
+
+    List<ByteBuffer> buffers = chain.asByteBuffers();
+
+    assertThat(buffers).hasSize(3);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    for (ByteBuffer buffer : buffers) {
+      assertThat(buffer.isReadOnly()).isTrue();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      os.write(bytes, 0, bytes.length);
+    }
+    assertThat(os.toByteArray()).isEqualTo(data);
+    try {
+      buffers.get(0).put(0, (byte) 1);
+      fail("Expected ReadOnlyBufferException");
+    } catch (ReadOnlyBufferException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void asOutputStream_appendsData() throws IOException {
+    OutputStream os = chain.asOutputStream();
+    os.write(data[0]);
+    os.write(data, 1, data.length - 1);
+
+    assertThat(chain.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void asInputStream_readsData() throws IOException {
+    chain.write(data, 0, data.length);
+    InputStream is = chain.asInputStream();
+
+    assertThat(is.read()).isEqualTo(data[0] & 0xFF);
+    byte[] rest = new byte[data.length];
+    int read = 0;
+    int current;
+    while ((current = is.read(rest, read, rest.length - read)) > 0) {
+      read += current;
+    }
+    assertThat(read).isEqualTo(data.length - 1);
+    assertThat(Arrays.copyOf(rest, read)).isEqualTo(Arrays.copyOfRange(data, 1, data.length));
+    assertThat(is.read()).isEqualTo(-1);
+    assertThat(is.read(rest, 0, 1)).isEqualTo(-1);
+  }
+
+  @Test
+  public void asInputStream_skipsAndReportsAvailable() throws IOException {
+    chain.write(data, 0, data.length);
+    InputStream is = chain.asInputStream();
+
+    assertThat(is.skip(SEGMENT_SIZE + 5)).isEqualTo(SEGMENT_SIZE + 5);
+    assertThat(is.available()).isEqualTo(data.length - SEGMENT_SIZE - 5);
+    assertThat(is.skip(data.length)).isEqualTo(data.length - SEGMENT_SIZE - 5);
+    assertThat(is.available()).isEqualTo(0);
+  }
+
+  @Test
+  public void asInputStream_resetsToMarkWithoutLimit() throws IOException {
+    chain.write(data, 0, data.length);
+    InputStream is = chain.asInputStream();
+    is.skip(10);
+
+    assertThat(is.markSupported()).isTrue();
+    is.mark(1);
+    is.skip(data.length);
+    is.reset();
+
+    assertThat(is.read()).isEqualTo(data[10] & 0xFF);
+  }
+
+  @Test
+  public void close_onInputStream_releasesChain() {
+    chain.write(data, 0, data.length);
+
+    chain.asInputStream().close();
+
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void release_returnsAllSegments() {
+    chain.write(data, 0, data.length);
+
+    chain.release();
+    chain.release();
+
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+    assertThat(chain.size()).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void write_afterRelease_throws() {
+    chain.release();
+
+    chain.write(1);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void toByteArray_afterRelease_throws() {
+    chain.release();
+
+    chain.toByteArray();
+  }
+
+  @Test
+  public void rewinder_rewindsToStart() throws IOException {
+    chain.write(data, 0, data.length);
+    ChainInputStream is = chain.asInputStream();
+    is.skip(100);
+    DataRewinder<ChainInputStream> rewinder = new ByteChain.Rewinder.Factory().build(is);
+
+    assertThat(rewinder.rewindAndGet()).isSameAs(is);
+    assertThat(is.read()).isEqualTo(data[0] & 0xFF);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rewinder_afterRelease_throws() throws IOException {
+    ChainInputStream is = chain.asInputStream();
+    DataRewinder<ChainInputStream> rewinder = new ByteChain.Rewinder.Factory().build(is);
+    is.close();
+
+    rewinder.rewindAndGet();
+  }
+
+  /**
+   * Returns at most 1000 bytes from each read.
+   */
+  private static final class TrickleInputStream extends ByteArrayInputStream {
+    TrickleInputStream(byte[] data) {
+      super(data);
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int offset, int length) {
+      return super.read(buffer, offset, Math.min(length, 1000));
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.load.resource.bitmap.DerivativeSizes;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DerivativeWriterTest {
+  private static final int SIZE = 400;
+
+  @Mock private BitmapPool bitmapPool;
+
+  private final Key sourceKey = new ObjectKey("source");
+  private final Key signature = new ObjectKey("signature");
+  private final FakeTransformation transformation = new FakeTransformation();
+  private final RecordingDiskCache diskCache = new RecordingDiskCache();
+  private final RecordingEncoder encoder = new RecordingEncoder();
+  private Context context;
+  private ArrayPool arrayPool;
+  private Bitmap decodedBitmap;
+  private Resource<Bitmap> decoded;
+  private Options options;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    context = RuntimeEnvironment.application;
+    when(bitmapPool.get(anyInt(), anyInt(), eq(Bitmap.Config.ARGB_8888)))
+        .thenAnswer(new Answer<Bitmap>() {
+          @Override
+          public Bitmap answer(InvocationOnMock invocation) {
+            return Bitmap.createBitmap((Integer) invocation.getArguments()[0],
+                (Integer) invocation.getArguments()[1], Bitmap.Config.ARGB_8888);
+          }
+        });
+    Glide.init(context, new GlideBuilder().setBitmapPool(bitmapPool));
+    arrayPool = new LruArrayPool();
+    decodedBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    decoded = BitmapResource.obtain(decodedBitmap, bitmapPool);
+    options = new Options()
+        .set(DerivativeSizes.OPTION, DerivativeSizes.of(200, 200).and(100, 100));
+  }
+
+  @After
+  public void tearDown() {
+    Glide.tearDown();
+  }
+
+  @Test
+  public void create_withoutDerivativeSizes_returnsNull() {
+    assertThat(create(new Options(), /*isDecodedOwned=*/ true)).isNull();
+  }
+
+  @Test
+  public void create_withAtMost_returnsNull() {
+    options.set(DownsampleStrategy.OPTION, DownsampleStrategy.AT_MOST);
+
+    assertThat(create(options, /*isDecodedOwned=*/ true)).isNull();
+  }
+
+  @Test
+  public void create_withAtLeast_returnsNull() {
+    options.set(DownsampleStrategy.OPTION, DownsampleStrategy.AT_LEAST);
+
+    assertThat(create(options, /*isDecodedOwned=*/ true)).isNull();
+  }
+
+  @Test
+  public void create_withOnlyRequestedOrLargerSizes_returnsNull() {
+    options.set(DerivativeSizes.OPTION, DerivativeSizes.of(SIZE, SIZE).and(SIZE + 1, 100));
+
+    assertThat(create(options, /*isDecodedOwned=*/ true)).isNull();
+  }
+
+  @Test
+  public void writeTo_writesEachSmallerSizeUnderKeyWithoutDerivativeSizes() {
+    options.set(DerivativeSizes.OPTION,
+        DerivativeSizes.of(200, 200).and(SIZE, SIZE).and(800, 800).and(100, 100));
+
+    create(options, /*isDecodedOwned=*/ true).writeTo(diskCache, encoder);
+
+    assertThat(diskCache.keys).containsExactly(keyFor(200, 200), keyFor(100, 100)).inOrder();
+    assertThat(encoder.sizes).containsExactly("200x200", "100x100").inOrder();
+    assertThat(transformation.sizes).containsExactly("200x200", "100x100").inOrder();
+  }
+
+  @Test
+  public void writeTo_recyclesDownsampledAndTransformedBitmaps() {
+    create(options, /*isDecodedOwned=*/ true).writeTo(diskCache, encoder);
+
+    for (Bitmap bitmap : transformation.inputs) {
+      verify(bitmapPool).put(bitmap);
+    }
+    for (Bitmap bitmap : transformation.outputs) {
+      verify(bitmapPool).put(bitmap);
+    }
+    verify(bitmapPool, never()).put(decodedBitmap);
+  }
+
+  @Test
+  public void writeTo_whenTransformationThrows_recyclesDownsampledAndWritesOtherSizes() {
+    transformation.failingWidth = 200;
+
+    create(options, /*isDecodedOwned=*/ true).writeTo(diskCache, encoder);
+
+    assertThat(diskCache.keys).containsExactly(keyFor(100, 100));
+    for (Bitmap bitmap : transformation.inputs) {
+      verify(bitmapPool).put(bitmap);
+    }
+  }
+
+  @Test
+  public void writeTo_whenTransformationReturnsDecoded_writesNothing() {
+    options.set(DerivativeSizes.OPTION, DerivativeSizes.of(SIZE - 1, SIZE - 1));
+    options.set(DownsampleStrategy.OPTION, DownsampleStrategy.NONE);
+    transformation.isIdentity = true;
+
+    create(options, /*isDecodedOwned=*/ true).writeTo(diskCache, encoder);
+
+    assertThat(diskCache.keys).isEmpty();
+    verify(bitmapPool, never()).put(same(decodedBitmap));
+  }
+
+  @Test
+  public void release_withOwnedDecoded_recyclesDecoded() {
+    create(options, /*isDecodedOwned=*/ true).release();
+
+    verify(bitmapPool).put(decodedBitmap);
+  }
+
+  @Test
+  public void release_withoutOwnedDecoded_doesNotRecycleDecoded() {
+    create(options, /*isDecodedOwned=*/ false).release();
+
+    verify(bitmapPool, never()).put(decodedBitmap);
+  }
+
+  @Nullable
+  private DerivativeWriter<Bitmap> create(Options options, boolean isDecodedOwned) {
+    return DerivativeWriter.create(context, arrayPool, decoded, isDecodedOwned, SIZE, SIZE,
+        sourceKey, signature, transformation, Bitmap.class, options);
+  }
+
+  private Key keyFor(int width, int height) {
+    Options derivativeOptions = new Options();
+    derivativeOptions.putAll(options);
+    derivativeOptions.remove(DerivativeSizes.OPTION);
+    return new ResourceCacheKey(arrayPool, sourceKey, signature, width, height, transformation,
+        Bitmap.class, derivativeOptions);
+  }
+
+  private final class FakeTransformation implements Transformation<Bitmap> {
+    final List<String> sizes = new ArrayList<>();
+    final List<Bitmap> inputs = new ArrayList<>();
+    final List<Bitmap> outputs = new ArrayList<>();
+    int failingWidth;
+    boolean isIdentity;
+
+    @NonNull
+    @Override
+    public Resource<Bitmap> transform(@NonNull Context context,
+        @NonNull Resource<Bitmap> resource, int outWidth, int outHeight) {
+      inputs.add(resource.get());
+      if (outWidth == failingWidth) {
+        throw new IllegalStateException("Failed to transform");
+      }
+      if (isIdentity) {
+        return resource;
+      }
+      sizes.add(outWidth + "x" + outHeight);
+      Bitmap result = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+      outputs.add(result);
+      return BitmapResource.obtain(result, bitmapPool);
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update("FakeTransformation".getBytes());
+    }
+  }
+
+  private static final class RecordingEncoder implements ResourceEncoder<Bitmap> {
+    final List<String> sizes = new ArrayList<>();
+
+    @NonNull
+    @Override
+    public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
+      return EncodeStrategy.TRANSFORMED;
+    }
+
+    @Override
+    public boolean encode(@NonNull Resource<Bitmap> data, @NonNull File file,
+        @NonNull Options options) {
+      sizes.add(data.get().getWidth() + "x" + data.get().getHeight());
+      return true;
+    }
+  }
+
+  private static final class RecordingDiskCache implements DiskCache {
+    final List<Key> keys = new ArrayList<>();
+
+    @Nullable
+    @Override
+    public File get(Key key) {
+      return null;
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      keys.add(key);
+      writer.write(new File("unused"));
+    }
+
+    @Override
+    public void delete(Key key) {
+      // Do nothing.
+    }
+
+    @Override
+    public void clear() {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,630 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.Pools;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.resource.SimpleResource;
+import com.bumptech.glide.request.ResourceCallback;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.Executors;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Pauses and resumes {@link EngineJob}s running real {@link DecodeJob}s, with queued executors so
+ * that each step of the load runs on the test thread when the test asks for it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class EngineJobTest {
+  private static final String MODEL = "model";
+  private static final String DATA = "data";
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock private GlideContext glideContext;
+  @Mock private EngineJobListener listener;
+  @Mock private Pools.Pool<EngineJob<?>> engineJobPool;
+  @Mock private Pools.Pool<DecodeJob<?>> decodeJobPool;
+
+  private final Queue<Runnable> pending = new ArrayDeque<>();
+  private final SourceFetcher sourceFetcher = new SourceFetcher();
+  private final List<CachedFetcher> cachedFetchers = new ArrayList<>();
+  private GlideExecutor executor;
+  private DiskCache diskCache;
+  private SourceFetchCoordinator sourceFetchCoordinator;
+
+  @Before
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+    executor = MockGlideExecutor.newQueuedExecutor(pending);
+    diskCache = DiskLruCacheWrapper.create(temporaryFolder.newFolder(), 1024 * 1024);
+    Registry registry = new Registry()
+        .append(String.class, String.class, new SourceLoaderFactory())
+        .append(File.class, String.class, new CachedLoaderFactory())
+        .append(String.class, new StringEncoder())
+        .append(String.class, new StringResourceEncoder())
+        .append(String.class, String.class, new StringDecoder());
+    when(glideContext.getRegistry()).thenReturn(registry);
+    when(glideContext.getArrayPool()).thenReturn(new LruArrayPool());
+  }
+
+  @After
+  public void tearDown() {
+    diskCache.clear();
+  }
+
+  @Test
+  public void resumeCallback_afterPausedWithFetchedData_fetchesAgainAndDelivers() {
+    FakeCallback cb = new FakeCallback();
+    EngineJob<String> engineJob = startLoad(cb);
+    engineJob.pauseCallback(cb, /*isDiskCacheWriteAllowed=*/ false);
+
+    sourceFetcher.deliver();
+    runPending();
+
+    // The fetched data isn't in the disk cache, so it's released rather than held while paused.
+    assertThat(sourceFetcher.cleanupCount).isEqualTo(1);
+    assertThat(diskCache.get(getDataCacheKey())).isNull();
+    assertThat(cb.isCalled()).isFalse();
+
+    engineJob.resumeCallback(cb);
+    runPending();
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(2);
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(cb.result).isEqualTo(DATA);
+  }
+
+  @Test
+  public void removeCallback_whilePaused_cancelsAndReleasesJob() {
+    FakeCallback cb = new FakeCallback();
+    EngineJob<String> engineJob = startLoad(cb);
+    engineJob.pauseCallback(cb, /*isDiskCacheWriteAllowed=*/ false);
+    sourceFetcher.deliver();
+    runPending();
+
+    engineJob.removeCallback(cb);
+    runPending();
+
+    verify(listener).onEngineJobCancelled(eq(engineJob), any(Key.class));
+    verify(engineJobPool).release(engineJob);
+    assertThat(cb.isCalled()).isFalse();
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+  }
+
+  @Test
+  public void pauseCallback_allowingDiskCacheWrites_writesDataAndDefersDecode() {
+    FakeCallback cb = new FakeCallback();
+    EngineJob<String> engineJob = startLoad(cb);
+    engineJob.pauseCallback(cb, /*isDiskCacheWriteAllowed=*/ true);
+
+    sourceFetcher.deliver();
+    runPending();
+
+    // The data is written and then read back from the disk cache, but not decoded.
+    assertThat(diskCache.get(getDataCacheKey())).isNotNull();
+    assertThat(cachedFetchers).hasSize(1);
+    assertThat(cachedFetchers.get(0).cleanupCount).isEqualTo(0);
+    assertThat(cb.isCalled()).isFalse();
+
+    engineJob.resumeCallback(cb);
+    runPending();
+
+    assertThat(cb.result).isEqualTo(DATA);
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+    assertThat(cachedFetchers.get(0).cleanupCount).isGreaterThan(0);
+  }
+
+  @Test
+  public void pauseCallback_withoutDiskCacheWrites_doesNotWriteData() {
+    FakeCallback cb = new FakeCallback();
+    EngineJob<String> engineJob = startLoad(cb);
+    engineJob.pauseCallback(cb, /*isDiskCacheWriteAllowed=*/ false);
+
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(engineJob.isPaused(/*isPopulatingDiskCache=*/ true)).isTrue();
+    assertThat(diskCache.get(getDataCacheKey())).isNull();
+    assertThat(cachedFetchers).isEmpty();
+  }
+
+  @Test
+  public void pauseCallback_withOtherCallbackNotPaused_doesNotDefer() {
+    FakeCallback paused = new FakeCallback();
+    FakeCallback running = new FakeCallback();
+    EngineJob<String> engineJob = startLoad(paused);
+    engineJob.addCallback(running, Executors.directExecutor());
+    engineJob.pauseCallback(paused, /*isDiskCacheWriteAllowed=*/ false);
+
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(paused.result).isEqualTo(DATA);
+    assertThat(running.result).isEqualTo(DATA);
+  }
+
+  @Test
+  public void resumeCallback_afterLoadCompleted_doesNotRunJobAgain() {
+    FakeCallback cb = new FakeCallback();
+    EngineJob<String> engineJob = startLoad(cb);
+    sourceFetcher.deliver();
+    runPending();
+    assertThat(cb.result).isEqualTo(DATA);
+
+    // Requests may pause and resume after the load finished but before they were notified.
+    engineJob.pauseCallback(cb, /*isDiskCacheWriteAllowed=*/ false);
+    engineJob.resumeCallback(cb);
+
+    assertThat(pending).isEmpty();
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+    verify(listener, never()).onEngineJobCancelled(eq(engineJob), any(Key.class));
+  }
+
+  @Test
+  public void pauseCallback_whileFetchingForWaitingLoad_letsWaitingLoadFetch() {
+    sourceFetchCoordinator = new SourceFetchCoordinator();
+    FakeCallback leaderCb = new FakeCallback();
+    FakeCallback waiterCb = new FakeCallback();
+    EngineJob<String> leader = startLoad(leaderCb, /*width=*/ 100);
+    startLoad(waiterCb, /*width=*/ 50);
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+
+    leader.pauseCallback(leaderCb, /*isDiskCacheWriteAllowed=*/ false);
+    sourceFetcher.deliver();
+    runPending();
+
+    // The waiting load fetches the data itself rather than waiting for the paused load.
+    assertThat(sourceFetcher.loadCount).isEqualTo(2);
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(waiterCb.result).isEqualTo(DATA);
+    assertThat(leaderCb.isCalled()).isFalse();
+  }
+
+  @Test
+  public void start_withSameDataAsRunningLoad_waitsForFetchAndReadsDiskCache() {
+    sourceFetchCoordinator = new SourceFetchCoordinator();
+    FakeCallback leaderCb = new FakeCallback();
+    FakeCallback waiterCb = new FakeCallback();
+    startLoad(leaderCb, /*width=*/ 100);
+    startLoad(waiterCb, /*width=*/ 50, DiskCacheStrategy.DATA, Priority.LOW);
+
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+    assertThat(leaderCb.result).isEqualTo(DATA);
+    assertThat(waiterCb.result).isEqualTo(DATA);
+    assertThat(waiterCb.dataSource).isEqualTo(DataSource.REMOTE);
+  }
+
+  @Test
+  public void start_withHigherPriorityThanRunningLoad_fetchesWithoutWaiting() {
+    sourceFetchCoordinator = new SourceFetchCoordinator();
+    FakeCallback leaderCb = new FakeCallback();
+    FakeCallback waiterCb = new FakeCallback();
+    startLoad(leaderCb, /*width=*/ 100, DiskCacheStrategy.DATA, Priority.LOW);
+    startLoad(waiterCb, /*width=*/ 50, DiskCacheStrategy.DATA, Priority.IMMEDIATE);
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(2);
+    // Completes the higher priority load's fetch while the lower priority one is still running.
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(waiterCb.result).isEqualTo(DATA);
+    assertThat(leaderCb.isCalled()).isFalse();
+  }
+
+  @Test
+  public void start_withSameDataAsLoadThatFails_failsWithoutFetching() {
+    sourceFetchCoordinator = new SourceFetchCoordinator();
+    FakeCallback leaderCb = new FakeCallback();
+    FakeCallback waiterCb = new FakeCallback();
+    startLoad(leaderCb, /*width=*/ 100);
+    startLoad(waiterCb, /*width=*/ 50);
+
+    sourceFetcher.fail(new IOException("test"));
+    runPending();
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+    assertThat(leaderCb.failure).isNotNull();
+    assertThat(waiterCb.failure).isNotNull();
+  }
+
+  @Test
+  public void removeCallback_whileFetchingForWaitingLoad_letsWaitingLoadFetch() {
+    sourceFetchCoordinator = new SourceFetchCoordinator();
+    FakeCallback leaderCb = new FakeCallback();
+    FakeCallback waiterCb = new FakeCallback();
+    EngineJob<String> leader = startLoad(leaderCb, /*width=*/ 100);
+    startLoad(waiterCb, /*width=*/ 50);
+
+    leader.removeCallback(leaderCb);
+    runPending();
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(2);
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(waiterCb.result).isEqualTo(DATA);
+    assertThat(leaderCb.isCalled()).isFalse();
+  }
+
+  @Test
+  public void onResourceReady_withResourceWrittenToResourceCache_deliversResourceCacheKey() {
+    FakeCallback cb = new FakeCallback();
+    startLoad(cb, /*width=*/ 100, DiskCacheStrategy.RESOURCE);
+    sourceFetcher.deliver();
+    runPending();
+
+    Key resourceCacheKey = ((EngineResource<?>) cb.resource).getResourceCacheKey();
+    assertThat(resourceCacheKey).isInstanceOf(ResourceCacheKey.class);
+    assertThat(diskCache.get(resourceCacheKey)).isNotNull();
+  }
+
+  @Test
+  public void onResourceReady_withResourceReadFromResourceCache_deliversResourceCacheKey() {
+    FakeCallback first = new FakeCallback();
+    startLoad(first, /*width=*/ 100, DiskCacheStrategy.RESOURCE);
+    sourceFetcher.deliver();
+    runPending();
+
+    FakeCallback second = new FakeCallback();
+    startLoad(second, /*width=*/ 100, DiskCacheStrategy.RESOURCE);
+
+    assertThat(second.dataSource).isEqualTo(DataSource.RESOURCE_DISK_CACHE);
+    assertThat(((EngineResource<?>) second.resource).getResourceCacheKey())
+        .isEqualTo(((EngineResource<?>) first.resource).getResourceCacheKey());
+  }
+
+  @Test
+  public void onResourceReady_withResourceNotWrittenToResourceCache_deliversNoResourceCacheKey() {
+    FakeCallback cb = new FakeCallback();
+    startLoad(cb);
+    sourceFetcher.deliver();
+    runPending();
+
+    assertThat(((EngineResource<?>) cb.resource).getResourceCacheKey()).isNull();
+  }
+
+  private EngineJob<String> startLoad(ResourceCallback cb) {
+    return startLoad(cb, /*width=*/ 100);
+  }
+
+  private EngineJob<String> startLoad(ResourceCallback cb, int width) {
+    return startLoad(cb, width, DiskCacheStrategy.DATA);
+  }
+
+  private EngineJob<String> startLoad(ResourceCallback cb, int width,
+      DiskCacheStrategy diskCacheStrategy) {
+    return startLoad(cb, width, diskCacheStrategy, Priority.NORMAL);
+  }
+
+  private EngineJob<String> startLoad(ResourceCallback cb, int width,
+      DiskCacheStrategy diskCacheStrategy, Priority priority) {
+    ObjectKey signature = new ObjectKey("signature");
+    Options options = new Options();
+    EngineKey key = new EngineKey(MODEL, signature, width, width,
+        Collections.<Class<?>, Transformation<?>>emptyMap(), Object.class, String.class, options);
+    EngineJob<String> engineJob =
+        new EngineJob<String>(executor, executor, executor, executor, listener, engineJobPool)
+            .init(key, /*isCacheable=*/ true, /*useUnlimitedSourceGeneratorPool=*/ false,
+                /*useAnimationPool=*/ false, /*onlyRetrieveFromCache=*/ false);
+    DecodeJob<String> decodeJob =
+        new DecodeJob<String>(
+            new DecodeJob.DiskCacheProvider() {
+              @Override
+              public DiskCache getDiskCache() {
+                return diskCache;
+              }
+            },
+            /*negativeResultCache=*/ null,
+            /*encodedResourceCache=*/ null,
+            /*resourceEncodeQueue=*/ null,
+            sourceFetchCoordinator,
+            decodeJobPool)
+            .init(
+                glideContext,
+                MODEL,
+                key,
+                signature,
+                width,
+                width,
+                Object.class,
+                String.class,
+                priority,
+                diskCacheStrategy,
+                Collections.<Class<?>, Transformation<?>>emptyMap(),
+                /*isTransformationRequired=*/ false,
+                /*isScaleOnlyOrNoTransform=*/ true,
+                /*onlyRetrieveFromCache=*/ false,
+                options,
+                engineJob,
+                /*order=*/ 0);
+    engineJob.addCallback(cb, Executors.directExecutor());
+    engineJob.start(decodeJob);
+    runPending();
+    return engineJob;
+  }
+
+  private void runPending() {
+    Runnable next;
+    while ((next = pending.poll()) != null) {
+      next.run();
+    }
+  }
+
+  private static Key getDataCacheKey() {
+    return new DataCacheKey(new ObjectKey(MODEL), new ObjectKey("signature"));
+  }
+
+  private static final class FakeCallback implements ResourceCallback {
+    @Nullable Object result;
+    @Nullable Resource<?> resource;
+    @Nullable DataSource dataSource;
+    @Nullable GlideException failure;
+
+    @Override
+    public void onResourceReady(Resource<?> resource, DataSource dataSource) {
+      result = resource.get();
+      this.resource = resource;
+      this.dataSource = dataSource;
+    }
+
+    @Override
+    public void onLoadFailed(GlideException e) {
+      failure = e;
+    }
+
+    boolean isCalled() {
+      return result != null || failure != null;
+    }
+  }
+
+  /**
+   * Fetches {@link #DATA} from source when the test calls {@link #deliver()}, like a network
+   * request that completes on another thread. Only the most recently started fetch can complete.
+   */
+  private static final class SourceFetcher implements DataFetcher<String> {
+    int loadCount;
+    int cleanupCount;
+    @Nullable private DataCallback<? super String> callback;
+
+    void deliver() {
+      DataCallback<? super String> local = callback;
+      callback = null;
+      local.onDataReady(DATA);
+    }
+
+    void fail(Exception e) {
+      DataCallback<? super String> local = callback;
+      callback = null;
+      local.onLoadFailed(e);
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super String> callback) {
+      loadCount++;
+      this.callback = callback;
+    }
+
+    @Override
+    public void cleanup() {
+      cleanupCount++;
+    }
+
+    @Override
+    public void cancel() {
+      callback = null;
+    }
+
+    @NonNull
+    @Override
+    public Class<String> getDataClass() {
+      return String.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.REMOTE;
+    }
+  }
+
+  /**
+   * Reads the contents of a disk cache file synchronously.
+   */
+  private static final class CachedFetcher implements DataFetcher<String> {
+    private final File file;
+    int cleanupCount;
+
+    CachedFetcher(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super String> callback) {
+      try {
+        callback.onDataReady(
+            new String(ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(file)), "UTF-8"));
+      } catch (IOException e) {
+        callback.onLoadFailed(e);
+      }
+    }
+
+    @Override
+    public void cleanup() {
+      cleanupCount++;
+    }
+
+    @Override
+    public void cancel() {
+      // Do nothing.
+    }
+
+    @NonNull
+    @Override
+    public Class<String> getDataClass() {
+      return String.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.DATA_DISK_CACHE;
+    }
+  }
+
+  private final class SourceLoaderFactory implements ModelLoaderFactory<String, String> {
+    @NonNull
+    @Override
+    public ModelLoader<String, String> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new ModelLoader<String, String>() {
+        @Override
+        public LoadData<String> buildLoadData(@NonNull String model, int width, int height,
+            @NonNull Options options) {
+          return new LoadData<>(new ObjectKey(model), sourceFetcher);
+        }
+
+        @Override
+        public boolean handles(@NonNull String model) {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+
+  private final class CachedLoaderFactory implements ModelLoaderFactory<File, String> {
+    @NonNull
+    @Override
+    public ModelLoader<File, String> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new ModelLoader<File, String>() {
+        @Override
+        public LoadData<String> buildLoadData(@NonNull File model, int width, int height,
+            @NonNull Options options) {
+          CachedFetcher fetcher = new CachedFetcher(model);
+          cachedFetchers.add(fetcher);
+          return new LoadData<>(new ObjectKey(model), fetcher);
+        }
+
+        @Override
+        public boolean handles(@NonNull File model) {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+
+  private static final class StringEncoder implements Encoder<String> {
+    @Override
+    public boolean encode(@NonNull String data, @NonNull File file, @NonNull Options options) {
+      OutputStream os = null;
+      try {
+        os = new FileOutputStream(file);
+        os.write(data.getBytes("UTF-8"));
+        return true;
+      } catch (IOException e) {
+        return false;
+      } finally {
+        if (os != null) {
+          try {
+            os.close();
+          } catch (IOException e) {
+            // Ignored.
+          }
+        }
+      }
+    }
+  }
+
+  private static final class StringResourceEncoder implements ResourceEncoder<String> {
+    private final StringEncoder encoder = new StringEncoder();
+
+    @NonNull
+    @Override
+    public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
+      return EncodeStrategy.TRANSFORMED;
+    }
+
+    @Override
+    public boolean encode(@NonNull Resource<String> data, @NonNull File file,
+        @NonNull Options options) {
+      return encoder.encode(data.get(), file, options);
+    }
+  }
+
+  private static final class StringDecoder implements ResourceDecoder<String, String> {
+    @Override
+    public boolean handles(@NonNull String source, @NonNull Options options) {
+      return true;
+    }
+
+    @Override
+    public Resource<String> decode(@NonNull String source, int width, int height,
+        @NonNull Options options) {
+      return new SimpleResource<>(source);
+    }
+  }
+}
@@ -0,0 +1,509 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.EncodedResourceCache;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.model.UnitModelLoader;
+import com.bumptech.glide.load.resource.SimpleResource;
+import com.bumptech.glide.load.resource.file.FileDecoder;
+import com.bumptech.glide.request.ResourceCallback;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.Executors;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class EngineTest {
+  private static final String MODEL = "model";
+  private static final String DATA = "data";
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock private GlideContext glideContext;
+
+  private final Queue<Runnable> diskCacheTasks = new ArrayDeque<>();
+  private final Queue<Runnable> sourceTasks = new ArrayDeque<>();
+  private final SourceFetcher sourceFetcher = new SourceFetcher();
+  private final FakeDiskCache diskCache = new FakeDiskCache();
+  private final EncodedResourceCache encodedResourceCache = new EncodedResourceCache(1024);
+  private final Key resourceCacheKey = new ObjectKey("resourceCacheKey");
+  // Holds two SimpleResources, which have a size of 1, so releasing a third evicts the first.
+  private final LruResourceCache memoryCache = new LruResourceCache(2);
+  private Engine engine;
+
+  @Before
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+    Registry registry = new Registry()
+        .append(String.class, String.class, new SourceLoaderFactory())
+        .append(File.class, File.class, UnitModelLoader.Factory.<File>getInstance())
+        .append(String.class, new StringEncoder())
+        .append(File.class, File.class, new FileDecoder())
+        .append(File.class, String.class, new FileToStringDecoder())
+        .append(String.class, String.class, new StringDecoder());
+    when(glideContext.getRegistry()).thenReturn(registry);
+    when(glideContext.getArrayPool()).thenReturn(new LruArrayPool());
+    GlideExecutor executor = MockGlideExecutor.newQueuedExecutor(sourceTasks);
+    engine = new Engine(memoryCache,
+        new DiskCache.Factory() {
+          @Override
+          public DiskCache build() {
+            return diskCache;
+          }
+        },
+        MockGlideExecutor.newQueuedExecutor(diskCacheTasks),
+        executor,
+        executor,
+        executor,
+        /*isActiveResourceRetentionAllowed=*/ false,
+        /*negativeResultCache=*/ null,
+        encodedResourceCache,
+        /*resourceEncodeExecutor=*/ null,
+        /*isSourceFetchSharingEnabled=*/ false);
+    diskCache.files.put(resourceCacheKey, file(new byte[] {1, 2, 3}));
+  }
+
+  @After
+  public void tearDown() {
+    engine.shutdown();
+  }
+
+  @Test
+  public void onResourceReleased_evictingResourceWithResourceCacheKey_keepsEncodedResource() {
+    release(new ObjectKey("first"), resourceCacheKey);
+    release(new ObjectKey("second"), /*resourceCacheKey=*/ null);
+    release(new ObjectKey("third"), /*resourceCacheKey=*/ null);
+
+    runDiskCacheTasks();
+
+    assertThat(encodedResourceCache.get(resourceCacheKey)).isNotNull();
+  }
+
+  @Test
+  public void onResourceReleased_evictingResourceWithoutResourceCacheKey_readsNothing() {
+    release(new ObjectKey("first"), /*resourceCacheKey=*/ null);
+    release(new ObjectKey("second"), /*resourceCacheKey=*/ null);
+    release(new ObjectKey("third"), /*resourceCacheKey=*/ null);
+
+    assertThat(diskCacheTasks).isEmpty();
+  }
+
+  @Test
+  public void onResourceReleased_evictingResourceWithoutDiskCacheEntry_keepsNothing() {
+    Key missingKey = new ObjectKey("missing");
+    release(new ObjectKey("first"), missingKey);
+    release(new ObjectKey("second"), /*resourceCacheKey=*/ null);
+    release(new ObjectKey("third"), /*resourceCacheKey=*/ null);
+
+    runDiskCacheTasks();
+
+    assertThat(encodedResourceCache.get(missingKey)).isNull();
+    assertThat(encodedResourceCache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void clearMemory_withResourceWithResourceCacheKey_readsNothing() {
+    release(new ObjectKey("first"), resourceCacheKey);
+
+    memoryCache.clearMemory();
+
+    assertThat(diskCacheTasks).isEmpty();
+  }
+
+  @Test
+  public void trimMemory_withResourceWithResourceCacheKey_readsNothing() {
+    release(new ObjectKey("first"), resourceCacheKey);
+
+    memoryCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(diskCacheTasks).isEmpty();
+  }
+
+  @Test
+  public void onResourceReleased_withoutEncodedResourceCache_readsNothing() {
+    engine.shutdown();
+    engine = new Engine(memoryCache,
+        new DiskCache.Factory() {
+          @Override
+          public DiskCache build() {
+            return diskCache;
+          }
+        },
+        MockGlideExecutor.newQueuedExecutor(diskCacheTasks),
+        MockGlideExecutor.newQueuedExecutor(new ArrayDeque<Runnable>()),
+        MockGlideExecutor.newQueuedExecutor(new ArrayDeque<Runnable>()),
+        MockGlideExecutor.newQueuedExecutor(new ArrayDeque<Runnable>()),
+        /*isActiveResourceRetentionAllowed=*/ false);
+
+    release(new ObjectKey("first"), resourceCacheKey);
+    release(new ObjectKey("second"), /*resourceCacheKey=*/ null);
+    release(new ObjectKey("third"), /*resourceCacheKey=*/ null);
+
+    assertThat(diskCacheTasks).isEmpty();
+  }
+
+  @Test
+  public void load_whileSourceFetchIsRunning_waitsAndDecodesFromDataCache() {
+    FakeCallback fetchCb = new FakeCallback();
+    FakeCallback loadCb = new FakeCallback();
+    fetchSource(fetchCb);
+    load(loadCb);
+    runAll();
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+    assertThat(loadCb.isCalled()).isFalse();
+
+    sourceFetcher.deliver();
+    runAll();
+
+    assertThat(fetchCb.result).isInstanceOf(File.class);
+    assertThat(loadCb.result).isEqualTo(DATA);
+    assertThat(loadCb.dataSource).isEqualTo(DataSource.DATA_DISK_CACHE);
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+  }
+
+  @Test
+  public void load_afterSourceFetchFinished_decodesFromDataCache() {
+    FakeCallback fetchCb = new FakeCallback();
+    fetchSource(fetchCb);
+    runAll();
+    sourceFetcher.deliver();
+    runAll();
+    engine.release(fetchCb.resource);
+
+    FakeCallback loadCb = new FakeCallback();
+    load(loadCb);
+    runAll();
+
+    assertThat(loadCb.result).isEqualTo(DATA);
+    assertThat(loadCb.dataSource).isEqualTo(DataSource.DATA_DISK_CACHE);
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+  }
+
+  @Test
+  public void load_whileSourceFetchIsRunningWithoutDecodingCachedData_doesNotWait() {
+    fetchSource(new FakeCallback());
+    runAll();
+
+    load(new FakeCallback(), DiskCacheStrategy.NONE);
+    runAll();
+
+    assertThat(sourceFetcher.loadCount).isEqualTo(2);
+  }
+
+  @Test
+  public void cancel_whileWaitingForSourceFetch_releasesLoadWithoutStartingIt() {
+    FakeCallback fetchCb = new FakeCallback();
+    FakeCallback loadCb = new FakeCallback();
+    fetchSource(fetchCb);
+    Engine.LoadStatus loadStatus = load(loadCb);
+    runAll();
+
+    loadStatus.cancel();
+    sourceFetcher.deliver();
+    runAll();
+
+    assertThat(fetchCb.isCalled()).isTrue();
+    assertThat(loadCb.isCalled()).isFalse();
+
+    // The cancelled load is no longer joined by new loads for the same key.
+    FakeCallback nextCb = new FakeCallback();
+    load(nextCb);
+    runAll();
+    assertThat(nextCb.result).isEqualTo(DATA);
+    assertThat(sourceFetcher.loadCount).isEqualTo(1);
+  }
+
+  @Test
+  public void load_whileSourceFetchFails_fetchesSourceItself() {
+    FakeCallback fetchCb = new FakeCallback();
+    FakeCallback loadCb = new FakeCallback();
+    fetchSource(fetchCb);
+    load(loadCb);
+    runAll();
+
+    sourceFetcher.fail(new IOException("test"));
+    runAll();
+
+    assertThat(fetchCb.failure).isNotNull();
+    assertThat(loadCb.isCalled()).isFalse();
+    assertThat(sourceFetcher.loadCount).isEqualTo(2);
+
+    sourceFetcher.deliver();
+    runAll();
+
+    assertThat(loadCb.result).isEqualTo(DATA);
+  }
+
+  private Engine.LoadStatus fetchSource(ResourceCallback cb) {
+    return engine.fetchSource(glideContext, MODEL, new ObjectKey("signature"), Priority.NORMAL,
+        DiskCacheStrategy.DATA, new Options(), /*useUnlimitedSourceExecutorPool=*/ false, cb,
+        Executors.directExecutor());
+  }
+
+  private Engine.LoadStatus load(ResourceCallback cb) {
+    return load(cb, DiskCacheStrategy.DATA);
+  }
+
+  private Engine.LoadStatus load(ResourceCallback cb, DiskCacheStrategy diskCacheStrategy) {
+    return engine.load(glideContext, MODEL, new ObjectKey("signature"), 100, 100, Object.class,
+        String.class, Priority.NORMAL, diskCacheStrategy,
+        Collections.<Class<?>, Transformation<?>>emptyMap(),
+        /*isTransformationRequired=*/ false, /*isScaleOnlyOrNoTransform=*/ true, new Options(),
+        /*isMemoryCacheable=*/ true, /*useUnlimitedSourceExecutorPool=*/ false,
+        /*useAnimationPool=*/ false, /*onlyRetrieveFromCache=*/ false, cb,
+        Executors.directExecutor());
+  }
+
+  /**
+   * Runs queued jobs and callbacks posted to the main thread until there are none left.
+   */
+  private void runAll() {
+    do {
+      runDiskCacheTasks();
+      Runnable task;
+      while ((task = sourceTasks.poll()) != null) {
+        task.run();
+      }
+      ShadowLooper.idleMainLooper();
+    } while (!diskCacheTasks.isEmpty() || !sourceTasks.isEmpty());
+  }
+
+  private void release(Key key, @Nullable Key resourceCacheKey) {
+    EngineResource<Object> resource = new EngineResource<>(new SimpleResource<>(new Object()),
+        /*isCacheable=*/ true, /*isRecyclable=*/ true, resourceCacheKey);
+    engine.onResourceReleased(key, resource);
+  }
+
+  private void runDiskCacheTasks() {
+    Runnable task;
+    while ((task = diskCacheTasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private File file(byte[] data) throws IOException {
+    File file = temporaryFolder.newFile();
+    FileOutputStream os = new FileOutputStream(file);
+    try {
+      os.write(data);
+    } finally {
+      os.close();
+    }
+    return file;
+  }
+
+  private final class FakeDiskCache implements DiskCache {
+    final Map<Key, File> files = new HashMap<>();
+
+    @Nullable
+    @Override
+    public File get(Key key) {
+      return files.get(key);
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      try {
+        File file = temporaryFolder.newFile();
+        if (writer.write(file)) {
+          files.put(key, file);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void delete(Key key) {
+      files.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      files.clear();
+    }
+  }
+
+  private static final class FakeCallback implements ResourceCallback {
+    @Nullable Object result;
+    @Nullable Resource<?> resource;
+    @Nullable DataSource dataSource;
+    @Nullable GlideException failure;
+
+    @Override
+    public void onResourceReady(Resource<?> resource, DataSource dataSource) {
+      result = resource.get();
+      this.resource = resource;
+      this.dataSource = dataSource;
+    }
+
+    @Override
+    public void onLoadFailed(GlideException e) {
+      failure = e;
+    }
+
+    boolean isCalled() {
+      return result != null || failure != null;
+    }
+  }
+
+  /**
+   * Fetches {@link #DATA} from source when the test calls {@link #deliver()}, like a network
+   * request that completes on another thread. Only the most recently started fetch can complete.
+   */
+  private static final class SourceFetcher implements DataFetcher<String> {
+    int loadCount;
+    @Nullable private DataCallback<? super String> callback;
+
+    void deliver() {
+      DataCallback<? super String> local = callback;
+      callback = null;
+      local.onDataReady(DATA);
+    }
+
+    void fail(Exception e) {
+      DataCallback<? super String> local = callback;
+      callback = null;
+      local.onLoadFailed(e);
+    }
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super String> callback) {
+      loadCount++;
+      this.callback = callback;
+    }
+
+    @Override
+    public void cleanup() {
+      // Do nothing.
+    }
+
+    @Override
+    public void cancel() {
+      callback = null;
+    }
+
+    @NonNull
+    @Override
+    public Class<String> getDataClass() {
+      return String.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.REMOTE;
+    }
+  }
+
+  private final class SourceLoaderFactory implements ModelLoaderFactory<String, String> {
+    @NonNull
+    @Override
+    public ModelLoader<String, String> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new ModelLoader<String, String>() {
+        @Override
+        public LoadData<String> buildLoadData(@NonNull String model, int width, int height,
+            @NonNull Options options) {
+          return new LoadData<>(new ObjectKey(model), sourceFetcher);
+        }
+
+        @Override
+        public boolean handles(@NonNull String model) {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+
+  private static final class StringEncoder implements Encoder<String> {
+    @Override
+    public boolean encode(@NonNull String data, @NonNull File file, @NonNull Options options) {
+      try {
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+          os.write(data.getBytes("UTF-8"));
+        } finally {
+          os.close();
+        }
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+  }
+
+  private static final class StringDecoder implements ResourceDecoder<String, String> {
+    @Override
+    public boolean handles(@NonNull String source, @NonNull Options options) {
+      return true;
+    }
+
+    @Override
+    public Resource<String> decode(@NonNull String source, int width, int height,
+        @NonNull Options options) {
+      return new SimpleResource<>(source);
+    }
+  }
+
+  private static final class FileToStringDecoder implements ResourceDecoder<File, String> {
+    @Override
+    public boolean handles(@NonNull File source, @NonNull Options options) {
+      return true;
+    }
+
+    @Override
+    public Resource<String> decode(@NonNull File source, int width, int height,
+        @NonNull Options options) throws IOException {
+      return new SimpleResource<>(
+          new String(ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(source)), "UTF-8"));
+    }
+  }
+}
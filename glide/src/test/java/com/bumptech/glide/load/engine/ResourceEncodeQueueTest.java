@@ -0,0 +1,350 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ResourceEncodeQueueTest {
+  private static final int MAX_PENDING_WRITES = 16;
+
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private final RecordingDiskCache diskCache = new RecordingDiskCache();
+  private final RecordingEncoder encoder = new RecordingEncoder();
+  private final Options options = new Options();
+  private ResourceEncodeQueue queue;
+
+  @Before
+  public void setUp() {
+    queue = new ResourceEncodeQueue(
+        new Executor() {
+          @Override
+          public void execute(@NonNull Runnable command) {
+            tasks.add(command);
+          }
+        },
+        new DecodeJob.DiskCacheProvider() {
+          @Override
+          public DiskCache getDiskCache() {
+            return diskCache;
+          }
+        });
+  }
+
+  @Test
+  public void enqueueLocked_writesOnExecutorAndUnlocksAfterWriting() {
+    FakeResource resource = new FakeResource();
+    LockedResource<Object> toEncode = lockAndRecycle(resource);
+
+    queue.enqueueLocked(key(1), encoder, toEncode, options, /*result=*/ null,
+        /*derivativeWriter=*/ null);
+
+    assertThat(diskCache.keys).isEmpty();
+    assertThat(resource.isRecycled).isFalse();
+
+    runTasks();
+
+    assertThat(diskCache.keys).containsExactly(key(1));
+    assertThat(encoder.encoded).containsExactly(resource);
+    assertThat(resource.isRecycled).isTrue();
+  }
+
+  @Test
+  public void enqueueLocked_withResult_unlocksResultAfterWriting() {
+    FakeResource result = new FakeResource();
+
+    queue.enqueueLocked(key(1), encoder, lockAndRecycle(new FakeResource()), options,
+        lockAndRecycle(result), /*derivativeWriter=*/ null);
+
+    assertThat(result.isRecycled).isFalse();
+    runTasks();
+    assertThat(result.isRecycled).isTrue();
+  }
+
+  @Test
+  public void enqueueLocked_severalBeforeDrain_writesAllInOneBatch() {
+    for (int i = 0; i < 3; i++) {
+      enqueue(key(i), new FakeResource());
+    }
+
+    assertThat(tasks).hasSize(1);
+    runTasks();
+
+    assertThat(diskCache.keys).containsExactly(key(0), key(1), key(2)).inOrder();
+    assertThat(diskCache.batchCount).isEqualTo(1);
+    assertThat(diskCache.batchDepth).isEqualTo(0);
+  }
+
+  @Test
+  public void enqueueLocked_afterDrain_schedulesAnotherDrain() {
+    enqueue(key(1), new FakeResource());
+    runTasks();
+
+    enqueue(key(2), new FakeResource());
+
+    assertThat(tasks).hasSize(1);
+    runTasks();
+    assertThat(diskCache.keys).containsExactly(key(1), key(2)).inOrder();
+  }
+
+  @Test
+  public void enqueueLocked_withKeyAlreadyPending_dropsAndUnlocksNewWrite() {
+    FakeResource first = new FakeResource();
+    FakeResource second = new FakeResource();
+    enqueue(key(1), first);
+
+    enqueue(key(1), second);
+
+    assertThat(second.isRecycled).isTrue();
+    runTasks();
+    assertThat(diskCache.keys).containsExactly(key(1));
+    assertThat(encoder.encoded).containsExactly(first);
+  }
+
+  @Test
+  public void enqueueLocked_withKeyAlreadyWritten_writesAgain() {
+    enqueue(key(1), new FakeResource());
+    runTasks();
+
+    enqueue(key(1), new FakeResource());
+    runTasks();
+
+    assertThat(diskCache.keys).containsExactly(key(1), key(1));
+  }
+
+  @Test
+  public void enqueueLocked_withFullBacklog_dropsAndUnlocksNewWrite() {
+    for (int i = 0; i < MAX_PENDING_WRITES; i++) {
+      enqueue(key(i), new FakeResource());
+    }
+    FakeResource dropped = new FakeResource();
+
+    enqueue(key(MAX_PENDING_WRITES), dropped);
+
+    assertThat(dropped.isRecycled).isTrue();
+    runTasks();
+    assertThat(diskCache.keys).hasSize(MAX_PENDING_WRITES);
+    assertThat(diskCache.keys).doesNotContain(key(MAX_PENDING_WRITES));
+  }
+
+  @Test
+  public void enqueueLocked_whenEncoderThrows_unlocksAndWritesRemaining() {
+    FakeResource failing = new FakeResource();
+    encoder.failing = failing;
+    enqueue(key(1), failing);
+    enqueue(key(2), new FakeResource());
+
+    runTasks();
+
+    assertThat(failing.isRecycled).isTrue();
+    assertThat(diskCache.keys).containsExactly(key(1), key(2)).inOrder();
+    assertThat(encoder.encoded).hasSize(1);
+    assertThat(diskCache.batchDepth).isEqualTo(0);
+  }
+
+  @Test
+  public void enqueueLocked_withShutDownExecutor_unlocksWrite() {
+    queue = new ResourceEncodeQueue(
+        new Executor() {
+          @Override
+          public void execute(@NonNull Runnable command) {
+            throw new RejectedExecutionException();
+          }
+        },
+        new DecodeJob.DiskCacheProvider() {
+          @Override
+          public DiskCache getDiskCache() {
+            return diskCache;
+          }
+        });
+    FakeResource resource = new FakeResource();
+
+    enqueue(key(1), resource);
+
+    assertThat(resource.isRecycled).isTrue();
+    assertThat(diskCache.keys).isEmpty();
+  }
+
+  @Test
+  public void trimMemory_withBackground_dropsAndUnlocksPendingWrites() {
+    FakeResource first = new FakeResource();
+    FakeResource second = new FakeResource();
+    enqueue(key(1), first);
+    enqueue(key(2), second);
+
+    queue.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(first.isRecycled).isTrue();
+    assertThat(second.isRecycled).isTrue();
+    runTasks();
+    assertThat(diskCache.keys).isEmpty();
+  }
+
+  @Test
+  public void trimMemory_withRunningLow_dropsPendingWrites() {
+    enqueue(key(1), new FakeResource());
+
+    queue.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+    runTasks();
+
+    assertThat(diskCache.keys).isEmpty();
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_keepsPendingWrites() {
+    FakeResource resource = new FakeResource();
+    enqueue(key(1), resource);
+
+    queue.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(resource.isRecycled).isFalse();
+    runTasks();
+    assertThat(diskCache.keys).containsExactly(key(1));
+  }
+
+  @Test
+  public void trimMemory_afterDroppingWrites_acceptsNewWrites() {
+    for (int i = 0; i < MAX_PENDING_WRITES; i++) {
+      enqueue(key(i), new FakeResource());
+    }
+    queue.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    enqueue(key(MAX_PENDING_WRITES), new FakeResource());
+    runTasks();
+
+    assertThat(diskCache.keys).containsExactly(key(MAX_PENDING_WRITES));
+  }
+
+  private void enqueue(Key key, FakeResource resource) {
+    queue.enqueueLocked(key, encoder, lockAndRecycle(resource), options, /*result=*/ null,
+        /*derivativeWriter=*/ null);
+  }
+
+  /**
+   * Returns a locked resource that's already been recycled by its owner, so the given resource is
+   * recycled as soon as the queue unlocks it.
+   */
+  private static LockedResource<Object> lockAndRecycle(FakeResource resource) {
+    LockedResource<Object> result = LockedResource.obtain((Resource<Object>) resource);
+    result.recycle();
+    return result;
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private static Key key(int id) {
+    return new ObjectKey(id);
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    boolean isRecycled;
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return 1;
+    }
+
+    @Override
+    public void recycle() {
+      isRecycled = true;
+    }
+  }
+
+  private static final class RecordingEncoder implements ResourceEncoder<Object> {
+    final List<Object> encoded = new ArrayList<>();
+    @Nullable Object failing;
+
+    @NonNull
+    @Override
+    public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
+      return EncodeStrategy.TRANSFORMED;
+    }
+
+    @Override
+    public boolean encode(@NonNull Resource<Object> data, @NonNull File file,
+        @NonNull Options options) {
+      if (data.get() == failing) {
+        throw new IllegalStateException("Failed to encode");
+      }
+      encoded.add(data.get());
+      return true;
+    }
+  }
+
+  private static final class RecordingDiskCache implements DiskCache, DiskCache.Batchable {
+    final List<Key> keys = new ArrayList<>();
+    int batchCount;
+    int batchDepth;
+
+    @Nullable
+    @Override
+    public File get(Key key) {
+      return null;
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      keys.add(key);
+      writer.write(new File("unused"));
+    }
+
+    @Override
+    public void delete(Key key) {
+      // Do nothing.
+    }
+
+    @Override
+    public void clear() {
+      // Do nothing.
+    }
+
+    @Override
+    public void beginBatch() {
+      batchCount++;
+      batchDepth++;
+    }
+
+    @Override
+    public void endBatch() {
+      batchDepth--;
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.SourceFetchCoordinator.JoinResult;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SourceFetchCoordinatorTest {
+  private final SourceFetchCoordinator coordinator = new SourceFetchCoordinator();
+  private final Key key = new ObjectKey("key");
+  private final FakeWaiter leader = new FakeWaiter();
+  private final FakeWaiter waiter = new FakeWaiter();
+
+  @Test
+  public void join_withNoFetch_fetches() {
+    assertThat(coordinator.join(key, leader, Priority.NORMAL)).isEqualTo(JoinResult.FETCH);
+    assertThat(coordinator.getFetchCount()).isEqualTo(1);
+    assertThat(coordinator.getSharedFetchCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void join_withFetchInProgress_waits() {
+    coordinator.join(key, leader, Priority.NORMAL);
+
+    assertThat(coordinator.join(key, waiter, Priority.NORMAL)).isEqualTo(JoinResult.WAIT);
+    assertThat(coordinator.getSharedFetchCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void join_withFetchInProgressForOtherKey_fetches() {
+    coordinator.join(new ObjectKey("other"), leader, Priority.NORMAL);
+
+    assertThat(coordinator.join(key, waiter, Priority.NORMAL)).isEqualTo(JoinResult.FETCH);
+  }
+
+  @Test
+  public void join_withLowerPriorityThanFetch_waits() {
+    coordinator.join(key, leader, Priority.HIGH);
+
+    assertThat(coordinator.join(key, waiter, Priority.LOW)).isEqualTo(JoinResult.WAIT);
+  }
+
+  @Test
+  public void join_withHigherPriorityThanFetch_fetchesWithoutTakingOverFetch() {
+    coordinator.join(key, leader, Priority.LOW);
+
+    assertThat(coordinator.join(key, waiter, Priority.IMMEDIATE)).isEqualTo(JoinResult.FETCH);
+    assertThat(coordinator.getSharedFetchCount()).isEqualTo(0);
+
+    // Other loads still wait for the original fetch, which the higher priority load can't finish.
+    FakeWaiter other = new FakeWaiter();
+    assertThat(coordinator.join(key, other, Priority.LOW)).isEqualTo(JoinResult.WAIT);
+    coordinator.finish(key, waiter, /*failure=*/ null);
+    assertThat(other.finishCount).isEqualTo(0);
+    coordinator.finish(key, leader, /*failure=*/ null);
+    assertThat(other.finishCount).isEqualTo(1);
+  }
+
+  @Test
+  public void finish_withWrittenData_notifiesWaitersAndReadsCacheOnNextJoin() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.join(key, waiter, Priority.NORMAL);
+
+    coordinator.finish(key, leader, /*failure=*/ null);
+
+    assertThat(waiter.finishCount).isEqualTo(1);
+    assertThat(waiter.failure).isNull();
+    assertThat(leader.finishCount).isEqualTo(0);
+    assertThat(coordinator.join(key, new FakeWaiter(), Priority.NORMAL))
+        .isEqualTo(JoinResult.READ_CACHE);
+  }
+
+  @Test
+  public void finish_withFailure_passesFailureToWaitersAndFetchesOnNextJoin() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.join(key, waiter, Priority.NORMAL);
+    IOException failure = new IOException("test");
+
+    coordinator.finish(key, leader, failure);
+
+    assertThat(waiter.failure).isSameAs(failure);
+    assertThat(coordinator.join(key, new FakeWaiter(), Priority.NORMAL))
+        .isEqualTo(JoinResult.FETCH);
+  }
+
+  @Test
+  public void finish_fromWaiter_doesNothing() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.join(key, waiter, Priority.NORMAL);
+
+    coordinator.finish(key, waiter, /*failure=*/ null);
+
+    assertThat(waiter.finishCount).isEqualTo(0);
+    assertThat(coordinator.join(key, new FakeWaiter(), Priority.NORMAL))
+        .isEqualTo(JoinResult.WAIT);
+  }
+
+  @Test
+  public void finish_calledTwice_notifiesWaitersOnce() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.join(key, waiter, Priority.NORMAL);
+
+    coordinator.finish(key, leader, /*failure=*/ null);
+    coordinator.finish(key, leader, /*failure=*/ null);
+
+    assertThat(waiter.finishCount).isEqualTo(1);
+  }
+
+  @Test
+  public void abandon_notifiesWaitersWithoutFailureAndFetchesOnNextJoin() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.join(key, waiter, Priority.NORMAL);
+
+    coordinator.abandon(key, leader);
+
+    assertThat(waiter.finishCount).isEqualTo(1);
+    assertThat(waiter.failure).isNull();
+    assertThat(coordinator.join(key, waiter, Priority.NORMAL)).isEqualTo(JoinResult.FETCH);
+  }
+
+  @Test
+  public void removeWaiter_stopsNotifyingWaiter() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.join(key, waiter, Priority.NORMAL);
+
+    coordinator.removeWaiter(key, waiter);
+    coordinator.finish(key, leader, /*failure=*/ null);
+
+    assertThat(waiter.finishCount).isEqualTo(0);
+  }
+
+  @Test
+  public void onSharedFetchMissed_fetchesOnNextJoin() {
+    coordinator.join(key, leader, Priority.NORMAL);
+    coordinator.finish(key, leader, /*failure=*/ null);
+    coordinator.join(key, waiter, Priority.NORMAL);
+
+    coordinator.onSharedFetchMissed(key);
+
+    assertThat(coordinator.getSharedFetchMissCount()).isEqualTo(1);
+    assertThat(coordinator.join(key, waiter, Priority.NORMAL)).isEqualTo(JoinResult.FETCH);
+  }
+
+  @Test
+  public void finish_withManyFetches_onlyRemembersMostRecentlyFinished() {
+    List<Key> keys = new ArrayList<>();
+    for (int i = 0; i < 51; i++) {
+      Key current = new ObjectKey(i);
+      keys.add(current);
+      coordinator.join(current, leader, Priority.NORMAL);
+      coordinator.finish(current, leader, /*failure=*/ null);
+    }
+
+    assertThat(coordinator.join(keys.get(0), waiter, Priority.NORMAL))
+        .isEqualTo(JoinResult.FETCH);
+    assertThat(coordinator.join(keys.get(1), waiter, Priority.NORMAL))
+        .isEqualTo(JoinResult.READ_CACHE);
+    assertThat(coordinator.join(keys.get(50), waiter, Priority.NORMAL))
+        .isEqualTo(JoinResult.READ_CACHE);
+  }
+
+  private static final class FakeWaiter implements SourceFetchCoordinator.Waiter {
+    int finishCount;
+    @Nullable Exception failure;
+
+    @Override
+    public void onSharedFetchFinished(@Nullable Exception failure) {
+      finishCount++;
+      this.failure = failure;
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TeeDataFetcherTest {
+  private static final int DATA_SIZE = 100 * 1024;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Mock private DataFetcher<InputStream> wrapped;
+  @Mock private Runnable cleanupCallback;
+
+  private final Key key = new ObjectKey("key");
+  private final CountingArrayPool arrayPool = new CountingArrayPool();
+  private final RecordingDiskCache diskCache = new RecordingDiskCache();
+  private final byte[] data = new byte[DATA_SIZE];
+  private File tempDirectory;
+  private CountingInputStream source;
+  private TeeDataFetcher fetcher;
+
+  @Before
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    tempDirectory = temporaryFolder.newFolder();
+    source = new CountingInputStream(data);
+    fetcher = TeeDataFetcher.obtain(
+        wrapped, source, diskCache, key, arrayPool, tempDirectory, cleanupCallback);
+  }
+
+  @After
+  public void tearDown() {
+    // Only the first call has any effect, so this just releases fetchers tests didn't clean up.
+    fetcher.cleanup();
+    assertThat(arrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void getData_returnsSourceBytes() throws IOException {
+    assertThat(readFully(fetcher.getData())).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_afterFullRead_writesDataToDiskCache() throws IOException {
+    readFully(fetcher.getData());
+
+    fetcher.cleanup();
+
+    assertThat(diskCache.key).isEqualTo(key);
+    assertThat(diskCache.written).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_afterPartialRead_copiesRestAndWritesDataToDiskCache() throws IOException {
+    readPartially(fetcher.getData());
+
+    fetcher.cleanup();
+
+    assertThat(source.readCount).isEqualTo(DATA_SIZE);
+    assertThat(diskCache.written).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_afterAbandonUnreadData_doesNotReadRestOrWrite() throws IOException {
+    readPartially(fetcher.getData());
+    int readCount = source.readCount;
+
+    fetcher.abandonUnreadData();
+    fetcher.cleanup();
+
+    assertThat(source.readCount).isEqualTo(readCount);
+    assertThat(diskCache.key).isNull();
+  }
+
+  @Test
+  public void cleanup_afterAbandonUnreadDataWithFullRead_writesDataToDiskCache()
+      throws IOException {
+    readFully(fetcher.getData());
+
+    fetcher.abandonUnreadData();
+    fetcher.cleanup();
+
+    assertThat(diskCache.written).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_afterCancel_doesNotReadRestOrWrite() throws IOException {
+    readPartially(fetcher.getData());
+    int readCount = source.readCount;
+
+    fetcher.cancel();
+    fetcher.cleanup();
+
+    verify(wrapped).cancel();
+    assertThat(source.readCount).isEqualTo(readCount);
+    assertThat(diskCache.key).isNull();
+  }
+
+  @Test
+  public void cleanup_afterCancelWithFullRead_doesNotWrite() throws IOException {
+    readFully(fetcher.getData());
+
+    fetcher.cancel();
+    fetcher.cleanup();
+
+    assertThat(diskCache.key).isNull();
+  }
+
+  @Test
+  public void cleanup_cancelledWhileCopyingRest_stopsReading() throws IOException {
+    source.cancelAfterReadCount = DATA_SIZE / 2;
+
+    fetcher.cleanup();
+
+    assertThat(source.readCount).isLessThan(DATA_SIZE);
+    assertThat(diskCache.key).isNull();
+  }
+
+  @Test
+  public void cleanup_calledTwice_cleansUpOnce() throws IOException {
+    readFully(fetcher.getData());
+
+    fetcher.cleanup();
+    fetcher.cleanup();
+
+    verify(wrapped, times(1)).cleanup();
+    verify(cleanupCallback, times(1)).run();
+    assertThat(diskCache.putCount).isEqualTo(1);
+  }
+
+  @Test
+  public void cleanup_afterCancel_stillCleansUpWrappedAndRunsCallback() {
+    fetcher.cancel();
+    fetcher.cleanup();
+
+    verify(wrapped).cleanup();
+    verify(cleanupCallback).run();
+  }
+
+  @Test
+  public void cleanup_deletesTemporaryFile() throws IOException {
+    readPartially(fetcher.getData());
+    fetcher.abandonUnreadData();
+
+    fetcher.cleanup();
+
+    assertThat(tempDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void cleanup_withReadFailure_doesNotWrite() throws IOException {
+    source.failAfterReadCount = DATA_SIZE / 2;
+
+    fetcher.cleanup();
+
+    assertThat(diskCache.key).isNull();
+    verify(cleanupCallback).run();
+  }
+
+  @Test
+  public void getData_whenReadFully_doesNotCleanUp() throws IOException {
+    readFully(fetcher.getData());
+
+    verify(cleanupCallback, never()).run();
+    verify(wrapped, never()).cleanup();
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = is.read(buffer)) != -1) {
+      result.write(buffer, 0, read);
+    }
+    return result.toByteArray();
+  }
+
+  private static void readPartially(InputStream is) throws IOException {
+    byte[] buffer = new byte[DATA_SIZE / 10];
+    int read = 0;
+    while (read < buffer.length) {
+      read += is.read(buffer, read, buffer.length - read);
+    }
+  }
+
+  /**
+   * Returns data in small chunks like a network stream, counting the bytes read, and optionally
+   * cancels the fetcher or fails part of the way through.
+   */
+  private final class CountingInputStream extends InputStream {
+    private final ByteArrayInputStream data;
+    int readCount;
+    int cancelAfterReadCount = -1;
+    int failAfterReadCount = -1;
+
+    CountingInputStream(byte[] data) {
+      this.data = new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+      if (failAfterReadCount >= 0 && readCount >= failAfterReadCount) {
+        throw new IOException("Test failure");
+      }
+      int read = data.read(buffer, offset, Math.min(count, 1024));
+      if (read > 0) {
+        readCount += read;
+      }
+      if (cancelAfterReadCount >= 0 && readCount >= cancelAfterReadCount) {
+        fetcher.cancel();
+      }
+      return read;
+    }
+  }
+
+  private final class RecordingDiskCache implements DiskCache {
+    @Nullable Key key;
+    @Nullable byte[] written;
+    int putCount;
+
+    @Nullable
+    @Override
+    public File get(Key key) {
+      return null;
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      putCount++;
+      try {
+        File file = new File(temporaryFolder.newFolder(), "cached");
+        if (writer.write(file)) {
+          this.key = key;
+          written = readFully(new FileInputStream(file));
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void delete(Key key) {
+      // Do nothing.
+    }
+
+    @Override
+    public void clear() {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController.Decision;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController.DefaultPolicy;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController.GcCounter;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController.Listener;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController.Policy;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizeController.Sample;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AdaptiveMemorySizeControllerTest {
+  private static final long INTERVAL_MS = 1000;
+  private static final int CACHE_SIZE = 1000;
+  private static final int POOL_SIZE = 2000;
+  private static final int RESOURCE_SIZE = 100;
+
+  private final LruResourceCache memoryCache = new LruResourceCache(CACHE_SIZE);
+  private final LruBitmapPool bitmapPool = new LruBitmapPool(POOL_SIZE);
+  private final RecordingPolicy policy = new RecordingPolicy();
+  private final FakeGcCounter gcCounter = new FakeGcCounter();
+  private AdaptiveMemorySizeController controller;
+
+  @Before
+  public void setUp() {
+    controller = new AdaptiveMemorySizeController(memoryCache, bitmapPool, policy, INTERVAL_MS,
+        new Handler(Looper.getMainLooper()), gcCounter);
+  }
+
+  @Test
+  public void start_takesSampleEveryInterval() {
+    start();
+
+    advance(INTERVAL_MS - 1);
+    assertThat(policy.samples).isEmpty();
+    advance(1);
+    assertThat(policy.samples).hasSize(1);
+    advance(INTERVAL_MS);
+    assertThat(policy.samples).hasSize(2);
+  }
+
+  @Test
+  public void sample_containsCacheCountsSinceStartAndBaseSizes() {
+    memoryCache.put(key(0), new FakeResource());
+    memoryCache.remove(key(0));
+    start();
+
+    for (int i = 0; i < CACHE_SIZE / RESOURCE_SIZE + 2; i++) {
+      memoryCache.put(key(i), new FakeResource());
+    }
+    memoryCache.remove(key(1));
+    memoryCache.remove(key(CACHE_SIZE));
+    advance(INTERVAL_MS);
+
+    Sample sample = policy.samples.get(0);
+    assertThat(sample.getMemoryCacheHits()).isEqualTo(0);
+    assertThat(sample.getMemoryCacheMisses()).isEqualTo(2);
+    assertThat(sample.getMemoryCacheEvictions()).isEqualTo(2);
+    assertThat(sample.getMemoryCacheBaseSize()).isEqualTo(CACHE_SIZE);
+    assertThat(sample.getBitmapPoolBaseSize()).isEqualTo(POOL_SIZE);
+  }
+
+  @Test
+  public void sample_onlyContainsCountsSincePreviousSample() {
+    start();
+    memoryCache.remove(key(0));
+    advance(INTERVAL_MS);
+
+    advance(INTERVAL_MS);
+
+    assertThat(policy.samples.get(0).getMemoryCacheMisses()).isEqualTo(1);
+    assertThat(policy.samples.get(1).getMemoryCacheMisses()).isEqualTo(0);
+  }
+
+  @Test
+  public void sample_withBlockingGcDuringInterval_detectsGc() {
+    gcCounter.count = 5;
+    start();
+
+    gcCounter.count = 6;
+    advance(INTERVAL_MS);
+
+    assertThat(policy.samples.get(0).isGcDetected()).isTrue();
+  }
+
+  @Test
+  public void sample_withoutBlockingGcDuringInterval_doesNotDetectGc() {
+    gcCounter.count = 5;
+    start();
+
+    advance(INTERVAL_MS);
+
+    assertThat(policy.samples.get(0).isGcDetected()).isFalse();
+  }
+
+  @Test
+  public void sample_withGcCountUnavailable_doesNotDetectGc() {
+    gcCounter.count = -1;
+    start();
+
+    advance(INTERVAL_MS);
+
+    assertThat(policy.samples.get(0).isGcDetected()).isFalse();
+  }
+
+  @Test
+  public void sample_afterDelayedInterval_doesNotDetectGc() {
+    start();
+
+    advance(10 * INTERVAL_MS);
+
+    assertThat(policy.samples.get(0).isGcDetected()).isFalse();
+  }
+
+  @Test
+  public void run_withNewDecision_resizesCacheAndPool() {
+    policy.decision = new Decision(0.5f, 1.5f, "test");
+    start();
+
+    advance(INTERVAL_MS);
+
+    assertThat(memoryCache.getMaxSize()).isEqualTo(CACHE_SIZE / 2);
+    assertThat(bitmapPool.getMaxSize()).isEqualTo(3 * POOL_SIZE / 2);
+    assertThat(controller.getDecision()).isEqualTo(policy.decision);
+  }
+
+  @Test
+  public void setCategoryMultiplier_combinesWithDecision() {
+    policy.decision = new Decision(0.5f, 1.5f, "test");
+    start();
+    advance(INTERVAL_MS);
+
+    controller.setCategoryMultiplier(2f);
+
+    assertThat(memoryCache.getMaxSize()).isEqualTo(CACHE_SIZE);
+    assertThat(bitmapPool.getMaxSize()).isEqualTo(3 * POOL_SIZE);
+  }
+
+  @Test
+  public void run_notifiesListener() {
+    final List<Decision> decisions = new ArrayList<>();
+    controller.setListener(new Listener() {
+      @Override
+      public void onDecision(@NonNull Sample sample, @NonNull Decision decision) {
+        decisions.add(decision);
+      }
+    });
+    policy.decision = new Decision(0.5f, 1.5f, "test");
+    start();
+
+    advance(INTERVAL_MS);
+
+    assertThat(decisions).containsExactly(policy.decision);
+  }
+
+  @Test
+  public void stop_stopsTakingSamplesAndKeepsSizes() {
+    policy.decision = new Decision(0.5f, 1.5f, "test");
+    start();
+    advance(INTERVAL_MS);
+
+    controller.stop();
+    advance(10 * INTERVAL_MS);
+
+    assertThat(policy.samples).hasSize(1);
+    assertThat(memoryCache.getMaxSize()).isEqualTo(CACHE_SIZE / 2);
+  }
+
+  @Test
+  public void defaultPolicy_withGc_shrinksBothAndRecoversAfterwards() {
+    DefaultPolicy defaultPolicy = new DefaultPolicy();
+
+    Decision shrunk = defaultPolicy.decide(sample(0, 0, 0, 0, true), Decision.DEFAULT);
+    assertThat(shrunk.getMemoryCacheMultiplier()).isLessThan(1f);
+    assertThat(shrunk.getBitmapPoolMultiplier()).isLessThan(1f);
+
+    Decision recovering = defaultPolicy.decide(sample(0, 0, 0, 0, false), shrunk);
+    assertThat(recovering.getMemoryCacheMultiplier())
+        .isGreaterThan(shrunk.getMemoryCacheMultiplier());
+  }
+
+  @Test
+  public void defaultPolicy_withThrashingCache_movesBytesFromPoolToCache() {
+    Decision decision =
+        new DefaultPolicy().decide(sample(1, 1, 0, 0, false), Decision.DEFAULT);
+
+    assertThat(decision.getMemoryCacheMultiplier()).isGreaterThan(1f);
+    assertThat(decision.getBitmapPoolMultiplier()).isLessThan(1f);
+    long total = Math.round(CACHE_SIZE * decision.getMemoryCacheMultiplier()
+        + POOL_SIZE * decision.getBitmapPoolMultiplier());
+    assertThat(total).isEqualTo((long) CACHE_SIZE + POOL_SIZE);
+  }
+
+  @Test
+  public void defaultPolicy_withBothThrashing_keepsCurrentDecision() {
+    Decision current = new Decision(1f, 1f, "current");
+
+    assertThat(new DefaultPolicy().decide(sample(1, 1, 1, 1, false), current))
+        .isSameAs(current);
+  }
+
+  private void start() {
+    controller.start();
+    ShadowLooper.idleMainLooper();
+  }
+
+  private static void advance(long ms) {
+    ShadowLooper.idleMainLooper(ms, TimeUnit.MILLISECONDS);
+  }
+
+  private static Sample sample(long cacheMisses, long cacheEvictions, long poolMisses,
+      long poolEvictions, boolean isGcDetected) {
+    return new Sample(CACHE_SIZE, POOL_SIZE, /*memoryCacheHits=*/ 0, cacheMisses, cacheEvictions,
+        /*bitmapPoolHits=*/ 0, poolMisses, poolEvictions, /*heapHeadroom=*/ 1f, isGcDetected);
+  }
+
+  private static Key key(int id) {
+    return new ObjectKey(id);
+  }
+
+  private static final class RecordingPolicy implements Policy {
+    final List<Sample> samples = new ArrayList<>();
+    Decision decision = Decision.DEFAULT;
+
+    @NonNull
+    @Override
+    public Decision decide(@NonNull Sample sample, @NonNull Decision current) {
+      samples.add(sample);
+      return decision;
+    }
+  }
+
+  private static final class FakeGcCounter implements GcCounter {
+    long count;
+
+    @Override
+    public long getBlockingGcCount() {
+      return count;
+    }
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return RESOURCE_SIZE;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
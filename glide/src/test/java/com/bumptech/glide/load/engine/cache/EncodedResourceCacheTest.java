@@ -0,0 +1,183 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class EncodedResourceCacheTest {
+  private static final int MAX_SIZE = 400;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Key key = new ObjectKey("key");
+  private final Key otherKey = new ObjectKey("other");
+  private EncodedResourceCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new EncodedResourceCache(MAX_SIZE);
+  }
+
+  @Test
+  public void get_withNoEntry_returnsNull() {
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void put_returnsFileContents() throws IOException {
+    byte[] data = bytes(10);
+
+    assertThat(toArray(cache.put(key, file(data)))).isEqualTo(data);
+  }
+
+  @Test
+  public void get_afterPut_returnsReadOnlyFileContents() throws IOException {
+    byte[] data = bytes(10);
+    cache.put(key, file(data));
+
+    ByteBuffer result = cache.get(key);
+
+    assertThat(result.isReadOnly()).isTrue();
+    assertThat(toArray(result)).isEqualTo(data);
+    assertThat(cache.get(otherKey)).isNull();
+  }
+
+  @Test
+  public void get_calledTwice_returnsIndependentViews() throws IOException {
+    cache.put(key, file(bytes(10)));
+
+    cache.get(key).get();
+
+    assertThat(cache.get(key).position()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withFileLargerThanAQuarterOfMaxSize_returnsNullAndDoesNotCache()
+      throws IOException {
+    assertThat(cache.put(key, file(bytes(MAX_SIZE / 4 + 1)))).isNull();
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withEmptyFile_returnsNull() throws IOException {
+    assertThat(cache.put(key, file(new byte[0]))).isNull();
+  }
+
+  @Test
+  public void put_withMissingFile_returnsNull() {
+    assertThat(cache.put(key, new File(temporaryFolder.getRoot(), "missing"))).isNull();
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void put_overMaxSize_evictsLeastRecentlyUsed() throws IOException {
+    int size = MAX_SIZE / 4;
+    for (int i = 0; i < 4; i++) {
+      cache.put(new ObjectKey(i), file(bytes(size)));
+    }
+    // Makes 1 the least recently used.
+    cache.get(new ObjectKey(0));
+
+    cache.put(key, file(bytes(size)));
+
+    assertThat(cache.get(new ObjectKey(0))).isNotNull();
+    assertThat(cache.get(new ObjectKey(1))).isNull();
+    assertThat(cache.getCurrentSize()).isEqualTo(MAX_SIZE);
+  }
+
+  @Test
+  public void remove_removesEntry() throws IOException {
+    cache.put(key, file(bytes(10)));
+    cache.put(otherKey, file(bytes(10)));
+
+    cache.remove(key);
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNotNull();
+  }
+
+  @Test
+  public void clearMemory_removesAllEntries() throws IOException {
+    cache.put(key, file(bytes(10)));
+    cache.put(otherKey, file(bytes(10)));
+
+    cache.clearMemory();
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_evictsOldestHalf() throws IOException {
+    cache.put(key, file(bytes(MAX_SIZE / 4)));
+    cache.put(otherKey, file(bytes(MAX_SIZE / 4)));
+    cache.put(new ObjectKey("third"), file(bytes(MAX_SIZE / 4)));
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.getCurrentSize()).isAtMost((long) MAX_SIZE / 2);
+  }
+
+  @Test
+  public void trimMemory_withBackground_removesAllEntries() throws IOException {
+    cache.put(key, file(bytes(10)));
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void setSizeMultiplier_evictsEntriesOverNewSize() throws IOException {
+    cache.put(key, file(bytes(MAX_SIZE / 4)));
+    cache.put(otherKey, file(bytes(MAX_SIZE / 4)));
+
+    cache.setSizeMultiplier(0.25f);
+
+    assertThat(cache.getMaxSize()).isEqualTo(MAX_SIZE / 4);
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNotNull();
+  }
+
+  private File file(byte[] data) throws IOException {
+    File file = temporaryFolder.newFile();
+    FileOutputStream os = new FileOutputStream(file);
+    try {
+      os.write(data);
+    } finally {
+      os.close();
+    }
+    return file;
+  }
+
+  private static byte[] bytes(int size) {
+    byte[] result = new byte[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = (byte) i;
+    }
+    return result;
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.duplicate().get(result);
+    return result;
+  }
+}
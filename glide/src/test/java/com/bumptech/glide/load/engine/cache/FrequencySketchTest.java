@@ -0,0 +1,96 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FrequencySketchTest {
+  // The smallest sketch, which ages after 10 * 16 recorded accesses.
+  private static final int EXPECTED_ENTRIES = 16;
+  private static final int SAMPLE_SIZE = 160;
+
+  private FrequencySketch sketch;
+
+  @Before
+  public void setUp() {
+    sketch = new FrequencySketch(EXPECTED_ENTRIES);
+  }
+
+  @Test
+  public void frequency_withUnseenKey_returnsZero() {
+    assertThat(sketch.frequency("key")).isEqualTo(0);
+  }
+
+  @Test
+  public void frequency_afterOneAccess_returnsOne() {
+    sketch.increment("key");
+
+    assertThat(sketch.frequency("key")).isEqualTo(1);
+  }
+
+  @Test
+  public void frequency_afterRepeatedAccesses_returnsAccessCount() {
+    for (int i = 0; i < 5; i++) {
+      sketch.increment("key");
+    }
+
+    assertThat(sketch.frequency("key")).isEqualTo(5);
+  }
+
+  @Test
+  public void frequency_afterManyAccesses_saturatesAtSixteen() {
+    for (int i = 0; i < 100; i++) {
+      sketch.increment("key");
+    }
+
+    assertThat(sketch.frequency("key")).isEqualTo(16);
+  }
+
+  @Test
+  public void frequency_withOtherKeysSeenOnce_isNotInflated() {
+    for (int i = 0; i < 3; i++) {
+      sketch.increment("hot");
+    }
+    // Keys seen once only reach the doorkeeper, so they can't inflate the hot key's counters.
+    for (int i = 0; i < SAMPLE_SIZE / 2; i++) {
+      sketch.increment("cold" + i);
+    }
+
+    assertThat(sketch.frequency("hot")).isEqualTo(3);
+  }
+
+  @Test
+  public void increment_afterSampleSizeAccesses_agesFrequencies() {
+    for (int i = 0; i < 12; i++) {
+      sketch.increment("hot");
+    }
+    int before = sketch.frequency("hot");
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      sketch.increment("cold" + i);
+    }
+    // Aging clears the doorkeeper, so the key has to be seen again to be estimated.
+    sketch.increment("hot");
+
+    int after = sketch.frequency("hot");
+    assertThat(after).isLessThan(before);
+    assertThat(after).isGreaterThan(1);
+  }
+
+  @Test
+  public void frequency_ranksFrequentKeysAboveInfrequentKeys() {
+    for (int key = 0; key < EXPECTED_ENTRIES; key++) {
+      for (int i = 0; i <= key % 4; i++) {
+        sketch.increment(key);
+      }
+    }
+
+    for (int key = 0; key < EXPECTED_ENTRIES; key++) {
+      assertThat(sketch.frequency(key)).isAtLeast(key % 4 + 1);
+    }
+    assertThat(sketch.frequency(3)).isGreaterThan(sketch.frequency(0));
+  }
+}
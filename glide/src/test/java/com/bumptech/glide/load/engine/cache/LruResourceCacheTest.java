@@ -0,0 +1,162 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LruResourceCacheTest {
+  private static final int MAX_SIZE = 1000;
+  private static final int RESOURCE_SIZE = 100;
+
+  private final List<Resource<?>> removed = new ArrayList<>();
+  private LruResourceCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new LruResourceCache(MAX_SIZE);
+    cache.setResourceRemovedListener(new MemoryCache.ResourceRemovedListener() {
+      @Override
+      public void onResourceRemoved(@NonNull Resource<?> resource) {
+        removed.add(resource);
+      }
+    });
+  }
+
+  @Test
+  public void remove_countsHitsAndMisses() {
+    cache.put(key(1), new FakeResource(RESOURCE_SIZE));
+
+    cache.remove(key(1));
+    cache.remove(key(1));
+    cache.remove(key(2));
+
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void put_overMaxSize_countsEvictions() {
+    for (int i = 0; i < 15; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    assertThat(removed).hasSize(5);
+    assertThat(cache.getEvictionCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void put_withResourceLargerThanCache_countsEviction() {
+    Resource<?> resource = new FakeResource(MAX_SIZE);
+
+    cache.put(key(1), resource);
+
+    assertThat(removed).containsExactly(resource);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_withExistingKey_removesOldResourceWithoutCountingEviction() {
+    Resource<?> first = new FakeResource(RESOURCE_SIZE);
+    cache.put(key(1), first);
+
+    cache.put(key(1), new FakeResource(RESOURCE_SIZE));
+
+    assertThat(removed).containsExactly(first);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withExistingKeyOverMaxSize_countsOnlyEvictionsOfOtherKeys() {
+    for (int i = 0; i < 10; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.put(key(9), new FakeResource(2 * RESOURCE_SIZE));
+
+    assertThat(removed).hasSize(2);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void clearMemory_removesResourcesWithoutCountingEvictions() {
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.clearMemory();
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+    assertThat(removed).hasSize(5);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withUiHiddenLevel_removesResourcesWithoutCountingEvictions() {
+    for (int i = 0; i < 10; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(cache.getCurrentSize()).isAtMost(MAX_SIZE / 2L);
+    assertThat(removed).hasSize(5);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void setSizeMultiplier_removesResourcesWithoutCountingEvictions() {
+    for (int i = 0; i < 10; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertThat(removed).hasSize(5);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  private static Key key(int id) {
+    return new ObjectKey(id);
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final int size;
+
+    FakeResource(int size) {
+      this.size = size;
+    }
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
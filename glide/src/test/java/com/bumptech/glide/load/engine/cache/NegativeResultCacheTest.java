@@ -0,0 +1,179 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NegativeResultCacheTest {
+  private static final long TTL_MILLIS = 1000;
+
+  private final Key key = new ObjectKey("key");
+  private final Key otherKey = new ObjectKey("other");
+  private NegativeResultCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new NegativeResultCache(2, new FixedTtlPolicy(TTL_MILLIS));
+  }
+
+  @Test
+  public void get_withNoFailure_returnsNull() {
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void get_afterFetchFailure_returnsCause() {
+    Exception cause = new IOException();
+    cache.putFetchFailure(key, cause);
+
+    assertThat(cache.get(key)).isSameAs(cause);
+    assertThat(cache.get(otherKey)).isNull();
+  }
+
+  @Test
+  public void get_afterDecodeFailure_returnsCause() {
+    Exception cause = new IOException();
+    cache.putDecodeFailure(key, cause);
+
+    assertThat(cache.get(key)).isSameAs(cause);
+  }
+
+  @Test
+  public void get_beforeTtlExpires_returnsCause() {
+    cache.putFetchFailure(key, new IOException());
+    advanceClock(TTL_MILLIS - 1);
+
+    assertThat(cache.get(key)).isNotNull();
+  }
+
+  @Test
+  public void get_afterTtlExpires_returnsNull() {
+    cache.putFetchFailure(key, new IOException());
+    advanceClock(TTL_MILLIS);
+
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void put_withZeroTtl_doesNotRememberFailure() {
+    cache = new NegativeResultCache(2, new FixedTtlPolicy(0));
+    cache.putFetchFailure(key, new IOException());
+    cache.putDecodeFailure(otherKey, new IOException());
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNull();
+  }
+
+  @Test
+  public void put_overMaxSize_evictsLeastRecentlyUsed() {
+    Key thirdKey = new ObjectKey("third");
+    cache.putFetchFailure(key, new IOException());
+    cache.putFetchFailure(otherKey, new IOException());
+    // Makes otherKey the least recently used.
+    cache.get(key);
+    cache.putFetchFailure(thirdKey, new IOException());
+
+    assertThat(cache.get(key)).isNotNull();
+    assertThat(cache.get(otherKey)).isNull();
+    assertThat(cache.get(thirdKey)).isNotNull();
+  }
+
+  @Test
+  public void onConnectivityRestored_forgetsFetchFailuresOnly() {
+    cache.putFetchFailure(key, new IOException());
+    cache.putDecodeFailure(otherKey, new IOException());
+
+    cache.onConnectivityRestored();
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNotNull();
+  }
+
+  @Test
+  public void remove_forgetsFailure() {
+    cache.putFetchFailure(key, new IOException());
+    cache.putDecodeFailure(otherKey, new IOException());
+
+    cache.remove(key);
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNotNull();
+  }
+
+  @Test
+  public void clear_forgetsAllFailures() {
+    cache.putFetchFailure(key, new IOException());
+    cache.putDecodeFailure(otherKey, new IOException());
+
+    cache.clear();
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_withZeroMaxSize_throws() {
+    new NegativeResultCache(0, new FixedTtlPolicy(TTL_MILLIS));
+  }
+
+  @Test
+  public void defaultTtlPolicy_remembersClientErrorsLongerThanServerErrors() {
+    NegativeResultCache.TtlPolicy policy = new NegativeResultCache.DefaultTtlPolicy();
+    long clientErrorTtl = policy.getFetchFailureTtlMillis(new HttpException(404));
+    long serverErrorTtl = policy.getFetchFailureTtlMillis(new HttpException(503));
+
+    assertThat(serverErrorTtl).isGreaterThan(0L);
+    assertThat(clientErrorTtl).isGreaterThan(serverErrorTtl);
+  }
+
+  @Test
+  public void defaultTtlPolicy_doesNotRememberFailuresWithoutStatusCodes() {
+    NegativeResultCache.TtlPolicy policy = new NegativeResultCache.DefaultTtlPolicy();
+
+    assertThat(policy.getFetchFailureTtlMillis(new HttpException(HttpException.UNKNOWN)))
+        .isEqualTo(0L);
+    assertThat(policy.getFetchFailureTtlMillis(new IOException())).isEqualTo(0L);
+  }
+
+  @Test
+  public void defaultTtlPolicy_remembersDecodeFailures() {
+    NegativeResultCache.TtlPolicy policy = new NegativeResultCache.DefaultTtlPolicy();
+
+    assertThat(policy.getDecodeFailureTtlMillis(new IOException())).isGreaterThan(0L);
+  }
+
+  private static void advanceClock(long millis) {
+    SystemClock.setCurrentTimeMillis(SystemClock.elapsedRealtime() + millis);
+  }
+
+  private static final class FixedTtlPolicy implements NegativeResultCache.TtlPolicy {
+    private final long ttlMillis;
+
+    FixedTtlPolicy(long ttlMillis) {
+      this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public long getFetchFailureTtlMillis(@NonNull Exception e) {
+      return ttlMillis;
+    }
+
+    @Override
+    public long getDecodeFailureTtlMillis(@NonNull Exception e) {
+      return ttlMillis;
+    }
+  }
+}
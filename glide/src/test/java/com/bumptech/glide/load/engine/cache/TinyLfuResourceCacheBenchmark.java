@@ -0,0 +1,104 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Benchmarks;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Compares the hit rates of {@link LruResourceCache} and {@link TinyLfuResourceCache} on a
+ * synthetic feed: frequently requested 64kb icons mixed with 1mb images that are mostly seen once,
+ * with occasional short scrolls back.
+ */
+@RunWith(JUnit4.class)
+public class TinyLfuResourceCacheBenchmark {
+  private static final long CACHE_SIZE = 40 * 1024 * 1024;
+  private static final int REQUESTS = 200000;
+  private static final int HOT_KEYS = 30;
+  private static final int HOT_SIZE = 64 * 1024;
+  private static final int FEED_SIZE = 1024 * 1024;
+  private static final int MAX_SCROLL_BACK = 20;
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+  }
+
+  @Test
+  public void feedHitRate() {
+    Benchmarks.report("LruResourceCache hit rate %.3f", hitRate(new LruResourceCache(CACHE_SIZE)));
+    Benchmarks.report(
+        "TinyLfuResourceCache hit rate %.3f", hitRate(new TinyLfuResourceCache(CACHE_SIZE)));
+  }
+
+  private static double hitRate(MemoryCache cache) {
+    cache.setResourceRemovedListener(new MemoryCache.ResourceRemovedListener() {
+      @Override
+      public void onResourceRemoved(@NonNull Resource<?> removed) {
+        // Do nothing.
+      }
+    });
+    Random random = new Random(1);
+    int feedPosition = 0;
+    long hits = 0;
+    for (int i = 0; i < REQUESTS; i++) {
+      int id;
+      int size;
+      int choice = random.nextInt(10);
+      if (choice < 4) {
+        id = -1 - random.nextInt(HOT_KEYS);
+        size = HOT_SIZE;
+      } else if (choice < 5) {
+        id = Math.max(0, feedPosition - random.nextInt(MAX_SCROLL_BACK));
+        size = FEED_SIZE;
+      } else {
+        id = feedPosition++;
+        size = FEED_SIZE;
+      }
+      ObjectKey key = new ObjectKey(id);
+      Resource<?> resource = cache.remove(key);
+      if (resource != null) {
+        hits++;
+      } else {
+        resource = new FakeResource(size);
+      }
+      cache.put(key, resource);
+    }
+    return hits / (double) REQUESTS;
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final int size;
+
+    FakeResource(int size) {
+      this.size = size;
+    }
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TinyLfuResourceCacheTest {
+  private static final int MAX_SIZE = 1000;
+  private static final int RESOURCE_SIZE = 100;
+
+  private final List<Resource<?>> removed = new ArrayList<>();
+  private TinyLfuResourceCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new TinyLfuResourceCache(MAX_SIZE);
+    cache.setResourceRemovedListener(new MemoryCache.ResourceRemovedListener() {
+      @Override
+      public void onResourceRemoved(@NonNull Resource<?> resource) {
+        removed.add(resource);
+      }
+    });
+  }
+
+  @Test
+  public void remove_afterPut_returnsResource() {
+    Resource<?> resource = new FakeResource(RESOURCE_SIZE);
+    cache.put(key(1), resource);
+
+    assertThat(cache.getCurrentSize()).isEqualTo(RESOURCE_SIZE);
+    assertThat(cache.remove(key(1))).isSameAs(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void remove_countsHitsAndMisses() {
+    cache.put(key(1), new FakeResource(RESOURCE_SIZE));
+
+    cache.remove(key(1));
+    cache.remove(key(1));
+    cache.remove(key(2));
+
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void put_withResourceLargerThanCache_evictsResource() {
+    Resource<?> resource = new FakeResource(MAX_SIZE);
+
+    assertThat(cache.put(key(1), resource)).isNull();
+
+    assertThat(removed).containsExactly(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_withExistingKey_evictsOldResource() {
+    Resource<?> first = new FakeResource(RESOURCE_SIZE);
+    Resource<?> second = new FakeResource(RESOURCE_SIZE);
+    cache.put(key(1), first);
+
+    assertThat(cache.put(key(1), second)).isSameAs(first);
+
+    assertThat(removed).containsExactly(first);
+    assertThat(cache.getCurrentSize()).isEqualTo(RESOURCE_SIZE);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withNullResource_removesExistingResource() {
+    Resource<?> resource = new FakeResource(RESOURCE_SIZE);
+    cache.put(key(1), resource);
+
+    assertThat(cache.put(key(1), null)).isSameAs(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_overMaxSize_staysWithinMaxSize() {
+    for (int i = 0; i < 50; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    assertThat(cache.getCurrentSize()).isAtMost((long) MAX_SIZE);
+    assertThat(removed).hasSize(40);
+    assertThat(cache.getEvictionCount()).isEqualTo(40);
+  }
+
+  @Test
+  public void put_withScanOfOneTimeResources_keepsFrequentlyRequestedResources() {
+    int hotCount = 5;
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < hotCount; i++) {
+        request(key(i));
+      }
+    }
+
+    for (int i = 100; i < 200; i++) {
+      request(key(i));
+    }
+
+    for (int i = 0; i < hotCount; i++) {
+      assertThat(cache.remove(key(i))).isNotNull();
+    }
+  }
+
+  @Test
+  public void put_intoFullCache_keepsNewResourceInWindowUntilNextPut() {
+    // Fill the main cache with resources that have been requested repeatedly.
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < MAX_SIZE / RESOURCE_SIZE; i++) {
+        request(key(i));
+      }
+    }
+
+    // 1% of the cache is smaller than one resource, but the window still holds one.
+    request(key(100));
+
+    assertThat(cache.remove(key(100))).isNotNull();
+  }
+
+  @Test
+  public void clearMemory_evictsAllResources() {
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.clearMemory();
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+    assertThat(removed).hasSize(5);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withBackgroundLevel_evictsAllResources() {
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withUiHiddenLevel_evictsToHalfOfMaxSize() {
+    for (int i = 0; i < 10; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(cache.getCurrentSize()).isAtMost(MAX_SIZE / 2L);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void setSizeMultiplier_evictsToNewMaxSize() {
+    for (int i = 0; i < 10; i++) {
+      cache.put(key(i), new FakeResource(RESOURCE_SIZE));
+    }
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertThat(cache.getMaxSize()).isEqualTo(MAX_SIZE / 2L);
+    assertThat(cache.getCurrentSize()).isAtMost(MAX_SIZE / 2L);
+  }
+
+  /**
+   * Mimics the {@link com.bumptech.glide.load.engine.Engine}, which removes a resource from the
+   * cache to use it and puts it back once it's released.
+   */
+  private void request(Key key) {
+    Resource<?> resource = cache.remove(key);
+    cache.put(key, resource != null ? resource : new FakeResource(RESOURCE_SIZE));
+  }
+
+  private static Key key(int id) {
+    return new ObjectKey(id);
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final int size;
+
+    FakeResource(int size) {
+      this.size = size;
+    }
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
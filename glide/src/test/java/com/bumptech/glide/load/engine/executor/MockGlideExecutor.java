@@ -0,0 +1,67 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates {@link GlideExecutor}s for tests that control when submitted tasks run.
+ */
+public final class MockGlideExecutor {
+
+  private MockGlideExecutor() {
+    // Utility class.
+  }
+
+  /**
+   * Returns a {@link GlideExecutor} that adds submitted tasks to the given queue rather than
+   * running them, so that tests can run them on the test thread one at a time.
+   */
+  public static GlideExecutor newQueuedExecutor(Queue<Runnable> queue) {
+    return new GlideExecutor(new QueuedExecutorService(queue));
+  }
+
+  private static final class QueuedExecutorService extends AbstractExecutorService {
+    private final Queue<Runnable> queue;
+    private boolean isShutdown;
+
+    QueuedExecutorService(Queue<Runnable> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+      queue.add(command);
+    }
+
+    @Override
+    public void shutdown() {
+      isShutdown = true;
+    }
+
+    @NonNull
+    @Override
+    public List<Runnable> shutdownNow() {
+      isShutdown = true;
+      return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return isShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return isShutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) {
+      return isShutdown;
+    }
+  }
+}
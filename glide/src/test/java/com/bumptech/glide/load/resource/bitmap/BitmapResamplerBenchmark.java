@@ -0,0 +1,159 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.tests.Benchmarks;
+import com.bumptech.glide.tests.CountingArrayPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the time taken and quality of bilinear filtering and each {@link ResampleKernel} when
+ * reducing a 12 megapixel zone plate that has already been decoded with an {@code inSampleSize}.
+ *
+ * <p>Quality is the PSNR against an exact area average of the full size image. Decoding with an
+ * {@code inSampleSize} is emulated by averaging blocks of pixels, as JPEG decoders do.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BitmapResamplerBenchmark {
+  private static final int SOURCE_WIDTH = 4032;
+  private static final int SOURCE_HEIGHT = 3024;
+  private static final int WARM_UP_RUNS = 3;
+  private static final int RUNS = 10;
+
+  private final BitmapPool bitmapPool = new BitmapPoolAdapter();
+  private final CountingArrayPool arrayPool = new CountingArrayPool();
+  private final GlideExecutor executor = GlideExecutor.newResampleExecutor();
+  private int[] pixels;
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+    pixels = zonePlate(SOURCE_WIDTH, SOURCE_HEIGHT);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void largeReduction() {
+    run(1080, 810, 2);
+  }
+
+  @Test
+  public void thumbnail() {
+    run(200, 150, 16);
+  }
+
+  private void run(int width, int height, int sampleSize) {
+    Bitmap source = BitmapResamplerTest.createBitmap(
+        SOURCE_WIDTH, SOURCE_HEIGHT, pixels, /*hasAlpha=*/ false);
+    int[] expected = BitmapResamplerTest.getPixels(BitmapResampler.resample(
+        bitmapPool, arrayPool, executor, source, width, height, ResampleKernel.AREA));
+    Bitmap sampled = sample(sampleSize);
+    Benchmarks.report("12MP to %dx%d, sample size %d (%dx%d)",
+        width, height, sampleSize, sampled.getWidth(), sampled.getHeight());
+
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      bilinear(sampled, width, height);
+    }
+    long start = System.nanoTime();
+    Bitmap result = null;
+    for (int i = 0; i < RUNS; i++) {
+      result = bilinear(sampled, width, height);
+    }
+    report("bilinear", start, result, expected);
+
+    for (ResampleKernel kernel : ResampleKernel.values()) {
+      for (int i = 0; i < WARM_UP_RUNS; i++) {
+        BitmapResampler.resample(bitmapPool, arrayPool, executor, sampled, width, height, kernel);
+      }
+      start = System.nanoTime();
+      for (int i = 0; i < RUNS; i++) {
+        result = BitmapResampler.resample(
+            bitmapPool, arrayPool, executor, sampled, width, height, kernel);
+      }
+      report(kernel.name(), start, result, expected);
+    }
+  }
+
+  private static void report(String name, long startNanos, Bitmap result, int[] expected) {
+    double millis = (System.nanoTime() - startNanos) / 1e6 / RUNS;
+    Benchmarks.report("  %-8s %7.2f ms, %.1f dB",
+        name, millis, psnr(BitmapResamplerTest.getPixels(result), expected));
+  }
+
+  private static Bitmap bilinear(Bitmap source, int width, int height) {
+    Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    Matrix matrix = new Matrix();
+    matrix.setScale(width / (float) source.getWidth(), height / (float) source.getHeight());
+    PixelResampler.draw(source, result, matrix, 0, false);
+    return result;
+  }
+
+  private Bitmap sample(int sampleSize) {
+    int width = SOURCE_WIDTH / sampleSize;
+    int height = SOURCE_HEIGHT / sampleSize;
+    int blockSize = sampleSize * sampleSize;
+    int[] result = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int color = 0xFF000000;
+        for (int shift = 0; shift < 24; shift += 8) {
+          int sum = 0;
+          for (int j = 0; j < sampleSize; j++) {
+            for (int i = 0; i < sampleSize; i++) {
+              int index = (y * sampleSize + j) * SOURCE_WIDTH + x * sampleSize + i;
+              sum += (pixels[index] >> shift) & 0xFF;
+            }
+          }
+          color |= (sum + blockSize / 2) / blockSize << shift;
+        }
+        result[y * width + x] = color;
+      }
+    }
+    return BitmapResamplerTest.createBitmap(width, height, result, /*hasAlpha=*/ false);
+  }
+
+  /**
+   * Returns an opaque image with rings that get closer together towards the edges, which alias
+   * badly when sampled, plus a horizontal gradient and a checkerboard.
+   */
+  private static int[] zonePlate(int width, int height) {
+    int[] result = new int[width * height];
+    double frequency = Math.PI / (width * 1.2);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double dx = x - width / 2d;
+        double dy = y - height / 2d;
+        int ring = (int) Math.round(127.5 + 127.5 * Math.cos(frequency * (dx * dx + dy * dy)));
+        int gradient = x * 255 / width;
+        int checkerboard = ((x ^ y) & 1) * 255;
+        result[y * width + x] = 0xFF000000 | ring << 16 | gradient << 8 | checkerboard;
+      }
+    }
+    return result;
+  }
+
+  private static double psnr(int[] actual, int[] expected) {
+    double squaredError = 0;
+    for (int i = 0; i < actual.length; i++) {
+      for (int shift = 0; shift < 24; shift += 8) {
+        int difference = ((actual[i] >> shift) & 0xFF) - ((expected[i] >> shift) & 0xFF);
+        squaredError += difference * difference;
+      }
+    }
+    double meanSquaredError = squaredError / (actual.length * 3d);
+    return 10 * Math.log10(255 * 255 / meanSquaredError);
+  }
+}
@@ -0,0 +1,458 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.resource.bitmap.BitmapResampler.Contributions;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BitmapResamplerTest {
+  private static final int WEIGHT_ONE = 1 << 14;
+
+  private final BitmapPool bitmapPool = new BitmapPoolAdapter();
+  private final CountingArrayPool arrayPool = new CountingArrayPool();
+  private final Random random = new Random(1);
+  private final GlideExecutor executor = GlideExecutor.newResampleExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+    assertThat(arrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void isSupported_onlyAcceptsArgb8888AndRgb565() {
+    assertThat(BitmapResampler.isSupported(Bitmap.Config.ARGB_8888)).isTrue();
+    assertThat(BitmapResampler.isSupported(Bitmap.Config.RGB_565)).isTrue();
+    assertThat(BitmapResampler.isSupported(Bitmap.Config.ALPHA_8)).isFalse();
+    assertThat(BitmapResampler.isSupported(null)).isFalse();
+  }
+
+  @Test
+  public void getContributions_weightsSumToOneAndStayWithinInput() {
+    int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {10, 3}, {3, 10}, {4032, 1080}, {97, 96}};
+    for (ResampleKernel kernel : ResampleKernel.values()) {
+      for (int[] size : sizes) {
+        int inSize = size[0];
+        int outSize = size[1];
+        Contributions contributions = BitmapResampler.getContributions(inSize, outSize, kernel);
+
+        for (int i = 0; i < outSize; i++) {
+          int start = contributions.start[i];
+          int count = contributions.count[i];
+          assertThat(start).isAtLeast(0);
+          assertThat(count).isAtLeast(1);
+          assertThat(count).isAtMost(contributions.stride);
+          assertThat(start + count).isAtMost(inSize);
+          int sum = 0;
+          for (int j = 0; j < count; j++) {
+            sum += contributions.weights[i * contributions.stride + j];
+          }
+          assertThat(sum).isEqualTo(WEIGHT_ONE);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void getContributions_withArea_weightsInputByCoverage() {
+    // Each output pixel covers one and a half input pixels.
+    Contributions contributions = BitmapResampler.getContributions(3, 2, ResampleKernel.AREA);
+
+    assertThat(contributions.start[0]).isEqualTo(0);
+    assertThat(contributions.count[0]).isEqualTo(2);
+    assertThat(contributions.weights[0]).isEqualTo(Math.round(WEIGHT_ONE * 2 / 3d));
+    assertThat(contributions.weights[1]).isEqualTo(Math.round(WEIGHT_ONE / 3d));
+  }
+
+  @Test
+  public void resample_withSameSize_copiesPixelsExactly() {
+    int[] pixels = randomPixels(37, 23, /*hasAlpha=*/ false);
+    Bitmap source = createBitmap(37, 23, pixels, /*hasAlpha=*/ false);
+
+    for (ResampleKernel kernel : ResampleKernel.values()) {
+      Bitmap result =
+          BitmapResampler.resample(bitmapPool, arrayPool, executor, source, 37, 23, kernel);
+
+      assertThat(getPixels(result)).isEqualTo(pixels);
+    }
+  }
+
+  @Test
+  public void resample_withFlatColors_preservesColors() {
+    for (ResampleKernel kernel : ResampleKernel.values()) {
+      for (int color : new int[] {0xFF336699, 0x80336699, 0x00000000, 0xFFFFFFFF}) {
+        boolean hasAlpha = color >>> 24 != 0xFF;
+        int[] pixels = new int[301 * 199];
+        Arrays.fill(pixels, color);
+        Bitmap source = createBitmap(301, 199, pixels, hasAlpha);
+
+        Bitmap result =
+            BitmapResampler.resample(bitmapPool, arrayPool, executor, source, 61, 40, kernel);
+
+        int[] expected = new int[61 * 40];
+        Arrays.fill(expected, color);
+        assertThat(maxDifference(getPixels(result), expected, hasAlpha)).isAtMost(1);
+      }
+    }
+  }
+
+  @Test
+  public void resample_withAreaAndHalfSize_averagesBlocks() {
+    int[] pixels = randomPixels(40, 30, /*hasAlpha=*/ false);
+    Bitmap source = createBitmap(40, 30, pixels, /*hasAlpha=*/ false);
+
+    Bitmap result = BitmapResampler.resample(
+        bitmapPool, arrayPool, executor, source, 20, 15, ResampleKernel.AREA);
+
+    int[] resultPixels = getPixels(result);
+    for (int y = 0; y < 15; y++) {
+      for (int x = 0; x < 20; x++) {
+        int[] block = {
+            pixels[2 * y * 40 + 2 * x], pixels[2 * y * 40 + 2 * x + 1],
+            pixels[(2 * y + 1) * 40 + 2 * x], pixels[(2 * y + 1) * 40 + 2 * x + 1]};
+        for (int shift = 0; shift < 24; shift += 8) {
+          int sum = 0;
+          for (int color : block) {
+            sum += (color >> shift) & 0xFF;
+          }
+          int actual = (resultPixels[y * 20 + x] >> shift) & 0xFF;
+          assertThat(Math.abs(actual - sum / 4d)).isAtMost(1d);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void resample_withArea_matchesExactReference() {
+    for (int i = 0; i < 100; i++) {
+      int width = 1 + random.nextInt(60);
+      int height = 1 + random.nextInt(60);
+      int outWidth = 1 + random.nextInt(i % 5 == 0 ? 90 : width);
+      int outHeight = 1 + random.nextInt(i % 5 == 0 ? 90 : height);
+      boolean hasAlpha = random.nextBoolean();
+      int[] pixels = randomPixels(width, height, hasAlpha);
+      Bitmap source = createBitmap(width, height, pixels, hasAlpha);
+
+      Bitmap result = BitmapResampler.resample(
+          bitmapPool, arrayPool, executor, source, outWidth, outHeight, ResampleKernel.AREA);
+
+      int[] expected = reference(
+          pixels, width, height, outWidth, outHeight, hasAlpha, ResampleKernel.AREA);
+      assertThat(maxDifference(getPixels(result), expected, hasAlpha)).isAtMost(2);
+    }
+  }
+
+  @Test
+  public void resample_withLanczos3AndSmoothImage_matchesExactReference() {
+    // Smooth images don't overshoot, so clamping doesn't move the result away from the reference.
+    int width = 120;
+    int height = 90;
+    int[] pixels = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        pixels[y * width + x] = 0xFF000000 | (x * 2) << 16 | (y * 2) << 8 | (x + y);
+      }
+    }
+    Bitmap source = createBitmap(width, height, pixels, /*hasAlpha=*/ false);
+
+    for (int[] size : new int[][] {{43, 31}, {240, 180}}) {
+      Bitmap result = BitmapResampler.resample(
+          bitmapPool, arrayPool, executor, source, size[0], size[1], ResampleKernel.LANCZOS3);
+
+      int[] expected = reference(
+          pixels, width, height, size[0], size[1], /*hasAlpha=*/ false, ResampleKernel.LANCZOS3);
+      assertThat(maxDifference(getPixels(result), expected, /*hasAlpha=*/ false)).isAtMost(2);
+    }
+  }
+
+  @Test
+  public void resample_nextToTransparentPixels_doesNotDarkenColors() {
+    int[] pixels = new int[20 * 10];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i % 20 < 10 ? 0xFFFF0000 : 0x00000000;
+    }
+    Bitmap source = createBitmap(20, 10, pixels, /*hasAlpha=*/ true);
+
+    for (ResampleKernel kernel : ResampleKernel.values()) {
+      Bitmap result =
+          BitmapResampler.resample(bitmapPool, arrayPool, executor, source, 7, 4, kernel);
+
+      for (int pixel : getPixels(result)) {
+        if (pixel >>> 24 > 0x10) {
+          assertThat(pixel & 0xFFFFFF).isEqualTo(0xFF0000);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void resample_withManyBands_matchesSinglePass() {
+    // Large enough to be split into bands, and across threads on multi core machines.
+    int width = 1201;
+    int height = 907;
+    int outWidth = 513;
+    int outHeight = 389;
+    for (boolean hasAlpha : new boolean[] {false, true}) {
+      for (ResampleKernel kernel : ResampleKernel.values()) {
+        int[] pixels = randomPixels(width, height, hasAlpha);
+        Bitmap source = createBitmap(width, height, pixels, hasAlpha);
+
+        Bitmap result = BitmapResampler.resample(
+            bitmapPool, arrayPool, executor, source, outWidth, outHeight, kernel);
+
+        int[] expected =
+            resampleInOnePass(pixels, width, height, outWidth, outHeight, hasAlpha, kernel);
+        assertThat(getPixels(result)).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  public void resample_withManyBandsAndNoExecutor_matchesSinglePass() {
+    assertResampledInBandsMatchesSinglePass(/*helperExecutor=*/ null);
+  }
+
+  @Test
+  public void resample_withManyBandsAndRejectingExecutor_matchesSinglePass() {
+    assertResampledInBandsMatchesSinglePass(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    });
+  }
+
+  @Test
+  public void resample_withManyBandsAndQueuingExecutor_resamplesOnCallingThread() {
+    // Helpers that only start after the calling thread has claimed every band have nothing to do.
+    final List<Runnable> helpers = new ArrayList<>();
+    assertResampledInBandsMatchesSinglePass(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        helpers.add(command);
+      }
+    });
+
+    for (Runnable helper : helpers) {
+      helper.run();
+    }
+  }
+
+  private void assertResampledInBandsMatchesSinglePass(@Nullable Executor helperExecutor) {
+    int width = 1201;
+    int height = 907;
+    int outWidth = 513;
+    int outHeight = 389;
+    int[] pixels = randomPixels(width, height, /*hasAlpha=*/ true);
+    Bitmap source = createBitmap(width, height, pixels, /*hasAlpha=*/ true);
+
+    Bitmap result = BitmapResampler.resample(bitmapPool, arrayPool, helperExecutor, source,
+        outWidth, outHeight, ResampleKernel.LANCZOS3);
+
+    int[] expected = resampleInOnePass(
+        pixels, width, height, outWidth, outHeight, /*hasAlpha=*/ true, ResampleKernel.LANCZOS3);
+    assertThat(getPixels(result)).isEqualTo(expected);
+  }
+
+  @Test
+  public void premultiply_thenUnpremultiply_restoresOpaqueAndTransparentPixels() {
+    int[] pixels = {0xFF123456, 0x00000000, 0xFFFFFFFF, 0xFF000000};
+    int[] copy = pixels.clone();
+
+    BitmapResampler.premultiply(copy, 0, copy.length);
+    assertThat(copy).isEqualTo(pixels);
+    BitmapResampler.unpremultiply(copy, 0, copy.length);
+
+    assertThat(copy).isEqualTo(pixels);
+  }
+
+  @Test
+  public void premultiply_withTranslucentPixel_scalesColors() {
+    int[] pixels = {0x80FF8040};
+
+    BitmapResampler.premultiply(pixels, 0, 1);
+
+    assertThat(pixels[0]).isEqualTo(0x80804020);
+  }
+
+  /**
+   * Filters the pixels with {@link BitmapResampler}'s own filters without splitting the image into
+   * bands.
+   */
+  private static int[] resampleInOnePass(int[] pixels, int width, int height, int outWidth,
+      int outHeight, boolean hasAlpha, ResampleKernel kernel) {
+    Contributions horizontal = BitmapResampler.getContributions(width, outWidth, kernel);
+    Contributions vertical = BitmapResampler.getContributions(height, outHeight, kernel);
+    int[] in = pixels.clone();
+    if (hasAlpha) {
+      BitmapResampler.premultiply(in, 0, in.length);
+    }
+    int[] filtered = new int[height * outWidth];
+    for (int y = 0; y < height; y++) {
+      BitmapResampler.filterRow(in, y * width, horizontal, filtered, y * outWidth, hasAlpha);
+    }
+    int[] result = new int[outWidth * outHeight];
+    for (int y = 0; y < outHeight; y++) {
+      for (int x = 0; x < outWidth; x++) {
+        result[y * outWidth + x] = BitmapResampler.filterPixel(filtered,
+            vertical.start[y] * outWidth + x, outWidth, vertical.weights, y * vertical.stride,
+            vertical.count[y], hasAlpha);
+      }
+    }
+    if (hasAlpha) {
+      BitmapResampler.unpremultiply(result, 0, result.length);
+    }
+    return result;
+  }
+
+  /**
+   * Filters the pixels in double precision without rounding between the two passes.
+   */
+  static int[] reference(int[] pixels, int width, int height, int outWidth, int outHeight,
+      boolean hasAlpha, ResampleKernel kernel) {
+    double[][] horizontal = referenceWeights(width, outWidth, kernel);
+    double[][] vertical = referenceWeights(height, outHeight, kernel);
+    double[] filtered = new double[height * outWidth * 4];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < outWidth; x++) {
+        for (int i = 0; i < width; i++) {
+          int color = pixels[y * width + i];
+          double alpha = color >>> 24;
+          double multiplier = hasAlpha ? alpha / 0xFF : 1;
+          double weight = horizontal[x][i];
+          int offset = (y * outWidth + x) * 4;
+          filtered[offset] += weight * alpha;
+          filtered[offset + 1] += weight * ((color >> 16) & 0xFF) * multiplier;
+          filtered[offset + 2] += weight * ((color >> 8) & 0xFF) * multiplier;
+          filtered[offset + 3] += weight * (color & 0xFF) * multiplier;
+        }
+      }
+    }
+
+    int[] result = new int[outWidth * outHeight];
+    double[] sum = new double[4];
+    for (int y = 0; y < outHeight; y++) {
+      for (int x = 0; x < outWidth; x++) {
+        Arrays.fill(sum, 0);
+        for (int j = 0; j < height; j++) {
+          for (int c = 0; c < 4; c++) {
+            sum[c] += vertical[y][j] * filtered[(j * outWidth + x) * 4 + c];
+          }
+        }
+        double alpha = Math.max(0, Math.min(0xFF, sum[0]));
+        int color = (int) Math.round(alpha) << 24;
+        for (int c = 1; c < 4; c++) {
+          double value = sum[c];
+          if (hasAlpha) {
+            value = alpha == 0 ? 0 : value * 0xFF / alpha;
+          }
+          color |= (int) Math.round(Math.max(0, Math.min(0xFF, value))) << (24 - 8 * c);
+        }
+        result[y * outWidth + x] = hasAlpha && color >>> 24 == 0 ? 0 : color;
+      }
+    }
+    return result;
+  }
+
+  private static double[][] referenceWeights(int inSize, int outSize, ResampleKernel kernel) {
+    double scale = inSize / (double) outSize;
+    double filterScale = Math.max(1, scale);
+    double support = kernel == ResampleKernel.AREA ? 0.5 * filterScale : 3 * filterScale;
+    double[][] result = new double[outSize][inSize];
+    for (int i = 0; i < outSize; i++) {
+      double center = (i + 0.5) * scale;
+      double total = 0;
+      for (int j = 0; j < inSize; j++) {
+        double weight;
+        if (kernel == ResampleKernel.AREA) {
+          weight = Math.max(0,
+              Math.min(j + 1, center + support) - Math.max(j, center - support));
+        } else {
+          double x = (j + 0.5 - center) / filterScale;
+          if (x == 0) {
+            weight = 1;
+          } else if (Math.abs(x) >= 3) {
+            weight = 0;
+          } else {
+            double piX = Math.PI * x;
+            weight = 3 * Math.sin(piX) * Math.sin(piX / 3) / (piX * piX);
+          }
+        }
+        result[i][j] = weight;
+        total += weight;
+      }
+      for (int j = 0; j < inSize; j++) {
+        result[i][j] /= total;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the largest difference between any channel of any pixel, comparing premultiplied
+   * colors if {@code hasAlpha} is {@code true} because that's what's visible.
+   */
+  static int maxDifference(int[] actual, int[] expected, boolean hasAlpha) {
+    int result = 0;
+    for (int i = 0; i < actual.length; i++) {
+      int actualAlpha = actual[i] >>> 24;
+      int expectedAlpha = expected[i] >>> 24;
+      result = Math.max(result, Math.abs(actualAlpha - expectedAlpha));
+      for (int shift = 0; shift < 24; shift += 8) {
+        int actualColor = (actual[i] >> shift) & 0xFF;
+        int expectedColor = (expected[i] >> shift) & 0xFF;
+        if (hasAlpha) {
+          actualColor = (actualColor * actualAlpha + 127) / 0xFF;
+          expectedColor = (expectedColor * expectedAlpha + 127) / 0xFF;
+        }
+        result = Math.max(result, Math.abs(actualColor - expectedColor));
+      }
+    }
+    return result;
+  }
+
+  private int[] randomPixels(int width, int height, boolean hasAlpha) {
+    int[] result = new int[width * height];
+    for (int i = 0; i < result.length; i++) {
+      int color = random.nextInt();
+      if (!hasAlpha) {
+        color |= 0xFF000000;
+      } else if (random.nextInt(4) == 0) {
+        color &= 0xFFFFFF;
+      }
+      result[i] = color;
+    }
+    return result;
+  }
+
+  static Bitmap createBitmap(int width, int height, int[] pixels, boolean hasAlpha) {
+    Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    result.setPixels(pixels, 0, width, 0, 0, width, height);
+    result.setHasAlpha(hasAlpha);
+    return result;
+  }
+
+  static int[] getPixels(Bitmap bitmap) {
+    int[] result = new int[bitmap.getWidth() * bitmap.getHeight()];
+    bitmap.getPixels(result, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+    return result;
+  }
+}
@@ -0,0 +1,174 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import com.bumptech.glide.tests.Benchmarks;
+import com.luciad.imageio.webp.WebPWriteParam;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the time taken to write and read, and the size of, the files written with the formats
+ * and qualities {@link CompressionPolicy#DEFAULT} and {@link CompressionPolicy#ADAPTIVE} pick.
+ *
+ * <p>Robolectric's {@link Bitmap#compress(CompressFormat, int, java.io.OutputStream)} doesn't
+ * encode anything, so files are written and read with {@link ImageIO} instead, which uses zlib
+ * for PNG, libjpeg for JPEG and libwebp for WEBP. Devices use the same libraries, but the times
+ * are only useful relative to each other.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CompressionPolicyBenchmark {
+  private static final int QUALITY = 90;
+  private static final int WARM_UP_RUNS = 3;
+  private static final int RUNS = 8;
+  private static final int[] SIZES = {256, 512, 1080};
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+  }
+
+  @Test
+  public void photoWithAlpha() throws IOException {
+    for (int size : SIZES) {
+      int[] pixels = CompressionPolicyTest.photo(size, /*isCircle=*/ true);
+      Bitmap bitmap = CompressionPolicyTest.createBitmap(size, pixels, /*hasAlpha=*/ true);
+      BufferedImage image = createImage(size, pixels, /*hasAlpha=*/ true);
+      run("photo+alpha", bitmap, image, CompressionPolicy.DEFAULT);
+      run("photo+alpha", bitmap, image, CompressionPolicy.ADAPTIVE);
+    }
+  }
+
+  @Test
+  public void graphicWithAlpha() throws IOException {
+    for (int size : SIZES) {
+      int[] pixels = CompressionPolicyTest.graphic(size);
+      Bitmap bitmap = CompressionPolicyTest.createBitmap(size, pixels, /*hasAlpha=*/ true);
+      BufferedImage image = createImage(size, pixels, /*hasAlpha=*/ true);
+      // Before Q, ADAPTIVE also writes graphics as PNG.
+      run("graphic+alpha", bitmap, image, CompressionPolicy.DEFAULT);
+      // From Q, ADAPTIVE writes graphics as lossless WEBP.
+      report("graphic+alpha", size, "ADAPTIVE (Q+) WEBP lossless",
+          measure(image, CompressFormat.WEBP, /*quality=*/ 100, /*isLossless=*/ true));
+    }
+  }
+
+  @Test
+  public void opaquePhoto() throws IOException {
+    for (int size : SIZES) {
+      int[] pixels = CompressionPolicyTest.photo(size, /*isCircle=*/ false);
+      Bitmap bitmap = CompressionPolicyTest.createBitmap(size, pixels, /*hasAlpha=*/ false);
+      BufferedImage image = createImage(size, pixels, /*hasAlpha=*/ false);
+      run("photo opaque", bitmap, image, CompressionPolicy.DEFAULT);
+      run("photo opaque", bitmap, image, CompressionPolicy.ADAPTIVE);
+    }
+  }
+
+  private static void run(String content, Bitmap bitmap, BufferedImage image,
+      CompressionPolicy policy) throws IOException {
+    CompressionPolicy.Compression compression = policy.getCompression(bitmap, QUALITY);
+    CompressFormat format = compression.getFormat();
+    int quality = compression.getQuality();
+    String name = String.format(Locale.US, "%s %s q%d",
+        policy == CompressionPolicy.DEFAULT ? "DEFAULT" : "ADAPTIVE", format, quality);
+    report(content, bitmap.getWidth(), name,
+        measure(image, format, quality, /*isLossless=*/ false));
+  }
+
+  private static void report(String content, int size, String name, double[] result) {
+    Benchmarks.report("%-14s %5d  %-28s enc %7.2f ms  dec %7.2f ms  %8.1f KB",
+        content, size, name, result[0], result[1], result[2]);
+  }
+
+  /**
+   * Returns the mean milliseconds taken to write and read the image and the size of the file in
+   * KB.
+   */
+  private static double[] measure(BufferedImage image, CompressFormat format, int quality,
+      boolean isLossless) throws IOException {
+    byte[] encoded = null;
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      encoded = encode(image, format, quality, isLossless);
+      decode(encoded);
+    }
+    long encodeNanos = 0;
+    long decodeNanos = 0;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      encoded = encode(image, format, quality, isLossless);
+      encodeNanos += System.nanoTime() - start;
+      start = System.nanoTime();
+      decode(encoded);
+      decodeNanos += System.nanoTime() - start;
+    }
+    return new double[] {
+        encodeNanos / 1e6 / RUNS, decodeNanos / 1e6 / RUNS, encoded.length / 1024d};
+  }
+
+  static byte[] encode(BufferedImage image, CompressFormat format, int quality,
+      boolean isLossless) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName(getFormatName(format)).next();
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    if (format == CompressFormat.JPEG) {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(quality / 100f);
+    } else if (format == CompressFormat.WEBP) {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      WebPWriteParam webpParam = (WebPWriteParam) param;
+      param.setCompressionType(
+          webpParam.getCompressionTypes()[isLossless
+              ? WebPWriteParam.LOSSLESS_COMPRESSION : WebPWriteParam.LOSSY_COMPRESSION]);
+      param.setCompressionQuality(quality / 100f);
+    }
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ImageOutputStream ios = ImageIO.createImageOutputStream(os);
+    try {
+      writer.setOutput(ios);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      ios.close();
+      writer.dispose();
+    }
+    return os.toByteArray();
+  }
+
+  private static void decode(byte[] encoded) throws IOException {
+    if (ImageIO.read(new ByteArrayInputStream(encoded)) == null) {
+      throw new IOException("Failed to decode");
+    }
+  }
+
+  private static String getFormatName(CompressFormat format) {
+    switch (format) {
+      case JPEG:
+        return "jpeg";
+      case PNG:
+        return "png";
+      case WEBP:
+        return "webp";
+      default:
+        throw new IllegalArgumentException("Unrecognized format: " + format);
+    }
+  }
+
+  static BufferedImage createImage(int size, int[] pixels, boolean hasAlpha) {
+    BufferedImage result = new BufferedImage(
+        size, size, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    result.setRGB(0, 0, size, size, pixels, 0, size);
+    return result;
+  }
+}
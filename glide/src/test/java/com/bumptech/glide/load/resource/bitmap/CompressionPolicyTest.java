@@ -0,0 +1,261 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CompressionPolicyTest {
+  private static final int QUALITY = 90;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void default_withAlpha_returnsPngAndQuality() {
+    Bitmap bitmap = createBitmap(256, photo(256, /*isCircle=*/ true), /*hasAlpha=*/ true);
+
+    CompressionPolicy.Compression compression =
+        CompressionPolicy.DEFAULT.getCompression(bitmap, QUALITY);
+
+    assertThat(compression.getFormat()).isEqualTo(CompressFormat.PNG);
+    assertThat(compression.getQuality()).isEqualTo(QUALITY);
+  }
+
+  @Test
+  public void default_withoutAlpha_returnsJpegAndQuality() {
+    Bitmap bitmap = createBitmap(1080, photo(1080, /*isCircle=*/ false), /*hasAlpha=*/ false);
+
+    CompressionPolicy.Compression compression =
+        CompressionPolicy.DEFAULT.getCompression(bitmap, QUALITY);
+
+    assertThat(compression.getFormat()).isEqualTo(CompressFormat.JPEG);
+    assertThat(compression.getQuality()).isEqualTo(QUALITY);
+  }
+
+  @Test
+  public void adaptive_withPhotoWithAlpha_returnsWebp() {
+    for (int size : new int[] {64, 256, 1080}) {
+      Bitmap bitmap = createBitmap(size, photo(size, /*isCircle=*/ true), /*hasAlpha=*/ true);
+
+      assertThat(getAdaptiveFormat(bitmap)).isEqualTo(CompressFormat.WEBP);
+    }
+  }
+
+  @Test
+  public void adaptive_withOpaquePhoto_returnsJpeg() {
+    for (int size : new int[] {64, 256, 1080}) {
+      Bitmap bitmap = createBitmap(size, photo(size, /*isCircle=*/ false), /*hasAlpha=*/ false);
+
+      assertThat(getAdaptiveFormat(bitmap)).isEqualTo(CompressFormat.JPEG);
+    }
+  }
+
+  @Test
+  public void adaptive_withGraphic_returnsPngBeforeQ() {
+    for (int size : new int[] {64, 256, 1080}) {
+      Bitmap bitmap = createBitmap(size, graphic(size), /*hasAlpha=*/ true);
+
+      assertThat(getAdaptiveFormat(bitmap)).isEqualTo(CompressFormat.PNG);
+    }
+  }
+
+  @Test
+  public void adaptive_withOpaqueGraphic_returnsPngBeforeQ() {
+    int[] pixels = new int[100 * 100];
+    Arrays.fill(pixels, 0xFF3F51B5);
+    Bitmap bitmap = createBitmap(100, pixels, /*hasAlpha=*/ false);
+
+    assertThat(getAdaptiveFormat(bitmap)).isEqualTo(CompressFormat.PNG);
+  }
+
+  @Test
+  public void adaptive_withOnePixel_returnsPngBeforeQ() {
+    Bitmap bitmap = createBitmap(1, new int[] {0xFF000000}, /*hasAlpha=*/ false);
+
+    assertThat(getAdaptiveFormat(bitmap)).isEqualTo(CompressFormat.PNG);
+  }
+
+  @Test
+  public void adaptive_withGraphic_returnsQualityBeforeQ() {
+    Bitmap bitmap = createBitmap(1080, graphic(1080), /*hasAlpha=*/ true);
+
+    assertThat(CompressionPolicy.ADAPTIVE.getCompression(bitmap, QUALITY).getQuality())
+        .isEqualTo(QUALITY);
+  }
+
+  @Test
+  public void adaptive_withHardwareBitmap_doesNotReadPixels() {
+    int[] pixels = new int[100 * 100];
+    Arrays.fill(pixels, 0xFF3F51B5);
+    Bitmap bitmap = createBitmap(100, pixels, /*hasAlpha=*/ false)
+        .copy(Bitmap.Config.HARDWARE, /*isMutable=*/ false);
+
+    // A flat color is otherwise a graphic, see adaptive_withOpaqueGraphic_returnsPngBeforeQ.
+    assertThat(getAdaptiveFormat(bitmap)).isEqualTo(CompressFormat.JPEG);
+  }
+
+  @Test
+  public void adaptive_reducesQualityForLargeBitmaps() {
+    assertThat(getAdaptiveQuality(256, 256, QUALITY)).isEqualTo(90);
+    assertThat(getAdaptiveQuality(257, 256, QUALITY)).isEqualTo(85);
+    assertThat(getAdaptiveQuality(1024, 1024, QUALITY)).isEqualTo(85);
+    assertThat(getAdaptiveQuality(1025, 1024, QUALITY)).isEqualTo(80);
+  }
+
+  @Test
+  public void adaptive_doesNotReduceQualityBelowMinimum() {
+    assertThat(getAdaptiveQuality(2048, 2048, 75)).isEqualTo(70);
+    assertThat(getAdaptiveQuality(2048, 2048, 70)).isEqualTo(70);
+    assertThat(getAdaptiveQuality(2048, 2048, 50)).isEqualTo(50);
+  }
+
+  @Test
+  public void encode_withAdaptivePolicy_writesPickedFormatAndQuality() throws IOException {
+    Bitmap bitmap = noise(1080, 1080);
+    Options options = new Options()
+        .set(BitmapEncoder.COMPRESSION_POLICY, CompressionPolicy.ADAPTIVE)
+        .set(BitmapEncoder.COMPRESSION_QUALITY, QUALITY);
+
+    assertThat(encode(bitmap, options)).isEqualTo(compress(bitmap, CompressFormat.JPEG, 80));
+  }
+
+  @Test
+  public void encode_withAdaptivePolicyAndFormat_writesFormatAndQuality() throws IOException {
+    Bitmap bitmap = noise(1080, 1080);
+    Options options = new Options()
+        .set(BitmapEncoder.COMPRESSION_POLICY, CompressionPolicy.ADAPTIVE)
+        .set(BitmapEncoder.COMPRESSION_FORMAT, CompressFormat.WEBP)
+        .set(BitmapEncoder.COMPRESSION_QUALITY, QUALITY);
+
+    assertThat(encode(bitmap, options))
+        .isEqualTo(compress(bitmap, CompressFormat.WEBP, QUALITY));
+  }
+
+  private byte[] encode(Bitmap bitmap, Options options) throws IOException {
+    File file = temporaryFolder.newFile();
+    BitmapEncoder encoder = new BitmapEncoder(new LruArrayPool());
+
+    assertThat(encoder.encode(new BitmapResource(bitmap, new BitmapPoolAdapter()), file, options))
+        .isTrue();
+    return ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(file));
+  }
+
+  private static byte[] compress(Bitmap bitmap, CompressFormat format, int quality) {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    bitmap.compress(format, quality, os);
+    return os.toByteArray();
+  }
+
+  private static CompressFormat getAdaptiveFormat(Bitmap bitmap) {
+    return CompressionPolicy.ADAPTIVE.getCompression(bitmap, QUALITY).getFormat();
+  }
+
+  private static int getAdaptiveQuality(int width, int height, int quality) {
+    return CompressionPolicy.ADAPTIVE.getCompression(noise(width, height), quality).getQuality();
+  }
+
+  /**
+   * Returns an opaque {@link Bitmap} of random pixels, which is a photo to
+   * {@link CompressionPolicy#ADAPTIVE}.
+   */
+  private static Bitmap noise(int width, int height) {
+    Random random = new Random(width * height);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = 0xFF000000 | random.nextInt();
+    }
+    Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    result.setPixels(pixels, 0, width, 0, 0, width, height);
+    result.setHasAlpha(false);
+    return result;
+  }
+
+  static Bitmap createBitmap(int size, int[] pixels, boolean hasAlpha) {
+    Bitmap result = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+    result.setPixels(pixels, 0, size, 0, 0, size, size);
+    result.setHasAlpha(hasAlpha);
+    return result;
+  }
+
+  /**
+   * Returns the pixels of a square, noisy, photo like image that, like an image transformed with
+   * {@link CircleCrop}, is transparent outside of a circle if {@code isCircle} is {@code true}.
+   */
+  static int[] photo(int size, boolean isCircle) {
+    Random random = new Random(size);
+    double[] frequencies = new double[9];
+    for (int i = 0; i < frequencies.length; i++) {
+      frequencies[i] = 2 + random.nextDouble() * 20;
+    }
+    int[] result = new int[size * size];
+    double radius = size / 2d;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        double dx = x + 0.5 - radius;
+        double dy = y + 0.5 - radius;
+        if (isCircle && dx * dx + dy * dy > radius * radius) {
+          continue;
+        }
+        double u = x / (double) size;
+        double v = y / (double) size;
+        int r = clamp(128 + 60 * Math.sin(frequencies[0] * u + frequencies[1] * v)
+            + 40 * Math.sin(frequencies[2] * u * v * 3) + random.nextGaussian() * 8);
+        int g = clamp(120 + 55 * Math.sin(frequencies[3] * u - frequencies[4] * v)
+            + 35 * Math.cos(frequencies[5] * (u + v)) + random.nextGaussian() * 8);
+        int b = clamp(110 + 50 * Math.cos(frequencies[6] * u + frequencies[7] * v * v)
+            + 30 * Math.sin(frequencies[8] * u) + random.nextGaussian() * 8);
+        result[y * size + x] = 0xFF000000 | r << 16 | g << 8 | b;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the pixels of a square icon like image with a few flat colors on a transparent
+   * background.
+   */
+  static int[] graphic(int size) {
+    int[] result = new int[size * size];
+    int center = size / 2;
+    int dotRadius = size / 10;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int color = 0;
+        if (x >= size / 8 && x < size * 7 / 8 && y >= size / 8 && y < size * 7 / 8) {
+          color = 0xFF3F51B5;
+        }
+        if (x >= size / 3 && x < size * 2 / 3 && y >= size / 4 && y < size * 3 / 4) {
+          color = 0xFFFFFFFF;
+        }
+        int dx = x - center;
+        int dy = y - center;
+        if (dx * dx + dy * dy <= dotRadius * dotRadius) {
+          color = 0xFFFF4081;
+        }
+        result[y * size + x] = color;
+      }
+    }
+    return result;
+  }
+
+  private static int clamp(double value) {
+    return Math.max(0, Math.min(0xFF, (int) value));
+  }
+}
@@ -0,0 +1,435 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.media.ExifInterface;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser.ImageHeader;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DefaultImageHeaderParserTest {
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final int THUMBNAIL_WIDTH = 160;
+  private static final int THUMBNAIL_HEIGHT = 120;
+
+  private final DefaultImageHeaderParser parser = new DefaultImageHeaderParser();
+  private final CountingArrayPool byteArrayPool = new CountingArrayPool();
+
+  @After
+  public void tearDown() {
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void parse_withBigEndianExifJpeg_returnsOrientationAndDimensions() throws IOException {
+    byte[] data =
+        jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90));
+
+    assertHeader(data, ImageType.JPEG, ExifInterface.ORIENTATION_ROTATE_90, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withLittleEndianExifJpeg_returnsOrientationAndDimensions() throws IOException {
+    byte[] data =
+        jpeg(exifSegment(ByteOrder.LITTLE_ENDIAN, ExifInterface.ORIENTATION_TRANSVERSE));
+
+    assertHeader(data, ImageType.JPEG, ExifInterface.ORIENTATION_TRANSVERSE, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withJpegWithoutExif_returnsDimensions() throws IOException {
+    byte[] data = jpeg(/*exifSegment=*/ null);
+
+    assertHeader(data, ImageType.JPEG, ImageHeaderParser.UNKNOWN_ORIENTATION, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withNegativeSegmentLength_returnsUnknownOrientation() throws IOException {
+    byte[] data = new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, 0, 1, 0, 0};
+
+    assertHeader(data, ImageType.JPEG, ImageHeaderParser.UNKNOWN_ORIENTATION, -1, -1);
+  }
+
+  @Test
+  public void parse_withTruncatedExifSegment_returnsUnknownOrientation() throws IOException {
+    byte[] data = jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90));
+    byte[] truncated = Arrays.copyOf(data, 20);
+
+    assertHeader(truncated, ImageType.JPEG, ImageHeaderParser.UNKNOWN_ORIENTATION, -1, -1);
+  }
+
+  @Test
+  public void parse_withExifAfterStartOfFrame_returnsOrientationAndDimensions()
+      throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeShort(os, 0xFFD8);
+    writeStartOfFrame(os);
+    writeSegment(os, 0xE1, exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90));
+    writeShort(os, 0xFFDA);
+
+    assertHeader(os.toByteArray(), ImageType.JPEG, ExifInterface.ORIENTATION_ROTATE_90, WIDTH,
+        HEIGHT);
+  }
+
+  @Test
+  public void parse_withTruncatedStartOfFrame_returnsDimensions() throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeShort(os, 0xFFD8);
+    writeStartOfFrame(os);
+    byte[] truncated = Arrays.copyOf(os.toByteArray(), 2 + 4 + 5);
+
+    assertHeader(truncated, ImageType.JPEG, ImageHeaderParser.UNKNOWN_ORIENTATION, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withExifThumbnail_returnsThumbnailLocationAndDimensions() throws IOException {
+    byte[] thumbnail = thumbnail();
+    byte[] data = jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90,
+        thumbnail, thumbnail.length));
+
+    assertThumbnail(data, indexOf(data, thumbnail), thumbnail.length, THUMBNAIL_WIDTH,
+        THUMBNAIL_HEIGHT);
+  }
+
+  @Test
+  public void parse_withLittleEndianExifThumbnail_returnsThumbnailLocationAndDimensions()
+      throws IOException {
+    byte[] thumbnail = thumbnail();
+    byte[] data = jpeg(exifSegment(ByteOrder.LITTLE_ENDIAN, ExifInterface.ORIENTATION_NORMAL,
+        thumbnail, thumbnail.length));
+
+    assertThumbnail(data, indexOf(data, thumbnail), thumbnail.length, THUMBNAIL_WIDTH,
+        THUMBNAIL_HEIGHT);
+  }
+
+  @Test
+  public void parse_withoutSecondIfd_returnsNoThumbnail() throws IOException {
+    byte[] data = jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90));
+
+    assertThumbnail(data, -1, -1, -1, -1);
+  }
+
+  @Test
+  public void parse_withThumbnailLengthPastExifSegment_returnsNoThumbnail() throws IOException {
+    byte[] thumbnail = thumbnail();
+    byte[] data = jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90,
+        thumbnail, thumbnail.length + 1));
+
+    assertThumbnail(data, -1, -1, -1, -1);
+  }
+
+  @Test
+  public void parse_withThumbnailWithoutStartOfFrame_returnsNoThumbnail() throws IOException {
+    byte[] thumbnail = new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA, 0, 2};
+    byte[] data = jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90,
+        thumbnail, thumbnail.length));
+
+    assertThumbnail(data, -1, -1, -1, -1);
+  }
+
+  @Test
+  public void parse_withThumbnailThatIsNotAJpeg_returnsNoThumbnail() throws IOException {
+    byte[] thumbnail = png(/*colorType=*/ 2);
+    byte[] data = jpeg(exifSegment(ByteOrder.BIG_ENDIAN, ExifInterface.ORIENTATION_ROTATE_90,
+        thumbnail, thumbnail.length));
+
+    assertThumbnail(data, -1, -1, -1, -1);
+  }
+
+  @Test
+  public void parse_withOpaquePng_returnsDimensions() throws IOException {
+    assertHeader(png(/*colorType=*/ 2), ImageType.PNG, ImageHeaderParser.UNKNOWN_ORIENTATION,
+        WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withTranslucentPng_returnsDimensionsAndAlpha() throws IOException {
+    assertHeader(png(/*colorType=*/ 6), ImageType.PNG_A, ImageHeaderParser.UNKNOWN_ORIENTATION,
+        WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withGif_returnsDimensions() throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    os.write("GIF89a".getBytes("US-ASCII"));
+    writeShortLittleEndian(os, WIDTH);
+    writeShortLittleEndian(os, HEIGHT);
+    os.write(new byte[] {0, 0, 0});
+
+    assertHeader(os.toByteArray(), ImageType.GIF, ImageHeaderParser.UNKNOWN_ORIENTATION, WIDTH,
+        HEIGHT);
+  }
+
+  @Test
+  public void parse_withLossyWebp_returnsDimensions() throws IOException {
+    ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    // Frame tag.
+    chunk.write(new byte[] {0, 0, 0});
+    // Start code.
+    chunk.write(new byte[] {(byte) 0x9D, 0x01, 0x2A});
+    writeShortLittleEndian(chunk, WIDTH);
+    writeShortLittleEndian(chunk, HEIGHT);
+
+    assertHeader(webp("VP8 ", chunk.toByteArray()), ImageType.WEBP,
+        ImageHeaderParser.UNKNOWN_ORIENTATION, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withLosslessWebp_returnsDimensionsAndAlpha() throws IOException {
+    ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    int bits = (WIDTH - 1) | (HEIGHT - 1) << 14 | 1 << 28;
+    chunk.write(0x2F);
+    writeIntLittleEndian(chunk, bits);
+
+    assertHeader(webp("VP8L", chunk.toByteArray()), ImageType.WEBP_A,
+        ImageHeaderParser.UNKNOWN_ORIENTATION, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withExtendedWebp_returnsDimensionsAndAlpha() throws IOException {
+    ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    // Alpha flag.
+    chunk.write(1 << 4);
+    chunk.write(new byte[] {0, 0, 0});
+    writeUInt24LittleEndian(chunk, WIDTH - 1);
+    writeUInt24LittleEndian(chunk, HEIGHT - 1);
+
+    assertHeader(webp("VP8X", chunk.toByteArray()), ImageType.WEBP_A,
+        ImageHeaderParser.UNKNOWN_ORIENTATION, WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void parse_withUnknownData_returnsUnknownHeader() throws IOException {
+    byte[] data = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    assertHeader(data, ImageType.UNKNOWN, ImageHeaderParser.UNKNOWN_ORIENTATION, -1, -1);
+  }
+
+  @Test
+  public void parse_withEmptyData_returnsUnknownHeader() throws IOException {
+    assertHeader(new byte[0], ImageType.UNKNOWN, ImageHeaderParser.UNKNOWN_ORIENTATION, -1, -1);
+  }
+
+  /**
+   * Checks the single pass parse of both the stream and the buffer against the expected values and
+   * against the separate type and orientation parses.
+   */
+  private void assertHeader(byte[] data, ImageType type, int orientation, int width, int height)
+      throws IOException {
+    ImageHeader fromStream = parser.parse(new ByteArrayInputStream(data), byteArrayPool);
+    ImageHeader fromBuffer = parser.parse(ByteBuffer.wrap(data), byteArrayPool);
+
+    for (ImageHeader header : new ImageHeader[] {fromStream, fromBuffer}) {
+      assertThat(header.getType()).isEqualTo(type);
+      assertThat(header.getOrientation()).isEqualTo(orientation);
+      assertThat(header.getWidth()).isEqualTo(width);
+      assertThat(header.getHeight()).isEqualTo(height);
+      assertThat(header.hasAlpha()).isEqualTo(type.hasAlpha());
+    }
+    if (data.length >= 2) {
+      assertThat(parser.getType(new ByteArrayInputStream(data))).isEqualTo(type);
+      assertThat(parser.getType(ByteBuffer.wrap(data))).isEqualTo(type);
+    }
+    if (type == ImageType.JPEG) {
+      assertThat(parser.getOrientation(new ByteArrayInputStream(data), byteArrayPool))
+          .isEqualTo(orientation);
+      assertThat(parser.getOrientation(ByteBuffer.wrap(data), byteArrayPool))
+          .isEqualTo(orientation);
+    }
+  }
+
+  private void assertThumbnail(byte[] data, int offset, int length, int width, int height)
+      throws IOException {
+    ImageHeader fromStream = parser.parse(new ByteArrayInputStream(data), byteArrayPool);
+    ImageHeader fromBuffer = parser.parse(ByteBuffer.wrap(data), byteArrayPool);
+
+    for (ImageHeader header : new ImageHeader[] {fromStream, fromBuffer}) {
+      assertThat(header.hasThumbnail()).isEqualTo(length > 0);
+      assertThat(header.getThumbnailOffset()).isEqualTo(offset);
+      assertThat(header.getThumbnailLength()).isEqualTo(length);
+      assertThat(header.getThumbnailWidth()).isEqualTo(width);
+      assertThat(header.getThumbnailHeight()).isEqualTo(height);
+    }
+  }
+
+  private static int indexOf(byte[] data, byte[] target) {
+    for (int i = 0; i + target.length <= data.length; i++) {
+      if (Arrays.equals(Arrays.copyOfRange(data, i, i + target.length), target)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the start of a JPEG thumbnail, which is all that's parsed.
+   */
+  private static byte[] thumbnail() throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeShort(os, 0xFFD8);
+    writeSegment(os, 0xDB, new byte[] {0, 1, 2, 3});
+    writeStartOfFrame(os, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+    writeShort(os, 0xFFDA);
+    os.write(new byte[] {0, 0, 0, 0});
+    return os.toByteArray();
+  }
+
+  private static byte[] jpeg(byte[] exifSegment) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeShort(os, 0xFFD8);
+    if (exifSegment != null) {
+      writeSegment(os, 0xE1, exifSegment);
+    }
+    // A quantization table segment before the start of frame.
+    writeSegment(os, 0xDB, new byte[] {0, 1, 2, 3});
+    writeStartOfFrame(os);
+    writeShort(os, 0xFFDA);
+    os.write(new byte[] {0, 0, 0, 0});
+    return os.toByteArray();
+  }
+
+  private static void writeStartOfFrame(ByteArrayOutputStream os) throws IOException {
+    writeStartOfFrame(os, WIDTH, HEIGHT);
+  }
+
+  private static void writeStartOfFrame(ByteArrayOutputStream os, int width, int height)
+      throws IOException {
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    // Sample precision.
+    frame.write(8);
+    writeShort(frame, height);
+    writeShort(frame, width);
+    // One component.
+    frame.write(new byte[] {1, 1, 0x11, 0});
+    writeSegment(os, 0xC0, frame.toByteArray());
+  }
+
+  private static byte[] exifSegment(ByteOrder byteOrder, int orientation) throws IOException {
+    return exifSegment(byteOrder, orientation, /*thumbnail=*/ null, /*thumbnailLength=*/ 0);
+  }
+
+  /**
+   * @param thumbnail The thumbnail to reference from a second IFD, or {@code null} for none.
+   * @param thumbnailLength The length to write in the second IFD.
+   */
+  private static byte[] exifSegment(ByteOrder byteOrder, int orientation, byte[] thumbnail,
+      int thumbnailLength) throws IOException {
+    int secondIfdOffset = 26;
+    int thumbnailOffset = secondIfdOffset + 2 + 2 * 12 + 4;
+    ByteBuffer tiff = ByteBuffer.allocate(thumbnail == null ? 26 : thumbnailOffset)
+        .order(byteOrder);
+    tiff.put(byteOrder == ByteOrder.BIG_ENDIAN ? (byte) 'M' : (byte) 'I');
+    tiff.put(byteOrder == ByteOrder.BIG_ENDIAN ? (byte) 'M' : (byte) 'I');
+    tiff.putShort((short) 42);
+    // Offset of the first IFD.
+    tiff.putInt(8);
+    // One tag.
+    tiff.putShort((short) 1);
+    // Orientation, unsigned short, one component.
+    tiff.putShort((short) 0x0112);
+    tiff.putShort((short) 3);
+    tiff.putInt(1);
+    tiff.putShort((short) orientation);
+    tiff.putShort((short) 0);
+    if (thumbnail == null) {
+      // No second IFD.
+      tiff.putInt(0);
+    } else {
+      tiff.putInt(secondIfdOffset);
+      // Two tags, the thumbnail's offset and length, both unsigned longs with one component.
+      tiff.putShort((short) 2);
+      tiff.putShort((short) 0x0201);
+      tiff.putShort((short) 4);
+      tiff.putInt(1);
+      tiff.putInt(thumbnailOffset);
+      tiff.putShort((short) 0x0202);
+      tiff.putShort((short) 4);
+      tiff.putInt(1);
+      tiff.putInt(thumbnailLength);
+      // No third IFD.
+      tiff.putInt(0);
+    }
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    os.write(DefaultImageHeaderParser.JPEG_EXIF_SEGMENT_PREAMBLE_BYTES);
+    os.write(tiff.array());
+    if (thumbnail != null) {
+      os.write(thumbnail);
+    }
+    return os.toByteArray();
+  }
+
+  private static byte[] png(int colorType) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    os.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+    // IHDR length and type.
+    writeInt(os, 13);
+    os.write("IHDR".getBytes("US-ASCII"));
+    writeInt(os, WIDTH);
+    writeInt(os, HEIGHT);
+    // Bit depth.
+    os.write(8);
+    os.write(colorType);
+    os.write(new byte[] {0, 0, 0});
+    return os.toByteArray();
+  }
+
+  private static byte[] webp(String chunkType, byte[] chunk) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    os.write("RIFF".getBytes("US-ASCII"));
+    writeIntLittleEndian(os, 4 + 8 + chunk.length);
+    os.write("WEBP".getBytes("US-ASCII"));
+    os.write(chunkType.getBytes("US-ASCII"));
+    writeIntLittleEndian(os, chunk.length);
+    os.write(chunk);
+    return os.toByteArray();
+  }
+
+  private static void writeSegment(ByteArrayOutputStream os, int type, byte[] data) {
+    os.write(0xFF);
+    os.write(type);
+    // The length includes the two bytes of the length itself.
+    writeShort(os, data.length + 2);
+    os.write(data, 0, data.length);
+  }
+
+  private static void writeShort(ByteArrayOutputStream os, int value) {
+    os.write(value >> 8);
+    os.write(value);
+  }
+
+  private static void writeInt(ByteArrayOutputStream os, int value) {
+    writeShort(os, value >> 16);
+    writeShort(os, value);
+  }
+
+  private static void writeShortLittleEndian(ByteArrayOutputStream os, int value) {
+    os.write(value);
+    os.write(value >> 8);
+  }
+
+  private static void writeUInt24LittleEndian(ByteArrayOutputStream os, int value) {
+    writeShortLittleEndian(os, value);
+    os.write(value >> 16);
+  }
+
+  private static void writeIntLittleEndian(ByteArrayOutputStream os, int value) {
+    writeShortLittleEndian(os, value);
+    writeShortLittleEndian(os, value >> 16);
+  }
+}
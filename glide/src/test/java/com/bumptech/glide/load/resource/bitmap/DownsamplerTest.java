@@ -0,0 +1,268 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import android.media.ExifInterface;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmapFactory;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DownsamplerTest {
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final int THUMBNAIL_WIDTH = 160;
+  private static final int THUMBNAIL_HEIGHT = 120;
+
+  private final CountingArrayPool byteArrayPool = new CountingArrayPool();
+  private final RecordingCallbacks callbacks = new RecordingCallbacks();
+  private Downsampler downsampler;
+  private Options options;
+
+  @Before
+  public void setUp() {
+    BitmapPool bitmapPool = new BitmapPoolAdapter();
+    downsampler = new Downsampler(
+        Collections.<ImageHeaderParser>singletonList(new DefaultImageHeaderParser()),
+        RuntimeEnvironment.application.getResources().getDisplayMetrics(), bitmapPool,
+        byteArrayPool);
+    options = new Options()
+        .set(Downsampler.DECODE_EXIF_THUMBNAILS, true)
+        .set(DownsampleStrategy.OPTION, DownsampleStrategy.CENTER_INSIDE);
+  }
+
+  @After
+  public void tearDown() {
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void decode_withLargeEnoughExifThumbnail_decodesThumbnail() throws IOException {
+    Bitmap result = decode(imageWithThumbnail(), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    assertThat(result.getWidth()).isEqualTo(THUMBNAIL_WIDTH);
+    assertThat(result.getHeight()).isEqualTo(THUMBNAIL_HEIGHT);
+    // The image stream's callbacks are only told about the bounds of images decoded from it.
+    assertThat(callbacks.obtainBoundsCount).isEqualTo(0);
+    assertThat(callbacks.decoded).containsExactly(result);
+  }
+
+  @Test
+  public void decode_withExifThumbnailsDisabled_decodesImage() throws IOException {
+    options.set(Downsampler.DECODE_EXIF_THUMBNAILS, false);
+
+    Bitmap result = decode(imageWithThumbnail(), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    assertThat(callbacks.obtainBoundsCount).isEqualTo(1);
+    assertThat(callbacks.decoded).containsExactly(result);
+  }
+
+  @Test
+  public void decode_withExifThumbnailSmallerThanRequested_decodesImage() throws IOException {
+    Bitmap result = decode(imageWithThumbnail(), 2 * THUMBNAIL_WIDTH, 2 * THUMBNAIL_HEIGHT);
+
+    assertThat(result.getWidth()).isEqualTo(2 * THUMBNAIL_WIDTH);
+    assertThat(result.getHeight()).isEqualTo(2 * THUMBNAIL_HEIGHT);
+    assertThat(callbacks.obtainBoundsCount).isEqualTo(1);
+  }
+
+  @Test
+  public void decode_withExifThumbnailOfDifferentAspectRatio_decodesImage() throws IOException {
+    byte[] data = jpeg(WIDTH, HEIGHT, exifSegment(jpeg(THUMBNAIL_WIDTH, THUMBNAIL_WIDTH, null)));
+
+    decode(data, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    assertThat(callbacks.obtainBoundsCount).isEqualTo(1);
+  }
+
+  @Test
+  @Config(shadows = NullThumbnailBitmapFactory.class)
+  public void decode_whenExifThumbnailDecodeReturnsNull_decodesImage() throws IOException {
+    Bitmap result = decode(imageWithThumbnail(), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    assertThat(result).isNotNull();
+    assertThat(callbacks.obtainBoundsCount).isEqualTo(1);
+    assertThat(callbacks.decoded).containsExactly(result);
+  }
+
+  @Test
+  @Config(shadows = ThrowingThumbnailBitmapFactory.class)
+  public void decode_whenExifThumbnailDecodeThrows_decodesImage() throws IOException {
+    Bitmap result = decode(imageWithThumbnail(), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    assertThat(result).isNotNull();
+    assertThat(callbacks.obtainBoundsCount).isEqualTo(1);
+    assertThat(callbacks.decoded).containsExactly(result);
+  }
+
+  private Bitmap decode(byte[] data, int width, int height) throws IOException {
+    InputStream is = new BufferedInputStream(new ByteArrayInputStream(data));
+    Resource<Bitmap> result = downsampler.decode(is, width, height, options, callbacks);
+    return result.get();
+  }
+
+  private static byte[] imageWithThumbnail() throws IOException {
+    return jpeg(WIDTH, HEIGHT, exifSegment(jpeg(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, null)));
+  }
+
+  /**
+   * Returns a decodable, single component JPEG whose blocks are all zero.
+   *
+   * @param exifSegment The contents of an exif segment to add, or {@code null} for none.
+   */
+  private static byte[] jpeg(int width, int height, byte[] exifSegment) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeShort(os, 0xFFD8);
+    if (exifSegment != null) {
+      writeSegment(os, 0xE1, exifSegment);
+    }
+    // A quantization table of ones.
+    byte[] quantizationTable = new byte[65];
+    for (int i = 1; i < quantizationTable.length; i++) {
+      quantizationTable[i] = 1;
+    }
+    writeSegment(os, 0xDB, quantizationTable);
+    // DC and AC Huffman tables with a single one bit code for the value zero.
+    for (int tableClassAndId : new int[] {0x00, 0x10}) {
+      byte[] huffmanTable = new byte[18];
+      huffmanTable[0] = (byte) tableClassAndId;
+      huffmanTable[1] = 1;
+      writeSegment(os, 0xC4, huffmanTable);
+    }
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    frame.write(8);
+    writeShort(frame, height);
+    writeShort(frame, width);
+    frame.write(new byte[] {1, 1, 0x11, 0});
+    writeSegment(os, 0xC0, frame.toByteArray());
+    writeSegment(os, 0xDA, new byte[] {1, 1, 0, 0, 63, 0});
+    // Two bits per 8x8 block.
+    os.write(new byte[(width / 8) * (height / 8) / 4 + 1]);
+    writeShort(os, 0xFFD9);
+    return os.toByteArray();
+  }
+
+  /**
+   * Returns an exif segment with a normal orientation that references the given thumbnail from
+   * its second IFD.
+   */
+  private static byte[] exifSegment(byte[] thumbnail) throws IOException {
+    int secondIfdOffset = 26;
+    int thumbnailOffset = secondIfdOffset + 2 + 2 * 12 + 4;
+    ByteBuffer tiff = ByteBuffer.allocate(thumbnailOffset).order(ByteOrder.BIG_ENDIAN);
+    tiff.put((byte) 'M');
+    tiff.put((byte) 'M');
+    tiff.putShort((short) 42);
+    tiff.putInt(8);
+    // Orientation.
+    tiff.putShort((short) 1);
+    tiff.putShort((short) 0x0112);
+    tiff.putShort((short) 3);
+    tiff.putInt(1);
+    tiff.putShort((short) ExifInterface.ORIENTATION_NORMAL);
+    tiff.putShort((short) 0);
+    tiff.putInt(secondIfdOffset);
+    // The thumbnail's offset and length.
+    tiff.putShort((short) 2);
+    tiff.putShort((short) 0x0201);
+    tiff.putShort((short) 4);
+    tiff.putInt(1);
+    tiff.putInt(thumbnailOffset);
+    tiff.putShort((short) 0x0202);
+    tiff.putShort((short) 4);
+    tiff.putInt(1);
+    tiff.putInt(thumbnail.length);
+    tiff.putInt(0);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    os.write(DefaultImageHeaderParser.JPEG_EXIF_SEGMENT_PREAMBLE_BYTES);
+    os.write(tiff.array());
+    os.write(thumbnail);
+    return os.toByteArray();
+  }
+
+  private static void writeSegment(ByteArrayOutputStream os, int type, byte[] data) {
+    os.write(0xFF);
+    os.write(type);
+    writeShort(os, data.length + 2);
+    os.write(data, 0, data.length);
+  }
+
+  private static void writeShort(ByteArrayOutputStream os, int value) {
+    os.write(value >> 8);
+    os.write(value);
+  }
+
+  private static final class RecordingCallbacks implements Downsampler.DecodeCallbacks {
+    final List<Bitmap> decoded = new ArrayList<>();
+    int obtainBoundsCount;
+
+    @Override
+    public void onObtainBounds() {
+      obtainBoundsCount++;
+    }
+
+    @Override
+    public void onDecodeComplete(BitmapPool bitmapPool, Bitmap downsampled) {
+      decoded.add(downsampled);
+    }
+  }
+
+  /**
+   * Fails to decode thumbnails, which {@link Downsampler} decodes from in memory streams.
+   */
+  @Implements(BitmapFactory.class)
+  public static final class NullThumbnailBitmapFactory extends ShadowBitmapFactory {
+    @Implementation
+    protected static Bitmap decodeStream(
+        InputStream is, Rect outPadding, BitmapFactory.Options opts) {
+      if (is instanceof ByteArrayInputStream && !opts.inJustDecodeBounds) {
+        return null;
+      }
+      return ShadowBitmapFactory.decodeStream(is, outPadding, opts);
+    }
+  }
+
+  /**
+   * Throws while decoding thumbnails, as {@link BitmapFactory} does if it can't reuse a
+   * {@link Bitmap}.
+   */
+  @Implements(BitmapFactory.class)
+  public static final class ThrowingThumbnailBitmapFactory extends ShadowBitmapFactory {
+    @Implementation
+    protected static Bitmap decodeStream(
+        InputStream is, Rect outPadding, BitmapFactory.Options opts) {
+      if (is instanceof ByteArrayInputStream && !opts.inJustDecodeBounds) {
+        throw new IllegalArgumentException("Problem decoding into existing bitmap");
+      }
+      return ShadowBitmapFactory.decodeStream(is, outPadding, opts);
+    }
+  }
+}
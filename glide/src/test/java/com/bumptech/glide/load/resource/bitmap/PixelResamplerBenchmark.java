@@ -0,0 +1,110 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import com.bumptech.glide.tests.Benchmarks;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures how long {@link PixelResampler} takes to center crop a 12 megapixel photo to
+ * 1080x1080, on one thread and on several at once.
+ *
+ * <p>Robolectric's {@link Bitmap}s copy pixels in and out much more slowly than a device does, so
+ * {@link #centerCropPixels()} also measures the resampling alone, on arrays.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PixelResamplerBenchmark {
+  private static final int SOURCE_WIDTH = 4032;
+  private static final int SOURCE_HEIGHT = 3024;
+  private static final int OUTPUT_SIZE = 1080;
+  private static final int CROPS_PER_THREAD = 8;
+
+  private int[] pixels;
+  private Bitmap photo;
+  private Matrix centerCrop;
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+    pixels = new int[SOURCE_WIDTH * SOURCE_HEIGHT];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = 0xFF000000 | (i * 0x9E3779B1) >>> 8;
+    }
+    photo = Bitmap.createBitmap(SOURCE_WIDTH, SOURCE_HEIGHT, Bitmap.Config.ARGB_8888);
+    photo.setPixels(pixels, 0, SOURCE_WIDTH, 0, 0, SOURCE_WIDTH, SOURCE_HEIGHT);
+    float scale = OUTPUT_SIZE / (float) SOURCE_HEIGHT;
+    centerCrop = new Matrix();
+    centerCrop.setScale(scale, scale);
+    centerCrop.postTranslate((int) ((OUTPUT_SIZE - SOURCE_WIDTH * scale) * 0.5f + 0.5f), 0);
+  }
+
+  @Test
+  public void centerCrop() throws Exception {
+    for (int threads : new int[] {1, 2, 4}) {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        // Warm up.
+        run(executor, threads);
+        long start = System.nanoTime();
+        run(executor, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int crops = threads * CROPS_PER_THREAD;
+        Benchmarks.report("threads=%d %.1f crops/s, %.1f ms each",
+            threads, crops / seconds, seconds * 1000 * threads / crops);
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void centerCropPixels() {
+    Matrix inverseMatrix = new Matrix();
+    centerCrop.invert(inverseMatrix);
+    float[] values = new float[9];
+    inverseMatrix.getValues(values);
+    float[] inverse = {
+        values[Matrix.MSCALE_X], values[Matrix.MSKEW_X], values[Matrix.MTRANS_X],
+        values[Matrix.MSKEW_Y], values[Matrix.MSCALE_Y], values[Matrix.MTRANS_Y]};
+    int[] out = new int[OUTPUT_SIZE * OUTPUT_SIZE];
+    long elapsed = 0;
+    for (int i = 0; i < 2 * CROPS_PER_THREAD; i++) {
+      long start = System.nanoTime();
+      PixelResampler.resample(pixels, 0, 0, SOURCE_WIDTH, SOURCE_HEIGHT, SOURCE_WIDTH,
+          SOURCE_HEIGHT, out, OUTPUT_SIZE, 0, OUTPUT_SIZE, inverse, /*hasAlpha=*/ false);
+      // Ignores the first half as warm up.
+      if (i >= CROPS_PER_THREAD) {
+        elapsed += System.nanoTime() - start;
+      }
+    }
+    Benchmarks.report("pixels only %.1f ms each", elapsed / 1e6 / CROPS_PER_THREAD);
+  }
+
+  private void run(ExecutorService executor, int threads) throws Exception {
+    List<Future<Bitmap>> results = new ArrayList<>();
+    for (int i = 0; i < threads * CROPS_PER_THREAD; i++) {
+      results.add(executor.submit(new Callable<Bitmap>() {
+        @Override
+        public Bitmap call() {
+          Bitmap result = Bitmap.createBitmap(OUTPUT_SIZE, OUTPUT_SIZE, Bitmap.Config.ARGB_8888);
+          PixelResampler.draw(photo, result, centerCrop, 0, false);
+          return result;
+        }
+      }));
+    }
+    for (Future<Bitmap> result : results) {
+      result.get();
+    }
+  }
+}
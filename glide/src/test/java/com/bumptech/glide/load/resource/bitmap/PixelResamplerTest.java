@@ -0,0 +1,235 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PixelResamplerTest {
+  private static final int WIDTH = 61;
+  private static final int HEIGHT = 41;
+
+  private Bitmap source;
+  private int[] sourcePixels;
+
+  @Before
+  public void setUp() {
+    Random random = new Random(1);
+    sourcePixels = new int[WIDTH * HEIGHT];
+    for (int i = 0; i < sourcePixels.length; i++) {
+      sourcePixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+    }
+    source = createBitmap(WIDTH, HEIGHT, sourcePixels);
+  }
+
+  @Test
+  public void draw_withIdentityMatrix_copiesPixelsExactly() {
+    Bitmap result = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+
+    PixelResampler.draw(source, result, new Matrix(), 0, false);
+
+    assertThat(getPixels(result)).isEqualTo(sourcePixels);
+  }
+
+  @Test
+  public void draw_withRightAngleRotations_movesPixelsExactly() {
+    for (int degrees : new int[] {90, 180, 270}) {
+      Matrix matrix = new Matrix();
+      matrix.setRotate(degrees);
+      float[] corners = {0, 0, WIDTH, HEIGHT};
+      matrix.mapPoints(corners);
+      matrix.postTranslate(-Math.min(corners[0], corners[2]), -Math.min(corners[1], corners[3]));
+      boolean isSwapped = degrees != 180;
+      Bitmap result = Bitmap.createBitmap(
+          isSwapped ? HEIGHT : WIDTH, isSwapped ? WIDTH : HEIGHT, Bitmap.Config.ARGB_8888);
+
+      PixelResampler.draw(source, result, matrix, 0, false);
+
+      int[] resultPixels = getPixels(result);
+      float[] point = new float[2];
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          point[0] = x + 0.5f;
+          point[1] = y + 0.5f;
+          matrix.mapPoints(point);
+          int resultIndex = (int) point[1] * result.getWidth() + (int) point[0];
+          assertThat(resultPixels[resultIndex]).isEqualTo(sourcePixels[y * WIDTH + x]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void draw_withHorizontalFlip_mirrorsPixels() {
+    Matrix matrix = new Matrix();
+    matrix.setScale(-1, 1);
+    matrix.postTranslate(WIDTH, 0);
+    Bitmap result = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+
+    PixelResampler.draw(source, result, matrix, 0, false);
+
+    int[] resultPixels = getPixels(result);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        assertThat(resultPixels[y * WIDTH + x]).isEqualTo(sourcePixels[y * WIDTH + WIDTH - 1 - x]);
+      }
+    }
+  }
+
+  @Test
+  public void draw_withDownscale_preservesFlatColors() {
+    for (int color : new int[] {0xFF336699, 0x80336699}) {
+      int[] pixels = new int[200 * 150];
+      Arrays.fill(pixels, color);
+      Bitmap flat = createBitmap(200, 150, pixels);
+      Matrix matrix = new Matrix();
+      matrix.setScale(0.2f, 0.2f);
+      Bitmap result = Bitmap.createBitmap(40, 30, Bitmap.Config.ARGB_8888);
+
+      PixelResampler.draw(flat, result, matrix, 0, false);
+
+      for (int pixel : getPixels(result)) {
+        assertThat(pixel).isEqualTo(color);
+      }
+    }
+  }
+
+  @Test
+  public void resample_nextToTransparentPixels_doesNotDarkenColors() {
+    int[] in = {0xFFFF0000, 0x00000000};
+    int[] out = new int[8];
+    // Scales up by 4 horizontally.
+    float[] inverse = {0.25f, 0, 0, 0, 1, 0};
+
+    PixelResampler.resample(in, 0, 0, 2, 1, 2, 1, out, 8, 0, 1, inverse, /*hasAlpha=*/ true);
+
+    for (int pixel : out) {
+      if (pixel != 0) {
+        assertThat(pixel & 0xFFFFFF).isEqualTo(0xFF0000);
+      }
+    }
+  }
+
+  @Test
+  public void resample_withUpscaledGradient_staysMonotonic() {
+    int[] in = new int[16];
+    for (int i = 0; i < in.length; i++) {
+      in[i] = 0xFF000000 | i * 16;
+    }
+    int[] out = new int[160];
+    float[] inverse = {0.1f, 0, 0, 0, 1, 0};
+
+    PixelResampler.resample(in, 0, 0, 16, 1, 16, 1, out, 160, 0, 1, inverse, /*hasAlpha=*/ false);
+
+    for (int i = 1; i < out.length; i++) {
+      assertThat(out[i] & 0xFF).isAtLeast(out[i - 1] & 0xFF);
+    }
+  }
+
+  @Test
+  public void resample_outsideOfSource_returnsTransparentPixels() {
+    int[] in = {0xFFFFFFFF};
+    int[] out = new int[4];
+    // Moves the source one pixel to the right.
+    float[] inverse = {1, 0, -1, 0, 1, 0};
+
+    PixelResampler.resample(in, 0, 0, 1, 1, 1, 1, out, 4, 0, 1, inverse, /*hasAlpha=*/ false);
+
+    assertThat(out).isEqualTo(new int[] {0, 0xFFFFFFFF, 0, 0});
+  }
+
+  @Test
+  public void clip_withCircle_clearsCornersAndKeepsCenter() {
+    int size = 100;
+    int[] out = new int[size * size];
+    Arrays.fill(out, 0xFF00FF00);
+
+    PixelResampler.clip(out, size, size, 0, size, 0, /*isCircle=*/ true);
+
+    assertThat(out[0] >>> 24).isEqualTo(0);
+    assertThat(out[size - 1] >>> 24).isEqualTo(0);
+    assertThat(out[size * size - 1] >>> 24).isEqualTo(0);
+    assertThat(out[size / 2 * size + size / 2]).isEqualTo(0xFF00FF00);
+    assertThat(out[size / 2 * size] >>> 24).isGreaterThan(0);
+    int partiallyCovered = 0;
+    for (int pixel : out) {
+      int alpha = pixel >>> 24;
+      assertThat(pixel & 0xFFFFFF).isEqualTo(0x00FF00);
+      if (alpha > 0 && alpha < 255) {
+        partiallyCovered++;
+      }
+    }
+    // Antialiased along the circumference.
+    assertThat(partiallyCovered).isGreaterThan(100);
+    assertThat(partiallyCovered).isLessThan(1000);
+  }
+
+  @Test
+  public void clip_withRoundedCorners_onlyChangesCorners() {
+    int[] out = new int[WIDTH * HEIGHT];
+    Arrays.fill(out, 0xFF00FF00);
+
+    PixelResampler.clip(out, WIDTH, HEIGHT, 0, HEIGHT, 10, /*isCircle=*/ false);
+
+    assertThat(out[0] >>> 24).isEqualTo(0);
+    assertThat(out[WIDTH - 1] >>> 24).isEqualTo(0);
+    assertThat(out[10 * WIDTH + 10]).isEqualTo(0xFF00FF00);
+    assertThat(out[HEIGHT / 2 * WIDTH]).isEqualTo(0xFF00FF00);
+    assertThat(out[WIDTH / 2]).isEqualTo(0xFF00FF00);
+  }
+
+  @Test
+  public void clip_inBands_matchesClipInOnePass() {
+    int[] whole = new int[WIDTH * HEIGHT];
+    Arrays.fill(whole, 0xFF00FF00);
+    int[] banded = whole.clone();
+
+    PixelResampler.clip(whole, WIDTH, HEIGHT, 0, HEIGHT, 12, /*isCircle=*/ false);
+    int rowsPerBand = 7;
+    for (int y = 0; y < HEIGHT; y += rowsPerBand) {
+      int rows = Math.min(rowsPerBand, HEIGHT - y);
+      int[] band = Arrays.copyOfRange(banded, y * WIDTH, (y + rows) * WIDTH);
+      PixelResampler.clip(band, WIDTH, HEIGHT, y, rows, 12, /*isCircle=*/ false);
+      System.arraycopy(band, 0, banded, y * WIDTH, band.length);
+    }
+
+    assertThat(banded).isEqualTo(whole);
+  }
+
+  @Test
+  public void draw_withRandomMatrices_staysWithinSource() {
+    Random random = new Random(2);
+    for (int i = 0; i < 200; i++) {
+      Matrix matrix = new Matrix();
+      matrix.setRotate(random.nextInt(360));
+      matrix.postScale(0.05f + random.nextFloat() * 3, 0.05f + random.nextFloat() * 3);
+      matrix.postTranslate(random.nextFloat() * 200 - 100, random.nextFloat() * 200 - 100);
+      Bitmap result = Bitmap.createBitmap(
+          1 + random.nextInt(100), 1 + random.nextInt(100), Bitmap.Config.ARGB_8888);
+
+      PixelResampler.draw(
+          source, result, matrix, random.nextInt(3) * 10, /*isCircle=*/ random.nextBoolean());
+    }
+  }
+
+  private static Bitmap createBitmap(int width, int height, int[] pixels) {
+    Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    result.setPixels(pixels, 0, width, 0, 0, width, height);
+    return result;
+  }
+
+  private static int[] getPixels(Bitmap bitmap) {
+    int[] result = new int[bitmap.getWidth() * bitmap.getHeight()];
+    bitmap.getPixels(result, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+    return result;
+  }
+}
@@ -0,0 +1,195 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.tests.Benchmarks;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.imageio.ImageIO;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the time taken to write and read back, and the size of, small {@link Bitmap}s written
+ * to files by {@link RawBitmapEncoder}, with and without {@link RawBitmapEncoder#COMPRESS}, and
+ * by {@link BitmapEncoder}.
+ *
+ * <p>Raw files are written and read with {@link RawBitmapEncoder} and {@link RawBitmapDecoder}.
+ * Robolectric's {@link Bitmap#compress(CompressFormat, int, OutputStream)} doesn't encode
+ * anything, so the formats {@link BitmapEncoder} writes are written and read with {@link ImageIO}
+ * instead. Files are read soon after they're written, so they're usually in the page cache, as
+ * recently written disk cache entries are.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RawBitmapBenchmark {
+  private static final int QUALITY = 90;
+  private static final int WARM_UP_RUNS = 5;
+  private static final int RUNS = 40;
+  // The largest size is the largest ARGB_8888 Bitmap RawBitmapEncoder writes by default.
+  private static final int[] SIZES = {128, 256, 362};
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ArrayPool arrayPool = new LruArrayPool();
+  private final BitmapPool bitmapPool = new LruBitmapPool(16 * 1024 * 1024);
+  private final Options options = new Options();
+  private final Options compressOptions = new Options().set(RawBitmapEncoder.COMPRESS, true);
+  private RawBitmapEncoder encoder;
+  private RawBitmapDecoder decoder;
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+    encoder = new RawBitmapEncoder(arrayPool, new BitmapEncoder(arrayPool));
+    decoder = new RawBitmapDecoder(bitmapPool, arrayPool);
+  }
+
+  @Test
+  public void photoWithAlpha() throws IOException {
+    for (int size : SIZES) {
+      run("photo+alpha", size, CompressionPolicyTest.photo(size, /*isCircle=*/ true),
+          /*hasAlpha=*/ true);
+    }
+  }
+
+  @Test
+  public void opaquePhoto() throws IOException {
+    for (int size : SIZES) {
+      run("photo opaque", size, CompressionPolicyTest.photo(size, /*isCircle=*/ false),
+          /*hasAlpha=*/ false);
+    }
+  }
+
+  @Test
+  public void graphicWithAlpha() throws IOException {
+    for (int size : SIZES) {
+      run("graphic+alpha", size, CompressionPolicyTest.graphic(size), /*hasAlpha=*/ true);
+    }
+  }
+
+  private void run(String content, int size, int[] pixels, boolean hasAlpha) throws IOException {
+    final Bitmap bitmap = CompressionPolicyTest.createBitmap(size, pixels, hasAlpha);
+    final BufferedImage image = CompressionPolicyBenchmark.createImage(size, pixels, hasAlpha);
+    final CompressFormat format = hasAlpha ? CompressFormat.PNG : CompressFormat.JPEG;
+    final File encodedFile = temporaryFolder.newFile();
+    final File rawFile = temporaryFolder.newFile();
+    final File compressedFile = temporaryFolder.newFile();
+
+    double write = time(new Operation() {
+      @Override
+      public void run() throws IOException {
+        writeEncoded(image, format, encodedFile);
+      }
+    });
+    double read = time(new Operation() {
+      @Override
+      public void run() throws IOException {
+        readEncoded(encodedFile);
+      }
+    });
+    report(content, size, format.name(), write, read, encodedFile);
+
+    write = time(new Operation() {
+      @Override
+      public void run() throws IOException {
+        writeRaw(bitmap, rawFile, options);
+      }
+    });
+    read = time(new Operation() {
+      @Override
+      public void run() throws IOException {
+        readRaw(rawFile);
+      }
+    });
+    report(content, size, "raw", write, read, rawFile);
+
+    write = time(new Operation() {
+      @Override
+      public void run() throws IOException {
+        writeRaw(bitmap, compressedFile, compressOptions);
+      }
+    });
+    read = time(new Operation() {
+      @Override
+      public void run() throws IOException {
+        readRaw(compressedFile);
+      }
+    });
+    report(content, size, "raw+deflate", write, read, compressedFile);
+  }
+
+  private static void report(
+      String content, int size, String format, double write, double read, File file) {
+    Benchmarks.report("%-14s %4d  %-12s write %7.2f ms  read %7.2f ms  %7.1f KB",
+        content, size, format, write, read, file.length() / 1024d);
+  }
+
+  private static void writeEncoded(BufferedImage image, CompressFormat format, File file)
+      throws IOException {
+    byte[] bytes =
+        CompressionPolicyBenchmark.encode(image, format, QUALITY, /*isLossless=*/ false);
+    OutputStream os = new FileOutputStream(file);
+    try {
+      os.write(bytes);
+    } finally {
+      os.close();
+    }
+  }
+
+  private static void readEncoded(File file) throws IOException {
+    InputStream is = new BufferedInputStream(new FileInputStream(file));
+    try {
+      if (ImageIO.read(is) == null) {
+        throw new IOException("Failed to decode");
+      }
+    } finally {
+      is.close();
+    }
+  }
+
+  private void writeRaw(Bitmap bitmap, File file, Options options) throws IOException {
+    if (!encoder.encode(BitmapResource.obtain(bitmap, bitmapPool), file, options)) {
+      throw new IOException("Failed to encode");
+    }
+  }
+
+  private void readRaw(File file) throws IOException {
+    // Cache files are memory mapped by ByteBufferFileLoader.
+    Resource<Bitmap> resource = decoder.decode(ByteBufferUtil.fromFile(file), 0, 0, options);
+    resource.recycle();
+  }
+
+  private static double time(Operation operation) throws IOException {
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      operation.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      operation.run();
+    }
+    return (System.nanoTime() - start) / 1e6 / RUNS;
+  }
+
+  private interface Operation {
+    void run() throws IOException;
+  }
+}
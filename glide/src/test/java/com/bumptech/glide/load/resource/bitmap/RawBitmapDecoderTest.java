@@ -0,0 +1,185 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.tests.CountingArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RawBitmapDecoderTest {
+  private static final int WIDTH = 31;
+  private static final int HEIGHT = 17;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final CountingArrayPool arrayPool = new CountingArrayPool();
+  private RawBitmapDecoder decoder;
+  private Options options;
+  private Bitmap bitmap;
+  private int[] pixels;
+
+  @Before
+  public void setUp() {
+    decoder = new RawBitmapDecoder(new BitmapPoolAdapter(), arrayPool);
+    options = new Options();
+    Random random = new Random(1);
+    pixels = new int[WIDTH * HEIGHT];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+    }
+    bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+    bitmap.setPixels(pixels, 0, WIDTH, 0, 0, WIDTH, HEIGHT);
+  }
+
+  @After
+  public void tearDown() {
+    assertThat(arrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void decode_returnsEncodedPixels() throws IOException {
+    ByteBuffer buffer = encode(/*isCompressed=*/ false);
+
+    assertThat(decoder.handles(buffer, options)).isTrue();
+    Resource<Bitmap> result = decoder.decode(buffer, 10, 10, options);
+
+    assertDecodedBitmap(result.get());
+  }
+
+  @Test
+  public void decode_withCompressedPixels_returnsEncodedPixels() throws IOException {
+    ByteBuffer buffer = encode(/*isCompressed=*/ true);
+
+    assertThat(decoder.handles(buffer, options)).isTrue();
+    Resource<Bitmap> result = decoder.decode(buffer, 10, 10, options);
+
+    assertDecodedBitmap(result.get());
+  }
+
+  @Test
+  public void decode_withAlpha_keepsAlpha() throws IOException {
+    bitmap.setHasAlpha(true);
+    bitmap.setPixel(0, 0, 0x00000000);
+
+    Bitmap result = decoder.decode(encode(/*isCompressed=*/ false), 10, 10, options).get();
+
+    assertThat(result.hasAlpha()).isTrue();
+    assertThat(result.getPixel(0, 0)).isEqualTo(0);
+  }
+
+  @Test
+  public void decode_doesNotMoveSourceBuffer() throws IOException {
+    ByteBuffer buffer = encode(/*isCompressed=*/ false);
+
+    decoder.decode(buffer, 10, 10, options);
+
+    assertThat(buffer.position()).isEqualTo(0);
+    assertThat(decoder.handles(buffer, options)).isTrue();
+  }
+
+  @Test
+  public void handles_withOtherFormats_returnsFalse() {
+    // The start of a JPEG and a PNG.
+    assertThat(decoder.handles(ByteBuffer.wrap(new byte[] {
+        (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0}), options)).isFalse();
+    assertThat(decoder.handles(ByteBuffer.wrap(new byte[] {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0}), options)).isFalse();
+  }
+
+  @Test
+  public void handles_withShortBuffer_returnsFalse() throws IOException {
+    ByteBuffer buffer = encode(/*isCompressed=*/ false);
+    buffer.limit(RawBitmapFormat.HEADER_SIZE - 1);
+
+    assertThat(decoder.handles(buffer, options)).isFalse();
+  }
+
+  @Test
+  public void decode_withTruncatedPixels_throws() throws IOException {
+    ByteBuffer buffer = encode(/*isCompressed=*/ false);
+    buffer.limit(buffer.limit() - 1);
+
+    assertDecodeFails(buffer);
+  }
+
+  @Test
+  public void decode_withTruncatedCompressedPixels_throws() throws IOException {
+    ByteBuffer buffer = encode(/*isCompressed=*/ true);
+    buffer.limit(buffer.limit() - 10);
+
+    assertDecodeFails(buffer);
+  }
+
+  @Test
+  public void decode_withInvalidConfig_throws() throws IOException {
+    ByteBuffer buffer = copy(encode(/*isCompressed=*/ false));
+    // The index of the Bitmap's Config.
+    buffer.put(12, (byte) 100);
+
+    assertDecodeFails(buffer);
+  }
+
+  @Test
+  public void decode_withWrongByteCount_throws() throws IOException {
+    ByteBuffer buffer = copy(encode(/*isCompressed=*/ false));
+    // The number of bytes of pixels.
+    buffer.putInt(16, WIDTH * HEIGHT * 4 - 4);
+
+    assertDecodeFails(buffer);
+  }
+
+  private void assertDecodeFails(ByteBuffer buffer) {
+    try {
+      decoder.decode(buffer, 10, 10, options);
+      fail("Expected IOException");
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+
+  private void assertDecodedBitmap(Bitmap result) {
+    assertThat(result.getWidth()).isEqualTo(WIDTH);
+    assertThat(result.getHeight()).isEqualTo(HEIGHT);
+    assertThat(result.getConfig()).isEqualTo(Bitmap.Config.ARGB_8888);
+    int[] resultPixels = new int[WIDTH * HEIGHT];
+    result.getPixels(resultPixels, 0, WIDTH, 0, 0, WIDTH, HEIGHT);
+    assertThat(resultPixels).isEqualTo(pixels);
+  }
+
+  private ByteBuffer encode(boolean isCompressed) throws IOException {
+    File file = temporaryFolder.newFile();
+    Options encodeOptions = new Options();
+    encodeOptions.set(RawBitmapEncoder.COMPRESS, isCompressed);
+    RawBitmapEncoder encoder = new RawBitmapEncoder(arrayPool, new BitmapEncoder(arrayPool));
+    assertThat(encoder.encode(
+        BitmapResource.obtain(bitmap, new BitmapPoolAdapter()), file, encodeOptions)).isTrue();
+    return ByteBufferUtil.fromFile(file);
+  }
+
+  private static ByteBuffer copy(ByteBuffer buffer) {
+    ByteBuffer result = ByteBuffer.allocate(buffer.remaining());
+    result.put(buffer.duplicate());
+    result.flip();
+    return result;
+  }
+}
@@ -0,0 +1,148 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RawBitmapDiskCacheTest {
+  private static final long MAX_SIZE = 1024 * 1024;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Key key = new ObjectKey("key");
+  private File directory;
+  private File rawDirectory;
+  private DiskCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = temporaryFolder.newFolder();
+    rawDirectory = temporaryFolder.newFolder();
+    cache = new RawBitmapDiskCache(
+        DiskLruCacheWrapper.create(directory, MAX_SIZE),
+        DiskLruCacheWrapper.create(rawDirectory, MAX_SIZE));
+  }
+
+  @Test
+  public void put_withEncodedImage_keepsEntryInMainCache() {
+    cache.put(key, new BytesWriter(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0}));
+
+    File file = cache.get(key);
+
+    assertThat(file).isNotNull();
+    assertThat(file.getParentFile()).isEqualTo(directory);
+  }
+
+  @Test
+  public void put_withRawBitmap_movesEntryToRawCache() {
+    cache.put(key, new RawBitmapWriter());
+
+    File file = cache.get(key);
+
+    assertThat(file).isNotNull();
+    assertThat(file.getParentFile()).isEqualTo(rawDirectory);
+    assertThat(RawBitmapFormat.isRawBitmap(file)).isTrue();
+  }
+
+  @Test
+  public void put_withRawBitmapAlreadyInRawCache_doesNotWrite() {
+    cache.put(key, new RawBitmapWriter());
+    BytesWriter writer = new BytesWriter(new byte[] {1});
+
+    cache.put(key, writer);
+
+    assertThat(writer.writeCount).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withFailedWrite_doesNotAddEntry() {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        return false;
+      }
+    });
+
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void delete_removesEntriesFromBothCaches() {
+    Key otherKey = new ObjectKey("other");
+    cache.put(key, new RawBitmapWriter());
+    cache.put(otherKey, new BytesWriter(new byte[] {1}));
+
+    cache.delete(key);
+    cache.delete(otherKey);
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNull();
+  }
+
+  @Test
+  public void clear_removesEntriesFromBothCaches() {
+    Key otherKey = new ObjectKey("other");
+    cache.put(key, new RawBitmapWriter());
+    cache.put(otherKey, new BytesWriter(new byte[] {1}));
+
+    cache.clear();
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(otherKey)).isNull();
+  }
+
+  private static final class RawBitmapWriter implements DiskCache.Writer {
+    @Override
+    public boolean write(@NonNull File file) {
+      Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+      CountingArrayPool arrayPool = new CountingArrayPool();
+      return new RawBitmapEncoder(arrayPool, new BitmapEncoder(arrayPool))
+          .encode(BitmapResource.obtain(bitmap, new BitmapPoolAdapter()), file, new Options());
+    }
+  }
+
+  private static final class BytesWriter implements DiskCache.Writer {
+    private final byte[] bytes;
+    int writeCount;
+
+    BytesWriter(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      writeCount++;
+      try {
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+          os.write(bytes);
+        } finally {
+          os.close();
+        }
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+  }
+}
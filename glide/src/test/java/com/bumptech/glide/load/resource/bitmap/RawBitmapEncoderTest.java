@@ -0,0 +1,146 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.tests.CountingArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RawBitmapEncoderTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final CountingArrayPool arrayPool = new CountingArrayPool();
+  private final FakeEncoder fallback = new FakeEncoder();
+  private RawBitmapEncoder encoder;
+  private Options options;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    encoder = new RawBitmapEncoder(arrayPool, fallback);
+    options = new Options();
+    file = temporaryFolder.newFile();
+  }
+
+  @After
+  public void tearDown() {
+    assertThat(arrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void encode_writesHeaderAndPixels() throws IOException {
+    Bitmap bitmap = Bitmap.createBitmap(30, 20, Bitmap.Config.ARGB_8888);
+    bitmap.setHasAlpha(true);
+
+    assertThat(encode(bitmap, file)).isTrue();
+
+    assertThat(fallback.encodeCount).isEqualTo(0);
+    assertThat(file.length()).isEqualTo(RawBitmapFormat.HEADER_SIZE + 30 * 20 * 4);
+    assertThat(RawBitmapFormat.isRawBitmap(file)).isTrue();
+    RawBitmapFormat.Header header = RawBitmapFormat.readHeader(ByteBufferUtil.fromFile(file));
+    assertThat(header.width).isEqualTo(30);
+    assertThat(header.height).isEqualTo(20);
+    assertThat(header.config).isEqualTo(Bitmap.Config.ARGB_8888);
+    assertThat(header.byteCount).isEqualTo(30 * 20 * 4);
+    assertThat(header.hasAlpha()).isTrue();
+    assertThat(header.isCompressed()).isFalse();
+  }
+
+  @Test
+  public void encode_withCompress_writesCompressedPixels() throws IOException {
+    Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    options.set(RawBitmapEncoder.COMPRESS, true);
+
+    assertThat(encode(bitmap, file)).isTrue();
+
+    // A single color compresses very well.
+    assertThat(file.length()).isLessThan(100L * 100 * 4 / 10);
+    RawBitmapFormat.Header header = RawBitmapFormat.readHeader(ByteBufferUtil.fromFile(file));
+    assertThat(header.isCompressed()).isTrue();
+    assertThat(header.byteCount).isEqualTo(100 * 100 * 4);
+  }
+
+  @Test
+  public void encode_withBitmapLargerThanMaxByteCount_usesFallback() {
+    Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    options.set(RawBitmapEncoder.MAX_BYTE_COUNT, 100 * 100 * 4 - 1);
+
+    assertThat(encode(bitmap, file)).isTrue();
+
+    assertThat(fallback.encodeCount).isEqualTo(1);
+    assertThat(RawBitmapFormat.isRawBitmap(file)).isFalse();
+  }
+
+  @Test
+  public void encode_withBitmapAtMaxByteCount_writesRawBitmap() {
+    Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    options.set(RawBitmapEncoder.MAX_BYTE_COUNT, 100 * 100 * 4);
+
+    assertThat(encode(bitmap, file)).isTrue();
+
+    assertThat(fallback.encodeCount).isEqualTo(0);
+    assertThat(RawBitmapFormat.isRawBitmap(file)).isTrue();
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void encode_withUnsupportedConfig_usesFallback() {
+    Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_4444);
+
+    assertThat(encode(bitmap, file)).isTrue();
+
+    assertThat(fallback.encodeCount).isEqualTo(1);
+  }
+
+  @Test
+  public void encode_withUnwritableFile_returnsFalse() {
+    Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    File directory = temporaryFolder.getRoot();
+
+    assertThat(encode(bitmap, directory)).isFalse();
+  }
+
+  @Test
+  public void getEncodeStrategy_returnsTransformed() {
+    assertThat(encoder.getEncodeStrategy(options)).isEqualTo(EncodeStrategy.TRANSFORMED);
+  }
+
+  private boolean encode(Bitmap bitmap, File file) {
+    return encoder.encode(BitmapResource.obtain(bitmap, new BitmapPoolAdapter()), file, options);
+  }
+
+  private static final class FakeEncoder implements ResourceEncoder<Bitmap> {
+    int encodeCount;
+
+    @NonNull
+    @Override
+    public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
+      return EncodeStrategy.TRANSFORMED;
+    }
+
+    @Override
+    public boolean encode(@NonNull Resource<Bitmap> data, @NonNull File file,
+        @NonNull Options options) {
+      encodeCount++;
+      return true;
+    }
+  }
+}
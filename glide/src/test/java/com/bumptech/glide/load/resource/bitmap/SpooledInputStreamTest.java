@@ -0,0 +1,242 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.tests.CountingArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SpooledInputStreamTest {
+  private static final int SEGMENT_SIZE = ArrayPool.STANDARD_BUFFER_SIZE_BYTES;
+  private static final int MEMORY_LIMIT = SEGMENT_SIZE;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final CountingArrayPool byteArrayPool = new CountingArrayPool();
+  private File spillDirectory;
+  private byte[] data;
+  private SpooledInputStream stream;
+
+  @Before
+  public void setUp() throws IOException {
+    spillDirectory = temporaryFolder.newFolder();
+    data = randomBytes(new Random(1), 3 * SEGMENT_SIZE);
+    stream = newStream(data, MEMORY_LIMIT);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    stream.close();
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+    assertThat(spillDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void read_withoutMark_readsAllData() throws IOException {
+    assertThat(readFully(stream)).isEqualTo(data);
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void reset_afterReadWithinMemoryLimit_rereadsData() throws IOException {
+    stream.mark(0);
+    byte[] first = read(stream, 1000);
+    stream.reset();
+
+    assertThat(read(stream, 1000)).isEqualTo(first);
+    assertThat(first).isEqualTo(Arrays.copyOf(data, 1000));
+    assertThat(spillDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void reset_afterReadPastMemoryLimit_rereadsDataFromSpillFile() throws IOException {
+    int length = 2 * SEGMENT_SIZE + 100;
+    stream.mark(0);
+    read(stream, length);
+    assertThat(spillDirectory.list()).hasLength(1);
+    stream.reset();
+
+    assertThat(read(stream, length)).isEqualTo(Arrays.copyOf(data, length));
+  }
+
+  @Test
+  public void reset_rewindsOverSkippedData() throws IOException {
+    stream.mark(0);
+    assertThat(stream.skip(100)).isEqualTo(100);
+    stream.reset();
+
+    assertThat(read(stream, 100)).isEqualTo(Arrays.copyOf(data, 100));
+  }
+
+  @Test
+  public void reset_afterRereadingPartOfRetainedData_continuesWithUnretainedData()
+      throws IOException {
+    stream.mark(0);
+    read(stream, 100);
+    stream.reset();
+    read(stream, 50);
+
+    assertThat(read(stream, 200)).isEqualTo(Arrays.copyOfRange(data, 50, 250));
+  }
+
+  @Test
+  public void mark_afterReadingPastRetainedData_releasesRetainedData() throws IOException {
+    stream.mark(0);
+    read(stream, 2 * SEGMENT_SIZE);
+    stream.reset();
+    read(stream, 2 * SEGMENT_SIZE);
+
+    stream.mark(0);
+
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+    assertThat(spillDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void read_afterFixMarkLimit_stopsRetainingData() throws IOException {
+    stream.mark(0);
+    read(stream, 100);
+    stream.reset();
+    stream.fixMarkLimit();
+
+    assertThat(readFully(stream)).isEqualTo(data);
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+    try {
+      stream.reset();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void reset_afterFixMarkLimitWithinRetainedData_rewinds() throws IOException {
+    stream.mark(0);
+    read(stream, 100);
+    stream.reset();
+    stream.fixMarkLimit();
+    read(stream, 50);
+    stream.reset();
+
+    assertThat(read(stream, 100)).isEqualTo(Arrays.copyOf(data, 100));
+  }
+
+  @Test
+  public void available_includesRetainedData() throws IOException {
+    stream.mark(0);
+    read(stream, 100);
+    stream.reset();
+
+    assertThat(stream.available()).isEqualTo(data.length);
+  }
+
+  @Test
+  public void close_releasesSegmentsAndDeletesSpillFile() throws IOException {
+    stream.mark(0);
+    read(stream, 2 * SEGMENT_SIZE);
+
+    stream.close();
+
+    assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+    assertThat(spillDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void read_withRandomMarksAndResets_matchesSource() throws IOException {
+    Random random = new Random(0);
+    for (int i = 0; i < 50; i++) {
+      byte[] source = randomBytes(random, random.nextInt(300000) + 1);
+      SpooledInputStream spooled = newStream(source, random.nextInt(200000));
+      // Mimics Downsampler, which reads the header several times before decoding.
+      int passes = random.nextInt(4) + 1;
+      for (int pass = 0; pass < passes; pass++) {
+        spooled.mark(0);
+        byte[] read = readRandomly(spooled, random.nextInt(source.length + 1), random);
+        assertThat(read).isEqualTo(Arrays.copyOf(source, read.length));
+        spooled.reset();
+      }
+      spooled.fixMarkLimit();
+
+      assertThat(readRandomly(spooled, source.length + 1, random)).isEqualTo(source);
+      spooled.close();
+      assertThat(byteArrayPool.getOutstandingCount()).isEqualTo(0);
+      assertThat(spillDirectory.list()).isEmpty();
+    }
+  }
+
+  private SpooledInputStream newStream(byte[] source, int memoryLimit) {
+    return new SpooledInputStream(
+        new ByteArrayInputStream(source), byteArrayPool, spillDirectory, memoryLimit);
+  }
+
+  private static byte[] randomBytes(Random random, int length) {
+    byte[] result = new byte[length];
+    random.nextBytes(result);
+    return result;
+  }
+
+  private static byte[] read(InputStream is, int length) throws IOException {
+    byte[] result = new byte[length];
+    int read = 0;
+    while (read < length) {
+      int current = is.read(result, read, length - read);
+      if (current == -1) {
+        throw new IOException("Unexpected end of stream");
+      }
+      read += current;
+    }
+    return result;
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = is.read(buffer)) != -1) {
+      os.write(buffer, 0, read);
+    }
+    return os.toByteArray();
+  }
+
+  /**
+   * Reads up to the given number of bytes using a random mix of single byte and bulk reads.
+   */
+  private static byte[] readRandomly(InputStream is, int length, Random random)
+      throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    while (os.size() < length) {
+      if (random.nextBoolean()) {
+        int read = is.read();
+        if (read == -1) {
+          break;
+        }
+        os.write(read);
+      } else {
+        byte[] buffer = new byte[random.nextInt(100000) + 1];
+        int read = is.read(buffer, 0, Math.min(buffer.length, length - os.size()));
+        if (read == -1) {
+          break;
+        }
+        os.write(buffer, 0, read);
+      }
+    }
+    return os.toByteArray();
+  }
+}
@@ -0,0 +1,83 @@
+package com.bumptech.glide.provider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ModelToResourceClassCacheTest {
+  private static final Class<?>[] MODEL_CLASSES = {
+      Object.class, String.class, Integer.class, Long.class, Short.class, Byte.class,
+      Double.class, Float.class, Character.class, Boolean.class, File.class, Number.class,
+  };
+
+  private final ModelToResourceClassCache cache = new ModelToResourceClassCache();
+
+  @Test
+  public void get_withNoEntry_returnsNull() {
+    assertThat(cache.get(String.class, Object.class, Object.class)).isNull();
+  }
+
+  @Test
+  public void get_afterPut_returnsResourceClasses() {
+    List<Class<?>> resourceClasses = Collections.<Class<?>>singletonList(File.class);
+
+    cache.put(String.class, Object.class, Object.class, resourceClasses);
+
+    assertThat(cache.get(String.class, Object.class, Object.class)).isSameAs(resourceClasses);
+    assertThat(cache.get(Integer.class, Object.class, Object.class)).isNull();
+  }
+
+  @Test
+  public void get_afterClear_returnsNull() {
+    cache.put(String.class, Object.class, Object.class,
+        Collections.<Class<?>>singletonList(File.class));
+
+    cache.clear();
+
+    assertThat(cache.get(String.class, Object.class, Object.class)).isNull();
+  }
+
+  @Test
+  public void put_fromManyThreads_keepsEveryEntry() throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (final Class<?> modelClass : MODEL_CLASSES) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (Class<?> transcodeClass : MODEL_CLASSES) {
+            cache.put(modelClass, Object.class, transcodeClass,
+                Collections.<Class<?>>singletonList(transcodeClass));
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (Class<?> modelClass : MODEL_CLASSES) {
+      for (Class<?> transcodeClass : MODEL_CLASSES) {
+        assertThat(cache.get(modelClass, Object.class, transcodeClass))
+            .containsExactly(transcodeClass);
+      }
+    }
+  }
+}
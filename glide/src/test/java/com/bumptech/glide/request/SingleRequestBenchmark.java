@@ -0,0 +1,264 @@
+package com.bumptech.glide.request;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.TransitionOptions;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.target.ImageViewTargetFactory;
+import com.bumptech.glide.request.transition.NoTransition;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.tests.Benchmarks;
+import com.bumptech.glide.util.Executors;
+import com.bumptech.glide.util.GlideSuppliers.GlideSupplier;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures how many begin, onResourceReady and clear cycles per second {@link SingleRequest}s run
+ * on their own and in {@link ThumbnailRequestCoordinator} and {@link ErrorRequestCoordinator}
+ * trees, with an {@link Engine} that doesn't load anything.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SingleRequestBenchmark {
+  private static final int CYCLES = 2000000;
+  private static final int ROUNDS = 3;
+  private static final int RACES = 200000;
+
+  private final Resource<Object> resource = new FakeResource();
+  private final FakeTarget target = new FakeTarget();
+  private FakeEngine engine;
+  private GlideContext glideContext;
+
+  @Before
+  public void setUp() {
+    Benchmarks.assumeEnabled();
+    engine = new FakeEngine();
+    glideContext = new GlideContext(
+        RuntimeEnvironment.application,
+        new LruArrayPool(),
+        new GlideSupplier<Registry>() {
+          @NonNull
+          @Override
+          public Registry get() {
+            return new Registry();
+          }
+        },
+        new ImageViewTargetFactory(),
+        new RequestOptions(),
+        Collections.<Class<?>, TransitionOptions<?, ?>>emptyMap(),
+        Collections.<RequestListener<Object>>emptyList(),
+        engine,
+        /*isLoggingRequestOriginsEnabled=*/ false,
+        Log.ERROR,
+        SizeBuckets.NONE,
+        /*frameBudgetedExecutor=*/ null,
+        PauseMode.CANCEL);
+  }
+
+  @After
+  public void tearDown() {
+    if (engine != null) {
+      engine.shutdown();
+    }
+  }
+
+  @Test
+  public void single() {
+    SingleRequest<Object> request = obtainRequest(/*parent=*/ null);
+    run("single", request, request);
+  }
+
+  @Test
+  public void thumbnail() {
+    ThumbnailRequestCoordinator coordinator = new ThumbnailRequestCoordinator(/*parent=*/ null);
+    SingleRequest<Object> full = obtainRequest(coordinator);
+    SingleRequest<Object> thumb = obtainRequest(coordinator);
+    coordinator.setRequests(full, thumb);
+    run("thumbnail", coordinator, thumb, full);
+  }
+
+  @Test
+  public void error() {
+    ErrorRequestCoordinator coordinator = new ErrorRequestCoordinator(/*parent=*/ null);
+    SingleRequest<Object> primary = obtainRequest(coordinator);
+    SingleRequest<Object> error = obtainRequest(coordinator);
+    coordinator.setRequests(primary, error);
+    run("error", coordinator, primary);
+  }
+
+  /**
+   * Delivers results on a second thread while the request is cleared on this one and checks that
+   * every delivered {@link Resource} is released exactly once.
+   */
+  @Test
+  public void onResourceReady_racingClear_releasesEveryResource()
+      throws InterruptedException, ExecutionException {
+    final SingleRequest<Object> request = obtainRequest(/*parent=*/ null);
+    ExecutorService executor = java.util.concurrent.Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < RACES; i++) {
+        request.begin();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<?> delivered = executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              latch.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            request.onResourceReady(resource, DataSource.REMOTE);
+          }
+        });
+        latch.countDown();
+        if ((i & 1) == 0) {
+          Thread.yield();
+        }
+        request.clear();
+        delivered.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Benchmarks.report("%d results raced with clear, %d released", RACES, engine.releaseCount.get());
+    assertThat(engine.releaseCount.get()).isEqualTo(RACES);
+  }
+
+  private void run(String name, Request root, SingleRequest<?>... leaves) {
+    double cyclesPerSecond = 0;
+    // Only the last round is reported, the earlier rounds warm up the JIT.
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < CYCLES; i++) {
+        root.begin();
+        for (SingleRequest<?> leaf : leaves) {
+          leaf.onResourceReady(resource, DataSource.REMOTE);
+        }
+        root.clear();
+      }
+      cyclesPerSecond = CYCLES / ((System.nanoTime() - start) / 1e9);
+    }
+    Benchmarks.report("%-9s %5.2f M cycles/s", name, cyclesPerSecond / 1e6);
+  }
+
+  private SingleRequest<Object> obtainRequest(@Nullable RequestCoordinator parent) {
+    return SingleRequest.obtain(
+        glideContext,
+        glideContext,
+        /*model=*/ "model",
+        Object.class,
+        new RequestOptions(),
+        /*overrideWidth=*/ 100,
+        /*overrideHeight=*/ 100,
+        Priority.NORMAL,
+        target,
+        /*targetListener=*/ null,
+        /*requestListeners=*/ null,
+        parent,
+        engine,
+        NoTransition.getFactory(),
+        Executors.directExecutor());
+  }
+
+  private static final class FakeEngine extends Engine {
+    final AtomicInteger releaseCount = new AtomicInteger();
+
+    FakeEngine() {
+      super(new LruResourceCache(1), /*diskCacheFactory=*/ null,
+          GlideExecutor.newDiskCacheExecutor(), GlideExecutor.newSourceExecutor(),
+          GlideExecutor.newUnlimitedSourceExecutor(), GlideExecutor.newAnimationExecutor(),
+          /*isActiveResourceRetentionAllowed=*/ false);
+    }
+
+    @Override
+    public synchronized <R> LoadStatus load(GlideContext glideContext, Object model,
+        Key signature, int width, int height, Class<?> resourceClass, Class<R> transcodeClass,
+        Priority priority, DiskCacheStrategy diskCacheStrategy,
+        Map<Class<?>, Transformation<?>> transformations, boolean isTransformationRequired,
+        boolean isScaleOnlyOrNoTransform, Options options, boolean isMemoryCacheable,
+        boolean useUnlimitedSourceExecutorPool, boolean useAnimationPool,
+        boolean onlyRetrieveFromCache, ResourceCallback cb, Executor callbackExecutor) {
+      // Results are delivered by the benchmark.
+      return null;
+    }
+
+    @Override
+    public void release(Resource<?> resource) {
+      releaseCount.incrementAndGet();
+    }
+  }
+
+  private static final class FakeTarget extends CustomTarget<Object> {
+    FakeTarget() {
+      super(100, 100);
+    }
+
+    @Override
+    public void onResourceReady(@NonNull Object resource,
+        @Nullable Transition<? super Object> transition) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onLoadCleared(@Nullable Drawable placeholder) {
+      // Do nothing.
+    }
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final Object object = new Object();
+
+    @NonNull
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @NonNull
+    @Override
+    public Object get() {
+      return object;
+    }
+
+    @Override
+    public int getSize() {
+      return 1;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
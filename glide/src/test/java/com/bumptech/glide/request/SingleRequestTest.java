@@ -0,0 +1,545 @@
+package com.bumptech.glide.request;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.NoTransition;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.util.Executors;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mockito.verification.VerificationMode;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SingleRequestTest {
+  private static final int RACES = 200;
+
+  private final Object model = new Object();
+
+  @Mock private GlideContext glideContext;
+  @Mock private Engine engine;
+  @Mock private Engine.LoadStatus loadStatus;
+  @Mock private Engine.LoadStatus sourceFetchStatus;
+  @Mock private Target<Object> target;
+  @Mock private Resource<Object> resource;
+
+  private RequestOptions requestOptions;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(glideContext.getLogLevel()).thenReturn(Log.ERROR);
+    when(glideContext.getSizeBuckets()).thenReturn(SizeBuckets.NONE);
+    when(glideContext.getPauseMode()).thenReturn(PauseMode.SUSPEND);
+    when(engine.load(any(GlideContext.class), any(), any(Key.class), anyInt(), anyInt(),
+        any(Class.class), eq(Object.class), any(Priority.class), any(DiskCacheStrategy.class),
+        anyTransformations(), anyBoolean(), anyBoolean(), any(Options.class), anyBoolean(),
+        anyBoolean(), anyBoolean(), anyBoolean(), any(ResourceCallback.class),
+        any(Executor.class)))
+        .thenReturn(loadStatus);
+    when(engine.fetchSource(any(GlideContext.class), any(), any(Key.class), any(Priority.class),
+        any(DiskCacheStrategy.class), any(Options.class), anyBoolean(),
+        any(ResourceCallback.class), any(Executor.class)))
+        .thenReturn(sourceFetchStatus);
+    when(resource.get()).thenReturn(new Object());
+    requestOptions = new RequestOptions();
+  }
+
+  @Test
+  public void begin_withFetchSourceBeforeSize_fetchesSourceWhileWaitingForSize() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true);
+    SingleRequest<Object> request = obtainRequest();
+
+    request.begin();
+
+    verifySourceFetch(times(1));
+    verify(engine, never()).load(any(GlideContext.class), any(), any(Key.class), anyInt(),
+        anyInt(), any(Class.class), eq(Object.class), any(Priority.class),
+        any(DiskCacheStrategy.class), anyTransformations(), anyBoolean(), anyBoolean(),
+        any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(),
+        any(ResourceCallback.class), any(Executor.class));
+  }
+
+  @Test
+  public void begin_withFetchSourceBeforeSizeAndOverrideSize_doesNotFetchSource() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true).override(100, 100);
+    SingleRequest<Object> request = obtainRequest();
+
+    request.begin();
+
+    verifySourceFetch(never());
+    verifyLoad(request, 100, 100);
+  }
+
+  @Test
+  public void begin_withFetchSourceBeforeSizeAndNoDataCache_doesNotFetchSource() {
+    requestOptions =
+        requestOptions.fetchSourceBeforeSize(true).diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+    SingleRequest<Object> request = obtainRequest();
+
+    request.begin();
+
+    verifySourceFetch(never());
+  }
+
+  @Test
+  public void begin_withoutFetchSourceBeforeSize_doesNotFetchSource() {
+    SingleRequest<Object> request = obtainRequest();
+
+    request.begin();
+
+    verifySourceFetch(never());
+  }
+
+  @Test
+  public void onSizeReady_whileFetchingSource_loadsAndLeavesFetchToEngine() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.onSizeReady(100, 100);
+
+    // The Engine makes the load wait for the fetch, the request no longer needs its result.
+    InOrder inOrder = inOrder(engine, sourceFetchStatus);
+    inOrder.verify(engine).load(eq(glideContext), eq(model), any(Key.class), eq(100), eq(100),
+        any(Class.class), eq(Object.class), any(Priority.class), any(DiskCacheStrategy.class),
+        anyTransformations(), anyBoolean(), anyBoolean(), any(Options.class), anyBoolean(),
+        anyBoolean(), anyBoolean(), anyBoolean(), eq(request), any(Executor.class));
+    inOrder.verify(sourceFetchStatus).cancel();
+  }
+
+  @Test
+  public void clear_whileWaitingForSizeAndFetchingSource_cancelsFetch() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.clear();
+
+    verify(sourceFetchStatus).cancel();
+  }
+
+  @Test
+  public void clear_afterSizeReady_cancelsLoadAndDoesNotCancelFetchAgain() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.onSizeReady(100, 100);
+
+    request.clear();
+
+    verify(sourceFetchStatus, times(1)).cancel();
+    verify(loadStatus).cancel();
+  }
+
+  @Test
+  public void clear_afterSourceFetchFinished_releasesFetchedResourceWithoutCancellingFetch() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    ResourceCallback sourceFetch = captureSourceFetchCallback();
+
+    sourceFetch.onResourceReady(resource, DataSource.REMOTE);
+    request.clear();
+
+    verify(engine).release(resource);
+    verify(sourceFetchStatus, never()).cancel();
+  }
+
+  @Test
+  public void clear_afterSourceFetchFailed_doesNotCancelFetch() {
+    requestOptions = requestOptions.fetchSourceBeforeSize(true);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    ResourceCallback sourceFetch = captureSourceFetchCallback();
+
+    sourceFetch.onLoadFailed(new GlideException("test"));
+    request.clear();
+
+    verify(sourceFetchStatus, never()).cancel();
+    verify(target, never()).onLoadFailed(any(Drawable.class));
+  }
+
+  @Test
+  public void onSizeReady_withSizeBuckets_loadsBucketedSize() {
+    when(glideContext.getSizeBuckets()).thenReturn(SizeBuckets.multiplesOf(32));
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.onSizeReady(358, 358);
+
+    verifyLoad(request, 384, 384);
+  }
+
+  @Test
+  public void onSizeReady_withSizeBucketsAndNonSquareSize_keepsAspectRatio() {
+    when(glideContext.getSizeBuckets()).thenReturn(SizeBuckets.multiplesOf(64));
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.onSizeReady(360, 200);
+
+    verifyLoad(request, 384, 214);
+  }
+
+  @Test
+  public void onSizeReady_withSizeBuckets_countsBucketedLoads() {
+    SizeBuckets sizeBuckets = SizeBuckets.multiplesOf(32);
+    when(glideContext.getSizeBuckets()).thenReturn(sizeBuckets);
+
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.onSizeReady(358, 358);
+    request = obtainRequest();
+    request.begin();
+    request.onSizeReady(384, 384);
+
+    assertThat(sizeBuckets.getBucketedLoadCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void onResourceReady_withBucketedSizeFromCache_countsCacheHit() {
+    SizeBuckets sizeBuckets = SizeBuckets.multiplesOf(32);
+    when(glideContext.getSizeBuckets()).thenReturn(sizeBuckets);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.onSizeReady(358, 358);
+
+    request.onResourceReady(resource, DataSource.RESOURCE_DISK_CACHE);
+    request.begin();
+
+    assertThat(sizeBuckets.getBucketedCacheHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void onResourceReady_withBucketedSizeFromSource_doesNotCountCacheHit() {
+    SizeBuckets sizeBuckets = SizeBuckets.multiplesOf(32);
+    when(glideContext.getSizeBuckets()).thenReturn(sizeBuckets);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.onSizeReady(358, 358);
+
+    request.onResourceReady(resource, DataSource.DATA_DISK_CACHE);
+
+    assertThat(sizeBuckets.getBucketedCacheHitCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void onResourceReady_withUnchangedSizeFromCache_doesNotCountCacheHit() {
+    SizeBuckets sizeBuckets = SizeBuckets.multiplesOf(32);
+    when(glideContext.getSizeBuckets()).thenReturn(sizeBuckets);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.onSizeReady(384, 384);
+
+    request.onResourceReady(resource, DataSource.MEMORY_CACHE);
+
+    assertThat(sizeBuckets.getBucketedCacheHitCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void onSizeReady_withSizeBucketsAndSizeMultiplier_bucketsMultipliedSize() {
+    when(glideContext.getSizeBuckets()).thenReturn(SizeBuckets.of(100, 200, 400));
+    requestOptions = requestOptions.sizeMultiplier(0.5f);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.onSizeReady(360, 180);
+
+    verifyLoad(request, 200, 100);
+  }
+
+  @Test
+  public void onSizeReady_withSizeBucketsAndSizeOriginal_loadsOriginalSize() {
+    when(glideContext.getSizeBuckets()).thenReturn(SizeBuckets.multiplesOf(32));
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.onSizeReady(Target.SIZE_ORIGINAL, 100);
+
+    verifyLoad(request, Target.SIZE_ORIGINAL, 128);
+  }
+
+  @Test
+  public void begin_withSizeBucketsAndOverride_loadsOverrideSize() {
+    when(glideContext.getSizeBuckets()).thenReturn(SizeBuckets.multiplesOf(32));
+    requestOptions = requestOptions.override(358, 360);
+    SingleRequest<Object> request = obtainRequest();
+
+    request.begin();
+
+    verifyLoad(request, 358, 360);
+  }
+
+  @Test
+  public void clear_fromOtherThreadWhileCallingCallbacks_clearsAfterCallbacks() {
+    requestOptions = requestOptions.override(100, 100);
+    final SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    final AtomicBoolean isClearedDuringCallbacks = new AtomicBoolean();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            request.clear();
+          }
+        });
+        thread.start();
+        thread.join();
+        isClearedDuringCallbacks.set(request.isCleared());
+        verify(engine, never()).release(resource);
+        verify(target, never()).onLoadCleared(null);
+        return null;
+      }
+    }).when(target).onResourceReady(any(), anyTransition());
+
+    request.onResourceReady(resource, DataSource.REMOTE);
+
+    assertThat(isClearedDuringCallbacks.get()).isFalse();
+    assertThat(request.isCleared()).isTrue();
+    InOrder inOrder = inOrder(target, engine);
+    inOrder.verify(target).onResourceReady(any(), anyTransition());
+    inOrder.verify(engine).release(resource);
+    inOrder.verify(target).onLoadCleared(null);
+  }
+
+  @Test
+  public void clear_racingOnResourceReady_neverClearsTargetDuringCallbacks()
+      throws InterruptedException {
+    requestOptions = requestOptions.override(100, 100);
+    final SingleRequest<Object> request = obtainRequest();
+    final AtomicBoolean isInOnResourceReady = new AtomicBoolean();
+    final AtomicBoolean isClearedInOnResourceReady = new AtomicBoolean();
+    final AtomicInteger releaseCount = new AtomicInteger();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        isInOnResourceReady.set(true);
+        Thread.yield();
+        isInOnResourceReady.set(false);
+        return null;
+      }
+    }).when(target).onResourceReady(any(), anyTransition());
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        if (isInOnResourceReady.get()) {
+          isClearedInOnResourceReady.set(true);
+        }
+        return null;
+      }
+    }).when(target).onLoadCleared(null);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        releaseCount.incrementAndGet();
+        return null;
+      }
+    }).when(engine).release(resource);
+
+    for (int i = 0; i < RACES; i++) {
+      request.begin();
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          request.onResourceReady(resource, DataSource.REMOTE);
+        }
+      });
+      thread.start();
+      if ((i & 1) == 0) {
+        Thread.yield();
+      }
+      request.clear();
+      thread.join();
+
+      assertThat(request.isCleared()).isTrue();
+    }
+
+    assertThat(isClearedInOnResourceReady.get()).isFalse();
+    assertThat(releaseCount.get()).isEqualTo(RACES);
+  }
+
+  @Test
+  public void clear_fromCallbacks_throws() {
+    requestOptions = requestOptions.override(100, 100);
+    final SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    final AtomicBoolean didThrow = new AtomicBoolean();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        try {
+          request.clear();
+        } catch (IllegalStateException e) {
+          didThrow.set(true);
+        }
+        return null;
+      }
+    }).when(target).onResourceReady(any(), anyTransition());
+
+    request.onResourceReady(resource, DataSource.REMOTE);
+
+    assertThat(didThrow.get()).isTrue();
+    assertThat(request.isComplete()).isTrue();
+    verify(engine, never()).release(resource);
+  }
+
+  @Test
+  public void onResourceReady_afterClear_releasesResourceWithoutCallbacks() {
+    requestOptions = requestOptions.override(100, 100);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.clear();
+
+    request.onResourceReady(resource, DataSource.REMOTE);
+
+    assertThat(request.isCleared()).isTrue();
+    verify(engine).release(resource);
+    verify(target, never()).onResourceReady(any(), anyTransition());
+  }
+
+  @Test
+  public void pause_withRunningLoad_pausesLoad() {
+    requestOptions = requestOptions.override(100, 100);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+
+    request.pause();
+
+    verify(loadStatus).pause(/*isDiskCacheWriteAllowed=*/ false);
+    verify(loadStatus, never()).cancel();
+    assertThat(request.isRunning()).isFalse();
+    assertThat(request.isCleared()).isFalse();
+  }
+
+  @Test
+  public void begin_whilePaused_resumesLoad() {
+    requestOptions = requestOptions.override(100, 100);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.pause();
+
+    request.begin();
+
+    verify(loadStatus).resume();
+    assertThat(request.isRunning()).isTrue();
+    verifyLoad(request, 100, 100);
+  }
+
+  @Test
+  public void onResourceReady_whilePaused_completesRequest() {
+    requestOptions = requestOptions.override(100, 100);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.pause();
+
+    request.onResourceReady(resource, DataSource.REMOTE);
+
+    assertThat(request.isComplete()).isTrue();
+    verify(target).onResourceReady(any(), anyTransition());
+    verify(engine, never()).release(resource);
+  }
+
+  @Test
+  public void begin_afterLoadFinishedWhilePaused_deliversResourceWithoutResuming() {
+    requestOptions = requestOptions.override(100, 100);
+    SingleRequest<Object> request = obtainRequest();
+    request.begin();
+    request.pause();
+    request.onResourceReady(resource, DataSource.REMOTE);
+
+    request.begin();
+
+    verify(loadStatus, never()).resume();
+    verify(target, times(2)).onResourceReady(any(), anyTransition());
+    assertThat(request.isComplete()).isTrue();
+    verifyLoad(request, 100, 100);
+  }
+
+  private SingleRequest<Object> obtainRequest() {
+    return SingleRequest.obtain(
+        RuntimeEnvironment.application,
+        glideContext,
+        model,
+        Object.class,
+        requestOptions,
+        requestOptions.getOverrideWidth(),
+        requestOptions.getOverrideHeight(),
+        Priority.NORMAL,
+        target,
+        /*targetListener=*/ null,
+        /*requestListeners=*/ null,
+        /*requestCoordinator=*/ null,
+        engine,
+        NoTransition.getFactory(),
+        Executors.directExecutor());
+  }
+
+  private void verifyLoad(SingleRequest<Object> request, int width, int height) {
+    verify(engine).load(eq(glideContext), eq(model), any(Key.class), eq(width), eq(height),
+        any(Class.class), eq(Object.class), any(Priority.class), any(DiskCacheStrategy.class),
+        anyTransformations(), anyBoolean(), anyBoolean(), any(Options.class), anyBoolean(),
+        anyBoolean(), anyBoolean(), anyBoolean(), eq(request), any(Executor.class));
+  }
+
+  private void verifySourceFetch(VerificationMode mode) {
+    verify(engine, mode).fetchSource(eq(glideContext), eq(model), any(Key.class),
+        any(Priority.class), any(DiskCacheStrategy.class), any(Options.class), anyBoolean(),
+        any(ResourceCallback.class), any(Executor.class));
+  }
+
+  private ResourceCallback captureSourceFetchCallback() {
+    ArgumentCaptor<ResourceCallback> captor = ArgumentCaptor.forClass(ResourceCallback.class);
+    verify(engine).fetchSource(eq(glideContext), eq(model), any(Key.class), any(Priority.class),
+        any(DiskCacheStrategy.class), any(Options.class), anyBoolean(), captor.capture(),
+        any(Executor.class));
+    return captor.getValue();
+  }
+
+  private static Transition<? super Object> anyTransition() {
+    return any();
+  }
+
+  private static Map<Class<?>, Transformation<?>> anyTransformations() {
+    return any();
+  }
+}
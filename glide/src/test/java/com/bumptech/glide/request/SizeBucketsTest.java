@@ -0,0 +1,192 @@
+package com.bumptech.glide.request;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.request.target.Target;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SizeBucketsTest {
+
+  @Test
+  public void none_returnsSize() {
+    assertThat(SizeBuckets.NONE.getBucket(1)).isEqualTo(1);
+    assertThat(SizeBuckets.NONE.getBucket(359)).isEqualTo(359);
+    assertThat(SizeBuckets.NONE.getBucket(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void multiplesOf_roundsUpToNextMultiple() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(32);
+
+    assertThat(buckets.getBucket(1)).isEqualTo(32);
+    assertThat(buckets.getBucket(31)).isEqualTo(32);
+    assertThat(buckets.getBucket(33)).isEqualTo(64);
+    assertThat(buckets.getBucket(358)).isEqualTo(384);
+    assertThat(buckets.getBucket(360)).isEqualTo(384);
+  }
+
+  @Test
+  public void multiplesOf_withMultiple_returnsSize() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(32);
+
+    assertThat(buckets.getBucket(32)).isEqualTo(32);
+    assertThat(buckets.getBucket(384)).isEqualTo(384);
+  }
+
+  @Test
+  public void multiplesOf_withStepOfOne_returnsSize() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(1);
+
+    assertThat(buckets.getBucket(359)).isEqualTo(359);
+  }
+
+  @Test
+  public void multiplesOf_nearMaxValue_doesNotOverflow() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(32);
+
+    assertThat(buckets.getBucket(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+    assertThat(buckets.getBucket(Integer.MAX_VALUE - 10)).isEqualTo(Integer.MAX_VALUE - 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multiplesOf_withZeroStep_throws() {
+    SizeBuckets.multiplesOf(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multiplesOf_withNegativeStep_throws() {
+    SizeBuckets.multiplesOf(-32);
+  }
+
+  @Test
+  public void of_roundsUpToSmallestLargerSize() {
+    SizeBuckets buckets = SizeBuckets.of(100, 200, 400);
+
+    assertThat(buckets.getBucket(1)).isEqualTo(100);
+    assertThat(buckets.getBucket(99)).isEqualTo(100);
+    assertThat(buckets.getBucket(101)).isEqualTo(200);
+    assertThat(buckets.getBucket(399)).isEqualTo(400);
+  }
+
+  @Test
+  public void of_withGivenSize_returnsSize() {
+    SizeBuckets buckets = SizeBuckets.of(100, 200, 400);
+
+    assertThat(buckets.getBucket(100)).isEqualTo(100);
+    assertThat(buckets.getBucket(200)).isEqualTo(200);
+    assertThat(buckets.getBucket(400)).isEqualTo(400);
+  }
+
+  @Test
+  public void of_withSizeLargerThanEveryBucket_returnsSize() {
+    SizeBuckets buckets = SizeBuckets.of(100, 200, 400);
+
+    assertThat(buckets.getBucket(401)).isEqualTo(401);
+    assertThat(buckets.getBucket(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void of_withUnsortedSizes_sortsSizes() {
+    SizeBuckets buckets = SizeBuckets.of(400, 100, 200);
+
+    assertThat(buckets.getBucket(150)).isEqualTo(200);
+    assertThat(buckets.getBucket(50)).isEqualTo(100);
+  }
+
+  @Test
+  public void of_doesNotUseCallersArray() {
+    int[] sizes = {100, 200};
+    SizeBuckets buckets = SizeBuckets.of(sizes);
+
+    sizes[0] = 150;
+
+    assertThat(buckets.getBucket(120)).isEqualTo(200);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void of_withNoSizes_throws() {
+    SizeBuckets.of();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void of_withZeroSize_throws() {
+    SizeBuckets.of(100, 0);
+  }
+
+  @Test
+  public void getBucketedSize_withSquareSize_bucketsBoth() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(32);
+
+    assertThat(buckets.getBucketedWidth(358, 358)).isEqualTo(384);
+    assertThat(buckets.getBucketedHeight(358, 358)).isEqualTo(384);
+  }
+
+  @Test
+  public void getBucketedSize_withWiderSize_bucketsWidthAndScalesHeight() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(64);
+
+    assertThat(buckets.getBucketedWidth(360, 200)).isEqualTo(384);
+    // 200 * 384 / 360 = 213.3
+    assertThat(buckets.getBucketedHeight(360, 200)).isEqualTo(214);
+  }
+
+  @Test
+  public void getBucketedSize_withTallerSize_bucketsHeightAndScalesWidth() {
+    SizeBuckets buckets = SizeBuckets.of(100, 200, 400);
+
+    assertThat(buckets.getBucketedWidth(90, 180)).isEqualTo(100);
+    assertThat(buckets.getBucketedHeight(90, 180)).isEqualTo(200);
+  }
+
+  @Test
+  public void getBucketedSize_keepsAspectRatioWithinOnePixel() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(64);
+    for (int width = 1; width < 600; width += 7) {
+      for (int height = 1; height < 600; height += 11) {
+        int bucketedWidth = buckets.getBucketedWidth(width, height);
+        int bucketedHeight = buckets.getBucketedHeight(width, height);
+
+        assertThat(bucketedWidth).isAtLeast(width);
+        assertThat(bucketedHeight).isAtLeast(height);
+        if (width >= height) {
+          assertThat((double) bucketedHeight)
+              .isWithin(1d)
+              .of((double) height * bucketedWidth / width);
+        } else {
+          assertThat((double) bucketedWidth)
+              .isWithin(1d)
+              .of((double) width * bucketedHeight / height);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void getBucketedSize_withSizeOriginal_bucketsOtherSize() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(32);
+
+    assertThat(buckets.getBucketedWidth(Target.SIZE_ORIGINAL, 100))
+        .isEqualTo(Target.SIZE_ORIGINAL);
+    assertThat(buckets.getBucketedHeight(Target.SIZE_ORIGINAL, 100)).isEqualTo(128);
+    assertThat(buckets.getBucketedWidth(100, Target.SIZE_ORIGINAL)).isEqualTo(128);
+    assertThat(buckets.getBucketedHeight(100, Target.SIZE_ORIGINAL))
+        .isEqualTo(Target.SIZE_ORIGINAL);
+  }
+
+  @Test
+  public void getBucketedSize_withLargeSizes_doesNotOverflow() {
+    SizeBuckets buckets = SizeBuckets.multiplesOf(32);
+
+    assertThat(buckets.getBucketedWidth(Integer.MAX_VALUE - 10, Integer.MAX_VALUE))
+        .isEqualTo(Integer.MAX_VALUE - 10);
+  }
+
+  @Test
+  public void none_getBucketedSize_returnsSize() {
+    assertThat(SizeBuckets.NONE.getBucketedWidth(358, 200)).isEqualTo(358);
+    assertThat(SizeBuckets.NONE.getBucketedHeight(358, 200)).isEqualTo(200);
+  }
+}
@@ -0,0 +1,39 @@
+package com.bumptech.glide.tests;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Locale;
+
+/**
+ * Helpers for the benchmarks in the unit test source set.
+ *
+ * <p>Benchmarks are skipped unless the {@value #ENABLED_PROPERTY} system property is {@code true},
+ * for example:
+ *
+ * <pre>{@code ./gradlew :glide:testDebugUnitTest -Dglide.benchmark=true --tests '*Benchmark'}</pre>
+ *
+ * <p>Timings on a desktop JVM don't reflect a device, so benchmarks are only useful to compare
+ * implementations against each other in the same run.
+ */
+public final class Benchmarks {
+  public static final String ENABLED_PROPERTY = "glide.benchmark";
+
+  private Benchmarks() {
+    // Utility class.
+  }
+
+  /**
+   * Skips the calling benchmark unless benchmarks are enabled.
+   */
+  public static void assumeEnabled() {
+    assumeTrue("Set -D" + ENABLED_PROPERTY + "=true to run benchmarks",
+        Boolean.getBoolean(ENABLED_PROPERTY));
+  }
+
+  /**
+   * Prints one line of results.
+   */
+  public static void report(String format, Object... args) {
+    System.out.println(String.format(Locale.US, format, args));
+  }
+}
@@ -0,0 +1,54 @@
+package com.bumptech.glide.tests;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.lang.reflect.Array;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ArrayPool} that always allocates new arrays and counts those that haven't been put
+ * back, so tests can check that pooled arrays aren't leaked.
+ *
+ * <p>Safe to use from multiple threads.
+ */
+public final class CountingArrayPool implements ArrayPool {
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  /**
+   * Returns the number of arrays obtained from the pool that haven't been put back.
+   */
+  public int getOutstandingCount() {
+    return outstanding.get();
+  }
+
+  @Deprecated
+  @Override
+  public <T> void put(T array, Class<T> arrayClass) {
+    put(array);
+  }
+
+  @Override
+  public <T> void put(T array) {
+    outstanding.decrementAndGet();
+  }
+
+  @Override
+  public <T> T get(int size, Class<T> arrayClass) {
+    outstanding.incrementAndGet();
+    return arrayClass.cast(Array.newInstance(arrayClass.getComponentType(), size));
+  }
+
+  @Override
+  public <T> T getExact(int size, Class<T> arrayClass) {
+    return get(size, arrayClass);
+  }
+
+  @Override
+  public void clearMemory() {
+    // Nothing is retained.
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    // Nothing is retained.
+  }
+}
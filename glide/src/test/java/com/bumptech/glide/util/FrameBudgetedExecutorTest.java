@@ -0,0 +1,194 @@
+package com.bumptech.glide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.Priority;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class FrameBudgetedExecutorTest {
+  private static final long FRAME_MS = 16;
+  private static final int MAX_FRAMES = 100;
+
+  private final List<String> delivered = new ArrayList<>();
+  private final RecordingListener listener = new RecordingListener();
+
+  @Test
+  public void execute_runsCallbackInLaterFrame() {
+    FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.HOURS);
+
+    executor.forPriority(Priority.NORMAL).execute(new Deliver("a"));
+
+    assertThat(delivered).isEmpty();
+    runFrames(1);
+    assertThat(delivered).containsExactly("a");
+  }
+
+  @Test
+  public void execute_runsHigherPrioritiesFirstAndEqualPrioritiesInOrder() {
+    FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.HOURS);
+
+    executor.forPriority(Priority.LOW).execute(new Deliver("low"));
+    executor.forPriority(Priority.NORMAL).execute(new Deliver("normal1"));
+    executor.forPriority(Priority.IMMEDIATE).execute(new Deliver("immediate"));
+    executor.forPriority(Priority.HIGH).execute(new Deliver("high"));
+    executor.forPriority(Priority.NORMAL).execute(new Deliver("normal2"));
+    runFrames(1);
+
+    assertThat(delivered)
+        .containsExactly("immediate", "high", "normal1", "normal2", "low")
+        .inOrder();
+  }
+
+  @Test
+  public void execute_withinBudget_runsAllCallbacksInOneBatch() {
+    FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.HOURS);
+
+    for (int i = 0; i < 10; i++) {
+      executor.forPriority(Priority.NORMAL).execute(new Deliver("callback" + i));
+    }
+    runFrames(1);
+
+    assertThat(delivered).hasSize(10);
+    assertThat(listener.deliveredCounts).containsExactly(10);
+    assertThat(listener.remainingCounts).containsExactly(0);
+    assertThat(listener.overrunNanos).containsExactly(0L);
+  }
+
+  @Test
+  public void execute_overBudget_runsOneCallbackPerBatchUntilAllAreDelivered() {
+    FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.MILLISECONDS);
+
+    for (int i = 0; i < 3; i++) {
+      executor.forPriority(Priority.NORMAL).execute(new SlowDeliver("callback" + i));
+    }
+    runFramesUntilDelivered(3);
+
+    assertThat(delivered).containsExactly("callback0", "callback1", "callback2").inOrder();
+    assertThat(listener.deliveredCounts).containsExactly(1, 1, 1);
+    assertThat(listener.remainingCounts).containsExactly(2, 1, 0).inOrder();
+    for (long overrun : listener.overrunNanos) {
+      assertThat(overrun).isGreaterThan(0L);
+    }
+  }
+
+  @Test
+  public void execute_overBudget_runsHigherPriorityCallbackQueuedDuringBatchNext() {
+    final FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.MILLISECONDS);
+    executor.forPriority(Priority.LOW).execute(new SlowDeliver("low1") {
+      @Override
+      public void run() {
+        super.run();
+        executor.forPriority(Priority.IMMEDIATE).execute(new SlowDeliver("immediate"));
+      }
+    });
+    executor.forPriority(Priority.LOW).execute(new SlowDeliver("low2"));
+
+    runFramesUntilDelivered(3);
+
+    assertThat(delivered).containsExactly("low1", "immediate", "low2").inOrder();
+  }
+
+  @Test
+  public void execute_whenCallbackThrows_stillDeliversRemainingCallbacks() {
+    FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.HOURS);
+    executor.forPriority(Priority.HIGH).execute(new Runnable() {
+      @Override
+      public void run() {
+        throw new IllegalStateException("test");
+      }
+    });
+    executor.forPriority(Priority.NORMAL).execute(new Deliver("a"));
+
+    try {
+      runFrames(1);
+    } catch (RuntimeException e) {
+      // Expected, the exception is thrown on the main thread.
+    }
+    runFramesUntilDelivered(1);
+
+    assertThat(delivered).containsExactly("a");
+  }
+
+  @Test
+  public void setListener_withNull_stopsNotifyingListener() {
+    FrameBudgetedExecutor executor = newExecutor(1, TimeUnit.HOURS);
+    executor.setListener(null);
+
+    executor.forPriority(Priority.NORMAL).execute(new Deliver("a"));
+    runFrames(1);
+
+    assertThat(delivered).containsExactly("a");
+    assertThat(listener.deliveredCounts).isEmpty();
+  }
+
+  private FrameBudgetedExecutor newExecutor(long budget, TimeUnit unit) {
+    FrameBudgetedExecutor executor = new FrameBudgetedExecutor(budget, unit);
+    executor.setListener(listener);
+    return executor;
+  }
+
+  private static void runFrames(int count) {
+    for (int i = 0; i < count; i++) {
+      ShadowLooper.idleMainLooper(FRAME_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void runFramesUntilDelivered(int count) {
+    for (int i = 0; i < MAX_FRAMES && delivered.size() < count; i++) {
+      runFrames(1);
+    }
+  }
+
+  private class Deliver implements Runnable {
+    private final String name;
+
+    Deliver(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void run() {
+      delivered.add(name);
+    }
+  }
+
+  /** Takes longer than the one millisecond budget to run. */
+  private class SlowDeliver extends Deliver {
+
+    SlowDeliver(String name) {
+      super(name);
+    }
+
+    @Override
+    public void run() {
+      super.run();
+      long endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2);
+      while (System.nanoTime() < endNanos) {
+        // Spin.
+      }
+    }
+  }
+
+  private static final class RecordingListener implements FrameBudgetedExecutor.Listener {
+    final List<Integer> deliveredCounts = new ArrayList<>();
+    final List<Integer> remainingCounts = new ArrayList<>();
+    final List<Long> overrunNanos = new ArrayList<>();
+
+    @Override
+    public void onBatchDelivered(
+        int deliveredCount, int remainingCount, long elapsedNanos, long overrunNanos) {
+      deliveredCounts.add(deliveredCount);
+      remainingCounts.add(remainingCount);
+      this.overrunNanos.add(overrunNanos);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.bumptech.glide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.GlideSuppliers.GlideSupplier;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GlideSuppliersTest {
+  private static final long TIMEOUT_MS = 5000;
+
+  @Test
+  public void memoize_beforeGet_doesNotCallSupplier() {
+    CountingSupplier supplier = new CountingSupplier();
+
+    GlideSuppliers.memoize(supplier);
+
+    assertThat(supplier.calls.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void memoize_getCalledTwice_callsSupplierOnceAndReturnsSameObject() {
+    CountingSupplier supplier = new CountingSupplier();
+    GlideSupplier<Object> memoized = GlideSuppliers.memoize(supplier);
+
+    Object first = memoized.get();
+
+    assertThat(memoized.get()).isSameAs(first);
+    assertThat(supplier.calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void memoize_getFromManyThreads_callsSupplierOnce() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountingSupplier supplier = new CountingSupplier() {
+      @NonNull
+      @Override
+      public Object get() {
+        try {
+          release.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return super.get();
+      }
+    };
+    final GlideSupplier<Object> memoized = GlideSuppliers.memoize(supplier);
+    final Object[] results = new Object[4];
+    Thread[] threads = new Thread[results.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          results[index] = memoized.get();
+        }
+      });
+      threads[i].start();
+    }
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join(TIMEOUT_MS);
+    }
+
+    assertThat(supplier.calls.get()).isEqualTo(1);
+    for (Object result : results) {
+      assertThat(result).isSameAs(results[0]);
+    }
+  }
+
+  @Test
+  public void memoize_whenSupplierThrows_callsSupplierAgainOnNextGet() {
+    final AtomicInteger calls = new AtomicInteger();
+    GlideSupplier<Object> memoized = GlideSuppliers.memoize(new GlideSupplier<Object>() {
+      @NonNull
+      @Override
+      public Object get() {
+        if (calls.incrementAndGet() == 1) {
+          throw new IllegalArgumentException();
+        }
+        return new Object();
+      }
+    });
+    try {
+      memoized.get();
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+
+    assertThat(memoized.get()).isNotNull();
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void memoize_whenSupplierReturnsNull_throws() {
+    GlideSuppliers.memoize(new GlideSupplier<Object>() {
+      @SuppressWarnings("ConstantConditions")
+      @NonNull
+      @Override
+      public Object get() {
+        return null;
+      }
+    }).get();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void memoize_getFromWithinSupplier_throws() {
+    final GlideSupplier<?>[] memoized = new GlideSupplier<?>[1];
+    memoized[0] = GlideSuppliers.memoize(new GlideSupplier<Object>() {
+      @NonNull
+      @Override
+      public Object get() {
+        return memoized[0].get();
+      }
+    });
+
+    memoized[0].get();
+  }
+
+  private static class CountingSupplier implements GlideSupplier<Object> {
+    final AtomicInteger calls = new AtomicInteger();
+
+    @NonNull
+    @Override
+    public Object get() {
+      calls.incrementAndGet();
+      return new Object();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.bumptech.glide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MultiClassTableTest {
+  // Enough distinct classes to force several resizes when combined.
+  private static final Class<?>[] CLASSES = {
+      Object.class, String.class, Integer.class, Long.class, Short.class, Byte.class,
+      Double.class, Float.class, Character.class, Boolean.class, File.class, InputStream.class,
+      ByteArrayInputStream.class, List.class, ArrayList.class, Number.class,
+  };
+
+  @Test
+  public void get_withEmptyTable_returnsNull() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>().build();
+
+    assertThat(table.get(Object.class, Object.class, Object.class)).isNull();
+    assertThat(table.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void get_withPutClasses_returnsValue() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>()
+        .put(File.class, Object.class, String.class, "value")
+        .build();
+
+    assertThat(table.get(File.class, Object.class, String.class)).isEqualTo("value");
+  }
+
+  @Test
+  public void get_withClassesInDifferentOrder_returnsNull() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>()
+        .put(File.class, Object.class, String.class, "value")
+        .build();
+
+    assertThat(table.get(String.class, Object.class, File.class)).isNull();
+    assertThat(table.get(Object.class, File.class, String.class)).isNull();
+  }
+
+  @Test
+  public void get_withSubclass_returnsNull() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>()
+        .put(InputStream.class, Object.class, Object.class, "value")
+        .build();
+
+    assertThat(table.get(ByteArrayInputStream.class, Object.class, Object.class)).isNull();
+  }
+
+  @Test
+  public void put_withExistingClasses_replacesValue() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>()
+        .put(File.class, Object.class, String.class, "first")
+        .put(File.class, Object.class, String.class, "second")
+        .build();
+
+    assertThat(table.get(File.class, Object.class, String.class)).isEqualTo("second");
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_withManyClasses_returnsEveryValue() {
+    MultiClassTable.Builder<String> builder = new MultiClassTable.Builder<>();
+    for (Class<?> first : CLASSES) {
+      for (Class<?> second : CLASSES) {
+        for (Class<?> third : CLASSES) {
+          builder.put(first, second, third, name(first, second, third));
+        }
+      }
+    }
+
+    MultiClassTable<String> table = builder.build();
+
+    assertThat(table.size()).isEqualTo(CLASSES.length * CLASSES.length * CLASSES.length);
+    for (Class<?> first : CLASSES) {
+      for (Class<?> second : CLASSES) {
+        for (Class<?> third : CLASSES) {
+          assertThat(table.get(first, second, third)).isEqualTo(name(first, second, third));
+        }
+      }
+    }
+    assertThat(table.get(Void.class, Object.class, Object.class)).isNull();
+  }
+
+  @Test
+  public void build_thenPut_doesNotModifyBuiltTable() {
+    MultiClassTable.Builder<String> builder = new MultiClassTable.Builder<String>()
+        .put(File.class, Object.class, String.class, "first");
+    MultiClassTable<String> table = builder.build();
+
+    builder.put(File.class, Object.class, String.class, "second")
+        .put(Integer.class, Object.class, String.class, "other");
+
+    assertThat(table.get(File.class, Object.class, String.class)).isEqualTo("first");
+    assertThat(table.get(Integer.class, Object.class, String.class)).isNull();
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void builderFromTable_containsTableEntries() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>()
+        .put(File.class, Object.class, String.class, "first")
+        .build();
+
+    MultiClassTable<String> copy = new MultiClassTable.Builder<>(table)
+        .put(Integer.class, Object.class, String.class, "second")
+        .build();
+
+    assertThat(copy.get(File.class, Object.class, String.class)).isEqualTo("first");
+    assertThat(copy.get(Integer.class, Object.class, String.class)).isEqualTo("second");
+    assertThat(copy.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void builderFromTable_thenPut_doesNotModifyTable() {
+    MultiClassTable<String> table = new MultiClassTable.Builder<String>()
+        .put(File.class, Object.class, String.class, "first")
+        .build();
+
+    MultiClassTable.Builder<String> builder = new MultiClassTable.Builder<>(table);
+    for (Class<?> first : CLASSES) {
+      builder.put(first, Object.class, String.class, "replaced");
+    }
+
+    assertThat(table.get(File.class, Object.class, String.class)).isEqualTo("first");
+    assertThat(table.get(Integer.class, Object.class, String.class)).isNull();
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  private static String name(Class<?> first, Class<?> second, Class<?> third) {
+    return first.getSimpleName() + "," + second.getSimpleName() + "," + third.getSimpleName();
+  }
+}